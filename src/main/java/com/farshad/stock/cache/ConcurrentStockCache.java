@@ -0,0 +1,232 @@
+package com.farshad.stock.cache;
+
+import com.farshad.stock.dto.StockDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lock free stock cache
+ * <br> Entries are evicted in insertion order once more than maxSize stocks are cached.
+ * <br> Price updates replace the value inside an existing entry, so they neither reorder nor invalidate anything.
+ * <br> Removed entries stay in the insertion order marked as removed, eviction skips them.
+ * They are swept out together once more than maxSize have piled up.
+ * <br> The full list is kept as a snapshot of ids that is only valid for the generation it was loaded in,
+ * creating or deleting a stock moves the generation forward.
+ */
+@Component
+@ConditionalOnProperty(name = "stock.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrentStockCache implements StockCache {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrentStockCache.class);
+
+    private final int                                   maxSize;
+    private final ConcurrentHashMap<Long, Entry>        entries         = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry>          insertionOrder  = new ConcurrentLinkedQueue<>();
+    private final AtomicLong                            generation      = new AtomicLong();
+    private final AtomicInteger                         removedQueued   = new AtomicInteger();
+    private final AtomicReference<IdsSnapshot>          allIds          = new AtomicReference<>();
+    private final LongAdder                             hits            = new LongAdder();
+    private final LongAdder                             misses          = new LongAdder();
+    private final LongAdder                             evictions       = new LongAdder();
+
+    public ConcurrentStockCache(@Value("${stock.cache.max-size:100000}") int maxSize) {
+        if(maxSize <= 0){
+            throw new IllegalArgumentException("stock.cache.max-size must be positive but was " + maxSize);
+        }
+        this.maxSize = maxSize;
+        logger.debug("Stock cache enabled with max size " + maxSize);
+    }
+
+    @Override
+    public StockDto get(Long id) {
+        Entry entry = entries.get(id);
+        if(entry != null){
+            hits.increment();
+            return entry.value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void put(StockDto stockDto) {
+        while(true){
+            Entry entry = entries.get(stockDto.getId());
+            if(entry != null){
+                entry.value = stockDto;
+                return;
+            }
+            /**
+             * a write for an id we don't hold may be a new stock, the cached id list can't be trusted anymore
+             */
+            generation.incrementAndGet();
+            /**
+             * a reader may have inserted what it loaded before this write, the next round overwrites it
+             */
+            if(insert(stockDto) != null){
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void putIfUnchanged(StockDto stockDto, long loadedGeneration) {
+        if(generation.get() != loadedGeneration){
+            return;
+        }
+        Entry entry = insert(stockDto);
+        /**
+         * a delete may have slipped in between the check and the insert, don't bring the stock back
+         */
+        if(entry != null && generation.get() != loadedGeneration && entries.remove(stockDto.getId(), entry)){
+            removed(entry);
+        }
+    }
+
+    @Override
+    public void evict(Long id) {
+        generation.incrementAndGet();
+        allIds.set(null);
+        Entry entry = entries.remove(id);
+        if(entry != null){
+            removed(entry);
+        }
+    }
+
+    @Override
+    public List<StockDto> getAll() {
+        IdsSnapshot snapshot = allIds.get();
+        if(snapshot == null || snapshot.generation != generation.get()){
+            misses.increment();
+            return null;
+        }
+        List<StockDto> stockDtoList = new ArrayList<>(snapshot.ids.length);
+        for(long id : snapshot.ids){
+            Entry entry = entries.get(id);
+            if(entry == null){
+                misses.increment();
+                return null;
+            }
+            stockDtoList.add(entry.value);
+        }
+        hits.increment();
+        return Collections.unmodifiableList(stockDtoList);
+    }
+
+    @Override
+    public void putAll(List<StockDto> stockDtoList, long loadedGeneration) {
+        for(StockDto stockDto : stockDtoList){
+            putIfUnchanged(stockDto, loadedGeneration);
+        }
+        /**
+         * a list bigger than the cache would be evicting itself, only cache the single entries then
+         */
+        if(stockDtoList.size() <= maxSize && generation.get() == loadedGeneration){
+            long[] ids = new long[stockDtoList.size()];
+            for(int i = 0; i < ids.length; i++){
+                ids[i] = stockDtoList.get(i).getId();
+            }
+            allIds.set(new IdsSnapshot(loadedGeneration, ids));
+        }
+    }
+
+    @Override
+    public long generation() {
+        return generation.get();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the inserted entry or null if the id was already cached
+     */
+    private Entry insert(StockDto stockDto) {
+        Entry entry = new Entry(stockDto.getId(), stockDto);
+        Entry existing = entries.putIfAbsent(entry.id, entry);
+        if(existing != null){
+            return null;
+        }
+        insertionOrder.add(entry);
+        evictIfFull();
+        return entry;
+    }
+
+    /**
+     * Leaves entry in the insertion order instead of searching for it, every removed entry left there is swept once enough have piled up
+     */
+    private void removed(Entry entry) {
+        entry.removed = true;
+        if(removedQueued.incrementAndGet() > maxSize){
+            removedQueued.set(0);
+            insertionOrder.removeIf(queued -> queued.removed);
+        }
+    }
+
+    private void evictIfFull() {
+        while(entries.size() > maxSize){
+            Entry eldest = insertionOrder.poll();
+            if(eldest == null){
+                return;
+            }
+            if(entries.remove(eldest.id, eldest)){
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Long          id;
+        private volatile StockDto   value;
+        private volatile boolean    removed;
+
+        private Entry(Long id, StockDto value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    private static final class IdsSnapshot {
+        private final long      generation;
+        private final long[]    ids;
+
+        private IdsSnapshot(long generation, long[] ids) {
+            this.generation = generation;
+            this.ids = ids;
+        }
+    }
+}
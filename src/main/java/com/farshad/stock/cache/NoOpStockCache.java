@@ -0,0 +1,66 @@
+package com.farshad.stock.cache;
+
+import com.farshad.stock.dto.StockDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Used when stock.cache.enabled=false, every read goes to the repository
+ */
+@Component
+@ConditionalOnProperty(name = "stock.cache.enabled", havingValue = "false")
+public class NoOpStockCache implements StockCache {
+    @Override
+    public StockDto get(Long id) {
+        return null;
+    }
+
+    @Override
+    public void put(StockDto stockDto) { }
+
+    @Override
+    public void putIfUnchanged(StockDto stockDto, long generation) { }
+
+    @Override
+    public void evict(Long id) { }
+
+    @Override
+    public List<StockDto> getAll() {
+        return null;
+    }
+
+    @Override
+    public void putAll(List<StockDto> stockDtoList, long generation) { }
+
+    @Override
+    public long generation() {
+        return 0;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return 0;
+    }
+
+    @Override
+    public long getHitCount() {
+        return 0;
+    }
+
+    @Override
+    public long getMissCount() {
+        return 0;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return 0;
+    }
+}
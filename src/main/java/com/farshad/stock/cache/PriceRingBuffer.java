@@ -0,0 +1,118 @@
+package com.farshad.stock.cache;
+
+import com.farshad.stock.dto.PricePointDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Most recent prices of one stock, ordered by time, in primitive arrays
+ * <br> Arrays start small and double until capacity, once full every new price overwrites the oldest one.
+ * <br> coveredFrom is the time from which the buffer holds every price, a range starting before it has to be read from the database.
+ */
+public class PriceRingBuffer {
+    private static final int INITIAL_LENGTH = 16;
+
+    private final int       capacity;
+    private long[]          times;
+    private double[]        prices;
+    private int             start;
+    private int             count;
+    private long            coveredFrom;
+
+    /**
+     * @param capacity
+     * @param coveredFrom time from which all prices will be appended, Long.MIN_VALUE for a new stock
+     */
+    public PriceRingBuffer(int capacity, long coveredFrom) {
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+        }
+        this.capacity = capacity;
+        this.times = new long[Math.min(capacity, INITIAL_LENGTH)];
+        this.prices = new double[times.length];
+        this.coveredFrom = coveredFrom;
+    }
+
+    public synchronized void append(long time, double price) {
+        if(count == times.length && count < capacity){
+            /**
+             * start only moves once the buffer is full, so it is still 0 here
+             */
+            int length = Math.min(capacity, times.length * 2);
+            times = Arrays.copyOf(times, length);
+            prices = Arrays.copyOf(prices, length);
+        }
+        if(count == capacity){
+            start = physical(1);
+            count--;
+            coveredFrom = Math.max(coveredFrom, times[start]);
+        }
+        /**
+         * prices committed by concurrent updates can arrive slightly out of order, keep the buffer sorted
+         */
+        int position = count;
+        while(position > 0 && times[physical(position - 1)] > time){
+            times[physical(position)] = times[physical(position - 1)];
+            prices[physical(position)] = prices[physical(position - 1)];
+            position--;
+        }
+        times[physical(position)] = time;
+        prices[physical(position)] = price;
+        count++;
+    }
+
+    /**
+     * @param from inclusive
+     * @param to inclusive
+     * @return prices between from and to ordered by time, or null if the buffer doesn't cover from
+     */
+    public synchronized List<PricePointDto> range(long from, long to) {
+        if(from < coveredFrom){
+            return null;
+        }
+        int first = firstAtOrAfter(from);
+        List<PricePointDto> pricePoints = new ArrayList<>();
+        for(int i = first; i < count; i++){
+            int index = physical(i);
+            if(times[index] > to){
+                break;
+            }
+            pricePoints.add(new PricePointDto(new Date(times[index]), prices[index]));
+        }
+        return pricePoints;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long getCoveredFrom() {
+        return coveredFrom;
+    }
+
+    private int firstAtOrAfter(long time) {
+        int low = 0;
+        int high = count;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(times[physical(middle)] < time){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int physical(int logical) {
+        int index = start + logical;
+        return index >= times.length ? index - times.length : index;
+    }
+}
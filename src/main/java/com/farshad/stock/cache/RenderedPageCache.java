@@ -0,0 +1,61 @@
+package com.farshad.stock.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rendered pages of the dashboard, each valid for the version of the stocks it was rendered from
+ * <br> A page is only served while the version is unchanged, so no write path has to invalidate anything.
+ * <br> Once maxPages are held, pages of older versions are dropped first, if all are current the new one isn't cached.
+ */
+@Component
+public class RenderedPageCache {
+    private static final Logger logger = LoggerFactory.getLogger(RenderedPageCache.class);
+
+    private final int                                   maxPages;
+    private final ConcurrentHashMap<String, Page>       pages       = new ConcurrentHashMap<>();
+
+    public RenderedPageCache(@Value("${stock.dashboard.cache.max-pages:256}") int maxPages) {
+        if(maxPages <= 0){
+            throw new IllegalArgumentException("stock.dashboard.cache.max-pages must be positive but was " + maxPages);
+        }
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * @return the page rendered at version, null if there is none
+     */
+    public byte[] get(String key, String version) {
+        Page page = pages.get(key);
+        return page != null && page.version.equals(version) ? page.content : null;
+    }
+
+    public void put(String key, String version, byte[] content) {
+        if(pages.size() >= maxPages && !pages.containsKey(key)){
+            pages.values().removeIf(page -> !page.version.equals(version));
+            if(pages.size() >= maxPages){
+                logger.debug("Rendered page cache is full, " + key + " isn't cached");
+                return;
+            }
+        }
+        pages.put(key, new Page(version, content));
+    }
+
+    public int size() {
+        return pages.size();
+    }
+
+    private static class Page {
+        private final String    version;
+        private final byte[]    content;
+
+        private Page(String version, byte[] content) {
+            this.version = version;
+            this.content = content;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.farshad.stock.cache;
+
+import com.farshad.stock.model.Stock;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache of stocks and query cache, on Ehcache through JCache
+ * <br> Stocks are cached read-write in a heap region of at most maxEntries that expire ttlSeconds after they were put,
+ * query results in a region of queryMaxEntries with the same expiry. Statistics are turned on for the hit ratio.
+ * <br> The cache manager is created for this application only, so contexts in the same JVM don't share cached stocks.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stock.second-level-cache.enabled", havingValue = "true")
+public class SecondLevelCacheConfiguration implements HibernatePropertiesCustomizer {
+    /**
+     * one timestamp per table, far more than there are tables so none is ever evicted
+     */
+    private static final long TIMESTAMPS_MAX_ENTRIES = 1000;
+
+    private final CacheManager cacheManager;
+
+    public SecondLevelCacheConfiguration(@Value("${stock.second-level-cache.max-entries:100000}") long maxEntries,
+                                         @Value("${stock.second-level-cache.query-max-entries:64}") long queryMaxEntries,
+                                         @Value("${stock.second-level-cache.ttl-seconds:600}") long ttlSeconds) {
+        if(maxEntries <= 0 || queryMaxEntries <= 0 || ttlSeconds <= 0){
+            throw new IllegalArgumentException("second-level cache sizes and ttl must be positive but were "
+                    + maxEntries + ", " + queryMaxEntries + " and " + ttlSeconds);
+        }
+        EhcacheCachingProvider cachingProvider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        cacheManager = cachingProvider.getCacheManager(URI.create("urn:stock:second-level-cache:" + UUID.randomUUID()),
+                new DefaultConfiguration(cachingProvider.getDefaultClassLoader()));
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        cacheManager.createCache(Stock.CACHE_REGION, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+                        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl))));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(queryMaxEntries))
+                        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl))));
+        /**
+         * tells whether a cached query result is still valid, it must not expire
+         */
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(TIMESTAMPS_MAX_ENTRIES))));
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+        hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+        hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+        hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+        hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        /**
+         * statistics would otherwise log the metrics of every session
+         */
+        hibernateProperties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+    }
+
+    @PreDestroy
+    public void close() {
+        cacheManager.close();
+    }
+}
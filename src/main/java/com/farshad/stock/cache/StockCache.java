@@ -0,0 +1,31 @@
+package com.farshad.stock.cache;
+
+import com.farshad.stock.dto.StockDto;
+
+import java.util.List;
+
+/**
+ * In-memory read cache of stocks keyed by id.
+ * <br> Write paths keep it current by calling {@link #put(StockDto)} and {@link #evict(Long)} once their transaction commits.
+ * <br> Loads done after a cache miss must go through {@link #putIfUnchanged(StockDto, long)} / {@link #putAll(List, long)}
+ * with the {@link #generation()} read before the load, so a concurrent create or delete is never overwritten by stale data.
+ */
+public interface StockCache {
+    StockDto        get(Long id);
+    void            put(StockDto stockDto);
+    void            putIfUnchanged(StockDto stockDto, long generation);
+    void            evict(Long id);
+
+    /**
+     * @return all stocks in load order, or null if the full list isn't cached
+     */
+    List<StockDto>  getAll();
+    void            putAll(List<StockDto> stockDtoList, long generation);
+
+    long            generation();
+    boolean         isEnabled();
+    int             size();
+    long            getHitCount();
+    long            getMissCount();
+    long            getEvictionCount();
+}
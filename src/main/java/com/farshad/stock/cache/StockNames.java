@@ -0,0 +1,54 @@
+package com.farshad.stock.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of stocks by their unique name, so a lookup by name never touches the database once the name is known
+ * <br> Write paths keep it current by calling {@link #put(Long, String)} and {@link #remove(Long)} once their transaction commits,
+ * a name that isn't known yet is loaded through the unique index and put here.
+ * <br> Price updates take the name of their result from here, a stock they had to load is put here too.
+ * <br> Names never change and ids are never reused, a mapping can only become stale by a delete racing with such a load.
+ * Readers that find no stock for a mapped id drop it with {@link #remove(String, Long)}.
+ */
+@Component
+public class StockNames {
+    private final ConcurrentHashMap<String, Long>   ids     = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String>   names   = new ConcurrentHashMap<>();
+
+    /**
+     * @return id of the stock with name, or null if the name isn't known
+     */
+    public Long getId(String name) {
+        return ids.get(name);
+    }
+
+    /**
+     * @return name of the stock with id, or null if the id isn't known
+     */
+    public String getName(Long id) {
+        return names.get(id);
+    }
+
+    public void put(Long id, String name) {
+        names.put(id, name);
+        ids.put(name, id);
+    }
+
+    public void remove(Long id) {
+        String name = names.remove(id);
+        if(name != null){
+            ids.remove(name, id);
+        }
+    }
+
+    public void remove(String name, Long id) {
+        ids.remove(name, id);
+        names.remove(id, name);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
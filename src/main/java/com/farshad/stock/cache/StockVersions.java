@@ -0,0 +1,62 @@
+package com.farshad.stock.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Version counters behind the ETags of the stock list and of single stocks
+ * <br> Every change moves the global version forward and stamps it into the slot of the changed stock.
+ * Stocks share slots by id, so a change can only make another stock's ETag change too, never keep one unchanged.
+ * <br> Write paths must call {@link #changed(Long)} after their transaction commits and after the cache is updated,
+ * readers take the ETag before reading the stocks, so an ETag never stands for older data than it was sent with.
+ * <br> ETags start with a random instance id, ETags of another instance or of an earlier run never match.
+ */
+@Component
+public class StockVersions {
+    private final String            instanceId      = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong        globalVersion   = new AtomicLong();
+    private final AtomicLongArray   stockVersions;
+    private final int               slotMask;
+
+    public StockVersions(@Value("${stock.etag.slots:65536}") int slots) {
+        if(slots <= 0 || Integer.bitCount(slots) != 1){
+            throw new IllegalArgumentException("stock.etag.slots must be a positive power of two but was " + slots);
+        }
+        this.stockVersions = new AtomicLongArray(slots);
+        this.slotMask = slots - 1;
+    }
+
+    public void changed(Long id) {
+        long version = globalVersion.incrementAndGet();
+        stockVersions.accumulateAndGet(slot(id), version, Math::max);
+    }
+
+    public long globalVersion() {
+        return globalVersion.get();
+    }
+
+    public long stockVersion(Long id) {
+        return stockVersions.get(slot(id));
+    }
+
+    public String listETag() {
+        return eTag(globalVersion());
+    }
+
+    public String stockETag(Long id) {
+        return eTag(stockVersion(id));
+    }
+
+    private String eTag(long version) {
+        return "\"" + instanceId + "-" + version + "\"";
+    }
+
+    private int slot(Long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & slotMask;
+    }
+}
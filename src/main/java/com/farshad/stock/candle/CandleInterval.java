@@ -0,0 +1,43 @@
+package com.farshad.stock.candle;
+
+public enum CandleInterval {
+    ONE_MINUTE("1m", 60_000L),
+    FIVE_MINUTES("5m", 5 * 60_000L),
+    ONE_HOUR("1h", 60 * 60_000L);
+
+    private final String    code;
+    private final long      millis;
+
+    CandleInterval(String code, long millis) {
+        this.code = code;
+        this.millis = millis;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return start of the bucket time falls in
+     */
+    public long bucketStart(long time) {
+        return time - Math.floorMod(time, millis);
+    }
+
+    /**
+     * @param code 1m, 5m or 1h
+     * @return the interval or null if code is unknown
+     */
+    public static CandleInterval fromCode(String code) {
+        for(CandleInterval interval : values()){
+            if(interval.code.equals(code)){
+                return interval;
+            }
+        }
+        return null;
+    }
+}
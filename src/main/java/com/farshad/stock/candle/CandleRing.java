@@ -0,0 +1,103 @@
+package com.farshad.stock.candle;
+
+import com.farshad.stock.dto.CandleDto;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Closed candles of one stock and interval, ordered by start, in primitive arrays
+ * <br> Arrays start small and double until capacity, once full every new candle overwrites the oldest one.
+ * <br> Not thread safe, guarded by the owning StockCandles.
+ */
+class CandleRing {
+    private static final int INITIAL_LENGTH = 8;
+
+    private final int   capacity;
+    private long[]      starts;
+    private double[]    opens;
+    private double[]    highs;
+    private double[]    lows;
+    private double[]    closes;
+    private int         first;
+    private int         count;
+
+    CandleRing(int capacity) {
+        this.capacity = capacity;
+        int length = Math.min(capacity, INITIAL_LENGTH);
+        starts = new long[length];
+        opens = new double[length];
+        highs = new double[length];
+        lows = new double[length];
+        closes = new double[length];
+    }
+
+    void append(long start, double open, double high, double low, double close) {
+        if(count == starts.length && count < capacity){
+            int length = Math.min(capacity, starts.length * 2);
+            starts = Arrays.copyOf(starts, length);
+            opens = Arrays.copyOf(opens, length);
+            highs = Arrays.copyOf(highs, length);
+            lows = Arrays.copyOf(lows, length);
+            closes = Arrays.copyOf(closes, length);
+        }
+        if(count == capacity){
+            first = physical(1);
+            count--;
+        }
+        int index = physical(count);
+        starts[index] = start;
+        opens[index] = open;
+        highs[index] = high;
+        lows[index] = low;
+        closes[index] = close;
+        count++;
+    }
+
+    /**
+     * Applies a late price to the newest closed candle if it starts at start
+     * @return false if there is no such candle
+     */
+    boolean updateLast(long start, double price) {
+        if(count == 0){
+            return false;
+        }
+        int index = physical(count - 1);
+        if(starts[index] != start){
+            return false;
+        }
+        highs[index] = Math.max(highs[index], price);
+        lows[index] = Math.min(lows[index], price);
+        return true;
+    }
+
+    void addRange(long from, long to, List<CandleDto> candles) {
+        int low = 0;
+        int high = count;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(starts[physical(middle)] < from){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+        for(int i = low; i < count; i++){
+            int index = physical(i);
+            if(starts[index] > to){
+                break;
+            }
+            candles.add(new CandleDto(new Date(starts[index]), opens[index], highs[index], lows[index], closes[index], true));
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    private int physical(int logical) {
+        int index = first + logical;
+        return index >= starts.length ? index - starts.length : index;
+    }
+}
@@ -0,0 +1,87 @@
+package com.farshad.stock.candle;
+
+import com.farshad.stock.dto.CandleDto;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Open-high-low-close candles of one stock for every CandleInterval
+ * <br> The open candle of each interval lives in primitive arrays indexed by interval, a tick updates it in O(1).
+ * <br> A tick in a later bucket closes the open candle into a CandleRing and opens a new one.
+ * Without ticks the open candle stays in its arrays, it is reported closed once its interval has elapsed.
+ * <br> A late tick for the newest closed candle can still move its high and low, older late ticks are ignored.
+ */
+public class StockCandles {
+    private static final CandleInterval[]   INTERVALS = CandleInterval.values();
+    private static final long               NO_CANDLE = Long.MIN_VALUE;
+
+    private final long[]        bucketStarts    = new long[INTERVALS.length];
+    private final long[]        firstTimes      = new long[INTERVALS.length];
+    private final long[]        lastTimes       = new long[INTERVALS.length];
+    private final double[]      opens           = new double[INTERVALS.length];
+    private final double[]      highs           = new double[INTERVALS.length];
+    private final double[]      lows            = new double[INTERVALS.length];
+    private final double[]      closes          = new double[INTERVALS.length];
+    private final CandleRing[]  closedCandles   = new CandleRing[INTERVALS.length];
+
+    /**
+     * @param retainedCandles number of closed candles kept per interval
+     */
+    public StockCandles(int retainedCandles) {
+        for(int i = 0; i < INTERVALS.length; i++){
+            bucketStarts[i] = NO_CANDLE;
+            closedCandles[i] = new CandleRing(retainedCandles);
+        }
+    }
+
+    public synchronized void onTick(long time, double price) {
+        for(int i = 0; i < INTERVALS.length; i++){
+            long bucketStart = INTERVALS[i].bucketStart(time);
+            if(bucketStart == bucketStarts[i]){
+                highs[i] = Math.max(highs[i], price);
+                lows[i] = Math.min(lows[i], price);
+                if(time >= lastTimes[i]){
+                    lastTimes[i] = time;
+                    closes[i] = price;
+                }
+                if(time < firstTimes[i]){
+                    firstTimes[i] = time;
+                    opens[i] = price;
+                }
+            }else if(bucketStart > bucketStarts[i]){
+                if(bucketStarts[i] != NO_CANDLE){
+                    closedCandles[i].append(bucketStarts[i], opens[i], highs[i], lows[i], closes[i]);
+                }
+                bucketStarts[i] = bucketStart;
+                firstTimes[i] = time;
+                lastTimes[i] = time;
+                opens[i] = price;
+                highs[i] = price;
+                lows[i] = price;
+                closes[i] = price;
+            }else{
+                closedCandles[i].updateLast(bucketStart, price);
+            }
+        }
+    }
+
+    /**
+     * @param interval
+     * @param from inclusive, compared with candle start
+     * @param to inclusive, compared with candle start
+     * @param now current time, the open candle is closed if its interval ended by then
+     * @return closed candles and the open one between from and to, ordered by start
+     */
+    public synchronized List<CandleDto> candles(CandleInterval interval, long from, long to, long now) {
+        int i = interval.ordinal();
+        List<CandleDto> candles = new ArrayList<>();
+        closedCandles[i].addRange(from, to, candles);
+        if(bucketStarts[i] != NO_CANDLE && bucketStarts[i] >= from && bucketStarts[i] <= to){
+            candles.add(new CandleDto(new Date(bucketStarts[i]), opens[i], highs[i], lows[i], closes[i],
+                    bucketStarts[i] + interval.getMillis() <= now));
+        }
+        return candles;
+    }
+}
@@ -2,4 +2,15 @@ package com.farshad.stock.constants;
 
 public class Constants {
     public final static int INIT_RECORDS_COUNT = 5;
+    public final static int DEFAULT_PAGE_LIMIT = 100;
+    public final static int MAX_PAGE_LIMIT = 1000;
+    public final static int DEFAULT_SEARCH_LIMIT = 10;
+    public final static int DEFAULT_DASHBOARD_PAGE_SIZE = 50;
+    public final static String NEXT_PAGE_AFTER_HEADER = "X-Next-After";
+    public final static String PROTOBUF_MEDIA_TYPE_VALUE = "application/x-protobuf";
+    public final static String SMILE_MEDIA_TYPE_VALUE = "application/x-jackson-smile";
+    public final static String CBOR_MEDIA_TYPE_VALUE = "application/cbor";
+    public final static String CSV_MEDIA_TYPE_VALUE = "text/csv";
+    public final static String NDJSON_MEDIA_TYPE_VALUE = "application/x-ndjson";
+    public final static int MAX_REPORTED_REJECTED_ROWS = 100;
 }
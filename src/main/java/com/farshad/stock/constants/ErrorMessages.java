@@ -5,6 +5,17 @@ public class ErrorMessages {
     public static final String DATA_ACCESS_EXCEPTION        = "data.access.exception";
     public static final String DATA_VALIDATION_EXCEPTION    = "data.validation.exception";
     public static final String PRICE_NOT_CHANGED            = "price.not.changed";
+    public static final String INVALID_PAGE_LIMIT           = "invalid.page.limit";
+    public static final String INVALID_PAGE                 = "invalid.page";
+    public static final String INVALID_SORT                 = "invalid.sort";
+    public static final String INVALID_CANDLE_INTERVAL      = "invalid.candle.interval";
+    public static final String STALE_PRICE_UPDATE           = "stale.price.update";
+    public static final String FUTURE_PRICE_UPDATE          = "future.price.update";
+    public static final String CONCURRENT_UPDATE            = "concurrent.update";
+    public static final String TOO_MANY_NAMES               = "too.many.names";
+    public static final String SERVER_BUSY                  = "server.busy";
+    public static final String INVALID_CSV                  = "invalid.csv";
+    public static final String INVALID_EXPORT_FORMAT        = "invalid.export.format";
 
 
 }
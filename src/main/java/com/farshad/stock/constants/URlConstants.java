@@ -4,8 +4,24 @@ public class URlConstants {
     public static final String STOCK_CONTROLLER_BASE_PATH                           = "/api";
     public static final String STOCK_CONTROLLER_METHOD_PATH                         = "/stocks";
     public static final String STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH         = "/stocks/";
+    public static final String STOCK_CONTROLLER_PRICES_PATH                         = "/stocks/prices";
+    public static final String STOCK_CONTROLLER_BULK_PATH                           = "/stocks/bulk";
+    public static final String STOCK_CONTROLLER_IMPORT_PATH                         = "/stocks/import";
+    public static final String STOCK_CONTROLLER_EXPORT_PATH                         = "/stocks/export";
+    public static final String STOCK_CONTROLLER_BY_NAME_PATH                        = "/stocks/by-name";
+    public static final String STOCK_CONTROLLER_SEARCH_PATH                         = "/stocks/search";
+    public static final String STOCK_CONTROLLER_HISTORY_PATH                        = "/stocks/{id}/history";
+    public static final String STOCK_CONTROLLER_STREAM_PATH                         = "/stocks/stream";
+    public static final String STOCK_CONTROLLER_CANDLES_PATH                        = "/stocks/{id}/candles";
     public static final String STOCK_CONTROLLER_FULL_METHOD_PATH                    = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_METHOD_PATH;
     public static final String STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH    = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH;
+    public static final String STOCK_CONTROLLER_FULL_PRICES_PATH                    = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_PRICES_PATH;
+    public static final String STOCK_CONTROLLER_FULL_BULK_PATH                      = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_BULK_PATH;
+    public static final String STOCK_CONTROLLER_FULL_IMPORT_PATH                    = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_IMPORT_PATH;
+    public static final String STOCK_CONTROLLER_FULL_EXPORT_PATH                    = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_EXPORT_PATH;
+    public static final String STOCK_CONTROLLER_FULL_BY_NAME_PATH                   = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_BY_NAME_PATH;
+    public static final String STOCK_CONTROLLER_FULL_SEARCH_PATH                    = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_SEARCH_PATH;
+    public static final String STOCK_CONTROLLER_FULL_STREAM_PATH                    = STOCK_CONTROLLER_BASE_PATH + STOCK_CONTROLLER_STREAM_PATH;
 
     public static final String DASHBOARD_CONTROLLER_BASE_PATH                       = "/dashboard";
     public static final String DASHBOARD_CONTROLLER_ALL_STOCKS                      =  "/stocks";
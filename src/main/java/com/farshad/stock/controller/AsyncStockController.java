@@ -0,0 +1,303 @@
+package com.farshad.stock.controller;
+
+import com.farshad.stock.converter.WireFormats;
+import com.farshad.stock.dto.CandleDto;
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.CreateStocksRequest;
+import com.farshad.stock.dto.PricePointDto;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockImportSummary;
+import com.farshad.stock.dto.StockPriceUpdateResult;
+import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.dto.UpdateStockPricesRequest;
+import com.farshad.stock.service.CandleService;
+import com.farshad.stock.service.PriceHistoryService;
+import com.farshad.stock.service.StockExportService;
+import com.farshad.stock.service.StockImportService;
+import com.farshad.stock.service.StockSearchService;
+import com.farshad.stock.service.StockService;
+import com.farshad.stock.stream.PriceEventBroadcaster;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static com.farshad.stock.constants.Constants.CSV_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.DEFAULT_PAGE_LIMIT;
+import static com.farshad.stock.constants.Constants.DEFAULT_SEARCH_LIMIT;
+import static com.farshad.stock.constants.Constants.NEXT_PAGE_AFTER_HEADER;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_BASE_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_BULK_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_BY_NAME_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_CANDLES_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_EXPORT_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_HISTORY_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_IMPORT_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_METHOD_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_PRICES_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_SEARCH_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_STREAM_PATH;
+import static com.farshad.stock.controller.AsyncStockWebMvcConfigurer.STOCK_REPOSITORY_EXECUTOR;
+import static com.farshad.stock.controller.StockController.exportBody;
+import static com.farshad.stock.controller.StockController.stockArrayBody;
+import static com.farshad.stock.controller.StockController.toDate;
+
+/**
+ * Same api as {@link StockController}, used instead of it with stock.async.enabled=true
+ * <br> Work that may touch the database runs on the bounded stockRepositoryExecutor, the thread of the web server
+ * is given back while it waits for a connection or a slow write.
+ * <br> Cache hits and 304 answers complete on the request thread, they never queue behind database work.
+ * When the executor is full a request is answered with 503 right away.
+ */
+@RestController
+@RequestMapping(path = STOCK_CONTROLLER_BASE_PATH)
+@ConditionalOnProperty(name = "stock.async.enabled", havingValue = "true")
+public class AsyncStockController {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncStockController.class);
+
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+    @Autowired
+    private CandleService candleService;
+    @Autowired
+    private StockSearchService stockSearchService;
+    @Autowired
+    private StockImportService stockImportService;
+    @Autowired
+    private StockExportService stockExportService;
+    @Autowired
+    private PriceEventBroadcaster priceEventBroadcaster;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    @Qualifier(STOCK_REPOSITORY_EXECUTOR)
+    private ThreadPoolTaskExecutor stockRepositoryExecutor;
+    @Value("${stock.stream.timeout-ms:0}")
+    private long streamTimeoutMillis;
+
+    /**
+     * Returns all stocks, or one page of them ordered by id when after or limit is given
+     * <br>A full page carries the after value of the next page in the X-Next-After header
+     * <br>Answers 304 without reading any stock when If-None-Match holds the current ETag of the list in the negotiated format
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH,method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<List<StockDto>>> retrieveAllStocks(@RequestParam(required = false) Long after,
+                                                                               @RequestParam(required = false) Integer limit,
+                                                                               WebRequest webRequest){
+        if(webRequest.checkNotModified(WireFormats.eTag(stockService.listETag(), webRequest))){
+            logger.debug("##Stock list not modified");
+            return CompletableFuture.completedFuture(null);
+        }
+        if(after == null && limit == null){
+            logger.debug("##New request : retrieveAllStocks");
+            List<StockDto> stockDtoList = stockService.retrieveAllCached();
+            if(stockDtoList != null){
+                logger.debug("##Returned cached list's size is " + stockDtoList.size());
+                return CompletableFuture.completedFuture(new ResponseEntity<>(stockDtoList,HttpStatus.OK));
+            }
+            return onRepositoryThread(() -> new ResponseEntity<>(stockService.retrieveAll(),HttpStatus.OK));
+        }
+        logger.debug("##New request : retrieveAllStocks after=" + after + " limit=" + limit);
+        int pageLimit = limit == null ? DEFAULT_PAGE_LIMIT : limit;
+        return onRepositoryThread(() -> {
+            List<StockDto> stockDtoList = stockService.retrievePage(after, pageLimit);
+            logger.debug("##Returned page's size is " + stockDtoList.size());
+            ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+            if(stockDtoList.size() == pageLimit){
+                responseBuilder.header(NEXT_PAGE_AFTER_HEADER, String.valueOf(stockDtoList.get(pageLimit - 1).getId()));
+            }
+            return responseBuilder.body(stockDtoList);
+        });
+    }
+
+    /**
+     * Writes all stocks as one json array, on a thread of stockRepositoryExecutor
+     * <br>Answers 304 like the plain list when If-None-Match holds the current ETag of the json list
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH,method = RequestMethod.GET,params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllStocks(WebRequest webRequest){
+        if(webRequest.checkNotModified(WireFormats.eTag(stockService.listETag(), MediaType.APPLICATION_JSON))){
+            logger.debug("##Stock list not modified");
+            return null;
+        }
+        logger.debug("##New request : streamAllStocks");
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(stockArrayBody(stockService, objectMapper));
+    }
+
+    /**
+     * Writes the stocks updated at or after updatedSince, or all of them, gzipped as ndjson or csv while they are read
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_EXPORT_PATH,method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> exportStocks(@RequestParam(defaultValue = "ndjson") String format,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime updatedSince){
+        logger.debug("##New request : exportStocks format=" + format + " updatedSince=" + updatedSince);
+        return exportBody(stockExportService, format, updatedSince);
+    }
+
+    @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH,method = RequestMethod.POST)
+    public CompletableFuture<ResponseEntity<StockDto>> createStock(@Valid @RequestBody CreateStockRequest createStockRequest){
+        logger.debug("##New request : create " + createStockRequest);
+        return onRepositoryThread(() -> new ResponseEntity<>(stockService.create(createStockRequest),HttpStatus.CREATED));
+    }
+
+    @RequestMapping(value = STOCK_CONTROLLER_BULK_PATH,method = RequestMethod.POST)
+    public CompletableFuture<ResponseEntity<List<StockDto>>> createStocks(@Valid @RequestBody CreateStocksRequest createStocksRequest){
+        logger.debug("##New request : createStocks " + createStocksRequest);
+        return onRepositoryThread(() -> new ResponseEntity<>(stockService.createAll(createStocksRequest.getStocks()),HttpStatus.CREATED));
+    }
+
+    /**
+     * Upserts the stocks of a csv body by name, the body is read on the repository thread while it arrives
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_IMPORT_PATH,method = RequestMethod.POST,consumes = CSV_MEDIA_TYPE_VALUE)
+    public CompletableFuture<ResponseEntity<StockImportSummary>> importStocks(InputStream inputStream){
+        logger.debug("##New request : importStocks");
+        return onRepositoryThread(() -> {
+            try {
+                return new ResponseEntity<>(stockImportService.importCsv(inputStream),HttpStatus.OK);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns a stock, or 304 without reading it when If-None-Match holds its current ETag in the negotiated format
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH + "{id}",method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<StockDto>> getStockById(@PathVariable Long id,WebRequest webRequest){
+        logger.debug("##New request : getStockById " + id);
+        if(webRequest.checkNotModified(WireFormats.eTag(stockService.stockETag(id), webRequest))){
+            logger.debug("##Stock " + id + " not modified");
+            return CompletableFuture.completedFuture(null);
+        }
+        StockDto stockDto = stockService.getCached(id);
+        if(stockDto != null){
+            logger.debug("##Returned cached stock " + stockDto);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(stockDto,HttpStatus.OK));
+        }
+        return onRepositoryThread(() -> new ResponseEntity<>(stockService.getById(id),HttpStatus.OK));
+    }
+
+    /**
+     * Returns the stock with name, a name with dots like BRK.B is taken as a whole
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_BY_NAME_PATH + "/{name:.+}",method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<StockDto>> getStockByName(@PathVariable String name){
+        logger.debug("##New request : getStockByName " + name);
+        StockDto stockDto = stockService.getCachedByName(name);
+        if(stockDto != null){
+            logger.debug("##Returned cached stock " + stockDto);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(stockDto,HttpStatus.OK));
+        }
+        return onRepositoryThread(() -> new ResponseEntity<>(stockService.getByName(name),HttpStatus.OK));
+    }
+
+    /**
+     * Returns the stocks with names, in the order asked, names no stock has are left out
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_BY_NAME_PATH,method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<List<StockDto>>> getStocksByNames(@RequestParam List<String> names){
+        logger.debug("##New request : getStocksByNames " + names);
+        return onRepositoryThread(() -> new ResponseEntity<>(stockService.getByNames(names),HttpStatus.OK));
+    }
+
+    /**
+     * Returns up to limit stocks whose name starts with prefix, ignoring case, ordered by name
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_SEARCH_PATH,method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<List<StockDto>>> searchStocks(@RequestParam(defaultValue = "") String prefix,
+                                                                          @RequestParam(required = false) Integer limit){
+        logger.debug("##New request : searchStocks prefix=" + prefix + " limit=" + limit);
+        int searchLimit = limit == null ? DEFAULT_SEARCH_LIMIT : limit;
+        return onRepositoryThread(() -> new ResponseEntity<>(stockSearchService.search(prefix, searchLimit),HttpStatus.OK));
+    }
+
+    /**
+     * Opens a server-sent events stream of price changes, optionally only for some stock ids
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_STREAM_PATH,method = RequestMethod.GET,produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPrices(@RequestParam(required = false) List<Long> ids){
+        logger.debug("##New request : streamPrices " + ids);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        priceEventBroadcaster.subscribe(emitter, ids == null ? null : new HashSet<>(ids));
+        return emitter;
+    }
+
+    /**
+     * Returns prices of a stock between from and to, both optional ISO-8601 date-times
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_HISTORY_PATH,method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<List<PricePointDto>>> getStockHistory(@PathVariable Long id,
+                                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to){
+        logger.debug("##New request : getStockHistory " + id + " from=" + from + " to=" + to);
+        return onRepositoryThread(() -> new ResponseEntity<>(priceHistoryService.getHistory(id, toDate(from), toDate(to)),HttpStatus.OK));
+    }
+
+    /**
+     * Returns OHLC candles of a stock for interval 1m, 5m or 1h, starting between from and to
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_CANDLES_PATH,method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<List<CandleDto>>> getStockCandles(@PathVariable Long id,
+                                                                              @RequestParam(defaultValue = "1m") String interval,
+                                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to){
+        logger.debug("##New request : getStockCandles " + id + " interval=" + interval + " from=" + from + " to=" + to);
+        return onRepositoryThread(() -> new ResponseEntity<>(candleService.getCandles(id, interval, toDate(from), toDate(to)),HttpStatus.OK));
+    }
+
+    @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH + "{id}",method = RequestMethod.PUT)
+    public CompletableFuture<ResponseEntity<StockDto>> updateStock(@PathVariable Long id,@Valid @RequestBody UpdateStockPriceRequest updateStockPriceRequest){
+        logger.debug("##New request : updateStock id=" + id + " new price " + updateStockPriceRequest);
+        return onRepositoryThread(() -> new ResponseEntity<>(stockService.updatePrice(id, updateStockPriceRequest),HttpStatus.OK));
+    }
+
+    @RequestMapping(value = STOCK_CONTROLLER_PRICES_PATH,method = RequestMethod.PUT)
+    public CompletableFuture<ResponseEntity<List<StockPriceUpdateResult>>> updateStockPrices(@Valid @RequestBody UpdateStockPricesRequest updateStockPricesRequest){
+        logger.debug("##New request : updateStockPrices " + updateStockPricesRequest);
+        return onRepositoryThread(() -> new ResponseEntity<>(stockService.updatePrices(updateStockPricesRequest.getPrices()),HttpStatus.OK));
+    }
+
+    @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH + "{id}",method = RequestMethod.DELETE)
+    public CompletableFuture<ResponseEntity> deleteById(@PathVariable Long id){
+        logger.debug("##New request : deleteById " + id);
+        return onRepositoryThread(() -> {
+            stockService.deleteById(id);
+            return new ResponseEntity(HttpStatus.NO_CONTENT);
+        });
+    }
+
+    /**
+     * Runs work on stockRepositoryExecutor, an exception it throws is answered like one thrown by {@link StockController}
+     * @throws java.util.concurrent.RejectedExecutionException If threads and queue of the executor are full
+     */
+    private <T> CompletableFuture<T> onRepositoryThread(Supplier<T> work){
+        return CompletableFuture.supplyAsync(work, stockRepositoryExecutor);
+    }
+}
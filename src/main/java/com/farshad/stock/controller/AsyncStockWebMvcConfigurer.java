@@ -0,0 +1,43 @@
+package com.farshad.stock.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Executor of the repository work of {@link AsyncStockController}
+ * <br> Threads default to the size of the connection pool, more would only wait for a connection.
+ * Once threads and queue are full, new requests are rejected with 503 instead of piling up.
+ * <br> Streamed responses are written by the same threads, so streaming all stocks can't take unbounded threads either.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stock.async.enabled", havingValue = "true")
+public class AsyncStockWebMvcConfigurer implements WebMvcConfigurer {
+    public static final String STOCK_REPOSITORY_EXECUTOR = "stockRepositoryExecutor";
+
+    private final ThreadPoolTaskExecutor stockRepositoryExecutor;
+
+    public AsyncStockWebMvcConfigurer(@Value("${stock.async.threads:10}") int threads,
+                                      @Value("${stock.async.queue-capacity:1000}") int queueCapacity) {
+        stockRepositoryExecutor = new ThreadPoolTaskExecutor();
+        stockRepositoryExecutor.setCorePoolSize(threads);
+        stockRepositoryExecutor.setMaxPoolSize(threads);
+        stockRepositoryExecutor.setQueueCapacity(queueCapacity);
+        stockRepositoryExecutor.setThreadNamePrefix("stock-repository-");
+        stockRepositoryExecutor.setDaemon(true);
+    }
+
+    @Bean(name = STOCK_REPOSITORY_EXECUTOR)
+    public ThreadPoolTaskExecutor stockRepositoryExecutor() {
+        return stockRepositoryExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(stockRepositoryExecutor);
+    }
+}
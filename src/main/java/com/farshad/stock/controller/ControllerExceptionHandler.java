@@ -3,8 +3,10 @@ package com.farshad.stock.controller;
 import com.farshad.stock.constants.ErrorMessages;
 import com.farshad.stock.dto.ErrorResponse;
 import com.farshad.stock.exception.StockDataBusinessException;
+import com.farshad.stock.metrics.StockMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -13,19 +15,25 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.farshad.stock.constants.ErrorMessages.DATA_ACCESS_EXCEPTION;
 import static com.farshad.stock.constants.ErrorMessages.DATA_VALIDATION_EXCEPTION;
 import static com.farshad.stock.constants.ErrorMessages.ENTITY_NOT_FOUND;
+import static com.farshad.stock.constants.ErrorMessages.SERVER_BUSY;
 
 @RestControllerAdvice
 public class ControllerExceptionHandler {
     private static final Logger logger = LoggerFactory.getLogger(ControllerExceptionHandler.class);
 
+    @Autowired
+    private StockMetrics stockMetrics;
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler({EntityNotFoundException.class})
     public ErrorResponse entityNotFoundException(EntityNotFoundException e) {
         logger.debug("Caught an exception " + e.getMessage());
+        stockMetrics.countError(ENTITY_NOT_FOUND);
         return new ErrorResponse(ENTITY_NOT_FOUND);
     }
 
@@ -34,6 +42,7 @@ public class ControllerExceptionHandler {
     public ErrorResponse dataAccessException(DataAccessException e) {
         logger.debug("Caught an exception " + e.getMessage());
         logger.debug("Root cause " + e.getRootCause());
+        stockMetrics.countError(DATA_ACCESS_EXCEPTION);
         return new ErrorResponse(DATA_ACCESS_EXCEPTION);
     }
 
@@ -41,13 +50,23 @@ public class ControllerExceptionHandler {
     @ExceptionHandler({StockDataBusinessException.class})
     public ErrorResponse stockDataBusinessException(StockDataBusinessException e) {
         logger.debug("Caught an exception " + e.getMessage());
+        stockMetrics.countError(e.getMessage());
         return new ErrorResponse(e.getMessage());
     }
 
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler({RejectedExecutionException.class})
+    public ErrorResponse rejectedExecutionException(RejectedExecutionException e) {
+        logger.debug("Caught an exception " + e.getMessage());
+        stockMetrics.countError(SERVER_BUSY);
+        return new ErrorResponse(SERVER_BUSY);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse validationException(MethodArgumentNotValidException e) {
         logger.debug("Caught a validation exception " + e.getMessage());
+        stockMetrics.countError(DATA_VALIDATION_EXCEPTION);
         return new ErrorResponse(DATA_VALIDATION_EXCEPTION +" " + e.getMessage());
     }
 }
\ No newline at end of file
@@ -1,26 +1,82 @@
 package com.farshad.stock.controller;
 
+import com.farshad.stock.cache.RenderedPageCache;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.exception.StockDataBusinessException;
 import com.farshad.stock.service.StockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
-import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+import static com.farshad.stock.constants.Constants.DEFAULT_DASHBOARD_PAGE_SIZE;
+import static com.farshad.stock.constants.ErrorMessages.INVALID_SORT;
 import static com.farshad.stock.constants.URlConstants.*;
 
+/**
+ * Serves the stock table page by page, each page is rendered once per version of the stocks
+ * <br>Until a stock is created, updated or deleted, loading a page again copies the cached html,
+ * or answers 304 when If-None-Match holds the current ETag of the list.
+ */
 @Controller
 @RequestMapping(path = DASHBOARD_CONTROLLER_BASE_PATH)
 public class DashboardController {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardController.class);
+    private static final MediaType HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
     @Autowired
     private StockService stockService;
+    @Autowired
+    private ITemplateEngine templateEngine;
+    @Autowired
+    private RenderedPageCache renderedPageCache;
 
+    /**
+     * Returns page number page of size stocks sorted by id, name, current_price or last_update
+     */
     @RequestMapping(value = DASHBOARD_CONTROLLER_ALL_STOCKS,method = RequestMethod.GET)
-    public ModelAndView showAll(Model model) {
-        ModelAndView modelAndView = new ModelAndView("stocks");
-        model.addAttribute("stocks", stockService.retrieveAll());
-        return modelAndView;
+    public ResponseEntity<byte[]> showAll(@RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = DEFAULT_DASHBOARD_PAGE_SIZE + "") int size,
+                                          @RequestParam(defaultValue = "id") String sort,
+                                          @RequestParam(defaultValue = "asc") String direction,
+                                          HttpServletRequest request, HttpServletResponse response, WebRequest webRequest) {
+        if(!"asc".equals(direction) && !"desc".equals(direction)){
+            throw new StockDataBusinessException(INVALID_SORT);
+        }
+        String eTag = stockService.listETag();
+        if(webRequest.checkNotModified(eTag)){
+            logger.debug("##Dashboard not modified");
+            return null;
+        }
+        String key = page + "/" + size + "/" + sort + "/" + direction;
+        byte[] html = renderedPageCache.get(key, eTag);
+        if(html == null){
+            Page<StockDto> stockPage = stockService.retrieveSortedPage(page, size, sort, "asc".equals(direction));
+            WebContext context = new WebContext(request, response, request.getServletContext(), request.getLocale());
+            context.setVariable("stocks", stockPage.getContent());
+            context.setVariable("page", page);
+            context.setVariable("size", size);
+            context.setVariable("sort", sort);
+            context.setVariable("direction", direction);
+            context.setVariable("totalPages", stockPage.getTotalPages());
+            context.setVariable("totalStocks", stockPage.getTotalElements());
+            html = templateEngine.process("stocks", context).getBytes(StandardCharsets.UTF_8);
+            renderedPageCache.put(key, eTag, html);
+            logger.debug("##Rendered dashboard page " + key + " of " + eTag);
+        }
+        return ResponseEntity.ok().contentType(HTML_UTF8).body(html);
     }
-
-
 }
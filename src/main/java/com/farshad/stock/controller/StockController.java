@@ -1,38 +1,152 @@
 package com.farshad.stock.controller;
 
+import com.farshad.stock.converter.WireFormats;
+import com.farshad.stock.dto.CandleDto;
 import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.CreateStocksRequest;
+import com.farshad.stock.dto.PricePointDto;
 import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockImportSummary;
+import com.farshad.stock.dto.StockPriceUpdateResult;
 import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.dto.UpdateStockPricesRequest;
+import com.farshad.stock.exception.StockDataBusinessException;
+import com.farshad.stock.export.ExportFormat;
+import com.farshad.stock.service.CandleService;
+import com.farshad.stock.service.PriceHistoryService;
+import com.farshad.stock.service.StockExportService;
+import com.farshad.stock.service.StockImportService;
+import com.farshad.stock.service.StockSearchService;
 import com.farshad.stock.service.StockService;
+import com.farshad.stock.stream.PriceEventBroadcaster;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 
+import static com.farshad.stock.constants.Constants.CSV_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.DEFAULT_PAGE_LIMIT;
+import static com.farshad.stock.constants.Constants.DEFAULT_SEARCH_LIMIT;
+import static com.farshad.stock.constants.Constants.NEXT_PAGE_AFTER_HEADER;
+import static com.farshad.stock.constants.ErrorMessages.INVALID_EXPORT_FORMAT;
+
 import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_BASE_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_BULK_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_BY_NAME_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_CANDLES_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_EXPORT_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_HISTORY_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_IMPORT_PATH;
 import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_METHOD_PATH;
 import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_PRICES_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_SEARCH_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_STREAM_PATH;
 
 
+/**
+ * Answers every request on the thread of the web server, see {@link AsyncStockController} for stock.async.enabled=true
+ */
 @RestController
 @RequestMapping(path = STOCK_CONTROLLER_BASE_PATH)
+@ConditionalOnProperty(name = "stock.async.enabled", havingValue = "false", matchIfMissing = true)
 public class StockController {
     private static final Logger logger = LoggerFactory.getLogger(StockController.class);
 
     @Autowired
     private StockService stockService;
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+    @Autowired
+    private CandleService candleService;
+    @Autowired
+    private StockSearchService stockSearchService;
+    @Autowired
+    private StockImportService stockImportService;
+    @Autowired
+    private StockExportService stockExportService;
+    @Autowired
+    private PriceEventBroadcaster priceEventBroadcaster;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Value("${stock.stream.timeout-ms:0}")
+    private long streamTimeoutMillis;
 
+    /**
+     * Returns all stocks, or one page of them ordered by id when after or limit is given
+     * <br>A full page carries the after value of the next page in the X-Next-After header
+     * <br>Answers 304 without reading any stock when If-None-Match holds the current ETag of the list in the negotiated format
+     */
     @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH,method = RequestMethod.GET)
-    public ResponseEntity<List<StockDto>> retrieveAllStocks(){
-        logger.debug("##New request : retrieveAllStocks");
-        List<StockDto> stockDtoList = stockService.retrieveAll();
-        logger.debug("##Returned list's size is " + stockDtoList.size());
-        return new ResponseEntity<>(stockDtoList,HttpStatus.OK);
+    public ResponseEntity<List<StockDto>> retrieveAllStocks(@RequestParam(required = false) Long after,
+                                                            @RequestParam(required = false) Integer limit,
+                                                            WebRequest webRequest){
+        if(webRequest.checkNotModified(WireFormats.eTag(stockService.listETag(), webRequest))){
+            logger.debug("##Stock list not modified");
+            return null;
+        }
+        if(after == null && limit == null){
+            logger.debug("##New request : retrieveAllStocks");
+            List<StockDto> stockDtoList = stockService.retrieveAll();
+            logger.debug("##Returned list's size is " + stockDtoList.size());
+            return new ResponseEntity<>(stockDtoList,HttpStatus.OK);
+        }
+        logger.debug("##New request : retrieveAllStocks after=" + after + " limit=" + limit);
+        int pageLimit = limit == null ? DEFAULT_PAGE_LIMIT : limit;
+        List<StockDto> stockDtoList = stockService.retrievePage(after, pageLimit);
+        logger.debug("##Returned page's size is " + stockDtoList.size());
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+        if(stockDtoList.size() == pageLimit){
+            responseBuilder.header(NEXT_PAGE_AFTER_HEADER, String.valueOf(stockDtoList.get(pageLimit - 1).getId()));
+        }
+        return responseBuilder.body(stockDtoList);
+    }
+
+    /**
+     * Writes all stocks as one json array, row by row while they are read from the database
+     * <br>Answers 304 like the plain list when If-None-Match holds the current ETag of the json list
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH,method = RequestMethod.GET,params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllStocks(WebRequest webRequest){
+        if(webRequest.checkNotModified(WireFormats.eTag(stockService.listETag(), MediaType.APPLICATION_JSON))){
+            logger.debug("##Stock list not modified");
+            return null;
+        }
+        logger.debug("##New request : streamAllStocks");
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(stockArrayBody(stockService, objectMapper));
+    }
+
+    /**
+     * Writes the stocks updated at or after updatedSince, or all of them, gzipped as ndjson or csv while they are read
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_EXPORT_PATH,method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> exportStocks(@RequestParam(defaultValue = "ndjson") String format,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime updatedSince){
+        logger.debug("##New request : exportStocks format=" + format + " updatedSince=" + updatedSince);
+        return exportBody(stockExportService, format, updatedSince);
     }
 
     @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH,method = RequestMethod.POST)
@@ -43,14 +157,111 @@ public class StockController {
         return new ResponseEntity<>(stockDto,HttpStatus.CREATED);
     }
 
+    @RequestMapping(value = STOCK_CONTROLLER_BULK_PATH,method = RequestMethod.POST)
+    public ResponseEntity<List<StockDto>> createStocks(@Valid @RequestBody CreateStocksRequest createStocksRequest){
+        logger.debug("##New request : createStocks " + createStocksRequest);
+        List<StockDto> stockDtoList = stockService.createAll(createStocksRequest.getStocks());
+        logger.debug("##Returned list's size is " + stockDtoList.size());
+        return new ResponseEntity<>(stockDtoList,HttpStatus.CREATED);
+    }
+
+    /**
+     * Upserts the stocks of a csv body by name, the body is read while it arrives and never held as a whole
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_IMPORT_PATH,method = RequestMethod.POST,consumes = CSV_MEDIA_TYPE_VALUE)
+    public ResponseEntity<StockImportSummary> importStocks(InputStream inputStream) throws IOException {
+        logger.debug("##New request : importStocks");
+        StockImportSummary stockImportSummary = stockImportService.importCsv(inputStream);
+        logger.debug("##Returned summary " + stockImportSummary);
+        return new ResponseEntity<>(stockImportSummary,HttpStatus.OK);
+    }
+
+    /**
+     * Returns a stock, or 304 without reading it when If-None-Match holds its current ETag in the negotiated format
+     */
     @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH + "{id}",method = RequestMethod.GET)
-    public ResponseEntity<StockDto> getStockById(@PathVariable Long id){
+    public ResponseEntity<StockDto> getStockById(@PathVariable Long id,WebRequest webRequest){
         logger.debug("##New request : getStockById " + id);
+        if(webRequest.checkNotModified(WireFormats.eTag(stockService.stockETag(id), webRequest))){
+            logger.debug("##Stock " + id + " not modified");
+            return null;
+        }
         StockDto stockDto = stockService.getById(id);
         logger.debug("##Returned stock " + stockDto);
         return new ResponseEntity<>(stockDto,HttpStatus.OK);
     }
 
+    /**
+     * Returns the stock with name, a name with dots like BRK.B is taken as a whole
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_BY_NAME_PATH + "/{name:.+}",method = RequestMethod.GET)
+    public ResponseEntity<StockDto> getStockByName(@PathVariable String name){
+        logger.debug("##New request : getStockByName " + name);
+        StockDto stockDto = stockService.getByName(name);
+        logger.debug("##Returned stock " + stockDto);
+        return new ResponseEntity<>(stockDto,HttpStatus.OK);
+    }
+
+    /**
+     * Returns the stocks with names, in the order asked, names no stock has are left out
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_BY_NAME_PATH,method = RequestMethod.GET)
+    public ResponseEntity<List<StockDto>> getStocksByNames(@RequestParam List<String> names){
+        logger.debug("##New request : getStocksByNames " + names);
+        List<StockDto> stockDtoList = stockService.getByNames(names);
+        logger.debug("##Returned list's size is " + stockDtoList.size());
+        return new ResponseEntity<>(stockDtoList,HttpStatus.OK);
+    }
+
+    /**
+     * Returns up to limit stocks whose name starts with prefix, ignoring case, ordered by name
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_SEARCH_PATH,method = RequestMethod.GET)
+    public ResponseEntity<List<StockDto>> searchStocks(@RequestParam(defaultValue = "") String prefix,
+                                                       @RequestParam(required = false) Integer limit){
+        logger.debug("##New request : searchStocks prefix=" + prefix + " limit=" + limit);
+        List<StockDto> stockDtoList = stockSearchService.search(prefix, limit == null ? DEFAULT_SEARCH_LIMIT : limit);
+        logger.debug("##Returned list's size is " + stockDtoList.size());
+        return new ResponseEntity<>(stockDtoList,HttpStatus.OK);
+    }
+
+    /**
+     * Opens a server-sent events stream of price changes, optionally only for some stock ids
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_STREAM_PATH,method = RequestMethod.GET,produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPrices(@RequestParam(required = false) List<Long> ids){
+        logger.debug("##New request : streamPrices " + ids);
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        priceEventBroadcaster.subscribe(emitter, ids == null ? null : new HashSet<>(ids));
+        return emitter;
+    }
+
+    /**
+     * Returns prices of a stock between from and to, both optional ISO-8601 date-times
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_HISTORY_PATH,method = RequestMethod.GET)
+    public ResponseEntity<List<PricePointDto>> getStockHistory(@PathVariable Long id,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to){
+        logger.debug("##New request : getStockHistory " + id + " from=" + from + " to=" + to);
+        List<PricePointDto> pricePointList = priceHistoryService.getHistory(id, toDate(from), toDate(to));
+        logger.debug("##Returned history's size is " + pricePointList.size());
+        return new ResponseEntity<>(pricePointList,HttpStatus.OK);
+    }
+
+    /**
+     * Returns OHLC candles of a stock for interval 1m, 5m or 1h, starting between from and to
+     */
+    @RequestMapping(value = STOCK_CONTROLLER_CANDLES_PATH,method = RequestMethod.GET)
+    public ResponseEntity<List<CandleDto>> getStockCandles(@PathVariable Long id,
+                                                           @RequestParam(defaultValue = "1m") String interval,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to){
+        logger.debug("##New request : getStockCandles " + id + " interval=" + interval + " from=" + from + " to=" + to);
+        List<CandleDto> candleList = candleService.getCandles(id, interval, toDate(from), toDate(to));
+        logger.debug("##Returned candles' size is " + candleList.size());
+        return new ResponseEntity<>(candleList,HttpStatus.OK);
+    }
 
     @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH + "{id}",method = RequestMethod.PUT)
     public ResponseEntity<StockDto> updateStock(@PathVariable Long id,@Valid @RequestBody UpdateStockPriceRequest updateStockPriceRequest){
@@ -60,6 +271,14 @@ public class StockController {
         return new ResponseEntity<>(stockUpdated,HttpStatus.OK);
     }
 
+    @RequestMapping(value = STOCK_CONTROLLER_PRICES_PATH,method = RequestMethod.PUT)
+    public ResponseEntity<List<StockPriceUpdateResult>> updateStockPrices(@Valid @RequestBody UpdateStockPricesRequest updateStockPricesRequest){
+        logger.debug("##New request : updateStockPrices " + updateStockPricesRequest);
+        List<StockPriceUpdateResult> results = stockService.updatePrices(updateStockPricesRequest.getPrices());
+        logger.debug("##Returned results' size is " + results.size());
+        return new ResponseEntity<>(results,HttpStatus.OK);
+    }
+
     @RequestMapping(value = STOCK_CONTROLLER_METHOD_PATH_FOLLOWING_SLASH + "{id}",method = RequestMethod.DELETE)
     public ResponseEntity deleteById(@PathVariable Long id){
         logger.debug("##New request : deleteById " + id);
@@ -67,4 +286,45 @@ public class StockController {
         logger.debug("##Returned stock " + stockService);
         return new ResponseEntity(HttpStatus.NO_CONTENT);
     }
+
+    /**
+     * Gzipped export of the stocks, sent with Content-Encoding gzip so http clients inflate it on the fly
+     * @throws StockDataBusinessException If format is neither ndjson nor csv, before anything is written
+     */
+    static ResponseEntity<StreamingResponseBody> exportBody(StockExportService stockExportService, String format, OffsetDateTime updatedSince){
+        ExportFormat exportFormat = ExportFormat.fromCode(format);
+        if(exportFormat == null){
+            throw new StockDataBusinessException(INVALID_EXPORT_FORMAT);
+        }
+        Date since = toDate(updatedSince);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=stocks." + exportFormat.getCode())
+                .body(outputStream -> stockExportService.exportStocks(exportFormat, since, outputStream));
+    }
+
+    /**
+     * Body writing all stocks of stockService as one json array
+     */
+    static StreamingResponseBody stockArrayBody(StockService stockService, ObjectMapper objectMapper){
+        ObjectWriter stockWriter = objectMapper.writerFor(StockDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try(JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(outputStream)){
+                jsonGenerator.writeStartArray();
+                stockService.streamAll(stockDto -> {
+                    try {
+                        stockWriter.writeValue(jsonGenerator, stockDto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                jsonGenerator.writeEndArray();
+            }
+        };
+    }
+
+    static Date toDate(OffsetDateTime dateTime){
+        return dateTime == null ? null : Date.from(dateTime.toInstant());
+    }
 }
@@ -0,0 +1,225 @@
+package com.farshad.stock.converter;
+
+import com.farshad.stock.dto.ErrorResponse;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.StockPriceUpdateResult;
+import com.farshad.stock.dto.UpdateStockPricesRequest;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import static com.farshad.stock.constants.Constants.PROTOBUF_MEDIA_TYPE_VALUE;
+
+/**
+ * Reads and writes the messages of src/main/proto/stock.proto straight from and to the dtos
+ * <br> Fields are encoded by hand with the protobuf runtime, there are no generated classes to copy the dtos into.
+ * <br> Null fields are left out and fields left out are read as null, so validation of the dtos still applies.
+ */
+public class StockProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int STOCK_ID               = 1;
+    private static final int STOCK_NAME             = 2;
+    private static final int STOCK_CURRENT_PRICE    = 3;
+    private static final int STOCK_LAST_UPDATE      = 4;
+    private static final int STOCK_LIST_STOCKS      = 1;
+    private static final int UPDATE_ID              = 1;
+    private static final int UPDATE_CURRENT_PRICE   = 2;
+    private static final int UPDATE_LAST_UPDATE     = 3;
+    private static final int UPDATES_PRICES         = 1;
+    private static final int RESULT_ID              = 1;
+    private static final int RESULT_STATUS          = 2;
+    private static final int RESULT_LIST_RESULTS    = 1;
+    private static final int ERROR_MESSAGE          = 1;
+
+    public StockProtobufHttpMessageConverter() {
+        super(MediaType.parseMediaType(PROTOBUF_MEDIA_TYPE_VALUE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return StockDto.class == clazz || ErrorResponse.class == clazz || UpdateStockPricesRequest.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, @Nullable MediaType mediaType) {
+        return UpdateStockPricesRequest.class == clazz && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return type == UpdateStockPricesRequest.class && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, @Nullable MediaType mediaType) {
+        return (StockDto.class == clazz || ErrorResponse.class == clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if(type == null || type instanceof Class){
+            return canWrite(clazz, mediaType);
+        }
+        Class<?> elementClass = elementClass(type);
+        return (elementClass == StockDto.class || elementClass == StockPriceUpdateResult.class) && canWrite(mediaType);
+    }
+
+    @Override
+    protected void writeInternal(Object o, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody(), BUFFER_SIZE);
+        if(o instanceof StockDto){
+            writeStockFields(output, (StockDto) o);
+        }else if(o instanceof ErrorResponse){
+            if(((ErrorResponse) o).getMessage() != null){
+                output.writeString(ERROR_MESSAGE, ((ErrorResponse) o).getMessage());
+            }
+        }else if(elementClass(type) == StockDto.class){
+            for(Object stockDto : (Collection<?>) o){
+                output.writeTag(STOCK_LIST_STOCKS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(stockSize((StockDto) stockDto));
+                writeStockFields(output, (StockDto) stockDto);
+            }
+        }else{
+            for(Object result : (Collection<?>) o){
+                output.writeTag(RESULT_LIST_RESULTS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(resultSize((StockPriceUpdateResult) result));
+                writeResultFields(output, (StockPriceUpdateResult) result);
+            }
+        }
+        output.flush();
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return readUpdateStockPrices(inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readUpdateStockPrices(inputMessage);
+    }
+
+    private UpdateStockPricesRequest readUpdateStockPrices(HttpInputMessage inputMessage) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(inputMessage.getBody());
+        List<StockPriceUpdate> prices = new ArrayList<>();
+        try {
+            for(int tag = input.readTag(); tag != 0; tag = input.readTag()){
+                switch (tag){
+                    case (UPDATES_PRICES << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED:
+                        int limit = input.pushLimit(input.readRawVarint32());
+                        prices.add(readStockPriceUpdate(input));
+                        input.popLimit(limit);
+                        break;
+                    default:
+                        input.skipField(tag);
+                }
+            }
+        } catch (IOException e){
+            throw new HttpMessageNotReadableException("Invalid protobuf message: " + e.getMessage(), e, inputMessage);
+        }
+        return new UpdateStockPricesRequest(prices);
+    }
+
+    private static StockPriceUpdate readStockPriceUpdate(CodedInputStream input) throws IOException {
+        StockPriceUpdate stockPriceUpdate = new StockPriceUpdate();
+        for(int tag = input.readTag(); tag != 0; tag = input.readTag()){
+            switch (tag){
+                case (UPDATE_ID << 3) | WireFormat.WIRETYPE_VARINT:
+                    stockPriceUpdate.setId(input.readInt64());
+                    break;
+                case (UPDATE_CURRENT_PRICE << 3) | WireFormat.WIRETYPE_FIXED64:
+                    stockPriceUpdate.setCurrentPrice(input.readDouble());
+                    break;
+                case (UPDATE_LAST_UPDATE << 3) | WireFormat.WIRETYPE_VARINT:
+                    stockPriceUpdate.setLastUpdate(new Date(input.readInt64()));
+                    break;
+                default:
+                    input.skipField(tag);
+            }
+        }
+        return stockPriceUpdate;
+    }
+
+    private static void writeStockFields(CodedOutputStream output, StockDto stockDto) throws IOException {
+        if(stockDto.getId() != null){
+            output.writeInt64(STOCK_ID, stockDto.getId());
+        }
+        if(stockDto.getName() != null){
+            output.writeString(STOCK_NAME, stockDto.getName());
+        }
+        output.writeDouble(STOCK_CURRENT_PRICE, stockDto.getCurrentPrice());
+        if(stockDto.getLastUpdateTime() != StockDto.NO_LAST_UPDATE){
+            output.writeInt64(STOCK_LAST_UPDATE, stockDto.getLastUpdateTime());
+        }
+    }
+
+    private static int stockSize(StockDto stockDto) {
+        int size = 0;
+        if(stockDto.getId() != null){
+            size += CodedOutputStream.computeInt64Size(STOCK_ID, stockDto.getId());
+        }
+        if(stockDto.getName() != null){
+            size += CodedOutputStream.computeStringSize(STOCK_NAME, stockDto.getName());
+        }
+        size += CodedOutputStream.computeDoubleSize(STOCK_CURRENT_PRICE, stockDto.getCurrentPrice());
+        if(stockDto.getLastUpdateTime() != StockDto.NO_LAST_UPDATE){
+            size += CodedOutputStream.computeInt64Size(STOCK_LAST_UPDATE, stockDto.getLastUpdateTime());
+        }
+        return size;
+    }
+
+    /**
+     * Status numbers of stock.proto follow the declaration order of {@link StockPriceUpdateResult.Status}
+     */
+    private static void writeResultFields(CodedOutputStream output, StockPriceUpdateResult result) throws IOException {
+        if(result.getId() != null){
+            output.writeInt64(RESULT_ID, result.getId());
+        }
+        if(result.getStatus() != null){
+            output.writeEnum(RESULT_STATUS, result.getStatus().ordinal());
+        }
+    }
+
+    private static int resultSize(StockPriceUpdateResult result) {
+        int size = 0;
+        if(result.getId() != null){
+            size += CodedOutputStream.computeInt64Size(RESULT_ID, result.getId());
+        }
+        if(result.getStatus() != null){
+            size += CodedOutputStream.computeEnumSize(RESULT_STATUS, result.getStatus().ordinal());
+        }
+        return size;
+    }
+
+    /**
+     * @return element class of a collection type like List&lt;StockDto&gt;, or null for any other type
+     */
+    private static Class<?> elementClass(@Nullable Type type) {
+        if(!(type instanceof ParameterizedType)){
+            return null;
+        }
+        ParameterizedType parameterizedType = (ParameterizedType) type;
+        if(!(parameterizedType.getRawType() instanceof Class)
+                || !Collection.class.isAssignableFrom((Class<?>) parameterizedType.getRawType())){
+            return null;
+        }
+        Type elementType = parameterizedType.getActualTypeArguments()[0];
+        return elementType instanceof Class ? (Class<?>) elementType : null;
+    }
+}
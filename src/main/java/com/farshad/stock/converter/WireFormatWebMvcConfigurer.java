@@ -0,0 +1,69 @@
+package com.farshad.stock.converter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_BASE_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_EXPORT_PATH;
+
+/**
+ * Lets clients ask for Smile, CBOR or protobuf instead of json with the Accept header
+ * <br> The binary converters come after the json one, so json stays the default for any other Accept header.
+ * <br> Smile and CBOR use the application's Jackson settings, field names are SNAKE_CASE like in json.
+ * <br> Responses of the api carry Vary: Accept, 304s too, so caches keep one copy per format.
+ * The export picks its format from a parameter and is left out.
+ */
+@Configuration
+public class WireFormatWebMvcConfigurer implements WebMvcConfigurer {
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+
+    public WireFormatWebMvcConfigurer(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+        this.objectMapperBuilders = objectMapperBuilders;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        /**
+         * the default ones are built without spring.jackson.* settings
+         */
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter
+                || converter instanceof MappingJackson2CborHttpMessageConverter);
+        MappingJackson2SmileHttpMessageConverter smileConverter =
+                new MappingJackson2SmileHttpMessageConverter(objectMapperBuilders.getObject().factory(new SmileFactory()).build());
+        MappingJackson2CborHttpMessageConverter cborConverter =
+                new MappingJackson2CborHttpMessageConverter(objectMapperBuilders.getObject().factory(new CBORFactory()).build());
+        /**
+         * binary content types have no charset
+         */
+        smileConverter.setDefaultCharset(null);
+        cborConverter.setDefaultCharset(null);
+        converters.add(smileConverter);
+        converters.add(cborConverter);
+        converters.add(new StockProtobufHttpMessageConverter());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return true;
+            }
+        }).addPathPatterns(STOCK_CONTROLLER_BASE_PATH + "/**").excludePathPatterns(STOCK_CONTROLLER_FULL_EXPORT_PATH);
+    }
+}
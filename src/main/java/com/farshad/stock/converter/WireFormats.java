@@ -0,0 +1,69 @@
+package com.farshad.stock.converter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.farshad.stock.constants.Constants.CBOR_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.PROTOBUF_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.SMILE_MEDIA_TYPE_VALUE;
+
+/**
+ * Tells which wire format a stock response is written in from the Accept header, before any stock is read
+ * <br> Formats are tried in the order of the converters, json first, like content negotiation does.
+ * <br> ETags end with the format, a cache must not answer a protobuf request with the json body of the same version.
+ */
+public final class WireFormats {
+    public static final List<MediaType> MEDIA_TYPES = Collections.unmodifiableList(Arrays.asList(MediaType.APPLICATION_JSON,
+            MediaType.parseMediaType(SMILE_MEDIA_TYPE_VALUE),
+            MediaType.parseMediaType(CBOR_MEDIA_TYPE_VALUE),
+            MediaType.parseMediaType(PROTOBUF_MEDIA_TYPE_VALUE)));
+
+    private WireFormats() {
+    }
+
+    /**
+     * @return the first format the most preferred accepted type matches, json without or with an unreadable Accept header
+     */
+    public static MediaType negotiate(WebRequest webRequest) {
+        String[] accept = webRequest.getHeaderValues(HttpHeaders.ACCEPT);
+        if(accept == null){
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> acceptedTypes;
+        try {
+            acceptedTypes = MediaType.parseMediaTypes(Arrays.asList(accept));
+        } catch (InvalidMediaTypeException e){
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+        for(MediaType acceptedType : acceptedTypes){
+            for(MediaType mediaType : MEDIA_TYPES){
+                if(acceptedType.getQualityValue() > 0 && acceptedType.isCompatibleWith(mediaType)){
+                    return mediaType;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * @param eTag strong ETag of the stocks
+     * @return eTag with the subtype of mediaType added inside its quotes
+     */
+    public static String eTag(String eTag, MediaType mediaType) {
+        if(eTag == null){
+            return null;
+        }
+        return eTag.substring(0, eTag.length() - 1) + "-" + mediaType.getSubtype() + "\"";
+    }
+
+    public static String eTag(String eTag, WebRequest webRequest) {
+        return eTag(eTag, negotiate(webRequest));
+    }
+}
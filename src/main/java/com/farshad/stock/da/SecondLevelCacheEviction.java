@@ -0,0 +1,48 @@
+package com.farshad.stock.da;
+
+import com.farshad.stock.model.Stock;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.util.Collection;
+
+/**
+ * Keeps the second-level cache of stocks valid around statements that bypass Hibernate
+ * <br> Stocks are evicted at once and again when the transaction completes, so one loaded by another transaction
+ * before the commit is dropped too. Without a second-level cache both are no-ops.
+ */
+final class SecondLevelCacheEviction {
+
+    private SecondLevelCacheEviction() {
+    }
+
+    static void evict(EntityManager entityManager, Collection<Long> ids) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        evict(cache, ids);
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(cache, ids);
+                }
+            });
+        }
+    }
+
+    /**
+     * Also drops the cached query results, they don't know about stocks inserted by JDBC
+     */
+    static void evictAll(EntityManager entityManager) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(Stock.class);
+        cache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
+    }
+
+    private static void evict(Cache cache, Collection<Long> ids) {
+        for(Long id : ids){
+            cache.evict(Stock.class, id);
+        }
+    }
+}
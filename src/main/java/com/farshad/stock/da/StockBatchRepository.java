@@ -0,0 +1,34 @@
+package com.farshad.stock.da;
+
+import com.farshad.stock.model.Stock;
+
+import java.util.Date;
+import java.util.List;
+
+public interface StockBatchRepository {
+    /**
+     * Persists new stocks, flushing and clearing the persistence context every batch size stocks
+     * so inserts go out as JDBC batches and memory stays bounded
+     * @param stocks
+     * @return persisted stocks with ids
+     */
+    List<Stock> persistInBatches(List<Stock> stocks);
+
+    /**
+     * Sets price and last update of existing stocks as JDBC batches of batch size statements
+     * <br>A stock is only written if its row isn't newer, the version is bumped like by any other price update.
+     * <br>Bypasses the persistence context, a stock already loaded in it keeps its old values. Written stocks are evicted from the second-level cache.
+     * @param stocks id, current price and last update of each stock
+     * @return ids of the stocks that weren't written, because they are deleted or the database holds a newer price
+     */
+    List<Long> writePricesInBatches(List<Stock> stocks);
+
+    /**
+     * Sets the price in a single statement, only if it differs from the current one and lastUpdate isn't older than the stock's
+     * <br>The version is bumped so a concurrent load-then-save of the same stock fails instead of overwriting this price.
+     * <br>Bypasses the persistence context, a stock already loaded in it keeps its old values.
+     * Only this stock is evicted from the second-level cache, cached query results stay valid as no stock is added or removed.
+     * @return 1 if updated, 0 if the price is unchanged, the update is stale or there is no stock with id
+     */
+    int updatePriceIfChanged(Long id, double currentPrice, Date lastUpdate);
+}
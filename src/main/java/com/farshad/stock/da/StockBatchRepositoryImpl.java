@@ -0,0 +1,102 @@
+package com.farshad.stock.da;
+
+import com.farshad.stock.model.Stock;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+public class StockBatchRepositoryImpl implements StockBatchRepository {
+    private static final Logger logger = LoggerFactory.getLogger(StockBatchRepositoryImpl.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public List<Stock> persistInBatches(List<Stock> stocks) {
+        for(int i = 0; i < stocks.size(); i++){
+            entityManager.persist(stocks.get(i));
+            if((i + 1) % batchSize == 0){
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        logger.debug("Persisted " + stocks.size() + " stocks in batches of " + batchSize);
+        return stocks;
+    }
+
+    @Override
+    public List<Long> writePricesInBatches(List<Stock> stocks) {
+        List<Long> notWrittenIds = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            List<Long> notWritten = new ArrayList<>();
+            try(PreparedStatement update = connection.prepareStatement(
+                    "update stock set current_price = ?, last_update = ?, version = version + 1 where id = ? and last_update <= ?")){
+                for(int start = 0; start < stocks.size(); start += batchSize){
+                    List<Stock> batch = stocks.subList(start, Math.min(start + batchSize, stocks.size()));
+                    for(Stock stock : batch){
+                        Timestamp lastUpdate = new Timestamp(stock.getLastUpdate().getTime());
+                        update.setDouble(1, stock.getCurrentPrice());
+                        update.setTimestamp(2, lastUpdate);
+                        update.setLong(3, stock.getId());
+                        update.setTimestamp(4, lastUpdate);
+                        update.addBatch();
+                    }
+                    int[] updateCounts = update.executeBatch();
+                    for(int i = 0; i < updateCounts.length; i++){
+                        if(updateCounts[i] == 0){
+                            notWritten.add(batch.get(i).getId());
+                        }
+                    }
+                }
+            }
+            logger.debug("Wrote prices of " + (stocks.size() - notWritten.size()) + " stocks in batches of " + batchSize
+                    + ", " + notWritten.size() + " not written");
+            return notWritten;
+        });
+        List<Long> ids = new ArrayList<>(stocks.size());
+        for(Stock stock : stocks){
+            ids.add(stock.getId());
+        }
+        SecondLevelCacheEviction.evict(entityManager, ids);
+        return notWrittenIds;
+    }
+
+    /**
+     * Pending changes of the persistence context are flushed first, like before a JPQL update
+     */
+    @Override
+    public int updatePriceIfChanged(Long id, double currentPrice, Date lastUpdate) {
+        entityManager.flush();
+        int updated = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try(PreparedStatement update = connection.prepareStatement(
+                    "update stock set current_price = ?, last_update = ?, version = version + 1 " +
+                            "where id = ? and current_price <> ? and last_update <= ?")){
+                Timestamp timestamp = new Timestamp(lastUpdate.getTime());
+                update.setDouble(1, currentPrice);
+                update.setTimestamp(2, timestamp);
+                update.setLong(3, id);
+                update.setDouble(4, currentPrice);
+                update.setTimestamp(5, timestamp);
+                return update.executeUpdate();
+            }
+        });
+        if(updated > 0){
+            SecondLevelCacheEviction.evict(entityManager, Collections.singletonList(id));
+        }
+        return updated;
+    }
+}
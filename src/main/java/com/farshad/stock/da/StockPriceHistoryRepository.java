@@ -0,0 +1,13 @@
+package com.farshad.stock.da;
+
+import com.farshad.stock.model.StockPriceHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface StockPriceHistoryRepository extends JpaRepository<StockPriceHistory,Long> {
+    List<StockPriceHistory> findByStockIdAndTickTimeBetweenOrderByTickTimeAsc(Long stockId, Date from, Date to);
+}
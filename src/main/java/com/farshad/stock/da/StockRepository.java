@@ -1,10 +1,34 @@
 package com.farshad.stock.da;
 
 import com.farshad.stock.model.Stock;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface StockRepository extends JpaRepository<Stock,Long> {
+public interface StockRepository extends JpaRepository<Stock,Long>, StockBatchRepository, StockStreamRepository, StockRestoreRepository {
+    /**
+     * Keyset pagination, seeks on the primary key instead of skipping rows
+     */
+    List<Stock> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Seeks on the unique index of the name
+     */
+    Optional<Stock> findByName(String name);
+    List<Stock> findByNameIn(Collection<String> names);
 
+    /**
+     * The query is cached with the second-level cache, it is invalidated by every insert, update or delete through Hibernate
+     * <br>A cached result only holds the ids, stocks not in the second-level cache are then loaded one by one
+     */
+    @Override
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"))
+    List<Stock> findAll();
 }
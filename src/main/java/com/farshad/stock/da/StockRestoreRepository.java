@@ -0,0 +1,17 @@
+package com.farshad.stock.da;
+
+import com.farshad.stock.model.Stock;
+
+import java.util.List;
+
+public interface StockRestoreRepository {
+    /**
+     * Writes stocks with their ids into the table, through JDBC batches
+     * <br>Missing stocks are inserted, stocks with an older lastUpdate get the price of the given one, newer ones are kept.
+     * <br>The id sequence is moved past the inserted ids, so it must be called before any stock is created.
+     * <br>The second-level cache of stocks and the cached query results are dropped.
+     * @param stocks
+     * @return number of stocks inserted or updated
+     */
+    int restore(List<Stock> stocks);
+}
@@ -0,0 +1,87 @@
+package com.farshad.stock.da;
+
+import com.farshad.stock.model.Stock;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StockRestoreRepositoryImpl implements StockRestoreRepository {
+    private static final Logger logger = LoggerFactory.getLogger(StockRestoreRepositoryImpl.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Override
+    public int restore(List<Stock> stocks) {
+        int restored = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            Map<Long, Long> lastUpdates = new HashMap<>();
+            long maxId = 0;
+            try(Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("select id, last_update from stock")){
+                while(resultSet.next()){
+                    lastUpdates.put(resultSet.getLong(1), resultSet.getTimestamp(2).getTime());
+                    maxId = Math.max(maxId, resultSet.getLong(1));
+                }
+            }
+            int inserted = 0;
+            int updated = 0;
+            try(PreparedStatement insert = connection.prepareStatement(
+                    "insert into stock (id, name, current_price, last_update, version) values (?, ?, ?, ?, 0)");
+                PreparedStatement update = connection.prepareStatement(
+                    "update stock set current_price = ?, last_update = ?, version = version + 1 where id = ? and last_update < ?")){
+                for(Stock stock : stocks){
+                    Long lastUpdate = lastUpdates.get(stock.getId());
+                    Timestamp stockLastUpdate = new Timestamp(stock.getLastUpdate().getTime());
+                    if(lastUpdate == null){
+                        insert.setLong(1, stock.getId());
+                        insert.setString(2, stock.getName());
+                        insert.setDouble(3, stock.getCurrentPrice());
+                        insert.setTimestamp(4, stockLastUpdate);
+                        insert.addBatch();
+                        maxId = Math.max(maxId, stock.getId());
+                        if(++inserted % batchSize == 0){
+                            insert.executeBatch();
+                        }
+                    }else if(lastUpdate < stockLastUpdate.getTime()){
+                        update.setDouble(1, stock.getCurrentPrice());
+                        update.setTimestamp(2, stockLastUpdate);
+                        update.setLong(3, stock.getId());
+                        update.setTimestamp(4, stockLastUpdate);
+                        update.addBatch();
+                        if(++updated % batchSize == 0){
+                            update.executeBatch();
+                        }
+                    }
+                }
+                insert.executeBatch();
+                update.executeBatch();
+            }
+            if(inserted > 0){
+                /**
+                 * no id above maxId is taken, restarting there is safe even if the sequence was further
+                 */
+                try(Statement statement = connection.createStatement()){
+                    statement.execute("alter sequence stock_seq restart with " + (maxId + 1));
+                }
+            }
+            logger.debug("Restored " + stocks.size() + " stocks, inserted " + inserted + " updated " + updated);
+            return inserted + updated;
+        });
+        SecondLevelCacheEviction.evictAll(entityManager);
+        return restored;
+    }
+}
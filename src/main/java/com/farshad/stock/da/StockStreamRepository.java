@@ -0,0 +1,23 @@
+package com.farshad.stock.da;
+
+import com.farshad.stock.model.Stock;
+
+import java.util.Date;
+import java.util.function.Consumer;
+
+public interface StockStreamRepository {
+    /**
+     * Reads all stocks ordered by id through a forward only cursor
+     * <br>Every stock is detached right after the consumer returns, so the persistence context never grows.
+     * <br>Must be called inside a transaction.
+     * @param consumer
+     */
+    void forEachStock(Consumer<Stock> consumer);
+
+    /**
+     * Reads the stocks with a lastUpdate at or after updatedSince like {@link #forEachStock(Consumer)}
+     * @param updatedSince
+     * @param consumer
+     */
+    void forEachStockUpdatedSince(Date updatedSince, Consumer<Stock> consumer);
+}
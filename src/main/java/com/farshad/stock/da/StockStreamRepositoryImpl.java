@@ -0,0 +1,43 @@
+package com.farshad.stock.da;
+
+import com.farshad.stock.model.Stock;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.Date;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class StockStreamRepositoryImpl implements StockStreamRepository {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${stock.stream.fetch-size:500}")
+    private int fetchSize;
+
+    @Override
+    public void forEachStock(Consumer<Stock> consumer) {
+        forEach(entityManager.createQuery("select s from Stock s order by s.id", Stock.class), consumer);
+    }
+
+    @Override
+    public void forEachStockUpdatedSince(Date updatedSince, Consumer<Stock> consumer) {
+        forEach(entityManager.createQuery("select s from Stock s where s.lastUpdate >= :updatedSince order by s.id", Stock.class)
+                .setParameter("updatedSince", updatedSince), consumer);
+    }
+
+    private void forEach(TypedQuery<Stock> query, Consumer<Stock> consumer) {
+        try(Stream<Stock> stockStream = query
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream()){
+            stockStream.forEach(stock -> {
+                consumer.accept(stock);
+                entityManager.detach(stock);
+            });
+        }
+    }
+}
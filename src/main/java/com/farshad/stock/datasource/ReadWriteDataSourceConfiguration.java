@@ -0,0 +1,75 @@
+package com.farshad.stock.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the connections into a primary pool for writes and a replica pool for read-only transactions
+ * <br> Both pools start with the spring.datasource settings, so by default the replica pool connects to the primary database
+ * and only keeps reads from waiting for connections held by writes. stock.datasource.replica.* sets any Hikari property
+ * of the replica pool, like jdbc-url of a real replica or maximum-pool-size.
+ * <br> A replica that lags behind serves reads older than the last writes, which the cache may then keep until the stock changes again.
+ * <br> The pools aren't beans of their own, Boot would initialize each as the application's DataSource. Their metrics are tagged
+ * pool=primary and pool=replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stock.datasource.replica.enabled", havingValue = "true")
+public class ReadWriteDataSourceConfiguration {
+    public static final String PRIMARY_POOL = "primary";
+    public static final String REPLICA_POOL = "replica";
+
+    private final List<HikariDataSource> pools = new ArrayList<>(2);
+
+    /**
+     * The defaults are given so that no connection is fetched before the first transaction
+     */
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        HikariDataSource primaryDataSource = pool(dataSourceProperties, PRIMARY_POOL, meterRegistryProvider);
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaryDataSource));
+        HikariDataSource replicaDataSource = pool(dataSourceProperties, REPLICA_POOL, meterRegistryProvider);
+        replicaDataSource.setReadOnly(true);
+        Binder.get(environment).bind("stock.datasource.replica", Bindable.ofInstance(replicaDataSource));
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        dataSource.setTargetDataSource(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource));
+        return dataSource;
+    }
+
+    private HikariDataSource pool(DataSourceProperties dataSourceProperties, String name, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName(name);
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if(meterRegistry != null){
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        }
+        pools.add(pool);
+        return pool;
+    }
+
+    @PreDestroy
+    public void close() {
+        for(HikariDataSource pool : pools){
+            pool.close();
+        }
+    }
+}
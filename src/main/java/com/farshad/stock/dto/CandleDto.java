@@ -0,0 +1,103 @@
+package com.farshad.stock.dto;
+
+import java.util.Date;
+import java.util.Objects;
+
+public class CandleDto {
+    private Date    start;
+    private Double  open;
+    private Double  high;
+    private Double  low;
+    private Double  close;
+    private boolean closed;
+
+    public CandleDto(Date start, Double open, Double high, Double low, Double close, boolean closed) {
+        this.start = start;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.closed = closed;
+    }
+
+    public CandleDto() {
+    }
+
+    public Date getStart() {
+        return start;
+    }
+
+    public void setStart(Date start) {
+        this.start = start;
+    }
+
+    public Double getOpen() {
+        return open;
+    }
+
+    public void setOpen(Double open) {
+        this.open = open;
+    }
+
+    public Double getHigh() {
+        return high;
+    }
+
+    public void setHigh(Double high) {
+        this.high = high;
+    }
+
+    public Double getLow() {
+        return low;
+    }
+
+    public void setLow(Double low) {
+        this.low = low;
+    }
+
+    public Double getClose() {
+        return close;
+    }
+
+    public void setClose(Double close) {
+        this.close = close;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void setClosed(boolean closed) {
+        this.closed = closed;
+    }
+
+    @Override
+    public String toString() {
+        return "CandleDto{" +
+                "start=" + start +
+                ", open=" + open +
+                ", high=" + high +
+                ", low=" + low +
+                ", close=" + close +
+                ", closed=" + closed +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CandleDto candleDto = (CandleDto) o;
+        return closed == candleDto.closed &&
+                Objects.equals(start, candleDto.start) &&
+                Objects.equals(open, candleDto.open) &&
+                Objects.equals(high, candleDto.high) &&
+                Objects.equals(low, candleDto.low) &&
+                Objects.equals(close, candleDto.close);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(start, open, high, low, close, closed);
+    }
+}
@@ -0,0 +1,51 @@
+package com.farshad.stock.dto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+import java.util.Objects;
+
+public class CreateStocksRequest {
+    public static final int MAX_STOCKS = 100000;
+
+    @NotNull
+    @Size(min = 1, max = MAX_STOCKS)
+    @Valid
+    private List<CreateStockRequest> stocks;
+
+    public List<CreateStockRequest> getStocks() {
+        return stocks;
+    }
+
+    public void setStocks(List<CreateStockRequest> stocks) {
+        this.stocks = stocks;
+    }
+
+    @Override
+    public String toString() {
+        return "CreateStocksRequest{" +
+                "stocks=" + (stocks == null ? null : stocks.size()) +
+                '}';
+    }
+
+    public CreateStocksRequest(List<CreateStockRequest> stocks) {
+        this.stocks = stocks;
+    }
+
+    public CreateStocksRequest() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CreateStocksRequest that = (CreateStocksRequest) o;
+        return Objects.equals(stocks, that.stocks);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(stocks);
+    }
+}
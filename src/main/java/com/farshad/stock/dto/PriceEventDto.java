@@ -0,0 +1,69 @@
+package com.farshad.stock.dto;
+
+import java.util.Objects;
+
+/**
+ * Compact price change pushed to stream subscribers, time is in epoch millis
+ */
+public class PriceEventDto {
+    private Long    id;
+    private Double  price;
+    private long    time;
+
+    public PriceEventDto(Long id, Double price, long time) {
+        this.id = id;
+        this.price = price;
+        this.time = time;
+    }
+
+    public PriceEventDto() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public void setTime(long time) {
+        this.time = time;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceEventDto{" +
+                "id=" + id +
+                ", price=" + price +
+                ", time=" + time +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PriceEventDto that = (PriceEventDto) o;
+        return time == that.time &&
+                Objects.equals(id, that.id) &&
+                Objects.equals(price, that.price);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, price, time);
+    }
+}
@@ -0,0 +1,55 @@
+package com.farshad.stock.dto;
+
+import java.util.Date;
+import java.util.Objects;
+
+public class PricePointDto {
+    private Date    time;
+    private Double  price;
+
+    public PricePointDto(Date time, Double price) {
+        this.time = time;
+        this.price = price;
+    }
+
+    public PricePointDto() {
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public void setTime(Date time) {
+        this.time = time;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    @Override
+    public String toString() {
+        return "PricePointDto{" +
+                "time=" + time +
+                ", price=" + price +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PricePointDto that = (PricePointDto) o;
+        return Objects.equals(time, that.time) &&
+                Objects.equals(price, that.price);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(time, price);
+    }
+}
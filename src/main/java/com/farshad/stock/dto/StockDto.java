@@ -1,19 +1,40 @@
 package com.farshad.stock.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Date;
 import java.util.Objects;
 
+/**
+ * A stock as it is cached and sent to clients
+ * <br> Price and last update are kept as primitives, a cached stock is this object and its name only.
+ * The id stays a Long so the cache can use the same instance as its key.
+ * <br> A missing last update is kept as {@link #NO_LAST_UPDATE} and still read and written as null.
+ */
 public class StockDto {
+    /**
+     * older than any price, so a stock without a last update never makes a price stale
+     */
+    public static final long NO_LAST_UPDATE = Long.MIN_VALUE;
+
     private Long    id;
     private String  name;
-    private Double  currentPrice;
-    private Date    lastUpdate;
+    private double  currentPrice;
+    private long    lastUpdateTime;
 
-    public StockDto(Long id, String name, Double currentPrice, Date lastUpdate) {
+    public StockDto(Long id, String name, double currentPrice, long lastUpdateTime) {
         this.id = id;
         this.name = name;
         this.currentPrice = currentPrice;
-        this.lastUpdate = lastUpdate;
+        this.lastUpdateTime = lastUpdateTime;
+    }
+
+    public StockDto(Long id, String name, double currentPrice, Date lastUpdate) {
+        this(id, name, currentPrice, lastUpdate != null ? lastUpdate.getTime() : NO_LAST_UPDATE);
+    }
+
+    public StockDto() {
+        this.lastUpdateTime = NO_LAST_UPDATE;
     }
 
     public Long getId() {
@@ -32,20 +53,36 @@ public class StockDto {
         this.name = name;
     }
 
-    public Double getCurrentPrice() {
+    public double getCurrentPrice() {
         return currentPrice;
     }
 
-    public void setCurrentPrice(Double currentPrice) {
+    public void setCurrentPrice(double currentPrice) {
         this.currentPrice = currentPrice;
     }
 
+    /**
+     * Only created for the json and binary formats, everything else reads {@link #getLastUpdateTime()}
+     * @return null if there is no last update
+     */
     public Date getLastUpdate() {
-        return lastUpdate;
+        return lastUpdateTime != NO_LAST_UPDATE ? new Date(lastUpdateTime) : null;
     }
 
     public void setLastUpdate(Date lastUpdate) {
-        this.lastUpdate = lastUpdate;
+        this.lastUpdateTime = lastUpdate != null ? lastUpdate.getTime() : NO_LAST_UPDATE;
+    }
+
+    /**
+     * @return last update in milliseconds since the epoch, {@link #NO_LAST_UPDATE} if there is none
+     */
+    @JsonIgnore
+    public long getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+
+    public void setLastUpdateTime(long lastUpdateTime) {
+        this.lastUpdateTime = lastUpdateTime;
     }
 
     @Override
@@ -54,7 +91,7 @@ public class StockDto {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", currentPrice=" + currentPrice +
-                ", lastUpdate=" + lastUpdate +
+                ", lastUpdate=" + getLastUpdate() +
                 '}';
     }
 
@@ -65,8 +102,8 @@ public class StockDto {
         StockDto stockDto = (StockDto) o;
         return Objects.equals(id, stockDto.id) &&
                 Objects.equals(name, stockDto.name) &&
-                Objects.equals(currentPrice, stockDto.currentPrice) &&
-                Objects.equals(lastUpdate, stockDto.lastUpdate);
+                Double.compare(currentPrice, stockDto.currentPrice) == 0 &&
+                lastUpdateTime == stockDto.lastUpdateTime;
     }
 
     @Override
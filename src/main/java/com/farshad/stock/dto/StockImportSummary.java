@@ -0,0 +1,170 @@
+package com.farshad.stock.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.farshad.stock.constants.Constants.MAX_REPORTED_REJECTED_ROWS;
+
+/**
+ * Counts of an import, only the first MAX_REPORTED_REJECTED_ROWS rejected rows are listed
+ */
+public class StockImportSummary {
+    public static class RejectedRow {
+        private long    row;
+        private String  reason;
+
+        public RejectedRow(long row, String reason) {
+            this.row = row;
+            this.reason = reason;
+        }
+
+        public RejectedRow() {
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public void setRow(long row) {
+            this.row = row;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public void setReason(String reason) {
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return "RejectedRow{" +
+                    "row=" + row +
+                    ", reason='" + reason + '\'' +
+                    '}';
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RejectedRow that = (RejectedRow) o;
+            return row == that.row &&
+                    Objects.equals(reason, that.reason);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(row, reason);
+        }
+    }
+
+    private long                inserted;
+    private long                updated;
+    private long                unchanged;
+    private long                rejected;
+    private List<RejectedRow>   rejectedRows = new ArrayList<>();
+
+    public StockImportSummary(long inserted, long updated, long unchanged) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.unchanged = unchanged;
+    }
+
+    public StockImportSummary() {
+    }
+
+    /**
+     * Adds the counts of a chunk of rows
+     */
+    public void add(StockImportSummary stockImportSummary) {
+        inserted += stockImportSummary.inserted;
+        updated += stockImportSummary.updated;
+        unchanged += stockImportSummary.unchanged;
+        rejected += stockImportSummary.rejected;
+        for(RejectedRow rejectedRow : stockImportSummary.rejectedRows){
+            addRejectedRow(rejectedRow);
+        }
+    }
+
+    public void reject(long row, String reason) {
+        rejected++;
+        addRejectedRow(new RejectedRow(row, reason));
+    }
+
+    private void addRejectedRow(RejectedRow rejectedRow) {
+        if(rejectedRows.size() < MAX_REPORTED_REJECTED_ROWS){
+            rejectedRows.add(rejectedRow);
+        }
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(long updated) {
+        this.updated = updated;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public void setUnchanged(long unchanged) {
+        this.unchanged = unchanged;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<RejectedRow> getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public void setRejectedRows(List<RejectedRow> rejectedRows) {
+        this.rejectedRows = rejectedRows;
+    }
+
+    @Override
+    public String toString() {
+        return "StockImportSummary{" +
+                "inserted=" + inserted +
+                ", updated=" + updated +
+                ", unchanged=" + unchanged +
+                ", rejected=" + rejected +
+                ", rejectedRows=" + rejectedRows +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockImportSummary that = (StockImportSummary) o;
+        return inserted == that.inserted &&
+                updated == that.updated &&
+                unchanged == that.unchanged &&
+                rejected == that.rejected &&
+                Objects.equals(rejectedRows, that.rejectedRows);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(inserted, updated, unchanged, rejected, rejectedRows);
+    }
+}
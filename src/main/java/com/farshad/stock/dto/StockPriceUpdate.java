@@ -0,0 +1,79 @@
+package com.farshad.stock.dto;
+
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+import java.util.Objects;
+
+public class StockPriceUpdate {
+    @NotNull
+    private Long    id;
+    @NotNull
+    private Double  currentPrice;
+    /**
+     * time of the price, now if missing. An older price than the stock's lastUpdate is rejected as stale,
+     * a time more than stock.update.max-clock-skew-ms ahead of now is rejected too
+     */
+    private Date    lastUpdate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Double getCurrentPrice() {
+        return currentPrice;
+    }
+
+    public void setCurrentPrice(Double currentPrice) {
+        this.currentPrice = currentPrice;
+    }
+
+    public Date getLastUpdate() {
+        return lastUpdate;
+    }
+
+    public void setLastUpdate(Date lastUpdate) {
+        this.lastUpdate = lastUpdate;
+    }
+
+    @Override
+    public String toString() {
+        return "StockPriceUpdate{" +
+                "id=" + id +
+                ", currentPrice=" + currentPrice +
+                ", lastUpdate=" + lastUpdate +
+                '}';
+    }
+
+    public StockPriceUpdate(Long id, Double currentPrice) {
+        this.id = id;
+        this.currentPrice = currentPrice;
+    }
+
+    public StockPriceUpdate(Long id, Double currentPrice, Date lastUpdate) {
+        this.id = id;
+        this.currentPrice = currentPrice;
+        this.lastUpdate = lastUpdate;
+    }
+
+    public StockPriceUpdate() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockPriceUpdate that = (StockPriceUpdate) o;
+        return Objects.equals(id, that.id) &&
+                Objects.equals(currentPrice, that.currentPrice) &&
+                Objects.equals(lastUpdate, that.lastUpdate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, currentPrice, lastUpdate);
+    }
+}
@@ -0,0 +1,61 @@
+package com.farshad.stock.dto;
+
+import java.util.Objects;
+
+public class StockPriceUpdateResult {
+    public enum Status {
+        UPDATED,
+        UNCHANGED,
+        NOT_FOUND,
+        STALE
+    }
+
+    private Long    id;
+    private Status  status;
+
+    public StockPriceUpdateResult(Long id, Status status) {
+        this.id = id;
+        this.status = status;
+    }
+
+    public StockPriceUpdateResult() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    @Override
+    public String toString() {
+        return "StockPriceUpdateResult{" +
+                "id=" + id +
+                ", status=" + status +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockPriceUpdateResult that = (StockPriceUpdateResult) o;
+        return Objects.equals(id, that.id) &&
+                status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, status);
+    }
+}
@@ -2,11 +2,17 @@ package com.farshad.stock.dto;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import java.util.Date;
 import java.util.Objects;
 
 public class UpdateStockPriceRequest {
     @NotNull
     private Double  currentPrice;
+    /**
+     * time of the price, now if missing. An older price than the stock's lastUpdate is rejected as stale,
+     * a time more than stock.update.max-clock-skew-ms ahead of now is rejected too
+     */
+    private Date    lastUpdate;
 
     public Double getCurrentPrice() {
         return currentPrice;
@@ -16,16 +22,30 @@ public class UpdateStockPriceRequest {
         this.currentPrice = currentPrice;
     }
 
+    public Date getLastUpdate() {
+        return lastUpdate;
+    }
+
+    public void setLastUpdate(Date lastUpdate) {
+        this.lastUpdate = lastUpdate;
+    }
+
     @Override
     public String toString() {
         return "UpdateStockPriceRequest{" +
                 "currentPrice=" + currentPrice +
+                ", lastUpdate=" + lastUpdate +
                 '}';
     }
 
     public UpdateStockPriceRequest(Double currentPrice) {
         this.currentPrice = currentPrice;
     }
+
+    public UpdateStockPriceRequest(Double currentPrice, Date lastUpdate) {
+        this.currentPrice = currentPrice;
+        this.lastUpdate = lastUpdate;
+    }
     public UpdateStockPriceRequest() {
     }
 
@@ -34,11 +54,12 @@ public class UpdateStockPriceRequest {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         UpdateStockPriceRequest that = (UpdateStockPriceRequest) o;
-        return Objects.equals(currentPrice, that.currentPrice);
+        return Objects.equals(currentPrice, that.currentPrice) &&
+                Objects.equals(lastUpdate, that.lastUpdate);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(currentPrice);
+        return Objects.hash(currentPrice, lastUpdate);
     }
 }
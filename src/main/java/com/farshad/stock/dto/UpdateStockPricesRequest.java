@@ -0,0 +1,51 @@
+package com.farshad.stock.dto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+import java.util.Objects;
+
+public class UpdateStockPricesRequest {
+    public static final int MAX_PRICES = 10000;
+
+    @NotNull
+    @Size(min = 1, max = MAX_PRICES)
+    @Valid
+    private List<StockPriceUpdate> prices;
+
+    public List<StockPriceUpdate> getPrices() {
+        return prices;
+    }
+
+    public void setPrices(List<StockPriceUpdate> prices) {
+        this.prices = prices;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateStockPricesRequest{" +
+                "prices=" + (prices == null ? null : prices.size()) +
+                '}';
+    }
+
+    public UpdateStockPricesRequest(List<StockPriceUpdate> prices) {
+        this.prices = prices;
+    }
+
+    public UpdateStockPricesRequest() {
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UpdateStockPricesRequest that = (UpdateStockPricesRequest) o;
+        return Objects.equals(prices, that.prices);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(prices);
+    }
+}
@@ -0,0 +1,38 @@
+package com.farshad.stock.export;
+
+import static com.farshad.stock.constants.Constants.CSV_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.NDJSON_MEDIA_TYPE_VALUE;
+
+public enum ExportFormat {
+    NDJSON("ndjson", NDJSON_MEDIA_TYPE_VALUE),
+    CSV("csv", CSV_MEDIA_TYPE_VALUE);
+
+    private final String    code;
+    private final String    mediaType;
+
+    ExportFormat(String code, String mediaType) {
+        this.code = code;
+        this.mediaType = mediaType;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @param code ndjson or csv
+     * @return the format or null if code is unknown
+     */
+    public static ExportFormat fromCode(String code) {
+        for(ExportFormat format : values()){
+            if(format.code.equals(code)){
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -7,10 +7,13 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class SimpleStockMapperImpl implements StockMapper {
+    /**
+     * A stock without price has never been saved, it can't be converted and null is returned
+     */
     @Override
     public StockDto convert(Stock stock) {
         StockDto stockDto = null;
-        if(stock != null){
+        if(stock != null && stock.getCurrentPrice() != null){
             stockDto = new StockDto(stock.getId(),stock.getName(),stock.getCurrentPrice(),stock.getLastUpdate());
         }
         return stockDto;
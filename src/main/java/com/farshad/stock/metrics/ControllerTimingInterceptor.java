@@ -0,0 +1,80 @@
+package com.farshad.stock.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.farshad.stock.metrics.StockMetrics.CONTROLLER_TIMER;
+
+/**
+ * Records the latency of each controller method of this application, including writing the response
+ * <br> The start time is kept in a per thread slot instead of a request attribute to avoid boxing it,
+ * only the first dispatch of a request is timed.
+ * <br> Methods returning a CompletionStage are timed until their result is written, their start time has to be kept
+ * in a request attribute since the result is written by another dispatch. Streams, answered asynchronously too, are not timed.
+ */
+public class ControllerTimingInterceptor implements AsyncHandlerInterceptor {
+    private static final String APPLICATION_PACKAGE     = "com.farshad.stock.";
+    private static final String START_TIME_ATTRIBUTE    = ControllerTimingInterceptor.class.getName() + ".startTime";
+
+    private final StockMetrics                          stockMetrics;
+    private final ConcurrentHashMap<Method, Timer>      timers      = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]>                   startTime   = ThreadLocal.withInitial(() -> new long[1]);
+
+    public ControllerTimingInterceptor(StockMetrics stockMetrics) {
+        this.stockMetrics = stockMetrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(request.getDispatcherType() == DispatcherType.REQUEST){
+            startTime.get()[0] = System.nanoTime();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if(request.getDispatcherType() == DispatcherType.REQUEST && isTimedAsync(handler)){
+            request.setAttribute(START_TIME_ATTRIBUTE, startTime.get()[0]);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if(request.getDispatcherType() == DispatcherType.REQUEST && isTimed(handler)){
+            record((HandlerMethod) handler, startTime.get()[0]);
+        }else if(request.getDispatcherType() == DispatcherType.ASYNC && isTimedAsync(handler)){
+            Long asyncStartTime = (Long) request.getAttribute(START_TIME_ATTRIBUTE);
+            if(asyncStartTime != null){
+                request.removeAttribute(START_TIME_ATTRIBUTE);
+                record((HandlerMethod) handler, asyncStartTime);
+            }
+        }
+    }
+
+    private void record(HandlerMethod handlerMethod, long start) {
+        Timer timer = timers.get(handlerMethod.getMethod());
+        if(timer == null){
+            timer = timers.computeIfAbsent(handlerMethod.getMethod(),
+                    method -> stockMetrics.timer(CONTROLLER_TIMER, handlerMethod.getBeanType().getSimpleName() + "." + method.getName()));
+        }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean isTimed(Object handler) {
+        return handler instanceof HandlerMethod && ((HandlerMethod) handler).getBeanType().getName().startsWith(APPLICATION_PACKAGE);
+    }
+
+    private static boolean isTimedAsync(Object handler) {
+        return isTimed(handler) && CompletionStage.class.isAssignableFrom(((HandlerMethod) handler).getReturnType().getParameterType());
+    }
+}
@@ -0,0 +1,42 @@
+package com.farshad.stock.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the duration of every call into a timer per method, tagged with owner.method
+ * <br> StockMetrics is only looked up on the first call so the meter registry isn't created while bean post processors are set up.
+ */
+class MethodTimingInterceptor implements MethodInterceptor {
+    private final String                            timerName;
+    private final String                            owner;
+    private final ObjectProvider<StockMetrics>      stockMetricsProvider;
+    private final ConcurrentHashMap<Method, Timer>  timers = new ConcurrentHashMap<>();
+
+    MethodTimingInterceptor(String timerName, String owner, ObjectProvider<StockMetrics> stockMetricsProvider) {
+        this.timerName = timerName;
+        this.owner = owner;
+        this.stockMetricsProvider = stockMetricsProvider;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Timer timer = timers.get(invocation.getMethod());
+        if(timer == null){
+            timer = timers.computeIfAbsent(invocation.getMethod(),
+                    method -> stockMetricsProvider.getObject().timer(timerName, owner + "." + method.getName()));
+        }
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.farshad.stock.metrics;
+
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import static com.farshad.stock.metrics.StockMetrics.REPOSITORY_TIMER;
+import static com.farshad.stock.metrics.StockMetrics.TRANSACTION_TIMER;
+
+/**
+ * Adds timing to proxies that already exist, so no extra proxy layer is created
+ * <br> Repositories of the da package get a timer per method, placed before their own interceptors.
+ * <br> Beans of this application get a timer per @Transactional method, placed before the transaction interceptor so commit is included.
+ */
+@Component
+public class MetricsProxyPostProcessor implements BeanPostProcessor {
+    private static final String APPLICATION_PACKAGE = "com.farshad.stock.";
+    private static final String REPOSITORY_PACKAGE  = "com.farshad.stock.da.";
+
+    private final ObjectProvider<StockMetrics> stockMetricsProvider;
+
+    public MetricsProxyPostProcessor(ObjectProvider<StockMetrics> stockMetricsProvider) {
+        this.stockMetricsProvider = stockMetricsProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if(!(bean instanceof Advised) || ((Advised) bean).isFrozen()){
+            return bean;
+        }
+        Advised advised = (Advised) bean;
+        Class<?> repositoryInterface = repositoryInterface(advised);
+        if(repositoryInterface != null){
+            advised.addAdvice(0, new MethodTimingInterceptor(REPOSITORY_TIMER, repositoryInterface.getSimpleName(), stockMetricsProvider));
+            return bean;
+        }
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if(targetClass.getName().startsWith(APPLICATION_PACKAGE)){
+            advised.addAdvisor(0, new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(Transactional.class),
+                    new MethodTimingInterceptor(TRANSACTION_TIMER, targetClass.getSimpleName(), stockMetricsProvider)));
+        }
+        return bean;
+    }
+
+    private static Class<?> repositoryInterface(Advised advised) {
+        for(Class<?> proxiedInterface : advised.getProxiedInterfaces()){
+            if(proxiedInterface.getName().startsWith(REPOSITORY_PACKAGE)){
+                return proxiedInterface;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package com.farshad.stock.metrics;
+
+import com.farshad.stock.model.Stock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hit ratio of the second-level cache of stocks and of the query cache since startup, from the Hibernate statistics
+ * <br> Hits, misses and puts per region are counted by the hibernate_second_level_cache_* and hibernate_cache_query_* meters.
+ */
+@Component
+@ConditionalOnProperty(name = "stock.second-level-cache.enabled", havingValue = "true")
+public class SecondLevelCacheMetrics {
+    public static final String  HIT_RATIO_GAUGE = "stock.second.level.cache.hit.ratio";
+    public static final String  QUERY_REGION    = "query";
+
+    private final Statistics statistics;
+
+    public SecondLevelCacheMetrics(MeterRegistry meterRegistry, EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Gauge.builder(HIT_RATIO_GAUGE, this, SecondLevelCacheMetrics::stockHitRatio)
+                .tag("region", Stock.CACHE_REGION)
+                .register(meterRegistry);
+        Gauge.builder(HIT_RATIO_GAUGE, this, SecondLevelCacheMetrics::queryHitRatio)
+                .tag("region", QUERY_REGION)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return hits per lookup of a stock, NaN before the first one
+     */
+    public double stockHitRatio() {
+        CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(Stock.CACHE_REGION);
+        return regionStatistics == null ? Double.NaN : ratio(regionStatistics.getHitCount(), regionStatistics.getMissCount());
+    }
+
+    /**
+     * @return hits per lookup of a cached query, NaN before the first one
+     */
+    public double queryHitRatio() {
+        return ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount());
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? Double.NaN : (double) hits / (hits + misses);
+    }
+}
@@ -0,0 +1,82 @@
+package com.farshad.stock.metrics;
+
+import com.farshad.stock.constants.ErrorMessages;
+import com.farshad.stock.dto.StockPriceUpdateResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Meters of the stock application, scraped from /actuator/prometheus
+ * <br> Every meter is registered once, up front or on the first call of a method, recording only looks it up
+ * and updates preallocated histograms so it creates no objects per request.
+ */
+@Component
+public class StockMetrics {
+    public static final String  CONTROLLER_TIMER        = "stock.controller";
+    public static final String  TRANSACTION_TIMER       = "stock.transaction";
+    public static final String  REPOSITORY_TIMER        = "stock.repository";
+    public static final String  ERROR_COUNTER           = "stock.errors";
+    public static final String  PRICE_UPDATE_COUNTER    = "stock.price.updates";
+    public static final String  METHOD_TAG              = "method";
+
+    private final MeterRegistry                                     meterRegistry;
+    private final Map<String, Counter>                              errorCounters;
+    private final Counter                                           otherErrorCounter;
+    private final Map<StockPriceUpdateResult.Status, Counter>       priceUpdateCounters;
+
+    public StockMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Map<String, Counter> counters = new HashMap<>();
+        for(Field field : ErrorMessages.class.getFields()){
+            if(Modifier.isStatic(field.getModifiers()) && field.getType() == String.class){
+                String errorMessage = constant(field);
+                counters.put(errorMessage, meterRegistry.counter(ERROR_COUNTER, "error", errorMessage));
+            }
+        }
+        errorCounters = Collections.unmodifiableMap(counters);
+        otherErrorCounter = meterRegistry.counter(ERROR_COUNTER, "error", "other");
+        priceUpdateCounters = new EnumMap<>(StockPriceUpdateResult.Status.class);
+        for(StockPriceUpdateResult.Status status : StockPriceUpdateResult.Status.values()){
+            priceUpdateCounters.put(status, meterRegistry.counter(PRICE_UPDATE_COUNTER, "status", status.name()));
+        }
+    }
+
+    /**
+     * Registers a latency timer publishing p50, p99 and p999
+     * <br>Callers keep the returned timer, registering the same name and method again returns the same one
+     */
+    public Timer timer(String name, String method) {
+        return Timer.builder(name)
+                .tag(METHOD_TAG, method)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param errorMessage one of ErrorMessages, anything else is counted as other
+     */
+    public void countError(String errorMessage) {
+        errorCounters.getOrDefault(errorMessage, otherErrorCounter).increment();
+    }
+
+    public void countPriceUpdate(StockPriceUpdateResult.Status status) {
+        priceUpdateCounters.get(status).increment();
+    }
+
+    private static String constant(Field field) {
+        try {
+            return (String) field.get(null);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
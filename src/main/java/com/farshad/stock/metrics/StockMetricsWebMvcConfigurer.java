@@ -0,0 +1,19 @@
+package com.farshad.stock.metrics;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class StockMetricsWebMvcConfigurer implements WebMvcConfigurer {
+    private final StockMetrics stockMetrics;
+
+    public StockMetricsWebMvcConfigurer(StockMetrics stockMetrics) {
+        this.stockMetrics = stockMetrics;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ControllerTimingInterceptor(stockMetrics));
+    }
+}
@@ -1,21 +1,47 @@
 package com.farshad.stock.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.Date;
 import java.util.Objects;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_stock_name", columnNames = "name"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Stock.CACHE_REGION)
 public class Stock {
+    /**
+     * second-level cache region of the stocks, only used when stock.second-level-cache.enabled is true
+     */
+    public static final String CACHE_REGION = "stock";
+    /**
+     * ids are handed out from memory, the sequence is only called once per this many inserts
+     */
+    public static final int ID_ALLOCATION_SIZE = 500;
+
     @Id
-    @GeneratedValue(generator = "stockSeq" , strategy = GenerationType.AUTO)
-    @SequenceGenerator(name = "stockSeq" ,sequenceName = "stock_seq" , initialValue = 10)
+    @GeneratedValue(generator = "stockSeq" , strategy = GenerationType.SEQUENCE)
+    @SequenceGenerator(name = "stockSeq" ,sequenceName = "stock_seq" , initialValue = 10, allocationSize = Stock.ID_ALLOCATION_SIZE)
     private Long    id;
     @Column(nullable = false)
     private String  name;
+    /**
+     * boxed so a stock without price reaches the database and fails on its not null constraint
+     */
     @Column(nullable = false)
     private Double  currentPrice;
+    /**
+     * stays a Date, the JDBC driver creates a Timestamp for every row read anyway
+     */
     @Column(nullable = false)
     private Date    lastUpdate;
+    /**
+     * bumped by every update, also by the single statement price update of StockRepository
+     */
+    @Version
+    private long    version;
 
     //serialize
     public Stock(){}
@@ -58,6 +84,10 @@ public class Stock {
         this.lastUpdate = lastUpdate;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -82,6 +112,7 @@ public class Stock {
                 ", name='" + name + '\'' +
                 ", currentPrice=" + currentPrice +
                 ", lastUpdate=" + lastUpdate +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,74 @@
+package com.farshad.stock.model;
+
+import javax.persistence.*;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * One price of a stock, rows are only ever inserted
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_stock_price_history_stock_time", columnList = "stockId,tickTime"))
+public class StockPriceHistory {
+    @Id
+    @GeneratedValue(generator = "stockPriceHistorySeq" , strategy = GenerationType.SEQUENCE)
+    @SequenceGenerator(name = "stockPriceHistorySeq" ,sequenceName = "stock_price_history_seq" , allocationSize = Stock.ID_ALLOCATION_SIZE)
+    private Long    id;
+    @Column(nullable = false, updatable = false)
+    private Long    stockId;
+    @Column(nullable = false, updatable = false)
+    private Double  price;
+    @Column(nullable = false, updatable = false)
+    private Date    tickTime;
+
+    //serialize
+    public StockPriceHistory(){}
+
+    public StockPriceHistory(Long stockId, Double price, Date tickTime) {
+        this.stockId = stockId;
+        this.price = price;
+        this.tickTime = tickTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public Date getTickTime() {
+        return tickTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StockPriceHistory that = (StockPriceHistory) o;
+        return Objects.equals(id, that.id) &&
+                Objects.equals(stockId, that.stockId) &&
+                Objects.equals(price, that.price) &&
+                Objects.equals(tickTime, that.tickTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "StockPriceHistory{" +
+                "id=" + id +
+                ", stockId=" + stockId +
+                ", price=" + price +
+                ", tickTime=" + tickTime +
+                '}';
+    }
+}
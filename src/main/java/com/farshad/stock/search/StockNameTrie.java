@@ -0,0 +1,244 @@
+package com.farshad.stock.search;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Radix tree of stock names for prefix search, ignoring case
+ * <br> Every edge holds a run of characters, so a node only exists where names branch or end.
+ * A node ending names holds their ids, names differing only in case end in the same node.
+ * <br> Nodes are immutable, {@link #add(String, long)} and {@link #remove(String, long)} copy the path to the changed node
+ * and publish a new root. Writers are serialized, {@link #search(String, int)} never blocks and sees one root throughout.
+ */
+public class StockNameTrie {
+    private static final char[]     NO_LABEL    = new char[0];
+    private static final Node[]     NO_CHILDREN = new Node[0];
+    private static final long[]     NO_IDS      = new long[0];
+
+    private volatile Node   root    = new Node(NO_LABEL, NO_CHILDREN, NO_IDS);
+    private volatile int    size;
+
+    /**
+     * Adds the name of a stock, adding the same name and id again changes nothing
+     */
+    public synchronized void add(String name, long id) {
+        Node newRoot = add(root, key(name), 0, id);
+        if(newRoot != root){
+            root = newRoot;
+            size++;
+        }
+    }
+
+    /**
+     * Removes the name of a stock, a name or id that isn't in the trie changes nothing
+     */
+    public synchronized void remove(String name, long id) {
+        Node newRoot = remove(root, key(name), 0, id);
+        if(newRoot != root){
+            root = newRoot != null ? newRoot : new Node(NO_LABEL, NO_CHILDREN, NO_IDS);
+            size--;
+        }
+    }
+
+    /**
+     * @param prefix empty for all names
+     * @param limit maximum number of ids
+     * @return ids of stocks whose name starts with prefix, ordered by lower case name, then by id
+     */
+    public long[] search(String prefix, int limit) {
+        char[] key = key(prefix);
+        Node node = root;
+        int offset = 0;
+        while(offset < key.length){
+            Node child = child(node, key[offset]);
+            if(child == null){
+                return NO_IDS;
+            }
+            int common = commonLength(child.label, key, offset);
+            if(offset + common == key.length){
+                node = child;
+                break;
+            }
+            if(common < child.label.length){
+                return NO_IDS;
+            }
+            node = child;
+            offset += common;
+        }
+        long[] ids = new long[Math.min(limit, size)];
+        int found = collect(node, ids, 0);
+        return found == ids.length ? ids : Arrays.copyOf(ids, found);
+    }
+
+    /**
+     * @return number of names
+     */
+    public int size() {
+        return size;
+    }
+
+    private static Node add(Node node, char[] key, int offset, long id) {
+        if(offset == key.length){
+            int index = Arrays.binarySearch(node.ids, id);
+            if(index >= 0){
+                return node;
+            }
+            long[] ids = new long[node.ids.length + 1];
+            System.arraycopy(node.ids, 0, ids, 0, -index - 1);
+            ids[-index - 1] = id;
+            System.arraycopy(node.ids, -index - 1, ids, -index, node.ids.length + index + 1);
+            return new Node(node.label, node.children, ids);
+        }
+        int index = childIndex(node, key[offset]);
+        if(index < 0){
+            Node leaf = new Node(Arrays.copyOfRange(key, offset, key.length), NO_CHILDREN, new long[]{id});
+            Node[] children = new Node[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, -index - 1);
+            children[-index - 1] = leaf;
+            System.arraycopy(node.children, -index - 1, children, -index, node.children.length + index + 1);
+            return new Node(node.label, children, node.ids);
+        }
+        Node child = node.children[index];
+        int common = commonLength(child.label, key, offset);
+        Node newChild;
+        if(common == child.label.length){
+            newChild = add(child, key, offset + common, id);
+            if(newChild == child){
+                return node;
+            }
+        }else{
+            /**
+             * the name leaves the edge in its middle, the edge is split where they part
+             */
+            Node tail = new Node(Arrays.copyOfRange(child.label, common, child.label.length), child.children, child.ids);
+            Node split = new Node(Arrays.copyOf(child.label, common), new Node[]{tail}, NO_IDS);
+            newChild = add(split, key, offset + common, id);
+        }
+        return withChild(node, index, newChild);
+    }
+
+    /**
+     * @return the node without id, node itself if nothing changed, null if the node holds nothing anymore
+     */
+    private static Node remove(Node node, char[] key, int offset, long id) {
+        Node newNode;
+        if(offset == key.length){
+            int index = Arrays.binarySearch(node.ids, id);
+            if(index < 0){
+                return node;
+            }
+            long[] ids = node.ids.length == 1 ? NO_IDS : new long[node.ids.length - 1];
+            System.arraycopy(node.ids, 0, ids, 0, index);
+            System.arraycopy(node.ids, index + 1, ids, index, node.ids.length - index - 1);
+            newNode = new Node(node.label, node.children, ids);
+        }else{
+            int index = childIndex(node, key[offset]);
+            if(index < 0){
+                return node;
+            }
+            Node child = node.children[index];
+            if(commonLength(child.label, key, offset) < child.label.length){
+                return node;
+            }
+            Node newChild = remove(child, key, offset + child.label.length, id);
+            if(newChild == child){
+                return node;
+            }
+            if(newChild != null){
+                return withChild(node, index, newChild);
+            }
+            Node[] children = node.children.length == 1 ? NO_CHILDREN : new Node[node.children.length - 1];
+            System.arraycopy(node.children, 0, children, 0, index);
+            System.arraycopy(node.children, index + 1, children, index, node.children.length - index - 1);
+            newNode = new Node(node.label, children, node.ids);
+        }
+        if(newNode.ids.length > 0){
+            return newNode;
+        }
+        if(newNode.children.length == 0){
+            return null;
+        }
+        if(newNode.children.length == 1 && newNode.label.length > 0){
+            /**
+             * a node that neither ends a name nor branches is merged into its only child
+             */
+            Node child = newNode.children[0];
+            char[] label = Arrays.copyOf(newNode.label, newNode.label.length + child.label.length);
+            System.arraycopy(child.label, 0, label, newNode.label.length, child.label.length);
+            return new Node(label, child.children, child.ids);
+        }
+        return newNode;
+    }
+
+    /**
+     * Writes ids below node into ids, depth first in label order, until ids is full
+     * @return position after the last id written
+     */
+    private static int collect(Node node, long[] ids, int position) {
+        for(int i = 0; i < node.ids.length && position < ids.length; i++){
+            ids[position++] = node.ids[i];
+        }
+        for(int i = 0; i < node.children.length && position < ids.length; i++){
+            position = collect(node.children[i], ids, position);
+        }
+        return position;
+    }
+
+    private static Node withChild(Node node, int index, Node child) {
+        Node[] children = node.children.clone();
+        children[index] = child;
+        return new Node(node.label, children, node.ids);
+    }
+
+    private static Node child(Node node, char first) {
+        int index = childIndex(node, first);
+        return index < 0 ? null : node.children[index];
+    }
+
+    /**
+     * Children are sorted by their first character, no two share it
+     * @return index of the child starting with first, or -(insertion point) - 1
+     */
+    private static int childIndex(Node node, char first) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while(low <= high){
+            int middle = (low + high) >>> 1;
+            char middleFirst = node.children[middle].label[0];
+            if(middleFirst < first){
+                low = middle + 1;
+            }else if(middleFirst > first){
+                high = middle - 1;
+            }else{
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int commonLength(char[] label, char[] key, int offset) {
+        int length = Math.min(label.length, key.length - offset);
+        for(int i = 0; i < length; i++){
+            if(label[i] != key[offset + i]){
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static char[] key(String name) {
+        return name.toLowerCase(Locale.ROOT).toCharArray();
+    }
+
+    private static final class Node {
+        private final char[]    label;
+        private final Node[]    children;
+        private final long[]    ids;
+
+        private Node(char[] label, Node[] children, long[] ids) {
+            this.label = label;
+            this.children = children;
+            this.ids = ids;
+        }
+    }
+}
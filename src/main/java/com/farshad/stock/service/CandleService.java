@@ -0,0 +1,14 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.dto.CandleDto;
+import com.farshad.stock.dto.StockDto;
+
+import java.util.Date;
+import java.util.List;
+
+public interface CandleService {
+
+    void recordTicks(List<StockDto> stockDtoList);
+    List<CandleDto> getCandles(Long stockId, String interval, Date from, Date to);
+    void stockDeleted(Long stockId);
+}
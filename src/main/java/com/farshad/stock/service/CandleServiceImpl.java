@@ -0,0 +1,92 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.candle.CandleInterval;
+import com.farshad.stock.candle.StockCandles;
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.CandleDto;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.exception.StockDataBusinessException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.farshad.stock.constants.ErrorMessages.INVALID_CANDLE_INTERVAL;
+import static com.farshad.stock.service.TransactionCallbacks.afterCommit;
+
+/**
+ * Aggregates committed prices into candles of every CandleInterval, in memory
+ * <br>Candles only cover prices seen since startup, the price history stays the source for anything older
+ */
+@Component
+public class CandleServiceImpl implements CandleService {
+
+    private StockRepository                                 stockRepository;
+    private int                                             retainedCandles = 1440;
+    private final ConcurrentHashMap<Long, StockCandles>     candles = new ConcurrentHashMap<>();
+
+    @Autowired
+    public void setStockRepository(StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+    }
+    @Value("${stock.candles.retained:1440}")
+    public void setRetainedCandles(int retainedCandles) {
+        this.retainedCandles = retainedCandles;
+    }
+
+    /**
+     * Applies the current price of each stock to its open candles once the transaction commits
+     * @param stockDtoList
+     */
+    @Override
+    public void recordTicks(List<StockDto> stockDtoList){
+        afterCommit(() -> {
+            for(StockDto stockDto : stockDtoList){
+                candles.computeIfAbsent(stockDto.getId(), id -> new StockCandles(retainedCandles))
+                        .onTick(stockDto.getLastUpdateTime(), stockDto.getCurrentPrice());
+            }
+        });
+    }
+
+    /**
+     * Provides candles of a stock starting between from and to, ordered by start
+     * <br>The last one is still open if its interval hasn't passed
+     * @param stockId
+     * @param interval 1m, 5m or 1h
+     * @param from inclusive, null for all retained candles
+     * @param to inclusive, null for up to now
+     * @return candleList
+     * @throws StockDataBusinessException If interval is unknown
+     * @throws EntityNotFoundException If there is no stock with stockId
+     */
+    @Override
+    public List<CandleDto> getCandles(Long stockId, String interval, Date from, Date to){
+        CandleInterval candleInterval = CandleInterval.fromCode(interval);
+        if(candleInterval == null){
+            throw new StockDataBusinessException(INVALID_CANDLE_INTERVAL);
+        }
+        StockCandles stockCandles = candles.get(stockId);
+        if(stockCandles == null){
+            if(!stockRepository.existsById(stockId)){
+                throw new EntityNotFoundException(stockId + "");
+            }
+            return Collections.emptyList();
+        }
+        return stockCandles.candles(candleInterval,
+                from == null ? Long.MIN_VALUE : from.getTime(), to == null ? Long.MAX_VALUE : to.getTime(), System.currentTimeMillis());
+    }
+
+    /**
+     * Drops the candles of a deleted stock
+     * @param stockId
+     */
+    @Override
+    public void stockDeleted(Long stockId){
+        afterCommit(() -> candles.remove(stockId));
+    }
+}
@@ -0,0 +1,17 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.dto.PricePointDto;
+import com.farshad.stock.dto.StockDto;
+
+import java.util.Date;
+import java.util.List;
+
+public interface PriceHistoryService {
+
+    void recordCreated(List<StockDto> stockDtoList);
+    void recordUpdated(List<StockDto> stockDtoList);
+    void bufferUpdated(List<StockDto> stockDtoList);
+    void saveUpdated(List<StockDto> stockDtoList);
+    List<PricePointDto> getHistory(Long stockId, Date from, Date to);
+    void stockDeleted(Long stockId);
+}
@@ -0,0 +1,162 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.cache.PriceRingBuffer;
+import com.farshad.stock.da.StockPriceHistoryRepository;
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.PricePointDto;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.model.StockPriceHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static com.farshad.stock.service.TransactionCallbacks.afterCommit;
+
+@Component
+public class PriceHistoryServiceImpl implements PriceHistoryService {
+    private static final Logger logger = LoggerFactory.getLogger(PriceHistoryServiceImpl.class);
+
+    private StockPriceHistoryRepository                         stockPriceHistoryRepository;
+    private StockRepository                                     stockRepository;
+    private TransactionTemplate                                 readOnlyTransactionTemplate;
+    private int                                                 bufferSize = 256;
+    private final ConcurrentHashMap<Long, PriceRingBuffer>      buffers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public void setStockPriceHistoryRepository(StockPriceHistoryRepository stockPriceHistoryRepository) {
+        this.stockPriceHistoryRepository = stockPriceHistoryRepository;
+    }
+    @Autowired
+    public void setStockRepository(StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+    }
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+    @Value("${stock.history.buffer-size:256}")
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Appends the first price of new stocks to the history
+     * <br>Their buffers hold the whole history until they wrap
+     * @param stockDtoList
+     * @throws DataAccessException If an exception occurs while saving
+     */
+    @Override
+    @Transactional
+    public void recordCreated(List<StockDto> stockDtoList){
+        saveHistory(stockDtoList);
+        afterCommit(() -> {
+            for(StockDto stockDto : stockDtoList){
+                PriceRingBuffer buffer = new PriceRingBuffer(bufferSize, Long.MIN_VALUE);
+                buffer.append(stockDto.getLastUpdateTime(), stockDto.getCurrentPrice());
+                buffers.put(stockDto.getId(), buffer);
+            }
+        });
+    }
+
+    /**
+     * Appends new prices of existing stocks to the history
+     * <br>A stock without a buffer gets one that covers prices from this one on, older prices stay in the database
+     * @param stockDtoList
+     * @throws DataAccessException If an exception occurs while saving
+     */
+    @Override
+    @Transactional
+    public void recordUpdated(List<StockDto> stockDtoList){
+        saveHistory(stockDtoList);
+        afterCommit(() -> bufferUpdated(stockDtoList));
+    }
+
+    /**
+     * Appends new prices of existing stocks to their buffers only, for prices that are saved later by {@link #saveUpdated(List)}
+     * <br>A stock without a buffer gets one that covers prices from this one on
+     * @param stockDtoList
+     */
+    @Override
+    public void bufferUpdated(List<StockDto> stockDtoList){
+        for(StockDto stockDto : stockDtoList){
+            long time = stockDto.getLastUpdateTime();
+            buffers.computeIfAbsent(stockDto.getId(), id -> new PriceRingBuffer(bufferSize, time))
+                    .append(time, stockDto.getCurrentPrice());
+        }
+    }
+
+    /**
+     * Saves new prices of existing stocks that are already buffered by {@link #bufferUpdated(List)}
+     * @param stockDtoList
+     * @throws DataAccessException If an exception occurs while saving
+     */
+    @Override
+    @Transactional
+    public void saveUpdated(List<StockDto> stockDtoList){
+        saveHistory(stockDtoList);
+    }
+
+    /**
+     * Provides prices of a stock between from and to, ordered by time
+     * <br>Served from the stock's buffer when it covers from, otherwise read from the database
+     * <br>Only the database read opens a read-only transaction, a buffered history doesn't take a connection
+     * @param stockId
+     * @param from inclusive, null for the whole history
+     * @param to inclusive, null for up to now
+     * @return pricePointList
+     * @throws EntityNotFoundException If there is no stock with stockId
+     */
+    @Override
+    public List<PricePointDto> getHistory(Long stockId, Date from, Date to){
+        long fromTime = from == null ? Long.MIN_VALUE : from.getTime();
+        long toTime = to == null ? Long.MAX_VALUE : to.getTime();
+        PriceRingBuffer buffer = buffers.get(stockId);
+        if(buffer != null){
+            List<PricePointDto> pricePointList = buffer.range(fromTime, toTime);
+            if(pricePointList != null){
+                return pricePointList;
+            }
+        }
+        logger.debug("History of " + stockId + " from " + from + " isn't buffered, reading from database");
+        return readOnlyTransactionTemplate.execute(status -> {
+            if(!stockRepository.existsById(stockId)){
+                throw new EntityNotFoundException(stockId + "");
+            }
+            return stockPriceHistoryRepository.findByStockIdAndTickTimeBetweenOrderByTickTimeAsc(stockId,
+                    from == null ? new Date(0) : from, to == null ? new Date() : to)
+                    .stream().map(h -> new PricePointDto(h.getTickTime(), h.getPrice())).collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Drops the buffer of a deleted stock, its history rows are kept
+     * @param stockId
+     */
+    @Override
+    public void stockDeleted(Long stockId){
+        afterCommit(() -> buffers.remove(stockId));
+    }
+
+    private void saveHistory(List<StockDto> stockDtoList){
+        List<StockPriceHistory> historyList = new ArrayList<>(stockDtoList.size());
+        for(StockDto stockDto : stockDtoList){
+            historyList.add(new StockPriceHistory(stockDto.getId(), stockDto.getCurrentPrice(), stockDto.getLastUpdate()));
+        }
+        stockPriceHistoryRepository.saveAll(historyList);
+        logger.debug("Saved " + historyList.size() + " history rows");
+    }
+}
@@ -0,0 +1,12 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.export.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+public interface StockExportService {
+
+    void exportStocks(ExportFormat format, Date updatedSince, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,117 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.export.ExportFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes stocks gzipped as newline delimited json or csv, row by row while they are read through the cursor of
+ * {@link StockService#streamUpdatedSince(Date, java.util.function.Consumer)}
+ * <br>Only the current row and the buffers of the generator and of gzip are held, whatever the number of stocks.
+ * <br>Both formats carry the same snake_case fields and date format as the json api.
+ */
+@Component
+public class StockExportServiceImpl implements StockExportService {
+    private static final Logger logger = LoggerFactory.getLogger(StockExportServiceImpl.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CsvMapper     csvMapper   = new CsvMapper().enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING);
+    private final CsvSchema     csvSchema   = CsvSchema.builder()
+            .addColumn("id").addColumn("name").addColumn("current_price").addColumn("last_update")
+            .build().withHeader();
+    private StockService        stockService;
+    private ObjectMapper        objectMapper;
+
+    @Autowired
+    public void setStockService(StockService stockService) {
+        this.stockService = stockService;
+    }
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param format
+     * @param updatedSince null for all stocks
+     * @param outputStream gets the gzipped rows, it is finished but not closed
+     * @throws IOException If outputStream can't be written
+     */
+    @Override
+    public void exportStocks(ExportFormat format, Date updatedSince, OutputStream outputStream) throws IOException {
+        logger.debug("Exporting stocks as " + format + " updated since " + updatedSince);
+        long start = System.nanoTime();
+        long[] count = new long[1];
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        try {
+            if(format == ExportFormat.CSV){
+                writeCsv(updatedSince, gzipOutputStream, count);
+            }else{
+                writeNdjson(updatedSince, gzipOutputStream, count);
+            }
+        } catch (UncheckedIOException e){
+            throw e.getCause();
+        }
+        gzipOutputStream.finish();
+        logger.debug("Exported " + count[0] + " stocks in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    private void writeNdjson(Date updatedSince, OutputStream outputStream, long[] count) throws IOException {
+        ObjectWriter stockWriter = objectMapper.writerFor(StockDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try(JsonGenerator jsonGenerator = objectMapper.getFactory().createGenerator(outputStream)){
+            jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            jsonGenerator.setRootValueSeparator(null);
+            stockService.streamUpdatedSince(updatedSince, stockDto -> {
+                try {
+                    stockWriter.writeValue(jsonGenerator, stockDto);
+                    jsonGenerator.writeRaw('\n');
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void writeCsv(Date updatedSince, OutputStream outputStream, long[] count) throws IOException {
+        /**
+         * DateFormat isn't thread safe, every export gets its own
+         */
+        DateFormat dateFormat = (DateFormat) objectMapper.getSerializationConfig().getDateFormat().clone();
+        Object[] row = new Object[csvSchema.size()];
+        try(SequenceWriter rowWriter = csvMapper.writer(csvSchema).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValues(outputStream)){
+            stockService.streamUpdatedSince(updatedSince, stockDto -> {
+                row[0] = stockDto.getId();
+                row[1] = stockDto.getName();
+                row[2] = stockDto.getCurrentPrice();
+                row[3] = stockDto.getLastUpdate() != null ? dateFormat.format(stockDto.getLastUpdate()) : null;
+                try {
+                    rowWriter.write(row);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
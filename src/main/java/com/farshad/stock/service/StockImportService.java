@@ -0,0 +1,11 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.dto.StockImportSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface StockImportService {
+
+    StockImportSummary importCsv(InputStream inputStream) throws IOException;
+}
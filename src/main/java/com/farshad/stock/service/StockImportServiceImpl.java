@@ -0,0 +1,149 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockImportSummary;
+import com.farshad.stock.exception.StockDataBusinessException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.farshad.stock.constants.ErrorMessages.INVALID_CSV;
+
+/**
+ * Imports stocks from csv with a name,current_price header, the order of the columns doesn't matter
+ * <br>Rows are read one by one from the stream and upserted by name in chunks of chunkSize, one transaction each,
+ * so memory stays the same however large the file is.
+ * <br>Rows failing the rules of {@link CreateStockRequest} are counted as rejected and skipped.
+ * A malformed file stops the import, the chunks before it stay committed.
+ */
+@Component
+public class StockImportServiceImpl implements StockImportService {
+    private static final Logger logger = LoggerFactory.getLogger(StockImportServiceImpl.class);
+    private static final String NAME_COLUMN             = "name";
+    private static final String CURRENT_PRICE_COLUMN    = "current_price";
+    private static final PropertyNamingStrategy.SnakeCaseStrategy columnNaming = new PropertyNamingStrategy.SnakeCaseStrategy();
+
+    private final ObjectReader  csvReader;
+    private StockService        stockService;
+    private Validator           validator;
+    private int                 chunkSize = 1000;
+
+    public StockImportServiceImpl() {
+        CsvMapper csvMapper = new CsvMapper();
+        csvMapper.enable(CsvParser.Feature.TRIM_SPACES);
+        csvMapper.enable(CsvParser.Feature.IGNORE_TRAILING_UNMAPPABLE);
+        csvReader = csvMapper.readerFor(Map.class).with(CsvSchema.emptySchema().withHeader());
+    }
+
+    @Autowired
+    public void setStockService(StockService stockService) {
+        this.stockService = stockService;
+    }
+    @Autowired
+    public void setValidator(Validator validator) {
+        this.validator = validator;
+    }
+    @Value("${stock.import.chunk-size:1000}")
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Upserts the stocks of a csv stream by name
+     * @param inputStream csv, read to its end but not closed
+     * @return counts of the import, rows are numbered from 1 after the header
+     * @throws StockDataBusinessException If the csv is malformed or has no name or current_price column, also without rows
+     * @throws DataAccessException If an exception occurs while saving, the chunks before stay committed
+     * @throws IOException If the stream can't be read
+     */
+    @Override
+    public StockImportSummary importCsv(InputStream inputStream) throws IOException {
+        logger.debug("Importing csv in chunks of " + chunkSize);
+        long start = System.nanoTime();
+        StockImportSummary stockImportSummary = new StockImportSummary();
+        List<CreateStockRequest> chunk = new ArrayList<>(chunkSize);
+        long row = 0;
+        try(MappingIterator<Map<String,String>> rows = csvReader.readValues(inputStream)){
+            /**
+             * the header is read together with the first row, it is checked even if no row follows
+             */
+            rows.hasNextValue();
+            checkHeader((CsvSchema) rows.getParserSchema());
+            while(rows.hasNextValue()){
+                Map<String,String> values = rows.nextValue();
+                row++;
+                CreateStockRequest createStockRequest = toCreateStockRequest(row, values, stockImportSummary);
+                if(createStockRequest == null){
+                    continue;
+                }
+                chunk.add(createStockRequest);
+                if(chunk.size() == chunkSize){
+                    stockImportSummary.add(stockService.upsertAll(chunk));
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (JsonProcessingException e){
+            logger.debug("Malformed csv after row " + row + " " + e.getMessage());
+            throw new StockDataBusinessException(INVALID_CSV);
+        }
+        if(!chunk.isEmpty()){
+            stockImportSummary.add(stockService.upsertAll(chunk));
+        }
+        logger.debug("Imported " + row + " rows in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms " + stockImportSummary);
+        return stockImportSummary;
+    }
+
+    private void checkHeader(CsvSchema csvSchema) {
+        if(csvSchema.column(NAME_COLUMN) == null || csvSchema.column(CURRENT_PRICE_COLUMN) == null){
+            logger.debug("Header " + csvSchema.getColumnDesc() + " lacks " + NAME_COLUMN + " or " + CURRENT_PRICE_COLUMN);
+            throw new StockDataBusinessException(INVALID_CSV);
+        }
+    }
+
+    /**
+     * @return the request of a valid row, null if the row is rejected
+     */
+    private CreateStockRequest toCreateStockRequest(long row, Map<String,String> values, StockImportSummary stockImportSummary) {
+        String currentPriceValue = values.get(CURRENT_PRICE_COLUMN);
+        Double currentPrice = null;
+        if(currentPriceValue != null && !currentPriceValue.isEmpty()){
+            try {
+                currentPrice = Double.valueOf(currentPriceValue);
+            } catch (NumberFormatException e){
+                currentPrice = Double.NaN;
+            }
+            if(currentPrice.isNaN() || currentPrice.isInfinite()){
+                stockImportSummary.reject(row, CURRENT_PRICE_COLUMN + " is not a number");
+                return null;
+            }
+        }
+        CreateStockRequest createStockRequest = new CreateStockRequest(values.get(NAME_COLUMN), currentPrice);
+        Set<ConstraintViolation<CreateStockRequest>> violations = validator.validate(createStockRequest);
+        if(!violations.isEmpty()){
+            ConstraintViolation<CreateStockRequest> violation = violations.iterator().next();
+            stockImportSummary.reject(row, columnNaming.translate(violation.getPropertyPath().toString()) + " " + violation.getMessage());
+            return null;
+        }
+        return createStockRequest;
+    }
+}
@@ -0,0 +1,12 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.dto.StockDto;
+
+import java.util.List;
+
+public interface StockSearchService {
+
+    void recordCreated(List<StockDto> stockDtoList);
+    void stockDeleted(Long stockId, String name);
+    List<StockDto> search(String prefix, int limit);
+}
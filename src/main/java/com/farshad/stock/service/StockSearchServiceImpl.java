@@ -0,0 +1,189 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.cache.StockCache;
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.exception.StockDataBusinessException;
+import com.farshad.stock.mapper.StockMapper;
+import com.farshad.stock.model.Stock;
+import com.farshad.stock.search.StockNameTrie;
+import com.farshad.stock.snapshot.StockSnapshot;
+import com.farshad.stock.writebehind.PriceWriteBehind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.farshad.stock.constants.Constants.MAX_PAGE_LIMIT;
+import static com.farshad.stock.constants.ErrorMessages.INVALID_PAGE_LIMIT;
+import static com.farshad.stock.service.TransactionCallbacks.afterCommit;
+
+/**
+ * Prefix search over the names of all stocks, served from a {@link StockNameTrie}
+ * <br>The trie is filled from the database by a background thread at startup, after a snapshot restore,
+ * searches wait until it is done. It holds the trie's lock while reading, so creates and deletes committed meanwhile
+ * are applied after it and none is lost.
+ */
+@Component
+public class StockSearchServiceImpl implements StockSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(StockSearchServiceImpl.class);
+
+    private final StockNameTrie     stockNameTrie   = new StockNameTrie();
+    private final CountDownLatch    built           = new CountDownLatch(1);
+    private StockRepository         stockRepository;
+    private StockMapper             stockMapper;
+    private StockCache              stockCache;
+    private StockSnapshot           stockSnapshot;
+    private PriceWriteBehind        priceWriteBehind;
+    private TransactionTemplate     transactionTemplate;
+
+    @Autowired
+    public void setStockRepository(StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+    }
+    @Autowired
+    public void setStockMapper(StockMapper stockMapper) {
+        this.stockMapper = stockMapper;
+    }
+    @Autowired
+    public void setStockCache(StockCache stockCache) {
+        this.stockCache = stockCache;
+    }
+    @Autowired
+    public void setStockSnapshot(StockSnapshot stockSnapshot) {
+        this.stockSnapshot = stockSnapshot;
+    }
+    @Autowired
+    public void setPriceWriteBehind(PriceWriteBehind priceWriteBehind) {
+        this.priceWriteBehind = priceWriteBehind;
+    }
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void startBuild() {
+        Thread thread = new Thread(this::build, "stock-search-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds the names of created stocks once the transaction commits
+     * @param stockDtoList
+     */
+    @Override
+    public void recordCreated(List<StockDto> stockDtoList){
+        afterCommit(() -> {
+            for(StockDto stockDto : stockDtoList){
+                stockNameTrie.add(stockDto.getName(), stockDto.getId());
+            }
+        });
+    }
+
+    /**
+     * Removes the name of a deleted stock once the transaction commits
+     * @param stockId
+     * @param name
+     */
+    @Override
+    public void stockDeleted(Long stockId, String name){
+        afterCommit(() -> stockNameTrie.remove(name, stockId));
+    }
+
+    /**
+     * Provides up to limit stocks whose name starts with prefix, ignoring case, ordered by name
+     * <br>Stocks are served from the cache, the ones not cached are loaded with a single query,
+     * a price pending in write-behind wins over the loaded one
+     * @param prefix empty for the first names
+     * @param limit
+     * @return stockDtoList
+     * @throws StockDataBusinessException If limit is not between 1 and MAX_PAGE_LIMIT
+     */
+    @Override
+    public List<StockDto> search(String prefix, int limit){
+        logger.debug("Search prefix " + prefix + " limit " + limit);
+        if(limit < 1 || limit > MAX_PAGE_LIMIT){
+            throw new StockDataBusinessException(INVALID_PAGE_LIMIT);
+        }
+        awaitBuilt();
+        long[] ids = stockNameTrie.search(prefix, limit);
+        StockDto[] stockDtos = new StockDto[ids.length];
+        List<Long> idsToLoad = new ArrayList<>();
+        for(int i = 0; i < ids.length; i++){
+            stockDtos[i] = stockCache.get(ids[i]);
+            if(stockDtos[i] == null){
+                idsToLoad.add(ids[i]);
+            }
+        }
+        if(!idsToLoad.isEmpty()){
+            long cacheGeneration = stockCache.generation();
+            Map<Long,StockDto> stockDtoMap = new HashMap<>();
+            for(Stock stock : stockRepository.findAllById(idsToLoad)){
+                StockDto stockDto = stockMapper.convert(stock);
+                StockDto stockDtoPending = priceWriteBehind.getPending(stockDto.getId());
+                if(stockDtoPending != null){
+                    stockDto = stockDtoPending;
+                }
+                stockCache.putIfUnchanged(stockDto, cacheGeneration);
+                stockDtoMap.put(stockDto.getId(), stockDto);
+            }
+            for(int i = 0; i < ids.length; i++){
+                if(stockDtos[i] == null){
+                    stockDtos[i] = stockDtoMap.get(ids[i]);
+                }
+            }
+            logger.debug("Loaded " + stockDtoMap.size() + " of " + idsToLoad.size() + " stocks not cached");
+        }
+        List<StockDto> stockDtoList = new ArrayList<>(ids.length);
+        for(StockDto stockDto : stockDtos){
+            /**
+             * a stock deleted since the search isn't found anymore
+             */
+            if(stockDto != null){
+                stockDtoList.add(stockDto);
+            }
+        }
+        return stockDtoList;
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        try {
+            stockSnapshot.awaitRestored();
+            synchronized (stockNameTrie){
+                transactionTemplate.execute(status -> {
+                    stockRepository.forEachStock(stock -> stockNameTrie.add(stock.getName(), stock.getId()));
+                    return null;
+                });
+            }
+            logger.info("Indexed " + stockNameTrie.size() + " stock names for search in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (RuntimeException e){
+            logger.error("Stock names can't be indexed for search", e);
+        } finally {
+            built.countDown();
+        }
+    }
+
+    private void awaitBuilt() {
+        try {
+            built.await();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search index", e);
+        }
+    }
+}
@@ -2,15 +2,35 @@ package com.farshad.stock.service;
 
 import com.farshad.stock.dto.CreateStockRequest;
 import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockImportSummary;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.StockPriceUpdateResult;
 import com.farshad.stock.dto.UpdateStockPriceRequest;
+import org.springframework.data.domain.Page;
 
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StockService {
 
     StockDto create(CreateStockRequest createStockRequest);
+    List<StockDto> createAll(List<CreateStockRequest> createStockRequests);
+    StockImportSummary upsertAll(List<CreateStockRequest> createStockRequests);
     List<StockDto> retrieveAll();
+    List<StockDto> retrievePage(Long after,int limit);
+    Page<StockDto> retrieveSortedPage(int page,int size,String sort,boolean ascending);
+    void streamAll(Consumer<StockDto> consumer);
+    void streamUpdatedSince(Date updatedSince, Consumer<StockDto> consumer);
     StockDto getById(Long id);
+    StockDto getByName(String name);
+    List<StockDto> getByNames(List<String> names);
+    List<StockDto> retrieveAllCached();
+    StockDto getCached(Long id);
+    StockDto getCachedByName(String name);
     StockDto updatePrice(Long id,UpdateStockPriceRequest updateStockPriceRequest);
+    List<StockPriceUpdateResult> updatePrices(List<StockPriceUpdate> stockPriceUpdates);
     void deleteById(Long id);
+    String listETag();
+    String stockETag(Long id);
 }
@@ -1,33 +1,97 @@
 package com.farshad.stock.service;
 
+import com.farshad.stock.cache.StockCache;
+import com.farshad.stock.cache.StockNames;
+import com.farshad.stock.cache.StockVersions;
 import com.farshad.stock.da.StockRepository;
 import com.farshad.stock.dto.CreateStockRequest;
 import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockImportSummary;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.StockPriceUpdateResult;
 import com.farshad.stock.dto.UpdateStockPriceRequest;
 import com.farshad.stock.exception.StockDataBusinessException;
 import com.farshad.stock.mapper.StockMapper;
+import com.farshad.stock.metrics.StockMetrics;
 import com.farshad.stock.model.Stock;
+import com.farshad.stock.snapshot.StockSnapshot;
+import com.farshad.stock.stream.PriceEventBroadcaster;
+import com.farshad.stock.writebehind.PriceWriteBehind;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static com.farshad.stock.constants.Constants.MAX_PAGE_LIMIT;
+import static com.farshad.stock.metrics.StockMetrics.TRANSACTION_TIMER;
+import static com.farshad.stock.service.TransactionCallbacks.afterCommit;
+import static com.farshad.stock.constants.ErrorMessages.CONCURRENT_UPDATE;
+import static com.farshad.stock.constants.ErrorMessages.DATA_VALIDATION_EXCEPTION;
+import static com.farshad.stock.constants.ErrorMessages.FUTURE_PRICE_UPDATE;
+import static com.farshad.stock.constants.ErrorMessages.INVALID_PAGE;
+import static com.farshad.stock.constants.ErrorMessages.INVALID_PAGE_LIMIT;
+import static com.farshad.stock.constants.ErrorMessages.INVALID_SORT;
 import static com.farshad.stock.constants.ErrorMessages.PRICE_NOT_CHANGED;
+import static com.farshad.stock.constants.ErrorMessages.STALE_PRICE_UPDATE;
+import static com.farshad.stock.constants.ErrorMessages.TOO_MANY_NAMES;
 
 @Component
 public class StockServiceImpl implements StockService{
     private static final Logger logger = LoggerFactory.getLogger(StockServiceImpl.class);
+    /**
+     * columns of the api the stocks can be sorted by, with their entity property
+     */
+    private static final Map<String,String> SORT_PROPERTIES = new HashMap<>();
+    static {
+        SORT_PROPERTIES.put("id", "id");
+        SORT_PROPERTIES.put("name", "name");
+        SORT_PROPERTIES.put("current_price", "currentPrice");
+        SORT_PROPERTIES.put("last_update", "lastUpdate");
+    }
 
     private StockRepository     stockRepository;
     private StockMapper         stockMapper;
+    private StockCache          stockCache;
+    private StockVersions       stockVersions;
+    private StockNames          stockNames;
+    private StockSnapshot       stockSnapshot;
+    private PriceWriteBehind    priceWriteBehind;
+    private PriceHistoryService priceHistoryService;
+    private PriceEventBroadcaster priceEventBroadcaster;
+    private CandleService       candleService;
+    private StockSearchService  stockSearchService;
+    private StockMetrics        stockMetrics;
+    private Timer               updatePriceTransactionTimer;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate readOnlyTransactionTemplate;
+    private int                 maxAttempts = 3;
+    private long                maxClockSkewMillis = 5000;
 
     @Autowired
     public void setStockRepository(StockRepository stockRepository) {
@@ -37,6 +101,62 @@ public class StockServiceImpl implements StockService{
     public void setStockMapper(StockMapper stockMapper) {
         this.stockMapper = stockMapper;
     }
+    @Autowired
+    public void setStockCache(StockCache stockCache) {
+        this.stockCache = stockCache;
+    }
+    @Autowired
+    public void setStockVersions(StockVersions stockVersions) {
+        this.stockVersions = stockVersions;
+    }
+    @Autowired
+    public void setStockNames(StockNames stockNames) {
+        this.stockNames = stockNames;
+    }
+    @Autowired
+    public void setStockSnapshot(StockSnapshot stockSnapshot) {
+        this.stockSnapshot = stockSnapshot;
+    }
+    @Autowired
+    public void setPriceWriteBehind(PriceWriteBehind priceWriteBehind) {
+        this.priceWriteBehind = priceWriteBehind;
+    }
+
+    @Autowired
+    public void setPriceHistoryService(PriceHistoryService priceHistoryService) {
+        this.priceHistoryService = priceHistoryService;
+    }
+    @Autowired
+    public void setPriceEventBroadcaster(PriceEventBroadcaster priceEventBroadcaster) {
+        this.priceEventBroadcaster = priceEventBroadcaster;
+    }
+    @Autowired
+    public void setCandleService(CandleService candleService) {
+        this.candleService = candleService;
+    }
+    @Autowired
+    public void setStockSearchService(StockSearchService stockSearchService) {
+        this.stockSearchService = stockSearchService;
+    }
+    @Autowired
+    public void setStockMetrics(StockMetrics stockMetrics) {
+        this.stockMetrics = stockMetrics;
+        this.updatePriceTransactionTimer = stockMetrics.timer(TRANSACTION_TIMER, StockServiceImpl.class.getSimpleName() + ".updatePrice");
+    }
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+    @Value("${stock.update.max-attempts:3}")
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+    @Value("${stock.update.max-clock-skew-ms:5000}")
+    public void setMaxClockSkewMillis(long maxClockSkewMillis) {
+        this.maxClockSkewMillis = maxClockSkewMillis;
+    }
 
     /**
      * Creates a new stock
@@ -44,11 +164,13 @@ public class StockServiceImpl implements StockService{
      * @param createStockRequest
      * @return stockDto
      * @throws DataAccessException If an exception occurs while saving
+     * @throws StockDataBusinessException If the stock has no price
      */
     @Override
     @Transactional
     public StockDto create(CreateStockRequest createStockRequest){
         logger.debug("Creating " + createStockRequest);
+        stockSnapshot.awaitRestored();
         StockDto stockDto = null;
         Stock stock = stockMapper.convert(createStockRequest);
         if(stock != null) {
@@ -56,53 +178,404 @@ public class StockServiceImpl implements StockService{
             Stock stockPersisted = stockRepository.save(stock);
             logger.debug("Stock created " + stockPersisted);
             stockDto = stockMapper.convert(stockPersisted);
+            if(stockDto == null){
+                /**
+                 * save only queues the insert, a stock without price would fail at commit after being recorded everywhere
+                 */
+                throw new StockDataBusinessException(DATA_VALIDATION_EXCEPTION);
+            }
+            StockDto stockDtoCreated = stockDto;
+            priceHistoryService.recordCreated(Collections.singletonList(stockDto));
+            candleService.recordTicks(Collections.singletonList(stockDto));
+            stockSearchService.recordCreated(Collections.singletonList(stockDto));
+            afterCommit(() -> {
+                stockCache.put(stockDtoCreated);
+                stockNames.put(stockDtoCreated.getId(), stockDtoCreated.getName());
+                stockSnapshot.put(stockDtoCreated);
+                stockVersions.changed(stockDtoCreated.getId());
+            });
         }else{
             logger.debug("Mapped stock is null, null will be returned");
         }
         return stockDto;
     }
 
+    /**
+     * Creates many stocks in a single transaction
+     * <br>Ids come from the pooled sequence optimizer and inserts are sent as JDBC batches
+     * @param createStockRequests
+     * @return created stocks, in the same order
+     * @throws DataAccessException If an exception occurs while saving, nothing is created then
+     */
+    @Override
+    @Transactional
+    public List<StockDto> createAll(List<CreateStockRequest> createStockRequests){
+        logger.debug("Creating " + createStockRequests.size() + " stocks");
+        stockSnapshot.awaitRestored();
+        Date creationTime = new Date();
+        List<Stock> stockList = new ArrayList<>(createStockRequests.size());
+        for(CreateStockRequest createStockRequest : createStockRequests){
+            Stock stock = stockMapper.convert(createStockRequest);
+            stock.setLastUpdate(creationTime);
+            stockList.add(stock);
+        }
+        List<StockDto> stockDtoList = stockRepository.persistInBatches(stockList).stream().map(s -> stockMapper.convert(s)).collect(Collectors.toList());
+        logger.debug("Created " + stockDtoList.size() + " stocks");
+        priceHistoryService.recordCreated(stockDtoList);
+        candleService.recordTicks(stockDtoList);
+        stockSearchService.recordCreated(stockDtoList);
+        afterCommit(() -> {
+            for(StockDto stockDtoCreated : stockDtoList){
+                stockCache.put(stockDtoCreated);
+                stockNames.put(stockDtoCreated.getId(), stockDtoCreated.getName());
+                stockSnapshot.put(stockDtoCreated);
+                stockVersions.changed(stockDtoCreated.getId());
+            }
+        });
+        return stockDtoList;
+    }
+
+    /**
+     * Creates the stocks with new names and sets the price of the existing ones, in a single transaction
+     * <br>Existing stocks are loaded with one query through the unique index of the name,
+     * changed ones and new ones are flushed together as JDBC batches.
+     * <br>Requests are applied in order, a name repeated in createStockRequests is inserted once and then updated.
+     * <br>A price equal to the current one, pending in write-behind included, leaves the stock untouched.
+     * @param createStockRequests valid requests
+     * @return counts of inserted, updated and unchanged stocks
+     * @throws DataAccessException If an exception occurs while saving, nothing is changed then
+     */
+    @Override
+    @Transactional
+    public StockImportSummary upsertAll(List<CreateStockRequest> createStockRequests){
+        logger.debug("Upserting " + createStockRequests.size() + " stocks");
+        stockSnapshot.awaitRestored();
+        Set<String> names = new LinkedHashSet<>();
+        for(CreateStockRequest createStockRequest : createStockRequests){
+            names.add(createStockRequest.getName());
+        }
+        Map<String,Stock> stockMap = new HashMap<>();
+        for(Stock stock : stockRepository.findByNameIn(names)){
+            stockMap.put(stock.getName(), stock);
+        }
+        Map<String,Stock> stocksInserted = new LinkedHashMap<>();
+        Map<String,Stock> stocksUpdated = new LinkedHashMap<>();
+        long updated = 0;
+        long unchanged = 0;
+        Date updateTime = new Date();
+        for(CreateStockRequest createStockRequest : createStockRequests){
+            Stock stock = stockMap.get(createStockRequest.getName());
+            if(stock == null){
+                stock = stockMapper.convert(createStockRequest);
+                stock.setLastUpdate(updateTime);
+                stockMap.put(stock.getName(), stock);
+                stocksInserted.put(stock.getName(), stock);
+                continue;
+            }
+            StockDto stockDtoPending = stock.getId() != null ? priceWriteBehind.getPending(stock.getId()) : null;
+            double currentPrice = stockDtoPending != null ? stockDtoPending.getCurrentPrice() : stock.getCurrentPrice();
+            if(currentPrice == createStockRequest.getCurrentPrice().doubleValue()){
+                unchanged++;
+                continue;
+            }
+            stock.setCurrentPrice(createStockRequest.getCurrentPrice());
+            stock.setLastUpdate(updateTime);
+            if(!stocksInserted.containsKey(stock.getName())){
+                stocksUpdated.put(stock.getName(), stock);
+            }
+            updated++;
+        }
+        /**
+         * the flush of the inserts writes the dirty loaded stocks too
+         */
+        List<StockDto> stockDtoInserted = stockRepository.persistInBatches(new ArrayList<>(stocksInserted.values()))
+                .stream().map(s -> stockMapper.convert(s)).collect(Collectors.toList());
+        List<StockDto> stockDtoUpdated = stocksUpdated.values().stream().map(s -> stockMapper.convert(s)).collect(Collectors.toList());
+        logger.debug("Inserted " + stockDtoInserted.size() + " stocks, updated " + stockDtoUpdated.size() + " stocks");
+        priceHistoryService.recordCreated(stockDtoInserted);
+        priceHistoryService.recordUpdated(stockDtoUpdated);
+        candleService.recordTicks(stockDtoInserted);
+        candleService.recordTicks(stockDtoUpdated);
+        stockSearchService.recordCreated(stockDtoInserted);
+        afterCommit(() -> {
+            for(StockDto stockDtoCreated : stockDtoInserted){
+                stockCache.put(stockDtoCreated);
+                stockNames.put(stockDtoCreated.getId(), stockDtoCreated.getName());
+                stockSnapshot.put(stockDtoCreated);
+                stockVersions.changed(stockDtoCreated.getId());
+            }
+            for(StockDto stockDtoChanged : stockDtoUpdated){
+                priceWriteBehind.remove(stockDtoChanged.getId());
+                stockCache.put(stockDtoChanged);
+                stockSnapshot.put(stockDtoChanged);
+                stockVersions.changed(stockDtoChanged.getId());
+                priceEventBroadcaster.publish(stockDtoChanged);
+            }
+        });
+        return new StockImportSummary(stockDtoInserted.size(), updated, unchanged);
+    }
+
     /**
      * Updates currentPrice of an existing stock
-     * <br>First load and then save method of repository will be called
+     * <br>A single conditional UPDATE changes the price, the stock is only read again if it isn't cached.
+     * <br>When no row is updated the stock is read to tell a missing stock, an unchanged price and a stale update apart.
+     * <br>With write-behind the price is applied in memory at once and written by the next flush, no transaction is opened.
      * @param id
      * @param updateStockPriceRequest
      * @return stockDto
-     * @throws StockDataBusinessException If validation fails and no change in price
+     * @throws StockDataBusinessException If validation fails, no change in price, lastUpdate is older than the stock's
+     * or later than now plus maxClockSkewMillis
+     * @throws EntityNotFoundException If there is no stock with id
      * @throws DataAccessException If an exception occurs while saving
      */
     @Override
-    @Transactional
     public StockDto updatePrice(Long id,UpdateStockPriceRequest updateStockPriceRequest){
         logger.debug("Update Price " + updateStockPriceRequest + " with Id=" + id);
-        StockDto stockDto = null;
-            Stock stockFetched = stockRepository.getOne(id);
-            logger.debug("stockFetched " + stockFetched);
-            /**
-             * checking that a stock exists with this id
-             */
-            if(stockFetched != null){
+        if(updateStockPriceRequest.getCurrentPrice() == null){
+            throw new NullPointerException("Price of stock " + id + " is null");
+        }
+        checkNotInFuture(updateStockPriceRequest.getLastUpdate());
+        stockSnapshot.awaitRestored();
+        double newPrice = updateStockPriceRequest.getCurrentPrice();
+        Date updateTime = updateStockPriceRequest.getLastUpdate() != null ? updateStockPriceRequest.getLastUpdate() : new Date();
+        if(priceWriteBehind.isEnabled()){
+            StockDto stockDtoLoaded = priceWriteBehind.getPending(id) == null && stockCache.get(id) == null
+                    ? stockRepository.findById(id).map(s -> stockMapper.convert(s)).orElse(null) : null;
+            List<StockDto> stockDtoUpdated = new ArrayList<>(1);
+            StockPriceUpdateResult.Status status = updatePriceBehind(id, newPrice, updateTime, stockDtoLoaded, stockDtoUpdated);
+            stockMetrics.countPriceUpdate(status);
+            switch(status){
+                case NOT_FOUND:
+                    throw new EntityNotFoundException(id + "");
+                case UNCHANGED:
+                    throw new StockDataBusinessException(PRICE_NOT_CHANGED);
+                case STALE:
+                    throw new StockDataBusinessException(STALE_PRICE_UPDATE);
+                default:
+                    logger.debug("Updated stock in memory " + stockDtoUpdated.get(0));
+                    return stockDtoUpdated.get(0);
+            }
+        }
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            return updatePriceInTransaction(id, newPrice, updateTime);
+        }
+        /**
+         * timed like the @Transactional methods, it only opens the transaction when not writing behind
+         */
+        return updatePriceTransactionTimer.record(() -> transactionTemplate.execute(status -> updatePriceInTransaction(id, newPrice, updateTime)));
+    }
+
+    private StockDto updatePriceInTransaction(Long id, double newPrice, Date updateTime){
+        if(stockRepository.updatePriceIfChanged(id, newPrice, updateTime) == 0){
+            Stock stockFetched = stockRepository.findById(id).orElse(null);
+            if(stockFetched == null){
+                stockMetrics.countPriceUpdate(StockPriceUpdateResult.Status.NOT_FOUND);
+                throw new EntityNotFoundException(id + "");
+            }
+            if(stockFetched.getCurrentPrice() == newPrice){
                 /**
-                 * check that price is changed or not.
-                 * if there is no change, there is no need to update
+                 * No change in price, there is no need to update
                  */
-                if(stockFetched.getCurrentPrice().doubleValue()!= updateStockPriceRequest.getCurrentPrice().doubleValue()) {
-                    stockFetched.setCurrentPrice(updateStockPriceRequest.getCurrentPrice());
-                    stockFetched.setLastUpdate(new Date());
-                    Stock stockUpdated = stockRepository.save(stockFetched);
-                    logger.debug("Updated stock " + stockUpdated);
-                    stockDto = stockMapper.convert(stockUpdated);
-                }else{
-                    /**
-                     * No change in price, there is no need to update then  null object will be returned
-                     */
-                    logger.debug("No need to update , new price [" + updateStockPriceRequest.getCurrentPrice() + "] isn't changed for " + stockFetched );
-                    throw new StockDataBusinessException(PRICE_NOT_CHANGED);
-                }
+                logger.debug("No need to update , new price [" + newPrice + "] isn't changed for " + stockFetched);
+                stockMetrics.countPriceUpdate(StockPriceUpdateResult.Status.UNCHANGED);
+                throw new StockDataBusinessException(PRICE_NOT_CHANGED);
             }
+            logger.debug("Price [" + newPrice + "] of " + updateTime + " is older than " + stockFetched);
+            stockMetrics.countPriceUpdate(StockPriceUpdateResult.Status.STALE);
+            throw new StockDataBusinessException(STALE_PRICE_UPDATE);
+        }
+        /**
+         * the name never changes, a cached stock or a known name is enough to build the result
+         */
+        StockDto stockDtoCached = stockCache.get(id);
+        String name = stockDtoCached != null ? stockDtoCached.getName() : stockNames.getName(id);
+        StockDto stockDto = name != null
+                ? new StockDto(id, name, newPrice, updateTime)
+                : stockMapper.convert(stockRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(id + "")));
+        if(name == null){
+            /**
+             * the next update of this stock doesn't need to load it
+             */
+            afterCommit(() -> stockNames.put(id, stockDto.getName()));
+        }
+        logger.debug("Updated stock " + stockDto);
+        stockMetrics.countPriceUpdate(StockPriceUpdateResult.Status.UPDATED);
+        priceHistoryService.recordUpdated(Collections.singletonList(stockDto));
+        candleService.recordTicks(Collections.singletonList(stockDto));
+        afterCommit(() -> {
+            stockCache.put(stockDto);
+            stockSnapshot.put(stockDto);
+            stockVersions.changed(id);
+            priceEventBroadcaster.publish(stockDto);
+        });
         return stockDto;
     }
 
+    /**
+     * Applies a price to the pending stock with id, or to its cached or loaded version if nothing is pending
+     * <br>The checks and the in-memory updates run while the pending stock is locked, updates of the same stock can't interleave
+     * @param stockDtoLoaded the stock as read before, null if it wasn't read
+     * @param stockDtoUpdated gets the updated stock
+     * @return status of the update
+     */
+    private StockPriceUpdateResult.Status updatePriceBehind(Long id, double newPrice, Date updateTime, StockDto stockDtoLoaded,
+                                                            List<StockDto> stockDtoUpdated){
+        StockPriceUpdateResult.Status[] status = new StockPriceUpdateResult.Status[1];
+        priceWriteBehind.update(id, stockDtoPending -> {
+            StockDto stockDtoCurrent = stockDtoPending != null ? stockDtoPending : stockCache.get(id);
+            if(stockDtoCurrent == null){
+                stockDtoCurrent = stockDtoLoaded;
+            }
+            if(stockDtoCurrent == null){
+                status[0] = StockPriceUpdateResult.Status.NOT_FOUND;
+                return null;
+            }
+            if(stockDtoCurrent.getCurrentPrice() == newPrice){
+                status[0] = StockPriceUpdateResult.Status.UNCHANGED;
+                return stockDtoPending;
+            }
+            if(stockDtoCurrent.getLastUpdateTime() > updateTime.getTime()){
+                status[0] = StockPriceUpdateResult.Status.STALE;
+                return stockDtoPending;
+            }
+            StockDto stockDto = new StockDto(id, stockDtoCurrent.getName(), newPrice, updateTime);
+            /**
+             * the history row is saved by the flush
+             */
+            priceHistoryService.bufferUpdated(Collections.singletonList(stockDto));
+            candleService.recordTicks(Collections.singletonList(stockDto));
+            stockCache.put(stockDto);
+            stockSnapshot.put(stockDto);
+            stockVersions.changed(id);
+            priceEventBroadcaster.publish(stockDto);
+            stockDtoUpdated.add(stockDto);
+            status[0] = StockPriceUpdateResult.Status.UPDATED;
+            return stockDto;
+        });
+        return status[0];
+    }
+
+    /**
+     * Updates currentPrice of many stocks in a single transaction
+     * <br>All stocks are loaded with one query, changed ones are flushed as ordered, versioned JDBC batches on commit.
+     * <br>A missing stock, an unchanged price or a stale update doesn't fail the batch, it is reported in the result of that item.
+     * <br>If another update changed one of the stocks meanwhile the whole batch is retried in a new transaction, up to maxAttempts times.
+     * Inside a caller's transaction it isn't retried.
+     * <br>With write-behind each price is applied in memory like by {@link #updatePrice(Long, UpdateStockPriceRequest)},
+     * stocks neither pending nor cached are loaded with one query.
+     * @param stockPriceUpdates
+     * @return one result per update, in the same order
+     * @throws StockDataBusinessException If every attempt ran into a concurrent update,
+     * or a lastUpdate is later than now plus maxClockSkewMillis, nothing is changed then
+     * @throws DataAccessException If an exception occurs while saving
+     */
+    @Override
+    public List<StockPriceUpdateResult> updatePrices(List<StockPriceUpdate> stockPriceUpdates){
+        logger.debug("Update prices of " + stockPriceUpdates.size() + " stocks");
+        for(StockPriceUpdate stockPriceUpdate : stockPriceUpdates){
+            checkNotInFuture(stockPriceUpdate.getLastUpdate());
+        }
+        stockSnapshot.awaitRestored();
+        List<StockPriceUpdateResult> results;
+        if(priceWriteBehind.isEnabled()){
+            results = applyPriceUpdatesBehind(stockPriceUpdates);
+        }else if(TransactionSynchronizationManager.isActualTransactionActive()){
+            results = applyPriceUpdates(stockPriceUpdates);
+        }else{
+            results = null;
+            for(int attempt = 1; results == null; attempt++){
+                try {
+                    results = transactionTemplate.execute(status -> applyPriceUpdates(stockPriceUpdates));
+                } catch (OptimisticLockingFailureException e){
+                    logger.debug("Concurrent update in attempt " + attempt + " " + e.getMessage());
+                    if(attempt >= maxAttempts){
+                        throw new StockDataBusinessException(CONCURRENT_UPDATE);
+                    }
+                }
+            }
+        }
+        for(StockPriceUpdateResult result : results){
+            stockMetrics.countPriceUpdate(result.getStatus());
+        }
+        return results;
+    }
+
+    private List<StockPriceUpdateResult> applyPriceUpdatesBehind(List<StockPriceUpdate> stockPriceUpdates){
+        Set<Long> idsToLoad = new LinkedHashSet<>();
+        for(StockPriceUpdate stockPriceUpdate : stockPriceUpdates){
+            Long id = stockPriceUpdate.getId();
+            if(priceWriteBehind.getPending(id) == null && stockCache.get(id) == null){
+                idsToLoad.add(id);
+            }
+        }
+        Map<Long,StockDto> stockDtoLoadedMap = new HashMap<>();
+        if(!idsToLoad.isEmpty()){
+            for(Stock stock : stockRepository.findAllById(idsToLoad)){
+                stockDtoLoadedMap.put(stock.getId(), stockMapper.convert(stock));
+            }
+        }
+        List<StockPriceUpdateResult> results = new ArrayList<>(stockPriceUpdates.size());
+        List<StockDto> stockDtoUpdated = new ArrayList<>();
+        Date updateTime = new Date();
+        for(StockPriceUpdate stockPriceUpdate : stockPriceUpdates){
+            Long id = stockPriceUpdate.getId();
+            Date priceTime = stockPriceUpdate.getLastUpdate() != null ? stockPriceUpdate.getLastUpdate() : updateTime;
+            StockPriceUpdateResult.Status status = updatePriceBehind(id, stockPriceUpdate.getCurrentPrice(), priceTime,
+                    stockDtoLoadedMap.get(id), stockDtoUpdated);
+            results.add(new StockPriceUpdateResult(id, status));
+        }
+        logger.debug("Updated " + stockDtoUpdated.size() + " stocks in memory");
+        return results;
+    }
+
+    private List<StockPriceUpdateResult> applyPriceUpdates(List<StockPriceUpdate> stockPriceUpdates){
+        Set<Long> ids = new LinkedHashSet<>();
+        for(StockPriceUpdate stockPriceUpdate : stockPriceUpdates){
+            ids.add(stockPriceUpdate.getId());
+        }
+        Map<Long,Stock> stockMap = new HashMap<>();
+        for(Stock stock : stockRepository.findAllById(ids)){
+            stockMap.put(stock.getId(), stock);
+        }
+        List<StockPriceUpdateResult> results = new ArrayList<>(stockPriceUpdates.size());
+        Map<Long,Stock> stocksUpdated = new HashMap<>();
+        Date updateTime = new Date();
+        for(StockPriceUpdate stockPriceUpdate : stockPriceUpdates){
+            Stock stock = stockMap.get(stockPriceUpdate.getId());
+            Date priceTime = stockPriceUpdate.getLastUpdate() != null ? stockPriceUpdate.getLastUpdate() : updateTime;
+            StockPriceUpdateResult.Status status;
+            if(stock == null){
+                status = StockPriceUpdateResult.Status.NOT_FOUND;
+            }else if(stock.getCurrentPrice() == stockPriceUpdate.getCurrentPrice().doubleValue()){
+                status = StockPriceUpdateResult.Status.UNCHANGED;
+            }else if(stock.getLastUpdate().getTime() > priceTime.getTime()){
+                status = StockPriceUpdateResult.Status.STALE;
+            }else{
+                stock.setCurrentPrice(stockPriceUpdate.getCurrentPrice());
+                stock.setLastUpdate(priceTime);
+                stocksUpdated.put(stock.getId(), stock);
+                status = StockPriceUpdateResult.Status.UPDATED;
+            }
+            results.add(new StockPriceUpdateResult(stockPriceUpdate.getId(), status));
+        }
+        /**
+         * managed entities are flushed by dirty checking, saveAll keeps this working without a persistence context too
+         */
+        List<StockDto> stockDtoList = stockRepository.saveAll(stocksUpdated.values()).stream().map(s -> stockMapper.convert(s)).collect(Collectors.toList());
+        logger.debug("Updated " + stockDtoList.size() + " stocks");
+        priceHistoryService.recordUpdated(stockDtoList);
+        candleService.recordTicks(stockDtoList);
+        afterCommit(() -> {
+            for(StockDto stockDtoUpdated : stockDtoList){
+                stockCache.put(stockDtoUpdated);
+                stockSnapshot.put(stockDtoUpdated);
+                stockVersions.changed(stockDtoUpdated.getId());
+                priceEventBroadcaster.publish(stockDtoUpdated);
+            }
+        });
+        return results;
+    }
+
     /**
      * Delete a stock with id
      * @param id
@@ -112,34 +585,314 @@ public class StockServiceImpl implements StockService{
     @Transactional
     public void deleteById(Long id) {
         logger.debug("Delete by id " + id);
+        stockSnapshot.awaitRestored();
+        /**
+         * deleteById loads the stock anyway, it is taken from the persistence context then
+         */
+        String name = stockRepository.findById(id).map(Stock::getName).orElse(null);
         stockRepository.deleteById(id);
+        priceHistoryService.stockDeleted(id);
+        candleService.stockDeleted(id);
+        if(name != null){
+            stockSearchService.stockDeleted(id, name);
+        }
+        afterCommit(() -> {
+            stockCache.evict(id);
+            stockNames.remove(id);
+            stockSnapshot.remove(id);
+            stockVersions.changed(id);
+            priceWriteBehind.remove(id);
+        });
         logger.debug("Deleted ");
     }
 
     /**
      * Provides a list of all existing stocks
+     * <br>Served from the cache when all stocks are cached, otherwise loaded and put into the cache
+     * <br>Right after startup the cache holds the stocks of the snapshot, loads wait until the database is restored
      * @return stockDtoList
      */
     @Override
     public List<StockDto> retrieveAll(){
         logger.debug("Retrieve all stocks");
-        List<Stock> stockList = stockRepository.findAll();
+        List<StockDto> stockDtoList = stockCache.getAll();
+        if(stockDtoList != null){
+            logger.debug("Cache hit, list size is " + stockDtoList.size());
+            return stockDtoList;
+        }
+        stockSnapshot.awaitRestored();
+        long cacheGeneration = stockCache.generation();
+        List<Stock> stockList = readOnly(stockRepository::findAll);
         logger.debug("List size is " + stockList.size());
-        List<StockDto> stockDtoList = stockList.stream().map(s -> stockMapper.convert(s)).collect(Collectors.toList());
+        stockDtoList = stockList.stream().map(s -> withPending(stockMapper.convert(s))).collect(Collectors.toList());
+        stockCache.putAll(stockDtoList, cacheGeneration);
         return stockDtoList;
     }
 
+    /**
+     * Provides up to limit stocks with an id greater than after, ordered by id
+     * <br>The id of the last stock is the after value of the next page
+     * @param after id to start after, null for the first page
+     * @param limit
+     * @return stockDtoList
+     * @throws StockDataBusinessException If limit is not between 1 and MAX_PAGE_LIMIT
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<StockDto> retrievePage(Long after,int limit){
+        logger.debug("Retrieve page after " + after + " limit " + limit);
+        if(limit < 1 || limit > MAX_PAGE_LIMIT){
+            throw new StockDataBusinessException(INVALID_PAGE_LIMIT);
+        }
+        stockSnapshot.awaitRestored();
+        List<Stock> stockList = stockRepository.findByIdGreaterThanOrderByIdAsc(after == null ? Long.MIN_VALUE : after, PageRequest.of(0, limit));
+        logger.debug("Page size is " + stockList.size());
+        return stockList.stream().map(s -> withPending(stockMapper.convert(s))).collect(Collectors.toList());
+    }
+
+    /**
+     * Provides page number page of size stocks, sorted by a column of the api, ties ordered by id
+     * <br>Offset pagination with a count query, meant for the dashboard, use {@link #retrievePage(Long, int)} to walk all stocks
+     * @param page 0 based
+     * @param size
+     * @param sort id, name, current_price or last_update
+     * @param ascending
+     * @return the page with the total number of stocks
+     * @throws StockDataBusinessException If page is negative, size is not between 1 and MAX_PAGE_LIMIT or sort is unknown
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<StockDto> retrieveSortedPage(int page,int size,String sort,boolean ascending){
+        logger.debug("Retrieve page " + page + " size " + size + " sorted by " + sort + (ascending ? " asc" : " desc"));
+        if(page < 0){
+            throw new StockDataBusinessException(INVALID_PAGE);
+        }
+        if(size < 1 || size > MAX_PAGE_LIMIT){
+            throw new StockDataBusinessException(INVALID_PAGE_LIMIT);
+        }
+        String property = SORT_PROPERTIES.get(sort);
+        if(property == null){
+            throw new StockDataBusinessException(INVALID_SORT);
+        }
+        stockSnapshot.awaitRestored();
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Page<Stock> stockPage = stockRepository.findAll(PageRequest.of(page, size, Sort.by(direction, property).and(Sort.by(direction, "id"))));
+        logger.debug("Page size is " + stockPage.getNumberOfElements() + " of " + stockPage.getTotalElements());
+        return stockPage.map(s -> withPending(stockMapper.convert(s)));
+    }
+
+    /**
+     * Hands every stock to consumer, ordered by id, without holding them in memory
+     * @param consumer
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<StockDto> consumer){
+        logger.debug("Stream all stocks");
+        stockSnapshot.awaitRestored();
+        stockRepository.forEachStock(stock -> consumer.accept(withPending(stockMapper.convert(stock))));
+    }
+
+    /**
+     * Hands every stock updated at or after updatedSince to consumer like {@link #streamAll(Consumer)}
+     * @param updatedSince null for all stocks
+     * @param consumer
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamUpdatedSince(Date updatedSince, Consumer<StockDto> consumer){
+        if(updatedSince == null){
+            streamAll(consumer);
+            return;
+        }
+        logger.debug("Stream stocks updated since " + updatedSince);
+        stockSnapshot.awaitRestored();
+        stockRepository.forEachStockUpdatedSince(updatedSince, stock -> consumer.accept(withPending(stockMapper.convert(stock))));
+    }
+
     /**
      * Provides a stock with id
+     * <br>Served from the cache when possible, otherwise loaded and put into the cache
      * @param id
      * @return stockDto
+     * @throws EntityNotFoundException If there is no stock with id
      */
     @Override
     public StockDto getById(Long id) {
         logger.debug("Get by id " + id);
-        Stock stock = stockRepository.findById(id).orElseThrow(()->new EntityNotFoundException(id+""));
+        StockDto stockDto = stockCache.get(id);
+        if(stockDto != null){
+            logger.debug("Cache hit " + stockDto);
+            return stockDto;
+        }
+        stockDto = priceWriteBehind.getPending(id);
+        if(stockDto != null){
+            logger.debug("Pending " + stockDto);
+            return stockDto;
+        }
+        stockSnapshot.awaitRestored();
+        long cacheGeneration = stockCache.generation();
+        Stock stock = readOnly(() -> stockRepository.findById(id)).orElseThrow(()->new EntityNotFoundException(id+""));
         logger.debug("Found stock " + stock);
-        StockDto stockDto = stockMapper.convert(stock);
+        stockDto = withPending(stockMapper.convert(stock));
+        stockCache.putIfUnchanged(stockDto, cacheGeneration);
         return stockDto;
     }
+
+    /**
+     * Provides the stock with name
+     * <br>A known name is resolved in memory and the stock served like {@link #getById(Long)},
+     * otherwise it is loaded through the unique index of the name and both are cached
+     * @param name
+     * @return stockDto
+     * @throws EntityNotFoundException If there is no stock with name
+     */
+    @Override
+    public StockDto getByName(String name) {
+        logger.debug("Get by name " + name);
+        Long id = stockNames.getId(name);
+        if(id != null){
+            try {
+                return getById(id);
+            } catch (EntityNotFoundException e){
+                logger.debug("Stock " + id + " of name " + name + " is deleted");
+                stockNames.remove(name, id);
+            }
+        }
+        stockSnapshot.awaitRestored();
+        long cacheGeneration = stockCache.generation();
+        Stock stock = readOnly(() -> stockRepository.findByName(name)).orElseThrow(()->new EntityNotFoundException(name));
+        logger.debug("Found stock " + stock);
+        StockDto stockDto = withPending(stockMapper.convert(stock));
+        stockNames.put(stockDto.getId(), stockDto.getName());
+        stockCache.putIfUnchanged(stockDto, cacheGeneration);
+        return stockDto;
+    }
+
+    /**
+     * Provides the stocks with names, in the order of names
+     * <br>Names known and cached are served from memory, all others are loaded with a single query
+     * @param names
+     * @return stockDtoList without the names that no stock has
+     * @throws StockDataBusinessException If there are more than MAX_PAGE_LIMIT names
+     */
+    @Override
+    public List<StockDto> getByNames(List<String> names) {
+        logger.debug("Get by names " + names);
+        if(names.size() > MAX_PAGE_LIMIT){
+            throw new StockDataBusinessException(TOO_MANY_NAMES);
+        }
+        Map<String,StockDto> stockDtoMap = new LinkedHashMap<>();
+        Set<String> namesToLoad = new LinkedHashSet<>();
+        for(String name : names){
+            Long id = stockNames.getId(name);
+            StockDto stockDto = id != null ? stockCache.get(id) : null;
+            if(stockDto != null){
+                stockDtoMap.put(name, stockDto);
+            }else{
+                namesToLoad.add(name);
+            }
+        }
+        if(!namesToLoad.isEmpty()){
+            stockSnapshot.awaitRestored();
+            long cacheGeneration = stockCache.generation();
+            for(Stock stock : readOnly(() -> stockRepository.findByNameIn(namesToLoad))){
+                StockDto stockDto = withPending(stockMapper.convert(stock));
+                stockNames.put(stockDto.getId(), stockDto.getName());
+                stockCache.putIfUnchanged(stockDto, cacheGeneration);
+                stockDtoMap.put(stockDto.getName(), stockDto);
+            }
+            for(String name : namesToLoad){
+                Long id = stockNames.getId(name);
+                if(id != null && !stockDtoMap.containsKey(name)){
+                    stockNames.remove(name, id);
+                }
+            }
+            logger.debug("Loaded " + namesToLoad.size() + " names, found " + stockDtoMap.size() + " stocks");
+        }
+        List<StockDto> stockDtoList = new ArrayList<>(stockDtoMap.size());
+        for(String name : new LinkedHashSet<>(names)){
+            StockDto stockDto = stockDtoMap.get(name);
+            if(stockDto != null){
+                stockDtoList.add(stockDto);
+            }
+        }
+        return stockDtoList;
+    }
+
+    /**
+     * Provides all stocks if they are all cached, never touches the database
+     * @return stockDtoList, or null if the full list isn't cached
+     */
+    @Override
+    public List<StockDto> retrieveAllCached() {
+        return stockCache.getAll();
+    }
+
+    /**
+     * Provides a stock with id if it is cached, never touches the database
+     * @param id
+     * @return stockDto, or null if it isn't cached
+     */
+    @Override
+    public StockDto getCached(Long id) {
+        return stockCache.get(id);
+    }
+
+    /**
+     * Provides the stock with name if name is known and the stock cached, never touches the database
+     * @param name
+     * @return stockDto, or null if it isn't cached
+     */
+    @Override
+    public StockDto getCachedByName(String name) {
+        Long id = stockNames.getId(name);
+        return id != null ? stockCache.get(id) : null;
+    }
+
+    /**
+     * A price from the future would win over every later one and turn them all stale
+     */
+    private void checkNotInFuture(Date lastUpdate){
+        if(lastUpdate != null && lastUpdate.getTime() > System.currentTimeMillis() + maxClockSkewMillis){
+            logger.debug("Price time " + lastUpdate + " is more than " + maxClockSkewMillis + " ms ahead");
+            throw new StockDataBusinessException(FUTURE_PRICE_UPDATE);
+        }
+    }
+
+    /**
+     * Database reads may be older than a price pending in write-behind
+     * @return the pending stock with id of stockDto if there is one, stockDto otherwise
+     */
+    private StockDto withPending(StockDto stockDto){
+        StockDto stockDtoPending = priceWriteBehind.getPending(stockDto.getId());
+        return stockDtoPending != null ? stockDtoPending : stockDto;
+    }
+
+    /**
+     * Loads of the cached read paths run in a read-only transaction, Hibernate skips dirty checking and flush
+     * and a read/write split DataSource serves them from the replica. Cache hits don't open a transaction at all.
+     * <br>Joins the transaction of the caller if there is one.
+     */
+    private <T> T readOnly(Supplier<T> load){
+        return readOnlyTransactionTemplate.execute(status -> load.get());
+    }
+
+    /**
+     * ETag of the stock list, it changes whenever a stock is created, updated or deleted
+     * <br>Take it before reading the list, it only reads an in-memory counter
+     */
+    @Override
+    public String listETag() {
+        return stockVersions.listETag();
+    }
+
+    /**
+     * ETag of a single stock, it changes whenever the stock is created, updated or deleted
+     * <br>Take it before reading the stock, it only reads an in-memory counter
+     */
+    @Override
+    public String stockETag(Long id) {
+        return stockVersions.stockETag(id);
+    }
 }
@@ -0,0 +1,26 @@
+package com.farshad.stock.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+final class TransactionCallbacks {
+    private TransactionCallbacks() { }
+
+    /**
+     * Runs action once the current transaction commits, or right away if there is no transaction
+     * <br>Keeps in-memory state from seeing changes that are rolled back
+     * @param action
+     */
+    static void afterCommit(Runnable action){
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }else{
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.farshad.stock.snapshot;
+
+import com.farshad.stock.cache.StockCache;
+import com.farshad.stock.cache.StockVersions;
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.mapper.StockMapper;
+import com.farshad.stock.model.Stock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps all stocks in a memory-mapped {@link SnapshotFile}
+ * <br> At startup the file is mapped and its stocks are put into the cache before the web server accepts requests,
+ * a background thread then writes them into the database and takes over stocks the database holds newer.
+ * <br> The restore thread opens its transaction before startup goes on, requests waiting in
+ * {@link #awaitRestored()} can't take the last connection away from it.
+ * <br> The file is written through the mapped pages, it survives a crash of the process but not of the machine.
+ * <br> The time from the start of the JVM until requests are accepted and until the database is restored is logged.
+ */
+@Component
+@ConditionalOnProperty(name = "stock.snapshot.enabled", havingValue = "true")
+public class MappedStockSnapshot implements StockSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(MappedStockSnapshot.class);
+
+    private final Path                  path;
+    private final int                   initialCapacity;
+    private final CountDownLatch        restoreStarted  = new CountDownLatch(1);
+    private final CountDownLatch        restored        = new CountDownLatch(1);
+    private StockCache                  stockCache;
+    private StockVersions               stockVersions;
+    private StockRepository             stockRepository;
+    private StockMapper                 stockMapper;
+    private TransactionTemplate         transactionTemplate;
+    private SnapshotFile                snapshotFile;
+
+    public MappedStockSnapshot(@Value("${stock.snapshot.file:stock.snapshot}") String file,
+                               @Value("${stock.snapshot.initial-capacity:1024}") int initialCapacity) {
+        this.path = Paths.get(file);
+        this.initialCapacity = initialCapacity;
+    }
+
+    @Autowired
+    public void setStockCache(StockCache stockCache) {
+        this.stockCache = stockCache;
+    }
+    @Autowired
+    public void setStockVersions(StockVersions stockVersions) {
+        this.stockVersions = stockVersions;
+    }
+    @Autowired
+    public void setStockRepository(StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+    }
+    @Autowired
+    public void setStockMapper(StockMapper stockMapper) {
+        this.stockMapper = stockMapper;
+    }
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void load() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        snapshotFile = SnapshotFile.open(path, initialCapacity);
+        List<StockDto> stockDtoList = snapshotFile.readAll();
+        stockCache.putAll(stockDtoList, stockCache.generation());
+        logger.info("Loaded " + stockDtoList.size() + " stocks from snapshot " + path.toAbsolutePath() + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        Thread thread = new Thread(() -> restore(stockDtoList), "stock-snapshot-restore");
+        thread.setDaemon(true);
+        thread.start();
+        restoreStarted.await();
+    }
+
+    /**
+     * Stocks of the snapshot are in the cache by now, the first request is served without waiting for the database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        logger.info("Accepting requests " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms after start, "
+                + snapshotFile.size() + " stocks served from snapshot");
+    }
+
+    @Override
+    public void put(StockDto stockDto) {
+        try {
+            snapshotFile.put(stockDto);
+        } catch (IOException e){
+            logger.error("Stock " + stockDto.getId() + " can't be written to snapshot " + path, e);
+        }
+    }
+
+    @Override
+    public void remove(Long id) {
+        snapshotFile.remove(id);
+    }
+
+    @Override
+    public void awaitRestored() {
+        try {
+            restored.await();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for stocks to be restored", e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        snapshotFile.close();
+    }
+
+    /**
+     * Writes the snapshot into the database, then brings snapshot and cache up to the stocks of the database
+     */
+    private void restore(List<StockDto> stockDtoList) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.execute(status -> {
+                restoreStarted.countDown();
+                List<Stock> stockList = new ArrayList<>(stockDtoList.size());
+                Map<Long, StockDto> snapshotStocks = new HashMap<>();
+                for(StockDto stockDto : stockDtoList){
+                    Stock stock = new Stock(stockDto.getName(), stockDto.getCurrentPrice(), new Date(stockDto.getLastUpdateTime()));
+                    stock.setId(stockDto.getId());
+                    stockList.add(stock);
+                    snapshotStocks.put(stockDto.getId(), stockDto);
+                }
+                int restoredCount = stockRepository.restore(stockList);
+                int changedCount = 0;
+                for(Stock stock : stockRepository.findAll()){
+                    StockDto stockDto = stockMapper.convert(stock);
+                    if(!stockDto.equals(snapshotStocks.get(stockDto.getId()))){
+                        put(stockDto);
+                        stockCache.put(stockDto);
+                        stockVersions.changed(stockDto.getId());
+                        changedCount++;
+                    }
+                }
+                logger.info("Restored " + restoredCount + " stocks from snapshot, took " + changedCount
+                        + " stocks from the database in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, "
+                        + ManagementFactory.getRuntimeMXBean().getUptime() + " ms after start");
+                return null;
+            });
+        } catch (RuntimeException e){
+            logger.error("Stocks can't be restored from snapshot " + path, e);
+        } finally {
+            restoreStarted.countDown();
+            restored.countDown();
+        }
+    }
+}
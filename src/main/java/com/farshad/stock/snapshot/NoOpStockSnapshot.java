@@ -0,0 +1,26 @@
+package com.farshad.stock.snapshot;
+
+import com.farshad.stock.dto.StockDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Used when stock.snapshot.enabled=false, stocks are only kept in the database
+ */
+@Component
+@ConditionalOnProperty(name = "stock.snapshot.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpStockSnapshot implements StockSnapshot {
+    @Override
+    public void put(StockDto stockDto) { }
+
+    @Override
+    public void remove(Long id) { }
+
+    @Override
+    public void awaitRestored() { }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+}
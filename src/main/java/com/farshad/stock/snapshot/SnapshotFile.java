@@ -0,0 +1,236 @@
+package com.farshad.stock.snapshot;
+
+import com.farshad.stock.dto.StockDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory-mapped file of fixed size stock records
+ * <br> Layout: a header, recordCapacity records of id, name offset, name length, price and last update,
+ * then the names as UTF-8 bytes. A removed stock keeps its record with id 0 until the file is rewritten.
+ * <br> A price update only overwrites price and last update of the stock's record in the mapped pages, there is no write call.
+ * The pages reach the disk when the OS writes them back or on {@link #force()}, a crash of the process loses nothing.
+ * <br> When records or names are full the file is rewritten with twice the room, without removed stocks.
+ */
+public class SnapshotFile implements AutoCloseable {
+    private static final int    MAGIC           = 0x53544B31;
+    private static final int    HEADER_SIZE     = 32;
+    private static final int    RECORD_SIZE     = 32;
+    private static final int    NAME_BYTES_PER_RECORD = 16;
+
+    private static final int    MAGIC_OFFSET            = 0;
+    private static final int    CAPACITY_OFFSET         = 4;
+    private static final int    COUNT_OFFSET            = 8;
+    private static final int    NAMES_CAPACITY_OFFSET   = 12;
+    private static final int    NAMES_END_OFFSET        = 16;
+
+    private static final int    ID_OFFSET           = 0;
+    private static final int    NAME_OFFSET_OFFSET  = 8;
+    private static final int    NAME_LENGTH_OFFSET  = 12;
+    private static final int    PRICE_OFFSET        = 16;
+    private static final int    LAST_UPDATE_OFFSET  = 24;
+
+    private final Path                  path;
+    private final Map<Long, Integer>    records = new HashMap<>();
+    private FileChannel                 channel;
+    private MappedByteBuffer            buffer;
+    private int                         recordCapacity;
+    private int                         recordCount;
+    private int                         namesCapacity;
+    private int                         namesEnd;
+
+    private SnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Maps the file at path, a missing or unreadable file is replaced by an empty one
+     * @param path
+     * @param initialCapacity records of a new file
+     */
+    public static SnapshotFile open(Path path, int initialCapacity) throws IOException {
+        if(initialCapacity <= 0){
+            throw new IllegalArgumentException("snapshot capacity must be positive but was " + initialCapacity);
+        }
+        SnapshotFile snapshotFile = new SnapshotFile(path);
+        if(!snapshotFile.map()){
+            snapshotFile.rewrite(new ArrayList<>(), initialCapacity);
+        }
+        return snapshotFile;
+    }
+
+    /**
+     * @return all stocks in the file, in the order they were added
+     */
+    public synchronized List<StockDto> readAll() {
+        List<StockDto> stockDtoList = new ArrayList<>(records.size());
+        for(int index = 0; index < recordCount; index++){
+            int position = recordPosition(index);
+            long id = buffer.getLong(position + ID_OFFSET);
+            if(id != 0){
+                stockDtoList.add(new StockDto(id, readName(position), buffer.getDouble(position + PRICE_OFFSET),
+                        buffer.getLong(position + LAST_UPDATE_OFFSET)));
+            }
+        }
+        return stockDtoList;
+    }
+
+    /**
+     * Updates price and last update of a stock in place, adds the stock if the file doesn't hold it
+     */
+    public synchronized void put(StockDto stockDto) throws IOException {
+        Integer index = records.get(stockDto.getId());
+        if(index != null){
+            int position = recordPosition(index);
+            buffer.putDouble(position + PRICE_OFFSET, stockDto.getCurrentPrice());
+            buffer.putLong(position + LAST_UPDATE_OFFSET, stockDto.getLastUpdateTime());
+            return;
+        }
+        byte[] name = stockDto.getName().getBytes(StandardCharsets.UTF_8);
+        while(recordCount == recordCapacity || namesEnd + name.length > namesCapacity){
+            List<StockDto> stockDtoList = readAll();
+            rewrite(stockDtoList, Math.max(recordCapacity, stockDtoList.size() + 1) * 2);
+        }
+        int namePosition = namesPosition() + namesEnd;
+        for(int i = 0; i < name.length; i++){
+            buffer.put(namePosition + i, name[i]);
+        }
+        int position = recordPosition(recordCount);
+        buffer.putInt(position + NAME_OFFSET_OFFSET, namesEnd);
+        buffer.putInt(position + NAME_LENGTH_OFFSET, name.length);
+        buffer.putDouble(position + PRICE_OFFSET, stockDto.getCurrentPrice());
+        buffer.putLong(position + LAST_UPDATE_OFFSET, stockDto.getLastUpdateTime());
+        /**
+         * the id makes the record valid, it is written after the rest and the count after the record
+         */
+        buffer.putLong(position + ID_OFFSET, stockDto.getId());
+        records.put(stockDto.getId(), recordCount);
+        namesEnd += name.length;
+        recordCount++;
+        buffer.putInt(NAMES_END_OFFSET, namesEnd);
+        buffer.putInt(COUNT_OFFSET, recordCount);
+    }
+
+    public synchronized void remove(Long id) {
+        Integer index = records.remove(id);
+        if(index != null){
+            buffer.putLong(recordPosition(index) + ID_OFFSET, 0);
+        }
+    }
+
+    public synchronized int size() {
+        return records.size();
+    }
+
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(channel != null){
+            buffer.force();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @return false if there is no valid snapshot at path
+     */
+    private boolean map() throws IOException {
+        if(!Files.isRegularFile(path) || Files.size(path) < HEADER_SIZE){
+            return false;
+        }
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer header = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        int capacity = header.getInt(CAPACITY_OFFSET);
+        int count = header.getInt(COUNT_OFFSET);
+        int names = header.getInt(NAMES_CAPACITY_OFFSET);
+        int end = header.getInt(NAMES_END_OFFSET);
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE + names;
+        if(header.getInt(MAGIC_OFFSET) != MAGIC || capacity <= 0 || count < 0 || count > capacity
+                || end < 0 || end > names || fileChannel.size() != size){
+            fileChannel.close();
+            return false;
+        }
+        channel = fileChannel;
+        buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        recordCapacity = capacity;
+        recordCount = count;
+        namesCapacity = names;
+        namesEnd = end;
+        records.clear();
+        for(int index = 0; index < recordCount; index++){
+            long id = buffer.getLong(recordPosition(index) + ID_OFFSET);
+            if(id != 0){
+                records.put(id, index);
+            }
+        }
+        return true;
+    }
+
+    private void rewrite(List<StockDto> stockDtoList, int capacity) throws IOException {
+        int nameBytes = 0;
+        for(StockDto stockDto : stockDtoList){
+            nameBytes += stockDto.getName().getBytes(StandardCharsets.UTF_8).length;
+        }
+        int names = Math.max(capacity * NAME_BYTES_PER_RECORD, nameBytes * 2);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try(FileChannel fileChannel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC_OFFSET, MAGIC);
+            header.putInt(CAPACITY_OFFSET, capacity);
+            header.putInt(COUNT_OFFSET, 0);
+            header.putInt(NAMES_CAPACITY_OFFSET, names);
+            header.putInt(NAMES_END_OFFSET, 0);
+            fileChannel.write(header, 0);
+            /**
+             * sizes the file, the records and names in between stay sparse until written
+             */
+            fileChannel.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) capacity * RECORD_SIZE + names - 1);
+        }
+        if(channel != null){
+            channel.close();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if(!map()){
+            throw new IOException("Rewritten snapshot " + path + " can't be mapped");
+        }
+        for(StockDto stockDto : stockDtoList){
+            put(stockDto);
+        }
+    }
+
+    private String readName(int position) {
+        int nameOffset = buffer.getInt(position + NAME_OFFSET_OFFSET);
+        int nameLength = buffer.getInt(position + NAME_LENGTH_OFFSET);
+        byte[] name = new byte[nameLength];
+        int namePosition = namesPosition() + nameOffset;
+        for(int i = 0; i < nameLength; i++){
+            name[i] = buffer.get(namePosition + i);
+        }
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private int recordPosition(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private int namesPosition() {
+        return HEADER_SIZE + recordCapacity * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,48 @@
+package com.farshad.stock.snapshot;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Turns off import.sql when the snapshot holds stocks
+ * <br> The seeded stocks would be created with the current time and win over the snapshot on restore,
+ * a warm restart would bring back their first prices and stocks that were deleted.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stock.snapshot.enabled", havingValue = "true")
+public class SnapshotImportConfiguration implements HibernatePropertiesCustomizer {
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotImportConfiguration.class);
+
+    private final Path path;
+
+    public SnapshotImportConfiguration(@Value("${stock.snapshot.file:stock.snapshot}") String file) {
+        this.path = Paths.get(file);
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        if(!Files.isRegularFile(path)){
+            return;
+        }
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 1)){
+            if(snapshotFile.size() > 0){
+                logger.info("Snapshot " + path.toAbsolutePath() + " holds " + snapshotFile.size() + " stocks, import.sql is skipped");
+                hibernateProperties.put(AvailableSettings.HBM2DDL_IMPORT_FILES, "");
+            }
+        } catch (IOException e){
+            throw new UncheckedIOException("Snapshot " + path + " can't be read", e);
+        }
+    }
+}
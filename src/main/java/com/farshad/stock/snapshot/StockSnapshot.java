@@ -0,0 +1,20 @@
+package com.farshad.stock.snapshot;
+
+import com.farshad.stock.dto.StockDto;
+
+/**
+ * On disk copy of all stocks, read at startup so stocks are served before the database is loaded
+ * <br> Write paths keep it current by calling {@link #put(StockDto)} and {@link #remove(Long)} once their transaction commits.
+ * <br> Writes and reads that go to the database must call {@link #awaitRestored()} first,
+ * the database may still be catching up with the snapshot until then.
+ */
+public interface StockSnapshot {
+    void    put(StockDto stockDto);
+    void    remove(Long id);
+
+    /**
+     * Blocks until the database holds every stock of the snapshot
+     */
+    void    awaitRestored();
+    boolean isEnabled();
+}
@@ -0,0 +1,147 @@
+package com.farshad.stock.stream;
+
+import com.farshad.stock.dto.PriceEventDto;
+import com.farshad.stock.dto.StockDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single publish point of committed price changes, fans them out to all stream subscribers
+ * <br> publish only stores the latest event of the stock and schedules a fan out, so writers never wait for subscribers.
+ * <br> The fan out thread hands events to subscribers' bounded buffers, dispatch threads write them to the clients.
+ */
+@Component
+public class PriceEventBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(PriceEventBroadcaster.class);
+
+    private final ConcurrentHashMap<Long, PriceEventDto>    latest          = new ConcurrentHashMap<>();
+    private final AtomicBoolean                             fanOutScheduled = new AtomicBoolean();
+    private final Set<PriceSubscriber>                      subscribers     = ConcurrentHashMap.newKeySet();
+    private final int                                       subscriberBuffer;
+    private final ExecutorService                           fanOutExecutor;
+    private final ExecutorService                           dispatchExecutor;
+    private final ScheduledExecutorService                  heartbeatExecutor;
+
+    @Autowired
+    public PriceEventBroadcaster(@Value("${stock.stream.dispatch-threads:4}") int dispatchThreads,
+                                 @Value("${stock.stream.subscriber-buffer:256}") int subscriberBuffer,
+                                 @Value("${stock.stream.heartbeat-ms:15000}") long heartbeatMillis) {
+        this.subscriberBuffer = subscriberBuffer;
+        this.fanOutExecutor = Executors.newSingleThreadExecutor(threadFactory("price-fan-out"));
+        this.dispatchExecutor = Executors.newFixedThreadPool(dispatchThreads, threadFactory("price-dispatch"));
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory("price-heartbeat"));
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers emitter for the price events of ids
+     * @param emitter
+     * @param ids stocks to receive, null or empty for all
+     */
+    public void subscribe(SseEmitter emitter, Set<Long> ids) {
+        PriceSubscriber subscriber = new PriceSubscriber(emitter, ids == null || ids.isEmpty() ? null : ids, subscriberBuffer);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        logger.debug("New price stream subscriber for " + ids + ", subscribers " + subscribers.size());
+    }
+
+    /**
+     * Publishes the committed price of a stock
+     * @param stockDto
+     */
+    public void publish(StockDto stockDto) {
+        latest.put(stockDto.getId(), new PriceEventDto(stockDto.getId(), stockDto.getCurrentPrice(), stockDto.getLastUpdateTime()));
+        if(fanOutScheduled.compareAndSet(false, true)){
+            fanOutExecutor.execute(this::fanOut);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDroppedCount() {
+        long dropped = 0;
+        for(PriceSubscriber subscriber : subscribers){
+            dropped += subscriber.getDropped();
+        }
+        return dropped;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        fanOutExecutor.shutdownNow();
+        dispatchExecutor.shutdownNow();
+        for(PriceSubscriber subscriber : subscribers){
+            subscriber.close();
+        }
+        subscribers.clear();
+    }
+
+    private void fanOut() {
+        /**
+         * cleared before reading, an event published meanwhile schedules the next fan out
+         */
+        fanOutScheduled.set(false);
+        for(Long id : latest.keySet()){
+            PriceEventDto event = latest.remove(id);
+            if(event == null){
+                continue;
+            }
+            for(PriceSubscriber subscriber : subscribers){
+                if(subscriber.wants(id) && subscriber.offer(event)){
+                    dispatch(subscriber);
+                }
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for(PriceSubscriber subscriber : subscribers){
+            if(subscriber.heartbeat()){
+                dispatch(subscriber);
+            }
+        }
+    }
+
+    private void dispatch(PriceSubscriber subscriber) {
+        dispatchExecutor.execute(() -> {
+            if(!subscriber.drain()){
+                remove(subscriber);
+            }
+        });
+    }
+
+    private void remove(PriceSubscriber subscriber) {
+        subscriber.close();
+        if(subscribers.remove(subscriber)){
+            logger.debug("Price stream subscriber removed, subscribers " + subscribers.size());
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,127 @@
+package com.farshad.stock.stream;
+
+import com.farshad.stock.dto.PriceEventDto;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One stream client with its own bounded buffer of pending events
+ * <br> Pending events are conflated per stock, only the latest price of a stock is sent.
+ * <br> When more than maxPending stocks are waiting, the one that has waited longest is dropped.
+ */
+class PriceSubscriber {
+    static final String PRICE_EVENT_NAME = "price";
+
+    private final SseEmitter                            emitter;
+    private final Set<Long>                             ids;
+    private final int                                   maxPending;
+    private final LinkedHashMap<Long, PriceEventDto>    pending = new LinkedHashMap<>();
+    private final AtomicBoolean                         scheduled = new AtomicBoolean();
+    private boolean                                     heartbeatDue;
+    private long                                        dropped;
+    private volatile boolean                            closed;
+
+    /**
+     * @param emitter
+     * @param ids stocks to receive, null for all
+     * @param maxPending
+     */
+    PriceSubscriber(SseEmitter emitter, Set<Long> ids, int maxPending) {
+        this.emitter = emitter;
+        this.ids = ids;
+        this.maxPending = maxPending;
+    }
+
+    boolean wants(Long id) {
+        return ids == null || ids.contains(id);
+    }
+
+    /**
+     * @return true if the caller has to schedule a drain
+     */
+    boolean offer(PriceEventDto event) {
+        synchronized (this){
+            if(closed){
+                return false;
+            }
+            PriceEventDto previous = pending.remove(event.getId());
+            pending.put(event.getId(), event);
+            if(previous == null && pending.size() > maxPending){
+                Iterator<Long> eldest = pending.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                dropped++;
+            }
+        }
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * @return true if the caller has to schedule a drain
+     */
+    boolean heartbeat() {
+        synchronized (this){
+            if(closed){
+                return false;
+            }
+            heartbeatDue = true;
+        }
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Sends everything pending until nothing is left
+     * @return false if the client is gone
+     */
+    boolean drain() {
+        while(true){
+            List<PriceEventDto> events;
+            boolean sendHeartbeat;
+            synchronized (this){
+                if(pending.isEmpty() && !heartbeatDue){
+                    scheduled.set(false);
+                    return !closed;
+                }
+                events = new ArrayList<>(pending.values());
+                pending.clear();
+                sendHeartbeat = heartbeatDue;
+                heartbeatDue = false;
+            }
+            try {
+                for(PriceEventDto event : events){
+                    emitter.send(SseEmitter.event().name(PRICE_EVENT_NAME).data(event, MediaType.APPLICATION_JSON));
+                }
+                if(sendHeartbeat){
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+                return false;
+            }
+        }
+    }
+
+    void close() {
+        synchronized (this){
+            closed = true;
+            pending.clear();
+            scheduled.set(false);
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    synchronized long getDropped() {
+        return dropped;
+    }
+}
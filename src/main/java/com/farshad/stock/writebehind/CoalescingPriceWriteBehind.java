@@ -0,0 +1,169 @@
+package com.farshad.stock.writebehind;
+
+import com.farshad.stock.cache.StockCache;
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.model.Stock;
+import com.farshad.stock.service.PriceHistoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps the latest pending price per stock and writes all of them every flushMillis in one transaction
+ * <br> Many updates of an active stock between two flushes cost one row update.
+ * Every tick is already in the history buffer when accepted, the flush saves the history rows of all of them in the same transaction.
+ * <br> A crash loses the prices of at most the last flushMillis plus one flush, a graceful shutdown writes them first.
+ * <br> A flush that fails keeps its prices pending, they are written by the next one.
+ */
+@Component
+@ConditionalOnProperty(name = "stock.write-behind.enabled", havingValue = "true")
+public class CoalescingPriceWriteBehind implements PriceWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingPriceWriteBehind.class);
+
+    private final long                                  flushMillis;
+    private final ConcurrentHashMap<Long, StockDto>     pending     = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<StockDto>       ticks       = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService              flushExecutor;
+    private StockRepository                             stockRepository;
+    private PriceHistoryService                         priceHistoryService;
+    private StockCache                                  stockCache;
+    private TransactionTemplate                         transactionTemplate;
+
+    public CoalescingPriceWriteBehind(@Value("${stock.write-behind.flush-ms:100}") long flushMillis) {
+        if(flushMillis <= 0){
+            throw new IllegalArgumentException("write-behind flush interval must be positive but was " + flushMillis);
+        }
+        this.flushMillis = flushMillis;
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Autowired
+    public void setStockRepository(StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+    }
+    @Autowired
+    public void setPriceHistoryService(PriceHistoryService priceHistoryService) {
+        this.priceHistoryService = priceHistoryService;
+    }
+    @Autowired
+    public void setStockCache(StockCache stockCache) {
+        this.stockCache = stockCache;
+    }
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public StockDto getPending(Long id) {
+        return pending.get(id);
+    }
+
+    @Override
+    public StockDto update(Long id, UnaryOperator<StockDto> update) {
+        return pending.compute(id, (key, stockDto) -> {
+            StockDto stockDtoUpdated = update.apply(stockDto);
+            if(stockDtoUpdated != null && stockDtoUpdated != stockDto){
+                ticks.add(stockDtoUpdated);
+            }
+            return stockDtoUpdated;
+        });
+    }
+
+    @Override
+    public void remove(Long id) {
+        pending.remove(id);
+    }
+
+    /**
+     * Writes the prices pending now, a price updated meanwhile stays pending for the next flush
+     * <br> Ticks are taken before the prices, a tick is never saved before the price it belongs to is written.
+     */
+    @Override
+    public synchronized void flush() {
+        if(pending.isEmpty() && ticks.isEmpty()){
+            return;
+        }
+        long start = System.nanoTime();
+        List<StockDto> tickList = new ArrayList<>();
+        for(StockDto tick = ticks.poll(); tick != null; tick = ticks.poll()){
+            tickList.add(tick);
+        }
+        List<StockDto> stockDtoList = new ArrayList<>(pending.values());
+        List<Stock> stockList = new ArrayList<>(stockDtoList.size());
+        for(StockDto stockDto : stockDtoList){
+            Stock stock = new Stock(stockDto.getName(), stockDto.getCurrentPrice(), stockDto.getLastUpdate());
+            stock.setId(stockDto.getId());
+            stockList.add(stock);
+        }
+        try {
+            Set<Long> notWritten = transactionTemplate.execute(status -> {
+                Set<Long> ids = new HashSet<>(stockRepository.writePricesInBatches(stockList));
+                List<StockDto> writtenTicks = new ArrayList<>(tickList.size());
+                for(StockDto tick : tickList){
+                    if(!ids.contains(tick.getId())){
+                        writtenTicks.add(tick);
+                    }
+                }
+                priceHistoryService.saveUpdated(writtenTicks);
+                return ids;
+            });
+            for(StockDto stockDto : stockDtoList){
+                pending.remove(stockDto.getId(), stockDto);
+            }
+            for(Long id : notWritten){
+                /**
+                 * deleted or newer in the database, the cached price isn't valid
+                 */
+                stockCache.evict(id);
+            }
+            logger.debug("Flushed prices of " + stockDtoList.size() + " stocks, " + notWritten.size() + " not written, in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (RuntimeException e){
+            ticks.addAll(tickList);
+            logger.error("Prices of " + stockDtoList.size() + " stocks can't be written, retrying in " + flushMillis + " ms", e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        int pendingCount = pending.size();
+        flush();
+        logger.info("Flushed prices of " + pendingCount + " stocks on shutdown, " + pending.size() + " left");
+    }
+}
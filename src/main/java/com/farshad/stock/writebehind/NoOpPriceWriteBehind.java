@@ -0,0 +1,39 @@
+package com.farshad.stock.writebehind;
+
+import com.farshad.stock.dto.StockDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Used when stock.write-behind.enabled=false, every price update is written in its own transaction
+ */
+@Component
+@ConditionalOnProperty(name = "stock.write-behind.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpPriceWriteBehind implements PriceWriteBehind {
+    @Override
+    public StockDto getPending(Long id) {
+        return null;
+    }
+
+    /**
+     * Nothing is ever pending, update gets null and the stock it returns isn't kept
+     */
+    @Override
+    public StockDto update(Long id, UnaryOperator<StockDto> update) {
+        update.apply(null);
+        return null;
+    }
+
+    @Override
+    public void remove(Long id) { }
+
+    @Override
+    public void flush() { }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.farshad.stock.writebehind;
+
+import com.farshad.stock.dto.StockDto;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Latest prices of stocks that are applied in memory but not written to the database yet
+ * <br> Only the latest pending price of a stock is kept, all pending prices are written together by {@link #flush()}.
+ * <br> Reads that go to the database must prefer {@link #getPending(Long)}, the database may hold an older price until then.
+ * <br> Every pending stock an update produces is a tick, the flush writes all of them to the price history.
+ */
+public interface PriceWriteBehind {
+    /**
+     * @return the stock with its latest price not written yet, or null if the database is up to date
+     */
+    StockDto    getPending(Long id);
+
+    /**
+     * Replaces the pending stock with id atomically, updates of the same stock are serialized
+     * @param update gets the pending stock or null, returns the stock to write or null for nothing
+     * @return the pending stock after update
+     */
+    StockDto    update(Long id, UnaryOperator<StockDto> update);
+
+    /**
+     * Drops the pending price of a deleted stock
+     */
+    void        remove(Long id);
+
+    /**
+     * Writes all pending prices to the database in one transaction
+     */
+    void        flush();
+    boolean     isEnabled();
+}
@@ -2,30 +2,63 @@ package com.farshad.stock;
 
 import com.farshad.stock.constants.ErrorMessages;
 import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.CreateStocksRequest;
 import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockPriceUpdate;
 import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.dto.UpdateStockPricesRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static com.farshad.stock.constants.Constants.CBOR_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.CSV_MEDIA_TYPE_VALUE;
 import static com.farshad.stock.constants.Constants.INIT_RECORDS_COUNT;
+import static com.farshad.stock.constants.Constants.NEXT_PAGE_AFTER_HEADER;
+import static com.farshad.stock.constants.Constants.PROTOBUF_MEDIA_TYPE_VALUE;
 import static com.farshad.stock.constants.URlConstants.*;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -52,6 +85,42 @@ public class StockIntegrationTest {
         ;
     }
 
+    @Test
+    public void retrieveAll_PagesOfTwo_ShouldReturnAllStocks() throws Exception {
+        //given
+        int limit = 2;
+        //then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).param("limit",String.valueOf(limit)).contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(limit)))
+                .andExpect(jsonPath("$[0].id",is(1)))
+                .andExpect(header().string(NEXT_PAGE_AFTER_HEADER,"2"))
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).param("after","4").param("limit",String.valueOf(limit)).contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id",is(5)))
+                .andExpect(header().doesNotExist(NEXT_PAGE_AFTER_HEADER))
+        ;
+    }
+
+    @Test
+    public void retrieveAll_Stream_ShouldReturnListWithFiveStockDto() throws Exception {
+        //given
+        //then
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).param("stream","true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(INIT_RECORDS_COUNT)))
+                .andExpect(jsonPath("$[0].name",is("Nissan")))
+        ;
+    }
+
     @Test
     public void create_OneValidCreateStockRequest_ShouldReturnStockDto() throws Exception {
         //given
@@ -144,6 +213,35 @@ public class StockIntegrationTest {
         ;
     }
 
+    @Test
+    public void getById_AcceptProtobuf_ShouldReturnStockMessage() throws Exception {
+        //given
+        Long id = 1l;
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id).accept(PROTOBUF_MEDIA_TYPE_VALUE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PROTOBUF_MEDIA_TYPE_VALUE))
+                .andReturn();
+        //then
+        CodedInputStream input = CodedInputStream.newInstance(mvcResult.getResponse().getContentAsByteArray());
+        assertEquals(1 << 3 | WireFormat.WIRETYPE_VARINT, input.readTag());
+        assertEquals(id.longValue(), input.readInt64());
+    }
+
+    @Test
+    public void getById_NonExistingIdAcceptCbor_ShouldReturnCborError() throws Exception {
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + "1000000").accept(CBOR_MEDIA_TYPE_VALUE))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(CBOR_MEDIA_TYPE_VALUE))
+                .andReturn();
+        //then
+        JsonNode error = new ObjectMapper(new CBORFactory()).readTree(mvcResult.getResponse().getContentAsByteArray());
+        assertTrue(error.get("message").asText().startsWith(ErrorMessages.ENTITY_NOT_FOUND));
+    }
+
 
     @Test
     public void getById_createOneStockThenGetIt_ShouldReturnStockDto() throws Exception {
@@ -278,6 +376,459 @@ public class StockIntegrationTest {
         ;
 
     }
+    @Test
+    public void updatePrices_CreateOneStockThenUpdatePrices_ShouldReportEachItem() throws Exception {
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("batch Company",10.7);
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                ;
+        StockDto stockDtoCreated = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+        Long nonExistingId = 1000l;
+        UpdateStockPricesRequest updateStockPricesRequest = new UpdateStockPricesRequest(Arrays.asList(
+                new StockPriceUpdate(stockDtoCreated.getId(),12.4),
+                new StockPriceUpdate(stockDtoCreated.getId(),12.4),
+                new StockPriceUpdate(nonExistingId,12.4)));
+
+        //then
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_PRICES_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(updateStockPricesRequest)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].status",is("UPDATED")))
+                .andExpect(jsonPath("$[1].status",is("UNCHANGED")))
+                .andExpect(jsonPath("$[2].status",is("NOT_FOUND")))
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.current_price",is(12.4)))
+        ;
+
+        mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isNoContent())
+        ;
+    }
+
+    @Test
+    public void getByName_ImportedNames_ShouldReturnStocks() throws Exception {
+        //then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/BMW"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id",is(4)))
+                .andExpect(jsonPath("$.current_price",is(71.9)))
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH).param("names","Toyota","unknown Company","BMW"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name",is("Toyota")))
+                .andExpect(jsonPath("$[1].name",is("BMW")))
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/unknown Company"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message",is(ErrorMessages.ENTITY_NOT_FOUND)))
+        ;
+    }
+
+    @Test
+    public void search_CreateAndDeleteStock_ShouldFollowNames() throws Exception {
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("bmx Company",10.7);
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                ;
+        StockDto stockDtoCreated = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+
+        //then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_SEARCH_PATH).param("prefix","bm"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name",is("BMW")))
+                .andExpect(jsonPath("$[1].name",is("bmx Company")))
+        ;
+        mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isNoContent())
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_SEARCH_PATH).param("prefix","bm").param("limit","5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name",is("BMW")))
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_SEARCH_PATH).param("prefix","bm").param("limit","0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message",is(ErrorMessages.INVALID_PAGE_LIMIT)))
+        ;
+    }
+
+    @Test
+    public void create_DuplicateName_ShouldReturnBadRequestAndKeepFirstStock() throws Exception {
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("unique Company",10.7);
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                ;
+        StockDto stockDtoCreated = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+
+        //then
+        mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new CreateStockRequest("unique Company",11.7))))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message",is(ErrorMessages.DATA_ACCESS_EXCEPTION)))
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/unique Company"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id",is(stockDtoCreated.getId().intValue())))
+                .andExpect(jsonPath("$.current_price",is(10.7)))
+        ;
+
+        mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isNoContent())
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/unique Company"))
+                .andExpect(status().isBadRequest())
+        ;
+    }
+
+    @Test
+    public void createStocks_ManyValidCreateStockRequests_ShouldReturnStockDtos() throws Exception {
+        //given
+        int count = 200;
+        List<CreateStockRequest> createStockRequests = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            createStockRequests.add(new CreateStockRequest("bulk Company" + i,10.0 + i));
+        }
+
+        //then
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_BULK_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new CreateStocksRequest(createStockRequests))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(count)))
+                .andExpect(jsonPath("$[0].id",notNullValue()))
+                .andExpect(jsonPath("$[" + (count - 1) + "].name",is("bulk Company" + (count - 1))))
+                .andReturn()
+                ;
+        Type listType = new TypeToken<List<StockDto>>(){}.getType();
+        List<StockDto> stockDtoList = gson.fromJson(mvcResult.getResponse().getContentAsString(),listType);
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoList.get(count - 1).getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name",is("bulk Company" + (count - 1))))
+        ;
+
+        for(StockDto stockDto : stockDtoList){
+            mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDto.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                    .andExpect(status().isNoContent())
+            ;
+        }
+    }
+
+    @Test
+    public void importStocks_CsvOfNewAndRepeatedNames_ShouldUpsertByName() throws Exception {
+        //given
+        String csv = "name,current_price\n"
+                + "import Company1,10.5\n"
+                + "import Company2,20.5\n"
+                + "import Company1,11.5\n"
+                + "import Company3,-1\n";
+
+        //when then
+        mockMvc.perform(post(STOCK_CONTROLLER_FULL_IMPORT_PATH).contentType(CSV_MEDIA_TYPE_VALUE).content(csv))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted",is(2)))
+                .andExpect(jsonPath("$.updated",is(1)))
+                .andExpect(jsonPath("$.unchanged",is(0)))
+                .andExpect(jsonPath("$.rejected",is(1)))
+                .andExpect(jsonPath("$.rejected_rows[0].row",is(4)))
+        ;
+        mockMvc.perform(post(STOCK_CONTROLLER_FULL_IMPORT_PATH).contentType(CSV_MEDIA_TYPE_VALUE)
+                .content("current_price,name\n11.5,import Company1\n21.5,import Company2\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted",is(0)))
+                .andExpect(jsonPath("$.updated",is(1)))
+                .andExpect(jsonPath("$.unchanged",is(1)))
+        ;
+        MvcResult mvcResult1 = mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/import Company1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.current_price",is(11.5)))
+                .andReturn();
+        MvcResult mvcResult2 = mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/import Company2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.current_price",is(21.5)))
+                .andReturn();
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/import Company3"))
+                .andExpect(status().isBadRequest())
+        ;
+
+        for(MvcResult mvcResult : Arrays.asList(mvcResult1, mvcResult2)){
+            StockDto stockDto = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+            mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDto.getId()))
+                    .andExpect(status().isNoContent())
+            ;
+        }
+    }
+
+    @Test
+    public void importStocks_CsvWithoutPriceColumn_ShouldReturnBadRequest() throws Exception {
+        //when then
+        mockMvc.perform(post(STOCK_CONTROLLER_FULL_IMPORT_PATH).contentType(CSV_MEDIA_TYPE_VALUE).content("name,price\nimport Company4,1.0\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message",is(ErrorMessages.INVALID_CSV)))
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/import Company4"))
+                .andExpect(status().isBadRequest())
+        ;
+    }
+
+    @Test
+    public void exportStocks_Ndjson_ShouldStreamAllStocksGzipped() throws Exception {
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_EXPORT_PATH).param("format","ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mvcResult = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING,"gzip"))
+                .andReturn();
+        String[] lines = gunzip(mvcResult.getResponse().getContentAsByteArray()).split("\n");
+        assertEquals(INIT_RECORDS_COUNT, lines.length);
+        assertEquals("Nissan", gson.fromJson(lines[0],StockDto.class).getName());
+    }
+
+    @Test
+    public void exportStocks_CsvUpdatedSinceCreation_ShouldOnlyStreamNewerStocks() throws Exception {
+        //given
+        Instant updatedSince = Instant.now();
+        CreateStockRequest createStockRequest = new CreateStockRequest("export Company",10.7);
+        MvcResult createResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        StockDto stockDtoCreated = gson.fromJson(createResult.getResponse().getContentAsString(),StockDto.class);
+
+        try {
+            //when
+            MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_EXPORT_PATH).param("format","csv")
+                    .param("updatedSince",updatedSince.toString()))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            //then
+            mvcResult = mockMvc.perform(asyncDispatch(mvcResult))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            String csv = gunzip(mvcResult.getResponse().getContentAsByteArray());
+            assertTrue(csv, csv.startsWith("id,name,current_price,last_update\n" + stockDtoCreated.getId() + ",export Company,10.7,"));
+            assertEquals(csv, 2, csv.split("\n").length);
+        } finally {
+            mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()))
+                    .andExpect(status().isNoContent())
+            ;
+        }
+    }
+
+    @Test
+    public void showDashboard_PageOfTwoSortedByName_ShouldRenderThem() throws Exception {
+        //when then
+        mockMvc.perform(get(DASHBOARD_CONTROLLER_BASE_PATH + DASHBOARD_CONTROLLER_ALL_STOCKS).param("size","2").param("sort","name"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("BMW")))
+                .andExpect(content().string(containsString("Kia")))
+                .andExpect(content().string(org.hamcrest.Matchers.not(containsString("Nissan"))))
+                .andExpect(content().string(containsString("Page 1 of 3")))
+        ;
+    }
+
+    @Test
+    public void getHistory_CreateOneStockThenUpdatePrice_ShouldReturnBothPrices() throws Exception {
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("history Company",10.7);
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                ;
+        StockDto stockDtoCreated = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new UpdateStockPriceRequest(12.4))))
+                .andExpect(status().isOk())
+        ;
+
+        //then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId() + "/history"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].price",is(10.7)))
+                .andExpect(jsonPath("$[1].price",is(12.4)))
+        ;
+
+        mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isNoContent())
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId() + "/history"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is(ErrorMessages.ENTITY_NOT_FOUND)))
+        ;
+    }
+
+    @Test
+    public void getCandles_CreateOneStockThenUpdatePrice_ShouldReturnOpenCandle() throws Exception {
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("candle Company",10.7);
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                ;
+        StockDto stockDtoCreated = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new UpdateStockPriceRequest(12.4))))
+                .andExpect(status().isOk())
+        ;
+
+        //then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId() + "/candles").param("interval","1h"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[-1:].close",contains(12.4)))
+                .andExpect(jsonPath("$[-1:].high",contains(12.4)))
+                .andExpect(jsonPath("$[-1:].closed",contains(false)))
+        ;
+        mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isNoContent())
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + "5/candles").param("interval","1d"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is(ErrorMessages.INVALID_CANDLE_INTERVAL)))
+        ;
+    }
+
+    @Test
+    public void conditionalGet_CreateOneStockThenUpdatePrice_ShouldAnswerNotModifiedUntilChanged() throws Exception {
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("etag Company",10.7);
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                ;
+        StockDto stockDtoCreated = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+        String stockPath = STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId();
+        String listETag = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String stockETag = mockMvc.perform(get(stockPath))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).header(HttpHeaders.IF_NONE_MATCH, listETag))
+                .andExpect(status().isNotModified())
+        ;
+        mockMvc.perform(get(stockPath).header(HttpHeaders.IF_NONE_MATCH, stockETag))
+                .andExpect(status().isNotModified())
+        ;
+        mockMvc.perform(put(stockPath).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new UpdateStockPriceRequest(12.4))))
+                .andExpect(status().isOk())
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).header(HttpHeaders.IF_NONE_MATCH, listETag))
+                .andDo(print())
+                .andExpect(status().isOk())
+        ;
+        mockMvc.perform(get(stockPath).header(HttpHeaders.IF_NONE_MATCH, stockETag))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.current_price",is(12.4)))
+        ;
+        mockMvc.perform(delete(stockPath).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isNoContent())
+        ;
+    }
+
+    @Test
+    public void scrapeMetrics_AfterUpdatePriceAndMissingStock_ShouldExposeTimersAndCounters() throws Exception {
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("metrics Company",10.7);
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                ;
+        StockDto stockDtoCreated = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new UpdateStockPriceRequest(12.4))))
+                .andExpect(status().isOk())
+        ;
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + 146))
+                .andExpect(status().isBadRequest())
+        ;
+        mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(status().isNoContent())
+        ;
+
+        //then
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("stock_controller_seconds{method=\"StockController.updateStock\",quantile=\"0.999\",}")))
+                .andExpect(content().string(containsString("stock_transaction_seconds_count{method=\"StockServiceImpl.updatePrice\",}")))
+                .andExpect(content().string(containsString("stock_repository_seconds_count{method=\"StockRepository.updatePriceIfChanged\",}")))
+                .andExpect(content().string(containsString("stock_errors_total{error=\"entity.not.found\",}")))
+                .andExpect(content().string(containsString("stock_price_updates_total{status=\"UPDATED\",}")))
+        ;
+    }
+
+    @Test
+    public void getHistory_ImportedStock_ShouldReadFromDatabase() throws Exception {
+        //then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + "5/history").param("from","2000-01-01T00:00:00Z"))
+                .andDo(print())
+                .andExpect(status().isOk())
+        ;
+    }
+
+    @Test
+    public void streamPrices_SubscribeThenUpdatePrice_ShouldPushPriceEvent() throws Exception {
+        //given
+        Long id = 3l;
+        MvcResult streamResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_STREAM_PATH).param("ids",id.toString()).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //when
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new UpdateStockPriceRequest(33.3))))
+                .andExpect(status().isOk())
+        ;
+
+        //then
+        String expectedData = "\"id\":" + id + ",\"price\":33.3";
+        long deadline = System.currentTimeMillis() + 5000;
+        while(!streamResult.getResponse().getContentAsString().contains(expectedData) && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+        String content = streamResult.getResponse().getContentAsString();
+        assertTrue(content, content.contains("event:price"));
+        assertTrue(content, content.contains(expectedData));
+
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new UpdateStockPriceRequest(31.9))))
+                .andExpect(status().isOk())
+        ;
+    }
+
     @Test
     public void deleteById_NonExistingId_ShouldBeBadRequest() throws Exception {
         //given
@@ -290,4 +841,14 @@ public class StockIntegrationTest {
         ;
     }
 
-}
\ No newline at end of file
+    private String gunzip(byte[] content) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try(GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(content))){
+            byte[] buffer = new byte[1024];
+            for(int read; (read = inputStream.read(buffer)) != -1; ){
+                outputStream.write(buffer, 0, read);
+            }
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,25 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.StockApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+
+/**
+ * Starts the application on its in-memory H2 database for benchmarks
+ * <br>Debug logging is turned off so it doesn't dominate the measured time
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... args) {
+        String[] allArgs = Arrays.copyOf(args, args.length + 2);
+        allArgs[args.length] = "--logging.level.com.farshad.stock=warn";
+        allArgs[args.length + 1] = "--server.port=0";
+        return new SpringApplicationBuilder(StockApplication.class).web(webApplicationType).run(allArgs);
+    }
+}
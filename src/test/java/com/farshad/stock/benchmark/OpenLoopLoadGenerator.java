@@ -0,0 +1,214 @@
+package com.farshad.stock.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate, whether earlier ones were answered or not
+ * <br>Request n is due at start + n / rate. Connections take the next due request when they are free,
+ * its response time is measured from when it was due, so time spent waiting behind a slow request is counted
+ * instead of silently lowering the rate (coordinated omission). The service time from actually sending is recorded too.
+ * <br>Latencies go into HdrHistogram recorders read every second for a progress line, the totals only get the requests due after the warmup.
+ */
+final class OpenLoopLoadGenerator {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /**
+     * One kind of request, called by many connections at once
+     */
+    interface Operation {
+        /**
+         * @return http status of the answer
+         */
+        int call(SplittableRandom random) throws Exception;
+    }
+
+    private static final class WeightedOperation {
+        private final String        name;
+        private final Operation     operation;
+        private final int           weight;
+        private final Recorder      responseTimes   = new Recorder(3);
+        private final Histogram     responseTotal   = new ConcurrentHistogram(3);
+        private final Histogram     serviceTotal    = new ConcurrentHistogram(3);
+        private final LongAdder     errors          = new LongAdder();
+        private final LongAdder     measuredErrors  = new LongAdder();
+        private long                intervalErrors;
+        private Histogram           responseInterval;
+
+        private WeightedOperation(String name, Operation operation, int weight) {
+            this.name = name;
+            this.operation = operation;
+            this.weight = weight;
+        }
+    }
+
+    private final List<WeightedOperation>   operations  = new ArrayList<>();
+    private int                             totalWeight;
+
+    OpenLoopLoadGenerator add(String name, int weight, Operation operation) {
+        if(weight > 0){
+            operations.add(new WeightedOperation(name, operation, weight));
+            totalWeight += weight;
+        }
+        return this;
+    }
+
+    /**
+     * Runs warmupSeconds and then durationSeconds at rate requests per second and prints the report
+     * @param reportDirectory gets the percentile distribution of every operation as loadtest-name.hgrm
+     */
+    void run(int rate, int connections, int warmupSeconds, int durationSeconds, Path reportDirectory) throws InterruptedException, FileNotFoundException {
+        if(operations.isEmpty()){
+            throw new IllegalArgumentException("no operation has a positive weight");
+        }
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+        AtomicLong sequence = new AtomicLong();
+        AtomicLong maxLag = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>(connections);
+        for(int c = 0; c < connections; c++){
+            SplittableRandom random = new SplittableRandom(c);
+            Thread thread = new Thread(() -> {
+                for(long n = sequence.getAndIncrement(); ; n = sequence.getAndIncrement()){
+                    long due = start + n * intervalNanos;
+                    if(due >= end){
+                        return;
+                    }
+                    long now;
+                    while((now = System.nanoTime()) < due){
+                        LockSupport.parkNanos(due - now);
+                    }
+                    if(due >= measureStart){
+                        maxLag.accumulateAndGet(now - due, Math::max);
+                    }
+                    WeightedOperation operation = pick(random);
+                    boolean failed;
+                    try {
+                        failed = operation.operation.call(random) >= 400;
+                    } catch (Exception e){
+                        failed = true;
+                    }
+                    long done = System.nanoTime();
+                    operation.responseTimes.recordValue(done - due);
+                    if(failed){
+                        operation.errors.increment();
+                    }
+                    if(due >= measureStart){
+                        operation.responseTotal.recordValue(done - due);
+                        operation.serviceTotal.recordValue(done - now);
+                        if(failed){
+                            operation.measuredErrors.increment();
+                        }
+                    }
+                }
+            }, "load-connection-" + c);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        System.out.printf("%8s %10s %10s %10s %10s %10s%n", "second", "requests/s", "errors", "p50 ms", "p99 ms", "max ms");
+        for(int second = 1; threads.stream().anyMatch(Thread::isAlive); second++){
+            LockSupport.parkNanos(start + TimeUnit.SECONDS.toNanos(second) - System.nanoTime());
+            printInterval(second, second > warmupSeconds);
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+
+        Histogram responseAll = new Histogram(3);
+        Histogram serviceAll = new Histogram(3);
+        long errorsAll = 0;
+        for(WeightedOperation operation : operations){
+            responseAll.add(operation.responseTotal);
+            serviceAll.add(operation.serviceTotal);
+            errorsAll += operation.measuredErrors.sum();
+        }
+        System.out.println();
+        System.out.printf("Target %d requests/s over %d connections for %d s after %d s of warmup, largest send delay %.3f ms%n",
+                rate, connections, durationSeconds, warmupSeconds, maxLag.get() / NANOS_PER_MILLI);
+        System.out.println("Response time, from when each request was due (ms)");
+        printSummaryHeader();
+        for(WeightedOperation operation : operations){
+            printSummary(operation.name, operation.responseTotal, operation.measuredErrors.sum(), durationSeconds);
+        }
+        printSummary("all", responseAll, errorsAll, durationSeconds);
+        System.out.println("Service time, from when each request was sent (ms)");
+        printSummaryHeader();
+        for(WeightedOperation operation : operations){
+            printSummary(operation.name, operation.serviceTotal, operation.measuredErrors.sum(), durationSeconds);
+        }
+        printSummary("all", serviceAll, errorsAll, durationSeconds);
+
+        reportDirectory.toFile().mkdirs();
+        for(WeightedOperation operation : operations){
+            writeDistribution(reportDirectory.resolve("loadtest-" + operation.name + ".hgrm"), operation.responseTotal);
+        }
+        writeDistribution(reportDirectory.resolve("loadtest-all.hgrm"), responseAll);
+        System.out.println("Percentile distributions of the response times written to " + reportDirectory.toAbsolutePath() + "/loadtest-*.hgrm");
+    }
+
+    private WeightedOperation pick(SplittableRandom random) {
+        int ticket = random.nextInt(totalWeight);
+        for(WeightedOperation operation : operations){
+            ticket -= operation.weight;
+            if(ticket < 0){
+                return operation;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private void printInterval(int second, boolean measured) {
+        Histogram interval = new Histogram(3);
+        long errors = 0;
+        for(WeightedOperation operation : operations){
+            long operationErrors = operation.errors.sum();
+            errors += operationErrors - operation.intervalErrors;
+            operation.intervalErrors = operationErrors;
+            operation.responseInterval = operation.responseTimes.getIntervalHistogram(operation.responseInterval);
+            interval.add(operation.responseInterval);
+        }
+        System.out.printf("%8s %10d %10d %10.3f %10.3f %10.3f%n", second + (measured ? "" : " w"), interval.getTotalCount(), errors,
+                interval.getValueAtPercentile(50) / NANOS_PER_MILLI, interval.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                interval.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    private static void printSummaryHeader() {
+        System.out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "mean", "p50", "p90", "p99", "p99.9", "p99.99", "max");
+    }
+
+    private static void printSummary(String name, Histogram histogram, long errors, int durationSeconds) {
+        System.out.printf("%-10s %10d %8d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                name, histogram.getTotalCount(), errors, (double) histogram.getTotalCount() / durationSeconds,
+                histogram.getMean() / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99.99) / NANOS_PER_MILLI,
+                histogram.getMaxValue() / NANOS_PER_MILLI);
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws FileNotFoundException {
+        try(PrintStream printStream = new PrintStream(file.toFile())){
+            histogram.outputPercentileDistribution(printStream, NANOS_PER_MILLI);
+        }
+    }
+}
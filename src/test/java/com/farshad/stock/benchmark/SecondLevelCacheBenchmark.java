@@ -0,0 +1,107 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.metrics.SecondLevelCacheMetrics;
+import com.farshad.stock.service.StockService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StockService reads and price updates with the Hibernate second-level cache and without, StockCache is off so reads reach Hibernate
+ * <br>Stocks are picked with a Zipf distribution of exponent 0.99 like YCSB, a few stocks get most of the requests.
+ * The region holds a fifth of the stocks, the hit ratio is printed at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecondLevelCacheBenchmark {
+    private static final int    STOCK_COUNT     = 10000;
+    private static final int    REGION_ENTRIES  = STOCK_COUNT / 5;
+    private static final double ZIPF_EXPONENT   = 0.99;
+    private static final int    SAMPLES         = 1 << 16;
+
+    @Param({"false", "true"})
+    private boolean                         secondLevelCache;
+
+    private ConfigurableApplicationContext  context;
+    private StockService                    stockService;
+    private long[]                          skewedIds;
+    private int                             next;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start(WebApplicationType.NONE, "--stock.cache.enabled=false",
+                "--stock.second-level-cache.enabled=" + secondLevelCache,
+                "--stock.second-level-cache.max-entries=" + REGION_ENTRIES);
+        stockService = context.getBean(StockService.class);
+        List<CreateStockRequest> createStockRequests = new ArrayList<>(STOCK_COUNT);
+        for(int i = 0; i < STOCK_COUNT; i++){
+            createStockRequests.add(new CreateStockRequest("some Company" + i, 23.1));
+        }
+        long[] ids = stockService.createAll(createStockRequests).stream().mapToLong(StockDto::getId).toArray();
+        skewedIds = zipfSamples(ids, new SplittableRandom(42));
+    }
+
+    @TearDown
+    public void tearDown() {
+        if(secondLevelCache){
+            System.out.printf("%nsecond-level cache hit ratio %.3f%n", context.getBean(SecondLevelCacheMetrics.class).stockHitRatio());
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public StockDto getById() {
+        return stockService.getById(nextId());
+    }
+
+    /**
+     * every call sets a price that differs from the current one, the stock is evicted from the second-level cache
+     */
+    @Benchmark
+    public StockDto updatePrice() {
+        return stockService.updatePrice(nextId(), new UpdateStockPriceRequest(100.0 + next));
+    }
+
+    private long nextId() {
+        next++;
+        return skewedIds[next & (SAMPLES - 1)];
+    }
+
+    /**
+     * The rank of a stock is its position in ids shuffled, so popular stocks aren't neighbours
+     */
+    private static long[] zipfSamples(long[] ids, SplittableRandom random) {
+        long[] ranked = Arrays.copyOf(ids, ids.length);
+        for(int i = ranked.length - 1; i > 0; i--){
+            int j = random.nextInt(i + 1);
+            long id = ranked[i];
+            ranked[i] = ranked[j];
+            ranked[j] = id;
+        }
+        double[] cumulative = new double[ranked.length];
+        double sum = 0;
+        for(int rank = 0; rank < ranked.length; rank++){
+            sum += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulative[rank] = sum;
+        }
+        long[] samples = new long[SAMPLES];
+        for(int i = 0; i < SAMPLES; i++){
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            samples[i] = ranked[rank >= 0 ? rank : Math.min(-rank - 1, ranked.length - 1)];
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,95 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.service.StockService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Full MockMvc round trips through StockController, including JSON conversion and the service
+ * <br>With async=true the same requests go through AsyncStockController and its executor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockControllerBenchmark {
+    private static final int STOCK_COUNT = 1000;
+
+    @Param({"false", "true"})
+    private boolean                         async;
+
+    private ConfigurableApplicationContext  context;
+    private MockMvc                         mockMvc;
+    private long[]                          ids;
+    private int                             next;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET, "--stock.async.enabled=" + async);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        List<CreateStockRequest> createStockRequests = new ArrayList<>(STOCK_COUNT);
+        for(int i = 0; i < STOCK_COUNT; i++){
+            createStockRequests.add(new CreateStockRequest("some Company" + i, 23.1));
+        }
+        ids = context.getBean(StockService.class).createAll(createStockRequests).stream().mapToLong(StockDto::getId).toArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getById() throws Exception {
+        return perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + nextId()));
+    }
+
+    @Benchmark
+    public String updatePrice() throws Exception {
+        return perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + nextId())
+                .contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content("{\"current_price\":" + (100.0 + next) + "}"));
+    }
+
+    @Benchmark
+    public String retrieveAll() throws Exception {
+        return perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH));
+    }
+
+    /**
+     * Performs request, and the dispatch writing its result when the controller answered asynchronously
+     */
+    private String perform(RequestBuilder request) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(request).andReturn();
+        if(mvcResult.getRequest().isAsyncStarted()){
+            mvcResult = mockMvc.perform(asyncDispatch(mvcResult)).andReturn();
+        }
+        return mvcResult.getResponse().getContentAsString();
+    }
+
+    private long nextId() {
+        next++;
+        return ids[next % ids.length];
+    }
+}
@@ -0,0 +1,59 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.cache.ConcurrentStockCache;
+import com.farshad.stock.cache.PriceRingBuffer;
+import com.farshad.stock.candle.CandleInterval;
+import com.farshad.stock.candle.StockCandles;
+import com.farshad.stock.dto.StockDto;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+/**
+ * Prints the retained heap of everything the application keeps in memory per stock, to size the JVM for a number of symbols
+ * <br>Sizes are measured with JOL on the running JVM, so they follow its pointer compression and object alignment.
+ * <br>Arguments: number of cached stocks to measure (default 100000), symbols to extrapolate to (default 1000000),
+ * stock.history.buffer-size (default 256) and stock.candles.retained (default 1440).
+ */
+public class StockFootprintReport {
+    public static void main(String[] args) {
+        int stocks = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int symbols = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int historyBufferSize = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        int retainedCandles = args.length > 3 ? Integer.parseInt(args[3]) : 1440;
+
+        System.out.println(VM.current().details());
+
+        ConcurrentStockCache stockCache = new ConcurrentStockCache(stocks);
+        long lastUpdate = System.currentTimeMillis();
+        for(int i = 0; i < stocks; i++){
+            stockCache.put(new StockDto((long) i + 1000000, "COMPANY" + i, 23.1 + i, lastUpdate));
+        }
+        GraphLayout cacheLayout = GraphLayout.parseInstance(stockCache);
+        System.out.println(cacheLayout.toFootprint());
+        double cachedStockBytes = (double) cacheLayout.totalSize() / stocks;
+        double stockDtoBytes = (double) GraphLayout.parseInstance(stockCache.get(1000000l)).totalSize();
+
+        PriceRingBuffer priceRingBuffer = new PriceRingBuffer(historyBufferSize, Long.MIN_VALUE);
+        for(int i = 0; i < historyBufferSize; i++){
+            priceRingBuffer.append(lastUpdate + i, 23.1 + i);
+        }
+        long historyBytes = GraphLayout.parseInstance(priceRingBuffer).totalSize();
+
+        StockCandles stockCandles = new StockCandles(retainedCandles);
+        long candleTicks = (retainedCandles + 1) * CandleInterval.ONE_HOUR.getMillis() / CandleInterval.ONE_MINUTE.getMillis();
+        for(long i = 0; i < candleTicks; i++){
+            stockCandles.onTick(lastUpdate + i * CandleInterval.ONE_MINUTE.getMillis(), 23.1 + i % 7);
+        }
+        long candlesBytes = GraphLayout.parseInstance(stockCandles).totalSize();
+
+        double totalBytes = cachedStockBytes + historyBytes + candlesBytes;
+        System.out.println("Bytes per stock");
+        System.out.printf("  %-48s %10.1f%n", "StockDto with its name", stockDtoBytes);
+        System.out.printf("  %-48s %10.1f%n", "cached stock (cache entry, map node, order node)", cachedStockBytes);
+        System.out.printf("  %-48s %10d%n", "price history, " + historyBufferSize + " prices", historyBytes);
+        System.out.printf("  %-48s %10d%n", "candles, " + retainedCandles + " per interval", candlesBytes);
+        System.out.printf("  %-48s %10.1f%n", "total", totalBytes);
+        System.out.printf("Heap for %d symbols: cache %.1f MB, with full history and candles %.1f MB%n",
+                symbols, cachedStockBytes * symbols / (1024 * 1024), totalBytes * symbols / (1024 * 1024));
+    }
+}
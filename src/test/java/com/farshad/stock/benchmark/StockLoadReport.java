@@ -0,0 +1,124 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.service.StockService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH;
+
+/**
+ * Drives the REST API over real HTTP at a fixed rate and prints throughput and latency percentiles, to compare builds
+ * <br>The application is started on a random local port with stocks to work on, requests are paced open loop by OpenLoopLoadGenerator.
+ * <br>Arguments: requests per second (default 1000), measured seconds (default 30), warmup seconds (default 10),
+ * connections (default 64), operation mix as name:weight of get, list and update (default get:8,list:1,update:1),
+ * stocks to create (default 1000), directory for the .hgrm distributions (default target),
+ * any further ones are passed to the application, like --stock.async.enabled=true.
+ */
+public class StockLoadReport {
+    private static final int LIST_PAGE_LIMIT = 50;
+
+    public static void main(String[] args) throws Exception {
+        int rate = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int durationSeconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int warmupSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int connections = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        Map<String, Integer> mix = parseMix(args.length > 4 ? args[4] : "get:8,list:1,update:1");
+        int stocks = args.length > 5 ? Integer.parseInt(args[5]) : 1000;
+        String reportDirectory = args.length > 6 ? args[6] : "target";
+        String[] applicationArgs = args.length > 7
+                ? Arrays.stream(args, 7, args.length).filter(arg -> !arg.trim().isEmpty()).toArray(String[]::new)
+                : new String[0];
+
+        /**
+         * keep-alive connections are pooled per host, one for every connection of the generator
+         */
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+        ConfigurableApplicationContext context = BenchmarkApplication.start(WebApplicationType.SERVLET, applicationArgs);
+        try {
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<CreateStockRequest> createStockRequests = new ArrayList<>(stocks);
+            for(int i = 0; i < stocks; i++){
+                createStockRequests.add(new CreateStockRequest("load Company" + i, 23.1));
+            }
+            long[] ids = context.getBean(StockService.class).createAll(createStockRequests).stream().mapToLong(StockDto::getId).toArray();
+            System.out.println("Created " + ids.length + " stocks, application at " + baseUrl + " " + String.join(" ", applicationArgs));
+
+            new OpenLoopLoadGenerator()
+                    .add("get", mix.getOrDefault("get", 0), random ->
+                            send("GET", baseUrl + STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + ids[random.nextInt(ids.length)], null))
+                    .add("list", mix.getOrDefault("list", 0), random ->
+                            send("GET", baseUrl + STOCK_CONTROLLER_FULL_METHOD_PATH + "?after=" + (ids[random.nextInt(ids.length)] - 1)
+                                    + "&limit=" + LIST_PAGE_LIMIT, null))
+                    .add("update", mix.getOrDefault("update", 0), random ->
+                            send("PUT", baseUrl + STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + ids[random.nextInt(ids.length)],
+                                    "{\"current_price\":" + (1 + random.nextInt(1000000) / 100.0) + "}"))
+                    .run(rate, connections, warmupSeconds, durationSeconds, Paths.get(reportDirectory));
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new HashMap<>();
+        for(String entry : mix.split(",")){
+            String[] nameAndWeight = entry.trim().split(":");
+            if(nameAndWeight.length != 2){
+                throw new IllegalArgumentException("operation mix entries are name:weight but got " + entry);
+            }
+            weights.put(nameAndWeight[0].trim(), Integer.parseInt(nameAndWeight[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * The whole answer is read, also on errors, so the connection goes back to the keep-alive pool
+     */
+    private static int send(String method, String url, String jsonBody) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        if(jsonBody != null){
+            byte[] body = jsonBody.getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+            connection.setFixedLengthStreamingMode(body.length);
+            try(OutputStream outputStream = connection.getOutputStream()){
+                outputStream.write(body);
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream inputStream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if(inputStream != null){
+            try(InputStream answer = inputStream){
+                drain(answer);
+            }
+        }
+        return status;
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[8192];
+        while(inputStream.read(buffer) != -1){
+            /**
+             * only the status matters
+             */
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.mapper.SimpleStockMapperImpl;
+import com.farshad.stock.mapper.StockMapper;
+import com.farshad.stock.model.Stock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockMapperBenchmark {
+    private StockMapper         stockMapper;
+    private Stock               stock;
+    private CreateStockRequest  createStockRequest;
+
+    @Setup
+    public void setup() {
+        stockMapper = new SimpleStockMapperImpl();
+        stock = new Stock("some Company", 23.1, new Date());
+        stock.setId(146l);
+        createStockRequest = new CreateStockRequest("some Company", 23.1);
+    }
+
+    @Benchmark
+    public StockDto convertStock() {
+        return stockMapper.convert(stock);
+    }
+
+    @Benchmark
+    public Stock convertCreateStockRequest() {
+        return stockMapper.convert(createStockRequest);
+    }
+}
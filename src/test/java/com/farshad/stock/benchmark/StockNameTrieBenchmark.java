@@ -0,0 +1,104 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.search.StockNameTrie;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prefix search of GET /api/stocks/search over a synthetic symbol universe
+ * <br>Names are tickers of 1 to 5 letters, every fourth with an exchange suffix like BMW.DE.
+ * Prefixes of 1, 2 and 3 characters are taken from existing names, each search returns the first 10 ids.
+ * <br>scanList filters a list of all names the way the UI did, as the baseline.
+ * The heap taken by the trie is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class StockNameTrieBenchmark {
+    private static final String[]  EXCHANGES   = {".DE", ".L", ".PA", ".T", ".HK"};
+    private static final int       LIMIT       = 10;
+    private static final int       PREFIXES    = 1024;
+
+    @Param({"10000", "1000000"})
+    private int             size;
+    @Param({"1", "2", "3"})
+    private int             prefixLength;
+
+    private StockNameTrie   stockNameTrie;
+    private List<String>    names;
+    private String[]        prefixes;
+    private int             next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        Set<String> nameSet = new LinkedHashSet<>(size * 2);
+        while(nameSet.size() < size){
+            StringBuilder name = new StringBuilder();
+            int letters = 1 + random.nextInt(5);
+            for(int i = 0; i < letters; i++){
+                name.append((char) ('A' + random.nextInt(26)));
+            }
+            if(random.nextInt(4) == 0){
+                name.append(EXCHANGES[random.nextInt(EXCHANGES.length)]);
+            }
+            nameSet.add(name.toString());
+        }
+        names = new ArrayList<>(nameSet);
+        stockNameTrie = new StockNameTrie();
+        for(int i = 0; i < names.size(); i++){
+            stockNameTrie.add(names.get(i), i + 1);
+        }
+        prefixes = new String[PREFIXES];
+        for(int i = 0; i < PREFIXES; i++){
+            String name = names.get(random.nextInt(names.size()));
+            prefixes[i] = name.substring(0, Math.min(prefixLength, name.length())).toLowerCase(Locale.ROOT);
+        }
+        System.out.println("\ntrie of " + size + " names: " + GraphLayout.parseInstance(stockNameTrie).totalSize() + " bytes");
+    }
+
+    @Benchmark
+    public long[] search() {
+        return stockNameTrie.search(nextPrefix(), LIMIT);
+    }
+
+    @Benchmark
+    public List<String> scanList() {
+        String prefix = nextPrefix();
+        List<String> found = new ArrayList<>(LIMIT);
+        for(String name : names){
+            if(name.regionMatches(true, 0, prefix, 0, prefix.length())){
+                found.add(name);
+            }
+        }
+        found.sort(String.CASE_INSENSITIVE_ORDER);
+        return found.size() > LIMIT ? found.subList(0, LIMIT) : found;
+    }
+
+    /**
+     * adds a name and removes it again, the trie stays the same size
+     */
+    @Benchmark
+    public StockNameTrie addAndRemove() {
+        String name = nextPrefix() + "NEW" + next;
+        stockNameTrie.add(name, -next);
+        stockNameTrie.remove(name, -next);
+        return stockNameTrie;
+    }
+
+    private String nextPrefix() {
+        next++;
+        return prefixes[next & (PREFIXES - 1)];
+    }
+}
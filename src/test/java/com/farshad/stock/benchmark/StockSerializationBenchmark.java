@@ -0,0 +1,47 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.dto.StockDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes stock lists the way GET /api/stocks does, with the application's SNAKE_CASE naming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockSerializationBenchmark {
+    @Param({"1", "100", "10000"})
+    private int             size;
+
+    private ObjectWriter    objectWriter;
+    private List<StockDto>  stockDtoList;
+
+    @Setup
+    public void setup() {
+        objectWriter = Jackson2ObjectMapperBuilder.json().propertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE).build()
+                .writerFor(new TypeReference<List<StockDto>>() { });
+        stockDtoList = new ArrayList<>(size);
+        Date lastUpdate = new Date();
+        for(int i = 0; i < size; i++){
+            stockDtoList.add(new StockDto((long) i, "some Company" + i, 23.1 + i, lastUpdate));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeStockList() throws JsonProcessingException {
+        return objectWriter.writeValueAsBytes(stockDtoList);
+    }
+}
@@ -0,0 +1,77 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.service.StockService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StockService against the in-memory H2 database, with and without the stock cache and write-behind of prices
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockServiceBenchmark {
+    private static final int STOCK_COUNT = 1000;
+
+    @Param({"true", "false"})
+    private boolean                         cacheEnabled;
+
+    @Param({"false", "true"})
+    private boolean                         writeBehind;
+
+    private ConfigurableApplicationContext  context;
+    private StockService                    stockService;
+    private long[]                          ids;
+    private int                             next;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start(WebApplicationType.NONE, "--stock.cache.enabled=" + cacheEnabled,
+                "--stock.write-behind.enabled=" + writeBehind);
+        stockService = context.getBean(StockService.class);
+        List<CreateStockRequest> createStockRequests = new ArrayList<>(STOCK_COUNT);
+        for(int i = 0; i < STOCK_COUNT; i++){
+            createStockRequests.add(new CreateStockRequest("some Company" + i, 23.1));
+        }
+        ids = stockService.createAll(createStockRequests).stream().mapToLong(StockDto::getId).toArray();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StockDto getById() {
+        return stockService.getById(nextId());
+    }
+
+    /**
+     * every call sets a price that differs from the current one
+     */
+    @Benchmark
+    public StockDto updatePrice() {
+        return stockService.updatePrice(nextId(), new UpdateStockPriceRequest(100.0 + next));
+    }
+
+    @Benchmark
+    public List<StockDto> retrieveAll() {
+        return stockService.retrieveAll();
+    }
+
+    private long nextId() {
+        next++;
+        return ids[next % ids.length];
+    }
+}
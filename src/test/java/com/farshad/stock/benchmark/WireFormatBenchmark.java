@@ -0,0 +1,130 @@
+package com.farshad.stock.benchmark;
+
+import com.farshad.stock.converter.StockProtobufHttpMessageConverter;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.UpdateStockPricesRequest;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.farshad.stock.constants.Constants.CBOR_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.PROTOBUF_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.SMILE_MEDIA_TYPE_VALUE;
+
+/**
+ * Compares the wire formats StockController negotiates through the same message converters the application uses
+ * <br>Encodes the stock list of GET /api/stocks and decodes the body of PUT /api/stocks/prices.
+ * Payload sizes are printed once per trial, they don't depend on the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+    private static final Type STOCK_LIST_TYPE = new ParameterizedTypeReference<List<StockDto>>() { }.getType();
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    private String                                  format;
+    @Param({"1", "100", "10000"})
+    private int                                     size;
+
+    private GenericHttpMessageConverter<Object>     converter;
+    private MediaType                               mediaType;
+    private List<StockDto>                          stockDtoList;
+    private byte[]                                  pricesBody;
+
+    @Setup
+    public void setup() throws IOException {
+        switch (format){
+            case "json":
+                converter = new MappingJackson2HttpMessageConverter(snakeCase().build());
+                mediaType = MediaType.APPLICATION_JSON_UTF8;
+                break;
+            case "smile":
+                converter = new MappingJackson2SmileHttpMessageConverter(snakeCase().factory(new SmileFactory()).build());
+                mediaType = MediaType.parseMediaType(SMILE_MEDIA_TYPE_VALUE);
+                break;
+            case "cbor":
+                converter = new MappingJackson2CborHttpMessageConverter(snakeCase().factory(new CBORFactory()).build());
+                mediaType = MediaType.parseMediaType(CBOR_MEDIA_TYPE_VALUE);
+                break;
+            default:
+                converter = new StockProtobufHttpMessageConverter();
+                mediaType = MediaType.parseMediaType(PROTOBUF_MEDIA_TYPE_VALUE);
+        }
+        stockDtoList = new ArrayList<>(size);
+        List<StockPriceUpdate> prices = new ArrayList<>(size);
+        Date lastUpdate = new Date();
+        for(int i = 0; i < size; i++){
+            stockDtoList.add(new StockDto((long) i, "some Company" + i, 23.1 + i, lastUpdate));
+            prices.add(new StockPriceUpdate((long) i, 24.1 + i, lastUpdate));
+        }
+        MockHttpOutputMessage pricesMessage = new MockHttpOutputMessage();
+        /**
+         * the protobuf converter only reads price updates, the request is encoded the way a protobuf client would
+         */
+        if(converter instanceof StockProtobufHttpMessageConverter){
+            pricesBody = encodeProtobufPrices(prices);
+        }else{
+            converter.write(new UpdateStockPricesRequest(prices), UpdateStockPricesRequest.class, mediaType, pricesMessage);
+            pricesBody = pricesMessage.getBodyAsBytes();
+        }
+        System.out.println("\n" + format + " payload of " + size + " stocks: " + encodeStockList().length
+                + " bytes, " + size + " price updates: " + pricesBody.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeStockList() throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(stockDtoList, STOCK_LIST_TYPE, mediaType, outputMessage);
+        return outputMessage.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public Object decodePriceUpdates() throws IOException {
+        return converter.read(UpdateStockPricesRequest.class, null, new MockHttpInputMessage(pricesBody));
+    }
+
+    private static Jackson2ObjectMapperBuilder snakeCase() {
+        return Jackson2ObjectMapperBuilder.json().propertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+    }
+
+    private static byte[] encodeProtobufPrices(List<StockPriceUpdate> prices) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        for(StockPriceUpdate price : prices){
+            output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(CodedOutputStream.computeInt64Size(1, price.getId())
+                    + CodedOutputStream.computeDoubleSize(2, price.getCurrentPrice())
+                    + CodedOutputStream.computeInt64Size(3, price.getLastUpdate().getTime()));
+            output.writeInt64(1, price.getId());
+            output.writeDouble(2, price.getCurrentPrice());
+            output.writeInt64(3, price.getLastUpdate().getTime());
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+}
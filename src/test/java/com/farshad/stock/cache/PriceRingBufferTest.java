@@ -0,0 +1,82 @@
+package com.farshad.stock.cache;
+
+import com.farshad.stock.dto.PricePointDto;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PriceRingBufferTest {
+
+    @Test
+    public void range_NewStockBuffer_ShouldReturnPricesInRange(){
+        //given
+        PriceRingBuffer buffer = new PriceRingBuffer(4, Long.MIN_VALUE);
+        buffer.append(100, 1.1);
+        buffer.append(200, 1.2);
+        buffer.append(300, 1.3);
+        //when
+        List<PricePointDto> pricePoints = buffer.range(150, 300);
+        //then
+        assertEquals(Arrays.asList(new PricePointDto(new Date(200),1.2),new PricePointDto(new Date(300),1.3)),pricePoints);
+    }
+
+    @Test
+    public void append_MoreThanCapacity_ShouldKeepNewestAndMoveCoveredFrom(){
+        //given
+        PriceRingBuffer buffer = new PriceRingBuffer(2, Long.MIN_VALUE);
+        //when
+        buffer.append(100, 1.1);
+        buffer.append(200, 1.2);
+        buffer.append(300, 1.3);
+        //then
+        assertEquals(2,buffer.size());
+        assertEquals(200,buffer.getCoveredFrom());
+        assertNull(buffer.range(100, 300));
+        assertEquals(Arrays.asList(new PricePointDto(new Date(200),1.2),new PricePointDto(new Date(300),1.3)),buffer.range(200, 300));
+    }
+
+    @Test
+    public void append_OutOfOrder_ShouldKeepTimeOrder(){
+        //given
+        PriceRingBuffer buffer = new PriceRingBuffer(3, Long.MIN_VALUE);
+        //when
+        buffer.append(100, 1.1);
+        buffer.append(300, 1.3);
+        buffer.append(200, 1.2);
+        //then
+        assertEquals(Arrays.asList(new PricePointDto(new Date(100),1.1),new PricePointDto(new Date(200),1.2),new PricePointDto(new Date(300),1.3)),
+                buffer.range(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void append_BeyondInitialLength_ShouldGrowUntilCapacity(){
+        //given
+        int capacity = 100;
+        PriceRingBuffer buffer = new PriceRingBuffer(capacity, Long.MIN_VALUE);
+        //when
+        for(int i = 0; i < capacity * 2; i++){
+            buffer.append(i, i);
+        }
+        //then
+        assertEquals(capacity,buffer.size());
+        assertEquals(capacity,buffer.getCoveredFrom());
+        List<PricePointDto> pricePoints = buffer.range(capacity, Long.MAX_VALUE);
+        assertEquals(capacity,pricePoints.size());
+        assertEquals(new Date(capacity * 2 - 1),pricePoints.get(capacity - 1).getTime());
+    }
+
+    @Test
+    public void range_BeforeCoveredFrom_ShouldReturnNull(){
+        //given
+        PriceRingBuffer buffer = new PriceRingBuffer(4, 200);
+        buffer.append(200, 1.2);
+        //when
+        List<PricePointDto> pricePoints = buffer.range(100, 300);
+        //then
+        assertNull(pricePoints);
+    }
+}
@@ -0,0 +1,52 @@
+package com.farshad.stock.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RenderedPageCacheTest {
+    private RenderedPageCache renderedPageCache;
+
+    @Before
+    public void init(){
+        renderedPageCache = new RenderedPageCache(2);
+    }
+
+    @Test
+    public void get_SameVersion_ShouldReturnPage(){
+        //given
+        byte[] content = {1, 2, 3};
+        renderedPageCache.put("0/50/id/asc","\"a-1\"",content);
+        //when then
+        assertArrayEquals(content,renderedPageCache.get("0/50/id/asc","\"a-1\""));
+        assertNull(renderedPageCache.get("0/50/id/asc","\"a-2\""));
+        assertNull(renderedPageCache.get("1/50/id/asc","\"a-1\""));
+    }
+
+    @Test
+    public void put_FullOfOlderVersions_ShouldDropThem(){
+        //given
+        renderedPageCache.put("0/50/id/asc","\"a-1\"",new byte[]{1});
+        renderedPageCache.put("1/50/id/asc","\"a-1\"",new byte[]{2});
+        //when
+        renderedPageCache.put("0/50/name/asc","\"a-2\"",new byte[]{3});
+        //then
+        assertEquals(1,renderedPageCache.size());
+        assertArrayEquals(new byte[]{3},renderedPageCache.get("0/50/name/asc","\"a-2\""));
+    }
+
+    @Test
+    public void put_FullOfCurrentVersion_ShouldNotCache(){
+        //given
+        renderedPageCache.put("0/50/id/asc","\"a-1\"",new byte[]{1});
+        renderedPageCache.put("1/50/id/asc","\"a-1\"",new byte[]{2});
+        //when
+        renderedPageCache.put("2/50/id/asc","\"a-1\"",new byte[]{3});
+        renderedPageCache.put("0/50/id/asc","\"a-1\"",new byte[]{4});
+        //then
+        assertEquals(2,renderedPageCache.size());
+        assertNull(renderedPageCache.get("2/50/id/asc","\"a-1\""));
+        assertArrayEquals(new byte[]{4},renderedPageCache.get("0/50/id/asc","\"a-1\""));
+    }
+}
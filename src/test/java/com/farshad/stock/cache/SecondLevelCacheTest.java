@@ -0,0 +1,109 @@
+package com.farshad.stock.cache;
+
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.metrics.SecondLevelCacheMetrics;
+import com.farshad.stock.model.Stock;
+import com.farshad.stock.service.StockService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stocks are evicted from StockCache first so that reads go to the second-level cache
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SecondLevelCacheTest {
+    @Autowired
+    private StockService            stockService;
+    @Autowired
+    private StockCache              stockCache;
+    @Autowired
+    private StockRepository         stockRepository;
+    @Autowired
+    private EntityManagerFactory    entityManagerFactory;
+    @Autowired
+    private SecondLevelCacheMetrics secondLevelCacheMetrics;
+    private Statistics              statistics;
+
+    @Before
+    public void init(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void getById_NotInStockCache_ShouldBeServedFromSecondLevelCache() {
+        //given
+        StockDto stockDto = stockService.create(new CreateStockRequest("second-level Company1", 10.0));
+        stockCache.evict(stockDto.getId());
+        long hits = statistics.getDomainDataRegionStatistics(Stock.CACHE_REGION).getHitCount();
+        long entityLoads = statistics.getEntityLoadCount();
+
+        try {
+            //when
+            StockDto stockDtoLoaded = stockService.getById(stockDto.getId());
+
+            //then
+            assertEquals(stockDto, stockDtoLoaded);
+            assertEquals(hits + 1, statistics.getDomainDataRegionStatistics(Stock.CACHE_REGION).getHitCount());
+            assertEquals(entityLoads, statistics.getEntityLoadCount());
+            assertTrue(secondLevelCacheMetrics.stockHitRatio() > 0);
+        } finally {
+            stockService.deleteById(stockDto.getId());
+        }
+    }
+
+    @Test
+    public void updatePrice_CachedStock_ShouldEvictItFromSecondLevelCache() {
+        //given
+        StockDto stockDto = stockService.create(new CreateStockRequest("second-level Company2", 10.0));
+
+        try {
+            //when
+            stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(11.0));
+            stockCache.evict(stockDto.getId());
+
+            //then
+            assertFalse(entityManagerFactory.getCache().contains(Stock.class, stockDto.getId()));
+            assertEquals(11.0, stockService.getById(stockDto.getId()).getCurrentPrice(), 0);
+        } finally {
+            stockService.deleteById(stockDto.getId());
+        }
+    }
+
+    @Test
+    public void findAll_Repeated_ShouldHitQueryCacheUntilAStockIsCreated() {
+        //given
+        int stockCount = stockRepository.findAll().size();
+        long queryHits = statistics.getQueryCacheHitCount();
+
+        //when
+        stockRepository.findAll();
+
+        //then
+        assertEquals(queryHits + 1, statistics.getQueryCacheHitCount());
+
+        //when
+        StockDto stockDto = stockService.create(new CreateStockRequest("second-level Company3", 10.0));
+
+        try {
+            //then
+            assertEquals(stockCount + 1, stockRepository.findAll().size());
+            assertEquals(queryHits + 1, statistics.getQueryCacheHitCount());
+        } finally {
+            stockService.deleteById(stockDto.getId());
+        }
+    }
+}
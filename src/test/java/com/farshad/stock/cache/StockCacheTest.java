@@ -0,0 +1,189 @@
+package com.farshad.stock.cache;
+
+import com.farshad.stock.dto.StockDto;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StockCacheTest {
+    private StockCache stockCache;
+
+    @Before
+    public void init(){
+        stockCache = new ConcurrentStockCache(2);
+    }
+
+    @Test
+    public void get_NonCachedId_ShouldReturnNullAndCountMiss(){
+        //given
+        Long id = 1l;
+        //when
+        StockDto actualOutput = stockCache.get(id);
+        //then
+        assertNull(actualOutput);
+        assertEquals(1,stockCache.getMissCount());
+        assertEquals(0,stockCache.getHitCount());
+    }
+
+    @Test
+    public void get_CachedId_ShouldReturnStockDtoAndCountHit(){
+        //given
+        StockDto stockDto = new StockDto(1l,"some Company",23.1,new Date());
+        stockCache.put(stockDto);
+        //when
+        StockDto actualOutput = stockCache.get(stockDto.getId());
+        //then
+        assertEquals(stockDto,actualOutput);
+        assertEquals(1,stockCache.getHitCount());
+    }
+
+    @Test
+    public void put_SameIdTwice_ShouldKeepLatest(){
+        //given
+        StockDto stockDto = new StockDto(1l,"some Company",23.1,new Date());
+        StockDto stockDtoUpdated = new StockDto(1l,"some Company",25.1,new Date());
+        //when
+        stockCache.put(stockDto);
+        stockCache.put(stockDtoUpdated);
+        //then
+        assertEquals(stockDtoUpdated,stockCache.get(1l));
+        assertEquals(1,stockCache.size());
+    }
+
+    @Test
+    public void put_MoreThanMaxSize_ShouldEvictEldest(){
+        //given
+        StockDto stockDto1 = new StockDto(1l,"some Company1",23.1,new Date());
+        StockDto stockDto2 = new StockDto(2l,"some Company2",23.2,new Date());
+        StockDto stockDto3 = new StockDto(3l,"some Company3",23.3,new Date());
+        //when
+        stockCache.put(stockDto1);
+        stockCache.put(stockDto2);
+        stockCache.put(stockDto3);
+        //then
+        assertEquals(2,stockCache.size());
+        assertEquals(1,stockCache.getEvictionCount());
+        assertNull(stockCache.get(1l));
+        assertEquals(stockDto3,stockCache.get(3l));
+    }
+
+    @Test
+    public void putIfUnchanged_AfterEvict_ShouldNotCache(){
+        //given
+        StockDto stockDto = new StockDto(1l,"some Company",23.1,new Date());
+        long generation = stockCache.generation();
+        //when
+        stockCache.evict(stockDto.getId());
+        stockCache.putIfUnchanged(stockDto,generation);
+        //then
+        assertNull(stockCache.get(stockDto.getId()));
+    }
+
+    @Test
+    public void putIfUnchanged_CachedId_ShouldNotOverwrite(){
+        //given
+        StockDto stockDto = new StockDto(1l,"some Company",23.1,new Date());
+        StockDto stockDtoStale = new StockDto(1l,"some Company",21.1,new Date());
+        stockCache.put(stockDto);
+        //when
+        stockCache.putIfUnchanged(stockDtoStale,stockCache.generation());
+        //then
+        assertEquals(stockDto,stockCache.get(1l));
+    }
+
+    @Test
+    public void putIfUnchanged_BetweenLookupAndInsertOfPut_ShouldBeOverwritten(){
+        //given
+        StockDto stockDtoStale = new StockDto(1l,"some Company",21.1,new Date());
+        long generation = stockCache.generation();
+        /**
+         * put reads the id again to insert after it moved the generation, a reader caches what it loaded right then
+         */
+        StockDto stockDtoCommitted = new StockDto(1l,"some Company",23.1,new Date()){
+            private boolean interleaved;
+
+            @Override
+            public Long getId() {
+                if(!interleaved && stockCache.generation() != generation){
+                    interleaved = true;
+                    stockCache.putIfUnchanged(stockDtoStale,stockCache.generation());
+                }
+                return super.getId();
+            }
+        };
+        //when
+        stockCache.put(stockDtoCommitted);
+        //then
+        assertEquals(23.1,stockCache.get(1l).getCurrentPrice(),0);
+        assertEquals(1,stockCache.size());
+    }
+
+    @Test
+    public void evict_ManyStocks_ShouldKeepEvictingEldest(){
+        //given
+        StockDto stockDto1 = new StockDto(1l,"some Company1",23.1,new Date());
+        stockCache.put(stockDto1);
+        for(long id = 100; id < 1100; id++){
+            stockCache.put(new StockDto(id,"some Company" + id,23.1,new Date()));
+            stockCache.evict(id);
+        }
+        //when
+        stockCache.put(new StockDto(2l,"some Company2",23.2,new Date()));
+        stockCache.put(new StockDto(3l,"some Company3",23.3,new Date()));
+        //then
+        assertNull(stockCache.get(1l));
+        assertEquals(2,stockCache.size());
+        assertEquals(1,stockCache.getEvictionCount());
+    }
+
+    @Test
+    public void getAll_AfterPutAll_ShouldReturnList(){
+        //given
+        List<StockDto> stockDtoList = Arrays.asList(new StockDto(1l,"some Company1",23.1,new Date()),
+                new StockDto(2l,"some Company2",23.2,new Date()));
+        //when
+        stockCache.putAll(stockDtoList,stockCache.generation());
+        //then
+        assertEquals(stockDtoList,stockCache.getAll());
+    }
+
+    @Test
+    public void getAll_AfterPriceUpdate_ShouldReturnUpdatedList(){
+        //given
+        StockDto stockDtoUpdated = new StockDto(2l,"some Company2",25.2,new Date());
+        stockCache.putAll(Arrays.asList(new StockDto(1l,"some Company1",23.1,new Date()),
+                new StockDto(2l,"some Company2",23.2,new Date())),stockCache.generation());
+        //when
+        stockCache.put(stockDtoUpdated);
+        //then
+        assertEquals(stockDtoUpdated,stockCache.getAll().get(1));
+    }
+
+    @Test
+    public void getAll_AfterEvict_ShouldReturnNull(){
+        //given
+        stockCache.putAll(Arrays.asList(new StockDto(1l,"some Company1",23.1,new Date()),
+                new StockDto(2l,"some Company2",23.2,new Date())),stockCache.generation());
+        //when
+        stockCache.evict(1l);
+        //then
+        assertNull(stockCache.getAll());
+    }
+
+    @Test
+    public void getAll_ListBiggerThanMaxSize_ShouldReturnNull(){
+        //given
+        stockCache.putAll(Arrays.asList(new StockDto(1l,"some Company1",23.1,new Date()),
+                new StockDto(2l,"some Company2",23.2,new Date()),
+                new StockDto(3l,"some Company3",23.3,new Date())),stockCache.generation());
+        //when
+        List<StockDto> actualOutput = stockCache.getAll();
+        //then
+        assertNull(actualOutput);
+    }
+}
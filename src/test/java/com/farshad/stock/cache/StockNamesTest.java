@@ -0,0 +1,56 @@
+package com.farshad.stock.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StockNamesTest {
+    private StockNames stockNames;
+
+    @Before
+    public void init(){
+        stockNames = new StockNames();
+    }
+
+    @Test
+    public void getId_AfterPut_ShouldReturnId(){
+        //when
+        stockNames.put(1l,"some Company");
+        //then
+        assertEquals(Long.valueOf(1l),stockNames.getId("some Company"));
+        assertNull(stockNames.getId("some Company2"));
+    }
+
+    @Test
+    public void getName_AfterPut_ShouldReturnName(){
+        //when
+        stockNames.put(1l,"some Company");
+        //then
+        assertEquals("some Company",stockNames.getName(1l));
+        assertNull(stockNames.getName(2l));
+    }
+
+    @Test
+    public void remove_Id_ShouldForgetItsName(){
+        //given
+        stockNames.put(1l,"some Company");
+        //when
+        stockNames.remove(1l);
+        //then
+        assertNull(stockNames.getId("some Company"));
+        assertEquals(0,stockNames.size());
+    }
+
+    @Test
+    public void remove_NameOfOlderId_ShouldKeepNewerId(){
+        //given
+        stockNames.put(1l,"some Company");
+        stockNames.remove(1l);
+        stockNames.put(2l,"some Company");
+        //when
+        stockNames.remove("some Company",1l);
+        //then
+        assertEquals(Long.valueOf(2l),stockNames.getId("some Company"));
+    }
+}
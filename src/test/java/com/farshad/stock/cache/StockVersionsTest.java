@@ -0,0 +1,55 @@
+package com.farshad.stock.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StockVersionsTest {
+    private StockVersions stockVersions;
+
+    @Before
+    public void init(){
+        stockVersions = new StockVersions(4);
+    }
+
+    @Test
+    public void changed_OneId_ShouldChangeListAndStockETag(){
+        //given
+        String listETag = stockVersions.listETag();
+        String stockETag = stockVersions.stockETag(1l);
+        //when
+        stockVersions.changed(1l);
+        //then
+        assertNotEquals(listETag,stockVersions.listETag());
+        assertNotEquals(stockETag,stockVersions.stockETag(1l));
+        assertEquals(1,stockVersions.globalVersion());
+    }
+
+    @Test
+    public void changed_ManyIds_ShouldNeverLowerAStockVersion(){
+        //given
+        stockVersions.changed(1l);
+        long version = stockVersions.stockVersion(1l);
+        //when
+        for(long id = 2; id < 100; id++){
+            stockVersions.changed(id);
+        }
+        //then
+        assertTrue(stockVersions.stockVersion(1l) >= version);
+        assertEquals(99,stockVersions.globalVersion());
+    }
+
+    @Test
+    public void stockETag_NotChangedId_ShouldBeQuoted(){
+        //when
+        String stockETag = stockVersions.stockETag(7l);
+        //then
+        assertTrue(stockETag.startsWith("\"") && stockETag.endsWith("\""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new_SlotsNotPowerOfTwo_ShouldThrow(){
+        new StockVersions(3);
+    }
+}
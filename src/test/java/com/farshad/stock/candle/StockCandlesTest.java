@@ -0,0 +1,105 @@
+package com.farshad.stock.candle;
+
+import com.farshad.stock.dto.CandleDto;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class StockCandlesTest {
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    public void onTick_SameMinute_ShouldUpdateOpenCandle(){
+        //given
+        StockCandles stockCandles = new StockCandles(10);
+        //when
+        stockCandles.onTick(1000, 10.0);
+        stockCandles.onTick(2000, 12.0);
+        stockCandles.onTick(3000, 9.0);
+        stockCandles.onTick(4000, 11.0);
+        //then
+        assertEquals(Collections.singletonList(new CandleDto(new Date(0),10.0,12.0,9.0,11.0,false)),
+                stockCandles.candles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, 4000));
+    }
+
+    @Test
+    public void onTick_NextMinute_ShouldCloseCandle(){
+        //given
+        StockCandles stockCandles = new StockCandles(10);
+        stockCandles.onTick(1000, 10.0);
+        stockCandles.onTick(2000, 12.0);
+        //when
+        stockCandles.onTick(MINUTE + 1000, 13.0);
+        //then
+        assertEquals(Arrays.asList(new CandleDto(new Date(0),10.0,12.0,10.0,12.0,true),
+                new CandleDto(new Date(MINUTE),13.0,13.0,13.0,13.0,false)),
+                stockCandles.candles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, MINUTE + 1000));
+        assertEquals(Collections.singletonList(new CandleDto(new Date(0),10.0,13.0,10.0,13.0,false)),
+                stockCandles.candles(CandleInterval.FIVE_MINUTES, Long.MIN_VALUE, Long.MAX_VALUE, MINUTE + 1000));
+    }
+
+    @Test
+    public void onTick_OutOfOrderInMinute_ShouldKeepOpenAndCloseByTime(){
+        //given
+        StockCandles stockCandles = new StockCandles(10);
+        stockCandles.onTick(2000, 10.0);
+        //when
+        stockCandles.onTick(1000, 8.0);
+        stockCandles.onTick(3000, 11.0);
+        stockCandles.onTick(2500, 12.0);
+        //then
+        assertEquals(Collections.singletonList(new CandleDto(new Date(0),8.0,12.0,8.0,11.0,false)),
+                stockCandles.candles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, 3000));
+    }
+
+    @Test
+    public void onTick_LateTickForClosedCandle_ShouldUpdateHighAndLow(){
+        //given
+        StockCandles stockCandles = new StockCandles(10);
+        stockCandles.onTick(1000, 10.0);
+        stockCandles.onTick(MINUTE + 1000, 13.0);
+        //when
+        stockCandles.onTick(2000, 7.0);
+        //then
+        assertEquals(new CandleDto(new Date(0),10.0,10.0,7.0,10.0,true),
+                stockCandles.candles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, MINUTE + 2000).get(0));
+    }
+
+    @Test
+    public void candles_MoreThanRetained_ShouldKeepNewestInRange(){
+        //given
+        StockCandles stockCandles = new StockCandles(2);
+        for(int i = 0; i < 5; i++){
+            stockCandles.onTick(i * MINUTE, i);
+        }
+        //when
+        List<CandleDto> candles = stockCandles.candles(CandleInterval.ONE_MINUTE, 0, 3 * MINUTE, 4 * MINUTE);
+        //then
+        assertEquals(Arrays.asList(new CandleDto(new Date(2 * MINUTE),2.0,2.0,2.0,2.0,true),
+                new CandleDto(new Date(3 * MINUTE),3.0,3.0,3.0,3.0,true)), candles);
+    }
+
+    @Test
+    public void candles_OpenCandleOfElapsedInterval_ShouldBeClosed(){
+        //given
+        StockCandles stockCandles = new StockCandles(10);
+        stockCandles.onTick(1000, 10.0);
+        //when
+        List<CandleDto> candles = stockCandles.candles(CandleInterval.ONE_MINUTE, Long.MIN_VALUE, Long.MAX_VALUE, MINUTE);
+        //then
+        assertEquals(Collections.singletonList(new CandleDto(new Date(0),10.0,10.0,10.0,10.0,true)), candles);
+        assertFalse(stockCandles.candles(CandleInterval.FIVE_MINUTES, Long.MIN_VALUE, Long.MAX_VALUE, MINUTE).get(0).isClosed());
+    }
+
+    @Test
+    public void fromCode_UnknownCode_ShouldReturnNull(){
+        //when then
+        assertEquals(CandleInterval.ONE_HOUR, CandleInterval.fromCode("1h"));
+        assertNull(CandleInterval.fromCode("2m"));
+    }
+}
@@ -0,0 +1,229 @@
+package com.farshad.stock.controller;
+
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.metrics.StockMetrics;
+import com.farshad.stock.service.CandleService;
+import com.farshad.stock.service.PriceHistoryService;
+import com.farshad.stock.service.StockExportService;
+import com.farshad.stock.service.StockImportService;
+import com.farshad.stock.service.StockSearchService;
+import com.farshad.stock.service.StockService;
+import com.farshad.stock.stream.PriceEventBroadcaster;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.farshad.stock.constants.ErrorMessages.ENTITY_NOT_FOUND;
+import static com.farshad.stock.constants.ErrorMessages.SERVER_BUSY;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = AsyncStockController.class,
+        properties = {"stock.async.enabled=true", "stock.async.threads=1", "stock.async.queue-capacity=0"})
+@Import({StockMetrics.class, SimpleMeterRegistry.class})
+public class AsyncStockControllerTest {
+    @MockBean
+    private StockService stockService;
+    @MockBean
+    private PriceHistoryService priceHistoryService;
+    @MockBean
+    private PriceEventBroadcaster priceEventBroadcaster;
+    @MockBean
+    private CandleService candleService;
+    @MockBean
+    private StockSearchService stockSearchService;
+    @MockBean
+    private StockImportService stockImportService;
+    @MockBean
+    private StockExportService stockExportService;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private StockMetrics stockMetrics;
+
+    private Gson gson;
+
+    @Before
+    public void init(){
+        gson = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create();
+    }
+
+    @Test
+    public void getById_CachedStock_ShouldAnswerWithoutRepositoryThread() throws Exception {
+        //given
+        Long id = 146l;
+        StockDto expectedStockDto = new StockDto(id,"some Company",23.1,new Date());
+        when(stockService.getCached(id)).thenReturn(expectedStockDto);
+        Timer timer = stockMetrics.timer(StockMetrics.CONTROLLER_TIMER, "AsyncStockController.getStockById");
+        long timedBefore = timer.count();
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id",is(id.intValue())))
+                .andExpect(jsonPath("$.name",is(expectedStockDto.getName())))
+        ;
+        verify(stockService, never()).getById(id);
+        assertEquals(timedBefore + 1, timer.count());
+    }
+
+    @Test
+    public void getById_NotCachedStock_ShouldLoadOnRepositoryThread() throws Exception {
+        //given
+        Long id = 146l;
+        StockDto expectedStockDto = new StockDto(id,"some Company",23.1,new Date());
+        AtomicReference<String> loadingThread = new AtomicReference<>();
+        when(stockService.getById(id)).thenAnswer(invocation -> {
+            loadingThread.set(Thread.currentThread().getName());
+            return expectedStockDto;
+        });
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id",is(id.intValue())))
+        ;
+        assertTrue(loadingThread.get(), loadingThread.get().startsWith("stock-repository-"));
+    }
+
+    @Test
+    public void getById_IfNoneMatchCurrentETag_ShouldReturnNotModifiedWithoutReading() throws Exception {
+        //given
+        Long id = 146l;
+        when(stockService.stockETag(id)).thenReturn("\"a1-3\"");
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id).header(HttpHeaders.IF_NONE_MATCH, "\"a1-3-json\""))
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+        ;
+        verify(stockService, never()).getCached(id);
+        verify(stockService, never()).getById(id);
+    }
+
+    @Test
+    public void getById_NotExistingId_ShouldReturnBadRequest() throws Exception {
+        //given
+        Long id = 146l;
+        when(stockService.getById(id)).thenThrow(new EntityNotFoundException(id + ""));
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message",is(ENTITY_NOT_FOUND)))
+        ;
+    }
+
+    @Test
+    public void create_ValidRequest_ShouldReturnCreated() throws Exception {
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("some Company",23.1);
+        StockDto expectedStockDto = new StockDto(1000l,"some Company",23.1,new Date());
+        when(stockService.create(any(CreateStockRequest.class))).thenReturn(expectedStockDto);
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(gson.toJson(createStockRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id",is(1000)))
+        ;
+    }
+
+    @Test
+    public void update_RepositoryThreadBusy_ShouldReturnServiceUnavailable() throws Exception {
+        //given
+        Long id = 146l;
+        UpdateStockPriceRequest updateStockPriceRequest = new UpdateStockPriceRequest(24.5);
+        CountDownLatch updating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(stockService.updatePrice(eq(id), any(UpdateStockPriceRequest.class))).thenAnswer(invocation -> {
+            updating.countDown();
+            release.await();
+            return new StockDto(id,"some Company",24.5,new Date());
+        });
+        MvcResult busyResult = mockMvc.perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(gson.toJson(updateStockPriceRequest)))
+                .andReturn();
+        assertTrue(updating.await(10, TimeUnit.SECONDS));
+
+        //when then
+        try {
+            mockMvc.perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id)
+                    .contentType(MediaType.APPLICATION_JSON_UTF8)
+                    .content(gson.toJson(updateStockPriceRequest)))
+                    .andDo(print())
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(jsonPath("$.message",is(SERVER_BUSY)))
+            ;
+        } finally {
+            release.countDown();
+        }
+        mockMvc.perform(asyncDispatch(busyResult))
+                .andExpect(status().isOk())
+        ;
+    }
+}
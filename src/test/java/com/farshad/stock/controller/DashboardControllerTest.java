@@ -0,0 +1,109 @@
+package com.farshad.stock.controller;
+
+import com.farshad.stock.cache.RenderedPageCache;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.metrics.StockMetrics;
+import com.farshad.stock.service.StockService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static com.farshad.stock.constants.ErrorMessages.INVALID_SORT;
+import static com.farshad.stock.constants.URlConstants.DASHBOARD_CONTROLLER_ALL_STOCKS;
+import static com.farshad.stock.constants.URlConstants.DASHBOARD_CONTROLLER_BASE_PATH;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(controllers = DashboardController.class)
+@Import({StockMetrics.class, SimpleMeterRegistry.class, RenderedPageCache.class})
+public class DashboardControllerTest {
+    private static final String DASHBOARD_PATH = DASHBOARD_CONTROLLER_BASE_PATH + DASHBOARD_CONTROLLER_ALL_STOCKS;
+
+    @MockBean
+    private StockService stockService;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void showAll_SameVersionTwice_ShouldRenderOnce() throws Exception {
+        //given
+        when(stockService.listETag()).thenReturn("\"a1-1\"");
+        when(stockService.retrieveSortedPage(1,2,"name",false)).thenReturn(new PageImpl<>(Arrays.asList(
+                new StockDto(1000l,"some Company",23.1,new Date()),
+                new StockDto(1001l,"other Company",23.2,new Date())),PageRequest.of(1,2),5));
+
+        //when then
+        for(int i = 0; i < 2; i++){
+            mockMvc.perform(get(DASHBOARD_PATH).param("page","1").param("size","2").param("sort","name").param("direction","desc"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("text/html;charset=UTF-8"))
+                    .andExpect(content().string(containsString("other Company")))
+                    .andExpect(content().string(containsString("Page 2 of 3, 5 stocks")))
+                    .andExpect(content().string(containsString("/dashboard/stocks?page=2&amp;size=2&amp;sort=name&amp;direction=desc")))
+            ;
+        }
+        verify(stockService,times(1)).retrieveSortedPage(1,2,"name",false);
+    }
+
+    @Test
+    public void showAll_StocksChanged_ShouldRenderAgain() throws Exception {
+        //given
+        when(stockService.listETag()).thenReturn("\"a1-2\"","\"a1-3\"");
+        when(stockService.retrieveSortedPage(0,50,"id",true))
+                .thenReturn(new PageImpl<>(Arrays.asList(new StockDto(1000l,"some Company",23.1,new Date())),PageRequest.of(0,50),1))
+                .thenReturn(new PageImpl<>(Arrays.asList(new StockDto(1000l,"some Company",24.5,new Date())),PageRequest.of(0,50),1));
+        mockMvc.perform(get(DASHBOARD_PATH))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("23.1")))
+        ;
+
+        //when then
+        mockMvc.perform(get(DASHBOARD_PATH))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("24.5")))
+        ;
+        verify(stockService,times(2)).retrieveSortedPage(0,50,"id",true);
+    }
+
+    @Test
+    public void showAll_IfNoneMatchCurrentETag_ShouldReturnNotModifiedWithoutReading() throws Exception {
+        //given
+        when(stockService.listETag()).thenReturn("\"a1-4\"");
+
+        //when then
+        mockMvc.perform(get(DASHBOARD_PATH).header(HttpHeaders.IF_NONE_MATCH,"\"a1-4\""))
+                .andExpect(status().isNotModified())
+        ;
+        verify(stockService,never()).retrieveSortedPage(anyInt(),anyInt(),anyString(),anyBoolean());
+    }
+
+    @Test
+    public void showAll_UnknownDirection_ShouldReturnBadRequest() throws Exception {
+        //when then
+        mockMvc.perform(get(DASHBOARD_PATH).param("direction","up"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message",is(INVALID_SORT)))
+        ;
+    }
+}
@@ -1,12 +1,32 @@
 package com.farshad.stock.controller;
 
 import com.farshad.stock.constants.ErrorMessages;
+import com.farshad.stock.dto.CandleDto;
 import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.CreateStocksRequest;
+import com.farshad.stock.dto.PricePointDto;
 import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockImportSummary;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.StockPriceUpdateResult;
 import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.dto.UpdateStockPricesRequest;
 import com.farshad.stock.exception.StockDataBusinessException;
+import com.farshad.stock.export.ExportFormat;
+import com.farshad.stock.metrics.StockMetrics;
+import com.farshad.stock.service.CandleService;
+import com.farshad.stock.service.PriceHistoryService;
+import com.farshad.stock.service.StockExportService;
+import com.farshad.stock.service.StockImportService;
+import com.farshad.stock.service.StockSearchService;
 import com.farshad.stock.service.StockService;
+import com.farshad.stock.stream.PriceEventBroadcaster;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.gson.FieldNamingPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.junit.Before;
@@ -15,32 +35,73 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import javax.persistence.EntityNotFoundException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import static com.farshad.stock.constants.Constants.CBOR_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.CSV_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.DEFAULT_SEARCH_LIMIT;
+import static com.farshad.stock.constants.Constants.NEXT_PAGE_AFTER_HEADER;
+import static com.farshad.stock.constants.Constants.PROTOBUF_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.Constants.SMILE_MEDIA_TYPE_VALUE;
+import static com.farshad.stock.constants.ErrorMessages.INVALID_PAGE_LIMIT;
 import static com.farshad.stock.constants.ErrorMessages.PRICE_NOT_CHANGED;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_BULK_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_BY_NAME_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_EXPORT_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_IMPORT_PATH;
 import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH;
 import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_PRICES_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_SEARCH_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_STREAM_PATH;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(controllers = StockController.class)
+@Import({StockMetrics.class, SimpleMeterRegistry.class})
 public class StockControllerTest {
     @MockBean
     private StockService stockService;
+    @MockBean
+    private PriceHistoryService priceHistoryService;
+    @MockBean
+    private PriceEventBroadcaster priceEventBroadcaster;
+    @MockBean
+    private CandleService candleService;
+    @MockBean
+    private StockSearchService stockSearchService;
+    @MockBean
+    private StockImportService stockImportService;
+    @MockBean
+    private StockExportService stockExportService;
     @Autowired
     private MockMvc mockMvc;
 
@@ -96,6 +157,197 @@ public class StockControllerTest {
         ;
     }
 
+    @Test
+    public void retrieveAll_ShouldReturnListWithETag() throws Exception {
+        //given
+        when(stockService.listETag()).thenReturn("\"a1-7\"");
+        when(stockService.retrieveAll()).thenReturn(Arrays.asList(new StockDto(1000l,"some Company",23.1,new Date())));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"a1-7-json\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(jsonPath("$", hasSize(1)))
+        ;
+    }
+
+    @Test
+    public void retrieveAll_IfNoneMatchCurrentETag_ShouldReturnNotModifiedWithoutReading() throws Exception {
+        //given
+        String eTag = "\"a1-7-json\"";
+        when(stockService.listETag()).thenReturn("\"a1-7\"");
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(content().string(""))
+        ;
+        verify(stockService, never()).retrieveAll();
+    }
+
+    @Test
+    public void retrieveAll_IfNoneMatchOldETag_ShouldReturnList() throws Exception {
+        //given
+        when(stockService.listETag()).thenReturn("\"a1-8\"");
+        when(stockService.retrieveAll()).thenReturn(Arrays.asList(new StockDto(1000l,"some Company",23.1,new Date())));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).header(HttpHeaders.IF_NONE_MATCH, "\"a1-7-json\""))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"a1-8-json\""))
+                .andExpect(jsonPath("$", hasSize(1)))
+        ;
+    }
+
+    @Test
+    public void retrieveAll_AcceptSmile_ShouldReturnSnakeCaseSmile() throws Exception {
+        //given
+        when(stockService.retrieveAll()).thenReturn(Arrays.asList(new StockDto(1000l,"some Company",23.1,new Date())));
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).accept(SMILE_MEDIA_TYPE_VALUE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE_MEDIA_TYPE_VALUE))
+                .andReturn();
+
+        //then
+        JsonNode stocks = new ObjectMapper(new SmileFactory()).readTree(mvcResult.getResponse().getContentAsByteArray());
+        assertEquals(1,stocks.size());
+        assertEquals(23.1,stocks.get(0).get("current_price").asDouble(),0);
+    }
+
+    @Test
+    public void retrieveAll_AcceptProtobuf_ShouldReturnProtobuf() throws Exception {
+        //given
+        when(stockService.retrieveAll()).thenReturn(Arrays.asList(new StockDto(1000l,"some Company",23.1,new Date())));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).accept(PROTOBUF_MEDIA_TYPE_VALUE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PROTOBUF_MEDIA_TYPE_VALUE))
+        ;
+    }
+
+    @Test
+    public void retrieveAll_FullPage_ShouldReturnPageWithNextAfterHeader() throws Exception {
+        //given
+        Long after = 999l;
+        int limit = 2;
+        Date lastUpdateDate = new Date();
+        StockDto expectedStockDto = new StockDto(1000l,"some Company",23.1,lastUpdateDate);
+        StockDto expectedStockDto2 = new StockDto(1001l,"some Company2",23.2,lastUpdateDate);
+        when(stockService.retrievePage(after,limit)).thenReturn(Arrays.asList(expectedStockDto,expectedStockDto2));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).param("after",after.toString()).param("limit",String.valueOf(limit)).contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].id",is(1001)))
+                .andExpect(header().string(NEXT_PAGE_AFTER_HEADER,"1001"))
+        ;
+        verify(stockService,never()).retrieveAll();
+    }
+
+    @Test
+    public void retrieveAll_LastPage_ShouldReturnPageWithoutNextAfterHeader() throws Exception {
+        //given
+        Long after = 999l;
+        int limit = 2;
+        StockDto expectedStockDto = new StockDto(1000l,"some Company",23.1,new Date());
+        when(stockService.retrievePage(after,limit)).thenReturn(Arrays.asList(expectedStockDto));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).param("after",after.toString()).param("limit",String.valueOf(limit)).contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().doesNotExist(NEXT_PAGE_AFTER_HEADER))
+        ;
+    }
+
+    @Test
+    public void retrieveAll_InvalidLimit_ShouldReturnBadRequest() throws Exception {
+        //given
+        int limit = 0;
+        when(stockService.retrievePage(null,limit)).thenThrow(new StockDataBusinessException(INVALID_PAGE_LIMIT));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).param("limit",String.valueOf(limit)).contentType(MediaType.APPLICATION_JSON))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is(INVALID_PAGE_LIMIT)))
+        ;
+    }
+
+    @Test
+    public void streamAll_ShouldWriteJsonArray() throws Exception {
+        //given
+        Date lastUpdateDate = new Date();
+        StockDto expectedStockDto = new StockDto(1000l,"some Company",23.1,lastUpdateDate);
+        StockDto expectedStockDto2 = new StockDto(1001l,"some Company2",23.2,lastUpdateDate);
+        doAnswer(invocation -> {
+            Consumer<StockDto> consumer = invocation.getArgument(0);
+            consumer.accept(expectedStockDto);
+            consumer.accept(expectedStockDto2);
+            return null;
+        }).when(stockService).streamAll(any());
+
+        //when then
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH).param("stream","true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id",is(1000)))
+                .andExpect(jsonPath("$[1].current_price",is(23.2)))
+                .andExpect(jsonPath("$[1].last_update",notNullValue()))
+        ;
+        verify(stockService,never()).retrieveAll();
+    }
+
+    @Test
+    public void exportStocks_CsvUpdatedSince_ShouldStreamGzippedExport() throws Exception {
+        //given
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(2);
+            outputStream.write(new byte[]{1, 2, 3});
+            return null;
+        }).when(stockExportService).exportStocks(eq(ExportFormat.CSV), eq(new Date(1554112800000l)), any(OutputStream.class));
+
+        //when then
+        MvcResult mvcResult = mockMvc.perform(get(STOCK_CONTROLLER_FULL_EXPORT_PATH).param("format","csv").param("updatedSince","2019-04-01T10:00:00Z"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CSV_MEDIA_TYPE_VALUE))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING,"gzip"))
+                .andExpect(content().bytes(new byte[]{1, 2, 3}))
+        ;
+        verify(stockService,never()).retrieveAll();
+    }
+
+    @Test
+    public void exportStocks_UnknownFormat_ShouldReturnBadRequest() throws Exception {
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_EXPORT_PATH).param("format","xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message",is(ErrorMessages.INVALID_EXPORT_FORMAT)))
+        ;
+        verifyZeroInteractions(stockExportService);
+    }
+
     @Test
     public void create_OneValidCreateStockRequest_ShouldReturnStockDto() throws Exception {
         //given
@@ -167,6 +419,62 @@ public class StockControllerTest {
         verify(stockService,never()).create(any());
     }
 
+    @Test
+    public void createStocks_TwoValidCreateStockRequests_ShouldReturnStockDtos() throws Exception {
+        //given
+        Date lastUpdateDate = new Date();
+        CreateStocksRequest createStocksRequest = new CreateStocksRequest(Arrays.asList(new CreateStockRequest("some Company",23.1),
+                new CreateStockRequest("some Company2",23.2)));
+        when(stockService.createAll(createStocksRequest.getStocks())).thenReturn(Arrays.asList(new StockDto(146l,"some Company",23.1,lastUpdateDate),
+                new StockDto(147l,"some Company2",23.2,lastUpdateDate)));
+
+        //when then
+        mockMvc.perform(post(STOCK_CONTROLLER_FULL_BULK_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStocksRequest)))
+                .andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].id",is(147)))
+                .andExpect(jsonPath("$[1].name",is("some Company2")))
+        ;
+        verify(stockService).createAll(createStocksRequest.getStocks());
+    }
+
+    @Test
+    public void createStocks_OneCreateStockRequestWithNullName_ShouldReturnBadRequest() throws Exception {
+        //given
+        CreateStocksRequest createStocksRequest = new CreateStocksRequest(Arrays.asList(new CreateStockRequest("some Company",23.1),
+                new CreateStockRequest(null,23.2)));
+
+        //when then
+        mockMvc.perform(post(STOCK_CONTROLLER_FULL_BULK_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(createStocksRequest)))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", org.hamcrest.Matchers.startsWith(ErrorMessages.DATA_VALIDATION_EXCEPTION)))
+        ;
+        verify(stockService,never()).createAll(any());
+    }
+
+    @Test
+    public void importStocks_CsvBody_ShouldReturnSummary() throws Exception {
+        //given
+        String csv = "name,current_price\nsome Company,23.1\nother Company,-1\n";
+        StockImportSummary stockImportSummary = new StockImportSummary(1,0,0);
+        stockImportSummary.reject(2,"current_price must be greater than 0");
+        when(stockImportService.importCsv(any(InputStream.class))).thenReturn(stockImportSummary);
+
+        //when then
+        mockMvc.perform(post(STOCK_CONTROLLER_FULL_IMPORT_PATH).contentType(CSV_MEDIA_TYPE_VALUE).content(csv))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted",is(1)))
+                .andExpect(jsonPath("$.rejected",is(1)))
+                .andExpect(jsonPath("$.rejected_rows[0].row",is(2)))
+                .andExpect(jsonPath("$.rejected_rows[0].reason",is("current_price must be greater than 0")))
+        ;
+    }
+
     @Test
     public void getById_OneExistingId_ShouldReturnStockDto() throws Exception {
         //given
@@ -189,6 +497,89 @@ public class StockControllerTest {
         verify(stockService).getById(id);
     }
 
+    @Test
+    public void search_PrefixWithoutLimit_ShouldSearchTenStocks() throws Exception {
+        //given
+        List<StockDto> expectedStockDtoList = Arrays.asList(new StockDto(4l,"BMW",71.9,new Date()),
+                new StockDto(6l,"BNP",45.2,new Date()));
+        when(stockSearchService.search("b",DEFAULT_SEARCH_LIMIT)).thenReturn(expectedStockDtoList);
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_SEARCH_PATH).param("prefix","b"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].name",is("BMW")))
+        ;
+        verify(stockService,never()).retrieveAll();
+    }
+
+    @Test
+    public void getByName_NameWithDot_ShouldReturnStockDto() throws Exception {
+        //given
+        String companyName = "BRK.B";
+        StockDto expectedStockDto = new StockDto(146l,companyName,23.1,new Date());
+        when(stockService.getByName(companyName)).thenReturn(expectedStockDto);
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH + "/" + companyName))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id",is(146)))
+                .andExpect(jsonPath("$.name",is(companyName)))
+        ;
+        verify(stockService).getByName(companyName);
+    }
+
+    @Test
+    public void getByNames_TwoNames_ShouldReturnStockDtoList() throws Exception {
+        //given
+        List<StockDto> expectedStockDtoList = Arrays.asList(new StockDto(4l,"BMW",71.9,new Date()),
+                new StockDto(5l,"Toyota",3.9,new Date()));
+        when(stockService.getByNames(Arrays.asList("BMW","Toyota"))).thenReturn(expectedStockDtoList);
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_BY_NAME_PATH).param("names","BMW,Toyota"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].name",is("Toyota")))
+        ;
+    }
+
+    @Test
+    public void getById_IfNoneMatchCurrentETag_ShouldReturnNotModifiedWithoutReading() throws Exception {
+        //given
+        Long id = 146l;
+        when(stockService.stockETag(id)).thenReturn("\"a1-3\"");
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id).header(HttpHeaders.IF_NONE_MATCH, "\"a1-3-json\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+        ;
+        verify(stockService, never()).getById(id);
+    }
+
+    @Test
+    public void getById_IfNoneMatchJsonETagAcceptProtobuf_ShouldReturnProtobufWithItsOwnETag() throws Exception {
+        //given
+        Long id = 146l;
+        when(stockService.stockETag(id)).thenReturn("\"a1-3\"");
+        when(stockService.getById(id)).thenReturn(new StockDto(id,"some Company",23.1,new Date()));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id).header(HttpHeaders.IF_NONE_MATCH, "\"a1-3-json\"")
+                .accept(PROTOBUF_MEDIA_TYPE_VALUE))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PROTOBUF_MEDIA_TYPE_VALUE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"a1-3-x-protobuf\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+        ;
+    }
+
     @Test
     public void getById_OneNonExistingId_ShouldReturnBadRequest() throws Exception {
         //given
@@ -205,6 +596,84 @@ public class StockControllerTest {
     }
 
 
+    @Test
+    public void streamPrices_WithIds_ShouldSubscribeForIds() throws Exception {
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_STREAM_PATH).param("ids","1","2").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted())
+        ;
+        verify(priceEventBroadcaster).subscribe(any(),eq(new HashSet<>(Arrays.asList(1l,2l))));
+        verify(stockService,never()).getById(any());
+    }
+
+    @Test
+    public void getHistory_FromAndTo_ShouldReturnPricePoints() throws Exception {
+        //given
+        Long id = 146l;
+        Date from = new Date(1000);
+        Date to = new Date(3000);
+        when(priceHistoryService.getHistory(id,from,to)).thenReturn(Arrays.asList(new PricePointDto(new Date(1000),23.1),
+                new PricePointDto(new Date(2000),23.2)));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id + "/history")
+                .param("from",from.toInstant().toString()).param("to",to.toInstant().toString()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].price",is(23.2)))
+                .andExpect(jsonPath("$[1].time",notNullValue()))
+        ;
+        verify(priceHistoryService).getHistory(id,from,to);
+    }
+
+    @Test
+    public void getHistory_NonExistingId_ShouldReturnBadRequest() throws Exception {
+        //given
+        Long id = 146l;
+        when(priceHistoryService.getHistory(id,null,null)).thenThrow(new EntityNotFoundException());
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id + "/history"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is(ErrorMessages.ENTITY_NOT_FOUND)))
+        ;
+    }
+
+    @Test
+    public void getCandles_Interval_ShouldReturnCandles() throws Exception {
+        //given
+        Long id = 146l;
+        when(candleService.getCandles(id,"5m",null,null)).thenReturn(Arrays.asList(new CandleDto(new Date(0),23.1,23.4,23.0,23.2,true),
+                new CandleDto(new Date(300000),23.2,23.2,23.2,23.2,false)));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id + "/candles").param("interval","5m"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].high",is(23.4)))
+                .andExpect(jsonPath("$[1].closed",is(false)))
+        ;
+        verify(candleService).getCandles(id,"5m",null,null);
+    }
+
+    @Test
+    public void getCandles_InvalidInterval_ShouldReturnBadRequest() throws Exception {
+        //given
+        Long id = 146l;
+        when(candleService.getCandles(id,"2m",null,null)).thenThrow(new StockDataBusinessException(ErrorMessages.INVALID_CANDLE_INTERVAL));
+
+        //when then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + id + "/candles").param("interval","2m"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is(ErrorMessages.INVALID_CANDLE_INTERVAL)))
+        ;
+    }
+
     @Test
     public void updatePrice_OneValidUpdateStockPriceRequest_ShouldReturnStockDto() throws Exception {
         //given
@@ -267,6 +736,82 @@ public class StockControllerTest {
     }
 
 
+    @Test
+    public void updatePrices_ValidUpdateStockPricesRequest_ShouldReturnResults() throws Exception {
+        //given
+        Long id = 146l;
+        Long id2 = 147l;
+        UpdateStockPricesRequest updateStockPricesRequest = new UpdateStockPricesRequest(Arrays.asList(new StockPriceUpdate(id,23.2),new StockPriceUpdate(id2,23.3)));
+        when(stockService.updatePrices(updateStockPricesRequest.getPrices())).thenReturn(Arrays.asList(
+                new StockPriceUpdateResult(id,StockPriceUpdateResult.Status.UPDATED),
+                new StockPriceUpdateResult(id2,StockPriceUpdateResult.Status.NOT_FOUND)));
+
+        //when then
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_PRICES_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(updateStockPricesRequest)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id",is(id.intValue())))
+                .andExpect(jsonPath("$[0].status",is(StockPriceUpdateResult.Status.UPDATED.name())))
+                .andExpect(jsonPath("$[1].status",is(StockPriceUpdateResult.Status.NOT_FOUND.name())))
+        ;
+        verify(stockService).updatePrices(updateStockPricesRequest.getPrices());
+    }
+
+    @Test
+    public void updatePrices_CborRequest_ShouldReturnCborResults() throws Exception {
+        //given
+        Long id = 146l;
+        UpdateStockPricesRequest updateStockPricesRequest = new UpdateStockPricesRequest(Arrays.asList(new StockPriceUpdate(id,23.2)));
+        when(stockService.updatePrices(updateStockPricesRequest.getPrices())).thenReturn(Arrays.asList(
+                new StockPriceUpdateResult(id,StockPriceUpdateResult.Status.UPDATED)));
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(put(STOCK_CONTROLLER_FULL_PRICES_PATH).contentType(CBOR_MEDIA_TYPE_VALUE).accept(CBOR_MEDIA_TYPE_VALUE)
+                .content(cborMapper.writeValueAsBytes(new ObjectMapper().readTree(gson.toJson(updateStockPricesRequest)))))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CBOR_MEDIA_TYPE_VALUE))
+                .andReturn();
+
+        //then
+        JsonNode results = cborMapper.readTree(mvcResult.getResponse().getContentAsByteArray());
+        assertEquals(StockPriceUpdateResult.Status.UPDATED.name(),results.get(0).get("status").asText());
+        verify(stockService).updatePrices(updateStockPricesRequest.getPrices());
+    }
+
+    @Test
+    public void updatePrices_EmptyUpdateStockPricesRequest_ShouldReturnBadRequest() throws Exception {
+        //given
+        UpdateStockPricesRequest updateStockPricesRequest = new UpdateStockPricesRequest(Collections.emptyList());
+
+        //when then
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_PRICES_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(updateStockPricesRequest)))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", org.hamcrest.Matchers.startsWith(ErrorMessages.DATA_VALIDATION_EXCEPTION)))
+        ;
+        verify(stockService,never()).updatePrices(any());
+    }
+
+    @Test
+    public void updatePrices_ItemWithNullPrice_ShouldReturnBadRequest() throws Exception {
+        //given
+        UpdateStockPricesRequest updateStockPricesRequest = new UpdateStockPricesRequest(Arrays.asList(new StockPriceUpdate(146l,null)));
+
+        //when then
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_PRICES_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(updateStockPricesRequest)))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", org.hamcrest.Matchers.startsWith(ErrorMessages.DATA_VALIDATION_EXCEPTION)))
+        ;
+        verify(stockService,never()).updatePrices(any());
+    }
+
     @Test
     public void deleteById_OneExistingId_ShouldBeDeleted() throws Exception {
         //given
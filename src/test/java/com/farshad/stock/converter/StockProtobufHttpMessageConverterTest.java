@@ -0,0 +1,145 @@
+package com.farshad.stock.converter;
+
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.StockPriceUpdateResult;
+import com.farshad.stock.dto.UpdateStockPricesRequest;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static com.farshad.stock.constants.Constants.PROTOBUF_MEDIA_TYPE_VALUE;
+import static org.junit.Assert.*;
+
+public class StockProtobufHttpMessageConverterTest {
+    private static final MediaType PROTOBUF = MediaType.parseMediaType(PROTOBUF_MEDIA_TYPE_VALUE);
+    private static final Type STOCK_LIST_TYPE = new ParameterizedTypeReference<List<StockDto>>() { }.getType();
+    private static final Type RESULT_LIST_TYPE = new ParameterizedTypeReference<List<StockPriceUpdateResult>>() { }.getType();
+
+    private StockProtobufHttpMessageConverter converter;
+
+    @Before
+    public void init(){
+        converter = new StockProtobufHttpMessageConverter();
+    }
+
+    @Test
+    public void canWrite_SupportedTypes_ShouldBeTrueOnlyForProtobuf(){
+        assertTrue(converter.canWrite(STOCK_LIST_TYPE, List.class, PROTOBUF));
+        assertTrue(converter.canWrite(RESULT_LIST_TYPE, List.class, PROTOBUF));
+        assertTrue(converter.canWrite(StockDto.class, StockDto.class, PROTOBUF));
+        assertFalse(converter.canWrite(STOCK_LIST_TYPE, List.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<String>>() { }.getType(), List.class, PROTOBUF));
+        assertFalse(converter.canWrite(UpdateStockPricesRequest.class, UpdateStockPricesRequest.class, PROTOBUF));
+    }
+
+    @Test
+    public void write_StockList_ShouldEncodeRepeatedStocks() throws Exception {
+        //given
+        Date lastUpdate = new Date();
+        List<StockDto> stockDtoList = Arrays.asList(new StockDto(1l,"some Company1",23.1,lastUpdate),
+                new StockDto(2l,"some Company2",0,0l));
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        //when
+        converter.write(stockDtoList, STOCK_LIST_TYPE, PROTOBUF, outputMessage);
+        //then
+        assertEquals(PROTOBUF_MEDIA_TYPE_VALUE, outputMessage.getHeaders().getContentType().toString());
+        CodedInputStream input = CodedInputStream.newInstance(outputMessage.getBodyAsBytes());
+        assertEquals(new StockDto(1l,"some Company1",23.1,lastUpdate), readStock(input));
+        assertEquals(new StockDto(2l,"some Company2",0,0l), readStock(input));
+        assertTrue(input.isAtEnd());
+    }
+
+    @Test
+    public void write_StockWithoutLastUpdate_ShouldLeaveFieldOut() throws Exception {
+        //given
+        StockDto stockDto = new StockDto(1l,"some Company1",23.1,(Date) null);
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        //when
+        converter.write(Arrays.asList(stockDto), STOCK_LIST_TYPE, PROTOBUF, outputMessage);
+        //then
+        CodedInputStream input = CodedInputStream.newInstance(outputMessage.getBodyAsBytes());
+        StockDto stockDtoRead = readStock(input);
+        assertEquals(stockDto, stockDtoRead);
+        assertNull(stockDtoRead.getLastUpdate());
+    }
+
+    @Test
+    public void write_Results_ShouldEncodeStatusByDeclarationOrder() throws Exception {
+        //given
+        List<StockPriceUpdateResult> results = Arrays.asList(new StockPriceUpdateResult(1l,StockPriceUpdateResult.Status.STALE));
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        //when
+        converter.write(results, RESULT_LIST_TYPE, PROTOBUF, outputMessage);
+        //then
+        CodedInputStream input = CodedInputStream.newInstance(outputMessage.getBodyAsBytes());
+        assertEquals(1 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED, input.readTag());
+        input.readRawVarint32();
+        assertEquals(1 << 3 | WireFormat.WIRETYPE_VARINT, input.readTag());
+        assertEquals(1l, input.readInt64());
+        assertEquals(2 << 3 | WireFormat.WIRETYPE_VARINT, input.readTag());
+        assertEquals(3, input.readEnum());
+        assertTrue(input.isAtEnd());
+    }
+
+    @Test
+    public void read_UpdateStockPrices_ShouldLeaveMissingFieldsNull() throws Exception {
+        //given
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(CodedOutputStream.computeInt64Size(1, 7l) + CodedOutputStream.computeDoubleSize(2, 12.3)
+                + CodedOutputStream.computeInt64Size(3, 1000l));
+        output.writeInt64(1, 7l);
+        output.writeDouble(2, 12.3);
+        output.writeInt64(3, 1000l);
+        output.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(CodedOutputStream.computeInt64Size(1, 8l) + CodedOutputStream.computeStringSize(9, "unknown"));
+        output.writeInt64(1, 8l);
+        output.writeString(9, "unknown");
+        output.flush();
+        MockHttpInputMessage inputMessage = new MockHttpInputMessage(bytes.toByteArray());
+        //when
+        UpdateStockPricesRequest request = (UpdateStockPricesRequest) converter.read(UpdateStockPricesRequest.class, null, inputMessage);
+        //then
+        assertEquals(Arrays.asList(new StockPriceUpdate(7l,12.3,new Date(1000l)), new StockPriceUpdate(8l,null)), request.getPrices());
+    }
+
+    private static StockDto readStock(CodedInputStream input) throws Exception {
+        assertEquals(1 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED, input.readTag());
+        int limit = input.pushLimit(input.readRawVarint32());
+        StockDto stockDto = new StockDto();
+        for(int tag = input.readTag(); tag != 0; tag = input.readTag()){
+            switch (WireFormat.getTagFieldNumber(tag)){
+                case 1:
+                    stockDto.setId(input.readInt64());
+                    break;
+                case 2:
+                    stockDto.setName(input.readString());
+                    break;
+                case 3:
+                    stockDto.setCurrentPrice(input.readDouble());
+                    break;
+                case 4:
+                    stockDto.setLastUpdate(new Date(input.readInt64()));
+                    break;
+                default:
+                    fail("unexpected field " + tag);
+            }
+        }
+        input.popLimit(limit);
+        return stockDto;
+    }
+}
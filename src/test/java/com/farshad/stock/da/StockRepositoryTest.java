@@ -7,10 +7,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
+import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.farshad.stock.constants.Constants.INIT_RECORDS_COUNT;
 import static org.junit.Assert.*;
@@ -19,6 +25,8 @@ import static org.junit.Assert.*;
 public class StockRepositoryTest {
     @Autowired
     private StockRepository stockRepository;
+    @Autowired
+    private EntityManager entityManager;
 
     @Test
     public void save_OneCompleteStock_ShouldBeSaved(){
@@ -81,6 +89,38 @@ public class StockRepositoryTest {
         stockRepository.flush();
     }
 
+    @Test(expected = DataAccessException.class)
+    public void save_DuplicateName_ShouldRaiseDataAccessException(){
+        //given
+        stockRepository.save(new Stock("some Company",23.1,new Date()));
+        stockRepository.flush();
+        //when
+        stockRepository.save(new Stock("some Company",23.2,new Date()));
+        stockRepository.flush();
+    }
+
+    @Test
+    public void findByName_ImportedName_ShouldReturnStock(){
+        //when
+        Stock stock = stockRepository.findByName("BMW").orElse(null);
+        //then
+        assertNotNull(stock);
+        assertEquals(Long.valueOf(4l),stock.getId());
+        assertFalse(stockRepository.findByName("bmw").isPresent());
+    }
+
+    @Test
+    public void findByNameIn_KnownAndUnknownNames_ShouldReturnKnownStocks(){
+        //when
+        List<Stock> stockList = stockRepository.findByNameIn(Arrays.asList("BMW","Toyota","unknown Company"));
+        //then
+        Set<String> names = new HashSet<>();
+        for(Stock stock : stockList){
+            names.add(stock.getName());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("BMW","Toyota")),names);
+    }
+
     @Test(expected = DataAccessException.class)
     public void save_NullLastUpdateStock_ShouldRaiseDataAccessException(){
         //given
@@ -94,6 +134,97 @@ public class StockRepositoryTest {
     }
 
 
+    @Test
+    public void persistInBatches_MoreStocksThanBatchSize_ShouldBeSavedWithDistinctIds(){
+        //given
+        int count = 120;
+        Date lastUpdateDate = new Date();
+        List<Stock> stocks = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            stocks.add(new Stock("some Company" + i,23.1 + i,lastUpdateDate));
+        }
+        //when
+        List<Stock> persistedStocks = stockRepository.persistInBatches(stocks);
+        //then
+        Set<Long> ids = new HashSet<>();
+        for(Stock stock : persistedStocks){
+            assertNotNull(stock.getId());
+            ids.add(stock.getId());
+        }
+        assertEquals(count,ids.size());
+        assertEquals(INIT_RECORDS_COUNT+count,stockRepository.count());
+    }
+
+    @Test
+    public void findByIdGreaterThan_TwoStocksLimit_ShouldReturnNextTwoIds(){
+        //given
+        Long after = 2l;
+        //when
+        List<Stock> stockList = stockRepository.findByIdGreaterThanOrderByIdAsc(after,PageRequest.of(0,2));
+        //then
+        assertEquals(2,stockList.size());
+        assertEquals(Long.valueOf(3),stockList.get(0).getId());
+        assertEquals(Long.valueOf(4),stockList.get(1).getId());
+    }
+
+    @Test
+    public void updatePriceIfChanged_NewPrice_ShouldUpdateOneRow(){
+        //given
+        Stock stock = stockRepository.saveAndFlush(new Stock("some Company",23.1,new Date()));
+        Date updateTime = new Date();
+        //when
+        int updated = stockRepository.updatePriceIfChanged(stock.getId(),25.1,updateTime);
+        entityManager.clear();
+        //then
+        assertEquals(1,updated);
+        Stock stockUpdated = stockRepository.findById(stock.getId()).get();
+        assertEquals(25.1,stockUpdated.getCurrentPrice(),0);
+        assertEquals(updateTime.getTime(),stockUpdated.getLastUpdate().getTime());
+        assertEquals(stock.getVersion() + 1,stockUpdated.getVersion());
+    }
+
+    @Test
+    public void updatePriceIfChanged_OlderThanLastUpdate_ShouldUpdateNothing(){
+        //given
+        Date lastUpdate = new Date();
+        Stock stock = stockRepository.saveAndFlush(new Stock("some Company",23.1,lastUpdate));
+        //when
+        int updated = stockRepository.updatePriceIfChanged(stock.getId(),25.1,new Date(lastUpdate.getTime() - 1000));
+        //then
+        assertEquals(0,updated);
+    }
+
+    @Test
+    public void updatePriceIfChanged_SamePrice_ShouldUpdateNothing(){
+        //given
+        Stock stock = stockRepository.saveAndFlush(new Stock("some Company",23.1,new Date()));
+        //when
+        int updated = stockRepository.updatePriceIfChanged(stock.getId(),23.1,new Date());
+        //then
+        assertEquals(0,updated);
+    }
+
+    @Test
+    public void updatePriceIfChanged_NonExistingId_ShouldUpdateNothing(){
+        //when
+        int updated = stockRepository.updatePriceIfChanged(1009l,23.1,new Date());
+        //then
+        assertEquals(0,updated);
+    }
+
+    @Test
+    public void forEachStock_ShouldVisitAllStocksInIdOrder(){
+        //given
+        List<Long> ids = new ArrayList<>();
+        //when
+        stockRepository.forEachStock(stock -> ids.add(stock.getId()));
+        //then
+        assertEquals(INIT_RECORDS_COUNT,ids.size());
+        for(int i = 1; i < ids.size(); i++){
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+    }
+
     @Test
     public void findAll_ShouldReturnInitialRecordsCount(){
         //given
@@ -110,7 +241,7 @@ public class StockRepositoryTest {
         String companyName1 = "some Company";
         Double currentPrice1 = 23.1;
         Date lastUpdateDate1 = new Date();
-        String companyName2 = "some Company";
+        String companyName2 = "some Company2";
         Double currentPrice2 = 23.2;
         Date lastUpdateDate2 = new Date();
         Stock stock1 = new Stock(companyName1,currentPrice1,lastUpdateDate1);
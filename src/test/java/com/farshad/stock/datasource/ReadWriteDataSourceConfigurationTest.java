@@ -0,0 +1,81 @@
+package com.farshad.stock.datasource;
+
+import com.farshad.stock.cache.StockCache;
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.model.Stock;
+import com.farshad.stock.service.StockService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+
+import static com.farshad.stock.datasource.ReadWriteDataSourceConfiguration.PRIMARY_POOL;
+import static com.farshad.stock.datasource.ReadWriteDataSourceConfiguration.REPLICA_POOL;
+import static org.junit.Assert.*;
+
+/**
+ * The replica pool connects to the primary database, the acquire counts of the pool metrics tell which pool served a call
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "stock.datasource.replica.enabled=true")
+public class ReadWriteDataSourceConfigurationTest {
+    @Autowired
+    private StockService            stockService;
+    @Autowired
+    private StockCache              stockCache;
+    @Autowired
+    private MeterRegistry           meterRegistry;
+    @Autowired
+    private EntityManagerFactory    entityManagerFactory;
+
+    @Test
+    public void retrievePage_ReadOnlyTransaction_ShouldUseReplicaPool() {
+        //given
+        long primaryAcquired = acquired(PRIMARY_POOL);
+        long replicaAcquired = acquired(REPLICA_POOL);
+
+        //when
+        stockService.retrievePage(null, 10);
+
+        //then
+        assertEquals(primaryAcquired, acquired(PRIMARY_POOL));
+        assertEquals(replicaAcquired + 1, acquired(REPLICA_POOL));
+    }
+
+    @Test
+    public void create_ShouldUsePrimaryPoolAndGetById_NotCached_ShouldReadItFromReplicaPool() {
+        //given
+        long primaryAcquired = acquired(PRIMARY_POOL);
+        long replicaAcquired = acquired(REPLICA_POOL);
+
+        //when
+        StockDto stockDto = stockService.create(new CreateStockRequest("replica Company1", 10.0));
+
+        try {
+            //then
+            assertEquals(primaryAcquired + 1, acquired(PRIMARY_POOL));
+            assertEquals(replicaAcquired, acquired(REPLICA_POOL));
+
+            //when
+            stockCache.evict(stockDto.getId());
+            entityManagerFactory.getCache().evict(Stock.class, stockDto.getId());
+            StockDto stockDtoLoaded = stockService.getById(stockDto.getId());
+
+            //then
+            assertEquals(stockDto, stockDtoLoaded);
+            assertEquals(primaryAcquired + 1, acquired(PRIMARY_POOL));
+            assertEquals(replicaAcquired + 1, acquired(REPLICA_POOL));
+        } finally {
+            stockService.deleteById(stockDto.getId());
+        }
+    }
+
+    private long acquired(String pool) {
+        return meterRegistry.get("hikaricp.connections.acquire").tag("pool", pool).timer().count();
+    }
+}
@@ -0,0 +1,80 @@
+package com.farshad.stock.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+
+/**
+ * Primary and replica are two H2 databases, each knowing its own name
+ */
+public class ReadWriteRoutingDataSourceTest {
+    private DriverManagerDataSource primaryDataSource;
+    private DriverManagerDataSource replicaDataSource;
+    private JdbcTemplate            jdbcTemplate;
+    private TransactionTemplate     transactionTemplate;
+    private TransactionTemplate     readOnlyTransactionTemplate;
+
+    @Before
+    public void init(){
+        primaryDataSource = database("primary");
+        replicaDataSource = database("replica");
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @After
+    public void destroy(){
+        new JdbcTemplate(primaryDataSource).execute("DROP ALL OBJECTS");
+        new JdbcTemplate(replicaDataSource).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void readOnlyTransaction_ShouldUseReplica(){
+        //when
+        String database = readOnlyTransactionTemplate.execute(status -> databaseName());
+        //then
+        assertEquals("replica", database);
+    }
+
+    @Test
+    public void readWriteTransaction_ShouldUsePrimary(){
+        //when
+        String database = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("INSERT INTO database_name VALUES ('written')");
+            return databaseName();
+        });
+        //then
+        assertEquals("primary", database);
+        assertEquals(2, (int) new JdbcTemplate(primaryDataSource).queryForObject("SELECT COUNT(*) FROM database_name", Integer.class));
+        assertEquals(1, (int) new JdbcTemplate(replicaDataSource).queryForObject("SELECT COUNT(*) FROM database_name", Integer.class));
+    }
+
+    @Test
+    public void noTransaction_ShouldUsePrimary(){
+        //when then
+        assertEquals("primary", databaseName());
+    }
+
+    private String databaseName(){
+        return jdbcTemplate.queryForObject("SELECT name FROM database_name ORDER BY name LIMIT 1", String.class);
+    }
+
+    private static DriverManagerDataSource database(String name){
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE database_name (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO database_name VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,45 @@
+package com.farshad.stock.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class StockDtoTest {
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void init(){
+        objectMapper = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+    }
+
+    @Test
+    public void readAndWrite_NullLastUpdate_ShouldStayNull() throws Exception {
+        //given
+        String json = "{\"id\":1,\"name\":\"some Company\",\"current_price\":23.1,\"last_update\":null}";
+        //when
+        StockDto stockDto = objectMapper.readValue(json, StockDto.class);
+        JsonNode written = objectMapper.readTree(objectMapper.writeValueAsString(stockDto));
+        //then
+        assertNull(stockDto.getLastUpdate());
+        assertEquals(StockDto.NO_LAST_UPDATE, stockDto.getLastUpdateTime());
+        assertTrue(written.get("last_update").isNull());
+        assertEquals(new StockDto(1l,"some Company",23.1,(Date) null), stockDto);
+    }
+
+    @Test
+    public void readAndWrite_LastUpdate_ShouldKeepTime() throws Exception {
+        //given
+        StockDto stockDto = new StockDto(1l,"some Company",23.1,new Date(1000l));
+        //when
+        StockDto stockDtoRead = objectMapper.readValue(objectMapper.writeValueAsString(stockDto), StockDto.class);
+        //then
+        assertEquals(stockDto, stockDtoRead);
+        assertEquals(new Date(1000l), stockDtoRead.getLastUpdate());
+    }
+}
@@ -71,4 +71,16 @@ public class StockMapperTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void convert_StockWithoutLastUpdate_shouldReturnNullLastUpdate(){
+        //given
+        Stock input = new Stock("Some company",12.8,null);
+        input.setId(124l);
+        //when
+        StockDto actualOutput = stockMapper.convert(input);
+        //then
+        assertNull(actualOutput.getLastUpdate());
+        assertEquals(StockDto.NO_LAST_UPDATE,actualOutput.getLastUpdateTime());
+    }
+
+}
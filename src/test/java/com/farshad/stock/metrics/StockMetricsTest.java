@@ -0,0 +1,55 @@
+package com.farshad.stock.metrics;
+
+import com.farshad.stock.constants.ErrorMessages;
+import com.farshad.stock.dto.StockPriceUpdateResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StockMetricsTest {
+    private MeterRegistry meterRegistry;
+    private StockMetrics stockMetrics;
+
+    @Before
+    public void init(){
+        meterRegistry = new SimpleMeterRegistry();
+        stockMetrics = new StockMetrics(meterRegistry);
+    }
+
+    @Test
+    public void countError_KnownErrorMessage_ShouldIncrementItsCounter(){
+        //when
+        stockMetrics.countError(ErrorMessages.PRICE_NOT_CHANGED);
+        //then
+        assertEquals(1.0, meterRegistry.get(StockMetrics.ERROR_COUNTER).tag("error", ErrorMessages.PRICE_NOT_CHANGED).counter().count(), 0);
+        assertEquals(0.0, meterRegistry.get(StockMetrics.ERROR_COUNTER).tag("error", "other").counter().count(), 0);
+    }
+
+    @Test
+    public void countError_UnknownErrorMessage_ShouldIncrementOther(){
+        //when
+        stockMetrics.countError("some error");
+        //then
+        assertEquals(1.0, meterRegistry.get(StockMetrics.ERROR_COUNTER).tag("error", "other").counter().count(), 0);
+    }
+
+    @Test
+    public void countPriceUpdate_Status_ShouldIncrementItsCounter(){
+        //when
+        stockMetrics.countPriceUpdate(StockPriceUpdateResult.Status.NOT_FOUND);
+        //then
+        assertEquals(1.0, meterRegistry.get(StockMetrics.PRICE_UPDATE_COUNTER).tag("status", "NOT_FOUND").counter().count(), 0);
+    }
+
+    @Test
+    public void timer_SameNameAndMethod_ShouldReturnSameTimer(){
+        //when
+        Timer timer = stockMetrics.timer(StockMetrics.CONTROLLER_TIMER, "StockController.getStockById");
+        //then
+        assertSame(timer, stockMetrics.timer(StockMetrics.CONTROLLER_TIMER, "StockController.getStockById"));
+    }
+}
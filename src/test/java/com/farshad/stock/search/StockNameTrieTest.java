@@ -0,0 +1,135 @@
+package com.farshad.stock.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class StockNameTrieTest {
+    private StockNameTrie stockNameTrie;
+
+    @Before
+    public void init(){
+        stockNameTrie = new StockNameTrie();
+        stockNameTrie.add("BMW",4l);
+        stockNameTrie.add("BNP",6l);
+        stockNameTrie.add("BMX Bikes",7l);
+        stockNameTrie.add("Toyota",5l);
+    }
+
+    @Test
+    public void search_Prefix_ShouldReturnIdsOrderedByName(){
+        //when
+        long[] actualOutput = stockNameTrie.search("b",10);
+        //then
+        assertArrayEquals(new long[]{4l,7l,6l},actualOutput);
+    }
+
+    @Test
+    public void search_PrefixEndingInsideAnEdge_ShouldReturnIds(){
+        //when
+        long[] actualOutput = stockNameTrie.search("toy",10);
+        //then
+        assertArrayEquals(new long[]{5l},actualOutput);
+    }
+
+    @Test
+    public void search_UnknownPrefix_ShouldReturnNoIds(){
+        //then
+        assertEquals(0,stockNameTrie.search("bmy",10).length);
+        assertEquals(0,stockNameTrie.search("toyotas",10).length);
+        assertEquals(0,stockNameTrie.search("x",10).length);
+    }
+
+    @Test
+    public void search_Limit_ShouldReturnFirstIds(){
+        //when
+        long[] actualOutput = stockNameTrie.search("",2);
+        //then
+        assertArrayEquals(new long[]{4l,7l},actualOutput);
+    }
+
+    @Test
+    public void add_SameNameTwice_ShouldKeepOneId(){
+        //when
+        stockNameTrie.add("BMW",4l);
+        //then
+        assertEquals(4,stockNameTrie.size());
+        assertArrayEquals(new long[]{4l},stockNameTrie.search("bmw",10));
+    }
+
+    @Test
+    public void add_NamesDifferingInCase_ShouldReturnBoth(){
+        //when
+        stockNameTrie.add("bmw",8l);
+        //then
+        assertArrayEquals(new long[]{4l,8l},stockNameTrie.search("BMW",10));
+    }
+
+    @Test
+    public void remove_Name_ShouldNotReturnIt(){
+        //when
+        stockNameTrie.remove("BMX Bikes",7l);
+        stockNameTrie.remove("BMW",4l);
+        //then
+        assertArrayEquals(new long[]{6l},stockNameTrie.search("b",10));
+        assertEquals(2,stockNameTrie.size());
+    }
+
+    @Test
+    public void remove_UnknownNameOrId_ShouldChangeNothing(){
+        //when
+        stockNameTrie.remove("BM",4l);
+        stockNameTrie.remove("BMW",5l);
+        //then
+        assertArrayEquals(new long[]{4l,7l,6l},stockNameTrie.search("b",10));
+        assertEquals(4,stockNameTrie.size());
+    }
+
+    @Test
+    public void search_AfterRandomAddsAndRemoves_ShouldMatchSortedNames(){
+        //given
+        Random random = new Random(7);
+        TreeMap<String,Long> expectedNames = new TreeMap<>();
+        StockNameTrie trie = new StockNameTrie();
+        //when
+        for(long id = 1; id <= 5000; id++){
+            String name = randomName(random);
+            if(expectedNames.containsKey(name)){
+                trie.remove(name,expectedNames.remove(name));
+            }else{
+                trie.add(name,id);
+                expectedNames.put(name,id);
+            }
+        }
+        //then
+        for(String prefix : new String[]{"", "a", "ab", "abc", "b", "ca"}){
+            List<Long> expectedIds = new ArrayList<>();
+            for(String name : expectedNames.tailMap(prefix).keySet()){
+                if(!name.startsWith(prefix) || expectedIds.size() == 20){
+                    break;
+                }
+                expectedIds.add(expectedNames.get(name));
+            }
+            long[] actualIds = trie.search(prefix,20);
+            assertEquals(expectedIds.size(),actualIds.length);
+            for(int i = 0; i < actualIds.length; i++){
+                assertEquals(expectedIds.get(i).longValue(),actualIds[i]);
+            }
+        }
+        assertEquals(expectedNames.size(),trie.size());
+    }
+
+    private static String randomName(Random random) {
+        char[] name = new char[1 + random.nextInt(4)];
+        for(int i = 0; i < name.length; i++){
+            name[i] = (char) ('a' + random.nextInt(3));
+        }
+        return new String(name);
+    }
+}
@@ -0,0 +1,103 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.da.StockPriceHistoryRepository;
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.PricePointDto;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.model.StockPriceHistory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PriceHistoryServiceTest {
+    private StockPriceHistoryRepository stockPriceHistoryRepository;
+    private StockRepository             stockRepository;
+    private PlatformTransactionManager  transactionManager;
+    private PriceHistoryService         priceHistoryService;
+
+    @Before
+    public void init(){
+        stockPriceHistoryRepository = mock(StockPriceHistoryRepository.class);
+        stockRepository = mock(StockRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        priceHistoryService = new PriceHistoryServiceImpl();
+        ((PriceHistoryServiceImpl)priceHistoryService).setStockPriceHistoryRepository(stockPriceHistoryRepository);
+        ((PriceHistoryServiceImpl)priceHistoryService).setStockRepository(stockRepository);
+        ((PriceHistoryServiceImpl)priceHistoryService).setTransactionManager(transactionManager);
+        ((PriceHistoryServiceImpl)priceHistoryService).setBufferSize(8);
+    }
+
+    @Test
+    public void getHistory_CreatedThenUpdatedStock_ShouldBeServedFromBuffer(){
+        //given
+        Long id = 100l;
+        Date creationTime = new Date(1000);
+        Date updateTime = new Date(2000);
+        priceHistoryService.recordCreated(Collections.singletonList(new StockDto(id,"someCompany",21.3,creationTime)));
+        priceHistoryService.recordUpdated(Collections.singletonList(new StockDto(id,"someCompany",23.3,updateTime)));
+        //when
+        List<PricePointDto> pricePoints = priceHistoryService.getHistory(id,null,null);
+        //then
+        verify(stockPriceHistoryRepository,times(2)).saveAll(any());
+        verify(stockPriceHistoryRepository,never()).findByStockIdAndTickTimeBetweenOrderByTickTimeAsc(any(),any(),any());
+        verify(transactionManager,never()).getTransaction(any());
+        assertEquals(Arrays.asList(new PricePointDto(creationTime,21.3),new PricePointDto(updateTime,23.3)),pricePoints);
+    }
+
+    @Test
+    public void getHistory_StockWithoutBuffer_ShouldReadFromDatabase(){
+        //given
+        Long id = 100l;
+        Date from = new Date(1000);
+        Date to = new Date(3000);
+        Date tickTime = new Date(2000);
+        when(stockRepository.existsById(id)).thenReturn(true);
+        when(stockPriceHistoryRepository.findByStockIdAndTickTimeBetweenOrderByTickTimeAsc(id,from,to))
+                .thenReturn(Collections.singletonList(new StockPriceHistory(id,21.3,tickTime)));
+        //when
+        List<PricePointDto> pricePoints = priceHistoryService.getHistory(id,from,to);
+        //then
+        assertEquals(Collections.singletonList(new PricePointDto(tickTime,21.3)),pricePoints);
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
+    @Test
+    public void getHistory_RangeBeforeBufferedPrices_ShouldReadFromDatabase(){
+        //given
+        Long id = 100l;
+        Date from = new Date(1000);
+        priceHistoryService.recordUpdated(Collections.singletonList(new StockDto(id,"someCompany",23.3,new Date(2000))));
+        when(stockRepository.existsById(id)).thenReturn(true);
+        when(stockPriceHistoryRepository.findByStockIdAndTickTimeBetweenOrderByTickTimeAsc(eq(id),eq(from),any()))
+                .thenReturn(Collections.emptyList());
+        //when
+        priceHistoryService.getHistory(id,from,null);
+        //then
+        verify(stockPriceHistoryRepository,times(1)).findByStockIdAndTickTimeBetweenOrderByTickTimeAsc(eq(id),eq(from),any());
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void getHistory_DeletedStock_ShouldRaiseEntityNotFoundException(){
+        //given
+        Long id = 100l;
+        priceHistoryService.recordCreated(Collections.singletonList(new StockDto(id,"someCompany",21.3,new Date())));
+        priceHistoryService.stockDeleted(id);
+        when(stockRepository.existsById(id)).thenReturn(false);
+        //when
+        priceHistoryService.getHistory(id,null,null);
+    }
+}
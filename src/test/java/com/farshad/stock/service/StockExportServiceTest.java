@@ -0,0 +1,95 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.export.ExportFormat;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StockExportServiceTest {
+    private StockExportService stockExportService;
+    private StockService stockService;
+
+    @Before
+    public void init(){
+        stockService = mock(StockService.class);
+        stockExportService = new StockExportServiceImpl();
+        ((StockExportServiceImpl)stockExportService).setStockService(stockService);
+        ((StockExportServiceImpl)stockExportService).setObjectMapper(new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+    }
+
+    @Test
+    public void exportStocks_Ndjson_ShouldWriteOneGzippedLinePerStock() throws IOException {
+        //given
+        Date updatedSince = new Date(0);
+        givenStocks(updatedSince, new StockDto(1000l,"some Company",23.1,new Date(0)), new StockDto(1001l,"some Company2",23.2,new Date(0)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //when
+        stockExportService.exportStocks(ExportFormat.NDJSON, updatedSince, outputStream);
+
+        //then
+        assertEquals("{\"id\":1000,\"name\":\"some Company\",\"current_price\":23.1,\"last_update\":\"1970-01-01T00:00:00.000+0000\"}\n"
+                + "{\"id\":1001,\"name\":\"some Company2\",\"current_price\":23.2,\"last_update\":\"1970-01-01T00:00:00.000+0000\"}\n",
+                gunzip(outputStream));
+    }
+
+    @Test
+    public void exportStocks_Csv_ShouldWriteHeaderAndQuotedNames() throws IOException {
+        //given
+        givenStocks(null, new StockDto(1000l,"some Company, Inc.",23.1,new Date(0)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //when
+        stockExportService.exportStocks(ExportFormat.CSV, null, outputStream);
+
+        //then
+        assertEquals("id,name,current_price,last_update\n"
+                + "1000,\"some Company, Inc.\",23.1,1970-01-01T00:00:00.000+0000\n",
+                gunzip(outputStream));
+    }
+
+    private void givenStocks(Date updatedSince, StockDto... stockDtos){
+        doAnswer(invocation -> {
+            Consumer<StockDto> consumer = invocation.getArgument(1);
+            for(StockDto stockDto : stockDtos){
+                consumer.accept(stockDto);
+            }
+            return null;
+        }).when(stockService).streamUpdatedSince(eq(updatedSince), any());
+    }
+
+    private String gunzip(ByteArrayOutputStream outputStream) throws IOException {
+        StringWriter stringWriter = new StringWriter();
+        try(Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())), StandardCharsets.UTF_8)){
+            char[] buffer = new char[1024];
+            for(int read; (read = reader.read(buffer)) != -1; ){
+                stringWriter.write(buffer, 0, read);
+            }
+        }
+        return stringWriter.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.constants.ErrorMessages;
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockImportSummary;
+import com.farshad.stock.exception.StockDataBusinessException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StockImportServiceTest {
+    private StockImportService stockImportService;
+    private StockService stockService;
+
+    @Before
+    public void init(){
+        stockService = mock(StockService.class);
+        stockImportService = new StockImportServiceImpl();
+        ((StockImportServiceImpl)stockImportService).setStockService(stockService);
+        ((StockImportServiceImpl)stockImportService).setValidator(Validation.buildDefaultValidatorFactory().getValidator());
+        ((StockImportServiceImpl)stockImportService).setChunkSize(2);
+    }
+
+    @Test
+    public void importCsv_ThreeValidRows_ShouldUpsertInChunks() throws IOException {
+        //given
+        String csv = "name,current_price\nsomeCompany1,23.1\n someCompany2 , 23.2\nsomeCompany3,23.3\n";
+        when(stockService.upsertAll(Arrays.asList(new CreateStockRequest("someCompany1",23.1),new CreateStockRequest("someCompany2",23.2))))
+                .thenReturn(new StockImportSummary(1,1,0));
+        when(stockService.upsertAll(Collections.singletonList(new CreateStockRequest("someCompany3",23.3))))
+                .thenReturn(new StockImportSummary(0,0,1));
+
+        //when
+        StockImportSummary stockImportSummary = stockImportService.importCsv(toStream(csv));
+
+        //then
+        assertEquals(new StockImportSummary(1,1,1),stockImportSummary);
+        verify(stockService,times(2)).upsertAll(any());
+    }
+
+    @Test
+    public void importCsv_InvalidRows_ShouldRejectThemAndUpsertTheOthers() throws IOException {
+        //given
+        String csv = "current_price,name,sector\n23.1,someCompany1,tech\nabc,someCompany2\n-1,someCompany3\n23.4,\n23.5,someCompany5\n";
+        when(stockService.upsertAll(Arrays.asList(new CreateStockRequest("someCompany1",23.1),new CreateStockRequest("someCompany5",23.5))))
+                .thenReturn(new StockImportSummary(2,0,0));
+
+        //when
+        StockImportSummary stockImportSummary = stockImportService.importCsv(toStream(csv));
+
+        //then
+        assertEquals(2,stockImportSummary.getInserted());
+        assertEquals(3,stockImportSummary.getRejected());
+        assertEquals(Arrays.asList(
+                new StockImportSummary.RejectedRow(2,"current_price is not a number"),
+                new StockImportSummary.RejectedRow(3,"current_price must be greater than 0"),
+                new StockImportSummary.RejectedRow(4,"name size must be between 1 and 2147483647")),
+                stockImportSummary.getRejectedRows());
+    }
+
+    @Test
+    public void importCsv_HeaderWithoutName_ShouldRaiseStockDataBusinessException() throws IOException {
+        //given
+        String csv = "company,current_price\nsomeCompany1,23.1\n";
+
+        //when then
+        try {
+            stockImportService.importCsv(toStream(csv));
+            fail();
+        } catch (StockDataBusinessException e){
+            assertEquals(ErrorMessages.INVALID_CSV, e.getMessage());
+        }
+        verify(stockService,never()).upsertAll(any());
+    }
+
+    @Test
+    public void importCsv_HeaderWithoutNameAndNoRows_ShouldRaiseStockDataBusinessException() throws IOException {
+        for(String csv : Arrays.asList("company,current_price\n", "")){
+            //when then
+            try {
+                stockImportService.importCsv(toStream(csv));
+                fail();
+            } catch (StockDataBusinessException e){
+                assertEquals(ErrorMessages.INVALID_CSV, e.getMessage());
+            }
+        }
+        verify(stockService,never()).upsertAll(any());
+    }
+
+    @Test
+    public void importCsv_HeaderOnly_ShouldImportNothing() throws IOException {
+        //given
+        String csv = "name,current_price\n";
+
+        //when
+        StockImportSummary stockImportSummary = stockImportService.importCsv(toStream(csv));
+        //then
+        assertEquals(new StockImportSummary(0,0,0), stockImportSummary);
+        verify(stockService,never()).upsertAll(any());
+    }
+
+    @Test
+    public void importCsv_UnclosedQuote_ShouldRaiseStockDataBusinessExceptionAfterEarlierChunks() throws IOException {
+        //given
+        String csv = "name,current_price\nsomeCompany1,23.1\nsomeCompany2,23.2\n\"someCompany3,23.3\n";
+        when(stockService.upsertAll(Arrays.asList(new CreateStockRequest("someCompany1",23.1),new CreateStockRequest("someCompany2",23.2))))
+                .thenReturn(new StockImportSummary(2,0,0));
+
+        //when then
+        try {
+            stockImportService.importCsv(toStream(csv));
+            fail();
+        } catch (StockDataBusinessException e){
+            assertEquals(ErrorMessages.INVALID_CSV, e.getMessage());
+        }
+        verify(stockService,times(1)).upsertAll(any());
+    }
+
+    private InputStream toStream(String csv){
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,137 @@
+package com.farshad.stock.service;
+
+import com.farshad.stock.constants.ErrorMessages;
+import com.farshad.stock.da.StockPriceHistoryRepository;
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.StockPriceUpdateResult;
+import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.exception.StockDataBusinessException;
+import com.farshad.stock.model.Stock;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Many threads update the price of the same stock through both update paths
+ * <br>Every accepted update must show up as one version step and one history row, lastUpdate must end at the newest accepted tick.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StockServiceConcurrencyTest {
+    private static final Logger logger = LoggerFactory.getLogger(StockServiceConcurrencyTest.class);
+
+    private static final int THREADS            = 8;
+    private static final int UPDATES_PER_THREAD = 200;
+
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private StockRepository stockRepository;
+    @Autowired
+    private StockPriceHistoryRepository stockPriceHistoryRepository;
+
+    @Test
+    public void updatePriceAndUpdatePrices_SameStockFromManyThreads_ShouldLoseNoUpdate() throws Exception {
+        //given
+        StockDto stockDto = stockService.create(new CreateStockRequest("contended Company",1.0));
+        long initialVersion = stockRepository.findById(stockDto.getId()).get().getVersion();
+        AtomicInteger updated = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicLong newestUpdate = new AtomicLong(stockDto.getLastUpdate().getTime());
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 0; t < THREADS; t++){
+            int thread = t;
+            futures.add(executorService.submit(() -> {
+                start.await();
+                for(int i = 0; i < UPDATES_PER_THREAD; i++){
+                    double price = 2.0 + thread * UPDATES_PER_THREAD + i;
+                    Date time = new Date();
+                    boolean accepted;
+                    if(i % 2 == 0){
+                        accepted = updatePrice(stockDto.getId(), price, time);
+                    }else{
+                        accepted = updatePrices(stockDto.getId(), price, time);
+                    }
+                    if(accepted){
+                        updated.incrementAndGet();
+                        newestUpdate.accumulateAndGet(time.getTime(), Math::max);
+                    }else{
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        //when
+        long startTime = System.nanoTime();
+        start.countDown();
+        for(Future<?> future : futures){
+            future.get(2, TimeUnit.MINUTES);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        executorService.shutdown();
+        //then
+        logger.info("Contended updates: " + THREADS * UPDATES_PER_THREAD + " in " + elapsedMillis + " ms, "
+                + updated.get() + " accepted, " + rejected.get() + " rejected, "
+                + (THREADS * UPDATES_PER_THREAD * 1000L / Math.max(1, elapsedMillis)) + " updates/s");
+        Stock stock = stockRepository.findById(stockDto.getId()).get();
+        assertTrue(updated.get() > 0);
+        assertEquals(initialVersion + updated.get(), stock.getVersion());
+        assertEquals(1 + updated.get(), stockPriceHistoryRepository.findByStockIdAndTickTimeBetweenOrderByTickTimeAsc(stockDto.getId(),
+                new Date(0), new Date(Long.MAX_VALUE / 2)).size());
+        assertEquals(newestUpdate.get(), stock.getLastUpdate().getTime());
+        stockService.deleteById(stockDto.getId());
+    }
+
+    /**
+     * @return false if the update was rejected because of a newer price
+     */
+    private boolean updatePrice(Long id, double price, Date time) {
+        try {
+            stockService.updatePrice(id, new UpdateStockPriceRequest(price, time));
+            return true;
+        } catch (StockDataBusinessException e){
+            assertEquals(ErrorMessages.STALE_PRICE_UPDATE, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return false if the update was rejected because of a newer price or retries ran out
+     */
+    private boolean updatePrices(Long id, double price, Date time) {
+        try {
+            StockPriceUpdateResult.Status status = stockService.updatePrices(Collections.singletonList(new StockPriceUpdate(id, price, time))).get(0).getStatus();
+            assertTrue(status.name(), status == StockPriceUpdateResult.Status.UPDATED || status == StockPriceUpdateResult.Status.STALE);
+            return status == StockPriceUpdateResult.Status.UPDATED;
+        } catch (StockDataBusinessException e){
+            assertEquals(ErrorMessages.CONCURRENT_UPDATE, e.getMessage());
+            return false;
+        }
+    }
+}
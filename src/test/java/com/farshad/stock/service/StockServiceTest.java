@@ -1,22 +1,43 @@
 package com.farshad.stock.service;
 
+import com.farshad.stock.cache.ConcurrentStockCache;
+import com.farshad.stock.constants.ErrorMessages;
+import com.farshad.stock.cache.NoOpStockCache;
+import com.farshad.stock.cache.StockNames;
+import com.farshad.stock.cache.StockVersions;
 import com.farshad.stock.da.StockRepository;
 import com.farshad.stock.dto.CreateStockRequest;
 import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockImportSummary;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.StockPriceUpdateResult;
 import com.farshad.stock.dto.UpdateStockPriceRequest;
 import com.farshad.stock.exception.StockDataBusinessException;
 import com.farshad.stock.mapper.StockMapper;
+import com.farshad.stock.metrics.StockMetrics;
 import com.farshad.stock.model.Stock;
+import com.farshad.stock.snapshot.NoOpStockSnapshot;
+import com.farshad.stock.stream.PriceEventBroadcaster;
+import com.farshad.stock.writebehind.NoOpPriceWriteBehind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import javax.persistence.EntityNotFoundException;
 import java.util.*;
+import java.util.function.Consumer;
 
+import static com.farshad.stock.constants.Constants.MAX_PAGE_LIMIT;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -25,6 +46,10 @@ public class StockServiceTest {
     private StockRepository stockRepository;
     private StockMapper     stockMapper;
     private StockService    stockService;
+    private PriceHistoryService priceHistoryService;
+    private PriceEventBroadcaster priceEventBroadcaster;
+    private CandleService candleService;
+    private StockSearchService stockSearchService;
 
     final static long initSequenceValue = 10;
 
@@ -35,6 +60,21 @@ public class StockServiceTest {
         stockService = new StockServiceImpl();
         ((StockServiceImpl)stockService).setStockRepository(stockRepository);
         ((StockServiceImpl)stockService).setStockMapper(stockMapper);
+        ((StockServiceImpl)stockService).setStockCache(new NoOpStockCache());
+        ((StockServiceImpl)stockService).setStockVersions(new StockVersions(16));
+        ((StockServiceImpl)stockService).setStockNames(new StockNames());
+        ((StockServiceImpl)stockService).setStockSnapshot(new NoOpStockSnapshot());
+        ((StockServiceImpl)stockService).setPriceWriteBehind(new NoOpPriceWriteBehind());
+        priceHistoryService = mock(PriceHistoryService.class);
+        ((StockServiceImpl)stockService).setPriceHistoryService(priceHistoryService);
+        priceEventBroadcaster = mock(PriceEventBroadcaster.class);
+        ((StockServiceImpl)stockService).setPriceEventBroadcaster(priceEventBroadcaster);
+        candleService = mock(CandleService.class);
+        ((StockServiceImpl)stockService).setCandleService(candleService);
+        stockSearchService = mock(StockSearchService.class);
+        ((StockServiceImpl)stockService).setStockSearchService(stockSearchService);
+        ((StockServiceImpl)stockService).setStockMetrics(new StockMetrics(new SimpleMeterRegistry()));
+        ((StockServiceImpl)stockService).setTransactionManager(mock(PlatformTransactionManager.class));
 
     }
     @Test
@@ -61,9 +101,62 @@ public class StockServiceTest {
         verify(stockRepository,times(1)).save(stockInput);
         verify(stockMapper,times(1)).convert(stockOutput);
         verify(stockMapper,times(1)).convert(createStockRequest);
+        verify(priceHistoryService,times(1)).recordCreated(Collections.singletonList(stockDtoExpectedOutput));
         assertEquals(stockDtoExpectedOutput,stockDtoActualOutput);
     }
 
+    @Test
+    public void createAll_TwoValidCreateStockRequests_ShouldPersistInBatches() {
+        //given
+        CreateStockRequest createStockRequest1 = new CreateStockRequest("someCompany1",23.1);
+        CreateStockRequest createStockRequest2 = new CreateStockRequest("someCompany2",23.2);
+        Stock stock1 = new Stock(createStockRequest1.getName(),createStockRequest1.getCurrentPrice(),null);
+        Stock stock2 = new Stock(createStockRequest2.getName(),createStockRequest2.getCurrentPrice(),null);
+        when(stockMapper.convert(createStockRequest1)).thenReturn(stock1);
+        when(stockMapper.convert(createStockRequest2)).thenReturn(stock2);
+        when(stockRepository.persistInBatches(Arrays.asList(stock1,stock2))).thenReturn(Arrays.asList(stock1,stock2));
+        when(stockMapper.convert(stock1)).thenReturn(new StockDto(1l,stock1.getName(),stock1.getCurrentPrice(),new Date()));
+        when(stockMapper.convert(stock2)).thenReturn(new StockDto(2l,stock2.getName(),stock2.getCurrentPrice(),new Date()));
+
+        //when
+        List<StockDto> stockDtoList = stockService.createAll(Arrays.asList(createStockRequest1,createStockRequest2));
+
+        //then
+        verify(stockRepository,times(1)).persistInBatches(Arrays.asList(stock1,stock2));
+        verify(stockRepository,never()).save(any());
+        assertNotNull(stock1.getLastUpdate());
+        assertEquals(stock1.getLastUpdate(),stock2.getLastUpdate());
+        assertEquals(2,stockDtoList.size());
+    }
+
+    @Test
+    public void upsertAll_ExistingAndNewNames_ShouldUpdateAndPersistInBatches() {
+        //given
+        Stock stockExisting = new Stock("someCompany1",23.1,new Date(0));
+        stockExisting.setId(1l);
+        CreateStockRequest createStockRequest1 = new CreateStockRequest("someCompany1",24.0);
+        CreateStockRequest createStockRequest2 = new CreateStockRequest("someCompany2",5.0);
+        CreateStockRequest createStockRequest3 = new CreateStockRequest("someCompany2",6.0);
+        CreateStockRequest createStockRequest4 = new CreateStockRequest("someCompany1",24.0);
+        Stock stockNew = new Stock(createStockRequest2.getName(),createStockRequest2.getCurrentPrice(),null);
+        when(stockRepository.findByNameIn(new LinkedHashSet<>(Arrays.asList("someCompany1","someCompany2")))).thenReturn(Collections.singletonList(stockExisting));
+        when(stockMapper.convert(createStockRequest2)).thenReturn(stockNew);
+        when(stockRepository.persistInBatches(Collections.singletonList(stockNew))).thenReturn(Collections.singletonList(stockNew));
+        when(stockMapper.convert(stockNew)).thenReturn(new StockDto(2l,stockNew.getName(),6.0,new Date()));
+        when(stockMapper.convert(stockExisting)).thenReturn(new StockDto(1l,stockExisting.getName(),24.0,new Date()));
+
+        //when
+        StockImportSummary stockImportSummary = stockService.upsertAll(Arrays.asList(createStockRequest1,createStockRequest2,createStockRequest3,createStockRequest4));
+
+        //then
+        assertEquals(new StockImportSummary(1,2,1),stockImportSummary);
+        assertEquals(24.0,stockExisting.getCurrentPrice(),0);
+        assertEquals(6.0,stockNew.getCurrentPrice(),0);
+        assertEquals(stockExisting.getLastUpdate(),stockNew.getLastUpdate());
+        verify(stockRepository,never()).save(any());
+        verify(priceEventBroadcaster,times(1)).publish(any(StockDto.class));
+    }
+
     @Test
     public void create_NullInput_ShouldReturnNull(){
         //given
@@ -110,11 +203,9 @@ public class StockServiceTest {
         Double currentPrice = null;
         Date lastUpdateDate = new Date();
         CreateStockRequest createStockRequest = new CreateStockRequest(companyName,currentPrice);
-        StockDto stockDtoExpectedOutput = new StockDto(initSequenceValue,companyName,currentPrice,lastUpdateDate);
         Stock stockInput = new Stock(companyName,currentPrice,lastUpdateDate);
         Stock stockOutput = new Stock(companyName,currentPrice,lastUpdateDate);
         stockOutput.setId(initSequenceValue);
-        stockDtoExpectedOutput.setId(initSequenceValue);
         when(stockRepository.save(stockInput)).thenThrow(new ConstraintViolationException("CurrentPrice field is null!",null,""));
         when(stockMapper.convert(createStockRequest)).thenReturn(stockInput);
 
@@ -124,6 +215,25 @@ public class StockServiceTest {
 
     }
 
+    @Test
+    public void create_SavedStockWithoutPrice_ShouldRaiseStockDataBusinessException(){
+        //given
+        CreateStockRequest createStockRequest = new CreateStockRequest("Some Company",null);
+        Stock stockInput = new Stock("Some Company",null,null);
+        when(stockMapper.convert(createStockRequest)).thenReturn(stockInput);
+        when(stockRepository.save(stockInput)).thenReturn(stockInput);
+        when(stockMapper.convert(stockInput)).thenReturn(null);
+        //when
+        try {
+            stockService.create(createStockRequest);
+            fail();
+        } catch (StockDataBusinessException e){
+            //then
+            assertEquals(ErrorMessages.DATA_VALIDATION_EXCEPTION,e.getMessage());
+            verify(priceHistoryService,never()).recordCreated(any());
+        }
+    }
+
     @Test(expected = ConstraintViolationException.class)
     public void create_OneStockWithNullLastUpdate_ShouldRaiseConstraintViolationException(){
 
@@ -132,11 +242,7 @@ public class StockServiceTest {
         Double currentPrice = 23.3;
         Date creationDate = null;
         CreateStockRequest createStockRequest = new CreateStockRequest(companyName,currentPrice);
-        StockDto stockDtoExpectedOutput = new StockDto(initSequenceValue,companyName,currentPrice,creationDate);
         Stock stockInput = new Stock(companyName,currentPrice,creationDate);
-        Stock stockOutput = new Stock(companyName,currentPrice,creationDate);
-        stockOutput.setId(initSequenceValue);
-        stockDtoExpectedOutput.setId(initSequenceValue);
         when(stockRepository.save(stockInput)).thenThrow(new ConstraintViolationException("LastUpdate field is null!",null,""));
         when(stockMapper.convert(createStockRequest)).thenReturn(stockInput);
 
@@ -150,73 +256,244 @@ public class StockServiceTest {
     public void updatePrice_ValidPrice_ShouldChangeNewValue(){
         //given
         Date updateTime = new Date();
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.HOUR_OF_DAY,-1);
-        Date lastUpdateTime = calendar.getTime();
         long id = 100l;
-        Double lastPrice = 21.3;
         Double newPrice  = 23.3;
         String name = "someCompany";
         UpdateStockPriceRequest updateStockPriceRequest = new UpdateStockPriceRequest(newPrice);
-        Stock stockExisting = new Stock(name,lastPrice,lastUpdateTime);
-        stockExisting.setId(id);
         Stock stockUpdated = new Stock(name,newPrice, updateTime);
         stockUpdated.setId(id);
         StockDto stockDtoExpectedOutput = new StockDto(id,name,newPrice,updateTime);
-        when(stockRepository.getOne(id)).thenReturn(stockExisting);
-        when(stockRepository.save(any())).thenReturn(stockUpdated);
+        when(stockRepository.updatePriceIfChanged(eq(id),eq(newPrice.doubleValue()),any())).thenReturn(1);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(stockUpdated));
         when(stockMapper.convert(stockUpdated)).thenReturn(stockDtoExpectedOutput);
         //when
         StockDto stockDtoActualOutput = stockService.updatePrice(id,updateStockPriceRequest);
         //then
-        verify(stockRepository,times(1)).getOne(id);
-        verify(stockRepository,times(1)).save(any());
-        verify(stockMapper,times(1)).convert(stockUpdated);
+        verify(stockRepository,times(1)).updatePriceIfChanged(eq(id),eq(newPrice.doubleValue()),any());
+        verify(stockRepository,never()).getOne(any());
+        verify(stockRepository,never()).save(any());
+        verify(priceHistoryService,times(1)).recordUpdated(Collections.singletonList(stockDtoExpectedOutput));
+        verify(priceEventBroadcaster,times(1)).publish(stockDtoExpectedOutput);
         assertEquals(stockDtoExpectedOutput,stockDtoActualOutput);
     }
 
-    @Test(expected = StockDataBusinessException.class)
-    public void updatePrice_SamePrice_ShouldRaiseStockDataBusinessException(){
+    @Test
+    public void updatePrice_KnownName_ShouldNotLoadStock(){
         //given
+        long id = 100l;
+        String name = "someCompany";
         Date updateTime = new Date();
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.HOUR_OF_DAY,-1);
-        Date lastUpdateTime = calendar.getTime();
+        StockNames stockNames = new StockNames();
+        stockNames.put(id,name);
+        ((StockServiceImpl)stockService).setStockNames(stockNames);
+        when(stockRepository.updatePriceIfChanged(id,23.3,updateTime)).thenReturn(1);
+        //when
+        StockDto stockDto = stockService.updatePrice(id,new UpdateStockPriceRequest(23.3,updateTime));
+        //then
+        verify(stockRepository,never()).findById(any());
+        verifyZeroInteractions(stockMapper);
+        assertEquals(new StockDto(id,name,23.3,updateTime),stockDto);
+    }
+
+    @Test
+    public void updatePrice_UnknownName_ShouldLoadStockOnce(){
+        //given
         long id = 100l;
-        Double lastPrice = 21.3;
-        Double newPrice  = lastPrice;
         String name = "someCompany";
+        StockNames stockNames = new StockNames();
+        ((StockServiceImpl)stockService).setStockNames(stockNames);
+        Stock stockUpdated = new Stock(name,23.3,new Date());
+        stockUpdated.setId(id);
+        when(stockRepository.updatePriceIfChanged(eq(id),eq(23.3),any())).thenReturn(1);
+        when(stockRepository.updatePriceIfChanged(eq(id),eq(24.3),any())).thenReturn(1);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(stockUpdated));
+        when(stockMapper.convert(stockUpdated)).thenReturn(new StockDto(id,name,23.3,stockUpdated.getLastUpdate()));
+        //when
+        stockService.updatePrice(id,new UpdateStockPriceRequest(23.3));
+        stockService.updatePrice(id,new UpdateStockPriceRequest(24.3));
+        //then
+        verify(stockRepository,times(1)).findById(id);
+        assertEquals(name,stockNames.getName(id));
+    }
+
+    @Test(expected = StockDataBusinessException.class)
+    public void updatePrice_SamePrice_ShouldRaiseStockDataBusinessException(){
+        //given
+        long id = 100l;
+        Double newPrice  = 21.3;
         UpdateStockPriceRequest updateStockPriceRequest = new UpdateStockPriceRequest(newPrice);
-        Stock stockExisting = new Stock(name,lastPrice,lastUpdateTime);
+        Stock stockExisting = new Stock("someCompany",newPrice,new Date());
         stockExisting.setId(id);
-        Stock stockUpdated = new Stock(name,newPrice, updateTime);
-        stockUpdated.setId(id);
-        when(stockRepository.getOne(id)).thenReturn(stockExisting);
+        when(stockRepository.updatePriceIfChanged(eq(id),eq(newPrice.doubleValue()),any())).thenReturn(0);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(stockExisting));
+        //when
+        try {
+            stockService.updatePrice(id,updateStockPriceRequest);
+        } finally {
+            verify(priceEventBroadcaster,never()).publish(any());
+        }
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void updatePrice_NonExistingId_ShouldRaiseEntityNotFoundException(){
+        //given
+        long id = 100l;
+        Double newPrice  = 21.3;
+        UpdateStockPriceRequest updateStockPriceRequest = new UpdateStockPriceRequest(newPrice);
+        when(stockRepository.updatePriceIfChanged(eq(id),eq(newPrice.doubleValue()),any())).thenReturn(0);
+        when(stockRepository.findById(id)).thenReturn(Optional.empty());
         //when
         stockService.updatePrice(id,updateStockPriceRequest);
     }
 
+    @Test
+    public void updatePrice_OlderThanLastUpdate_ShouldRaiseStalePriceUpdate(){
+        //given
+        long id = 100l;
+        Date lastUpdate = new Date();
+        Stock stockExisting = new Stock("someCompany",21.3,lastUpdate);
+        stockExisting.setId(id);
+        Date olderTime = new Date(lastUpdate.getTime() - 1000);
+        when(stockRepository.updatePriceIfChanged(id,23.3,olderTime)).thenReturn(0);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(stockExisting));
+        //when
+        try {
+            stockService.updatePrice(id,new UpdateStockPriceRequest(23.3,olderTime));
+            fail();
+        } catch (StockDataBusinessException e){
+            //then
+            assertEquals(ErrorMessages.STALE_PRICE_UPDATE,e.getMessage());
+            verify(priceHistoryService,never()).recordUpdated(any());
+        }
+    }
+
+    @Test
+    public void updatePrice_BeyondClockSkew_ShouldRaiseFuturePriceUpdate(){
+        //given
+        long id = 100l;
+        ((StockServiceImpl)stockService).setMaxClockSkewMillis(1000);
+        Date futureTime = new Date(System.currentTimeMillis() + 60000);
+        //when
+        try {
+            stockService.updatePrice(id,new UpdateStockPriceRequest(23.3,futureTime));
+            fail();
+        } catch (StockDataBusinessException e){
+            //then
+            assertEquals(ErrorMessages.FUTURE_PRICE_UPDATE,e.getMessage());
+            verifyZeroInteractions(stockRepository);
+        }
+    }
+
     @Test(expected = NullPointerException.class)
     public void updatePrice_NullPrice_ShouldRaiseNullPointerException(){
         //given
-        Date updateTime = new Date();
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.HOUR_OF_DAY,-1);
-        Date lastUpdateTime = calendar.getTime();
         long id = 100l;
-        Double lastPrice = 21.3;
-        Double newPrice  = null;
-        String name = "someCompany";
-        UpdateStockPriceRequest updateStockPriceRequest = new UpdateStockPriceRequest(newPrice);
-        Stock stockExisting = new Stock(name,lastPrice,lastUpdateTime);
-        stockExisting.setId(id);
-        Stock stockUpdated = new Stock(name,newPrice, updateTime);
-        stockUpdated.setId(id);
-        when(stockRepository.getOne(id)).thenReturn(stockExisting);
+        UpdateStockPriceRequest updateStockPriceRequest = new UpdateStockPriceRequest(null);
         //when
         stockService.updatePrice(id,updateStockPriceRequest);
     }
 
+    @Test
+    public void updatePrices_UpdatedUnchangedAndMissing_ShouldReportEachItem(){
+        //given
+        long id1 = 100l;
+        long id2 = 101l;
+        long id3 = 102l;
+        Stock stock1 = new Stock("someCompany1",21.3,new Date());
+        stock1.setId(id1);
+        Stock stock2 = new Stock("someCompany2",22.3,new Date());
+        stock2.setId(id2);
+        List<StockPriceUpdate> stockPriceUpdates = Arrays.asList(new StockPriceUpdate(id1,23.3),
+                new StockPriceUpdate(id2,22.3),
+                new StockPriceUpdate(id3,24.3));
+        when(stockRepository.findAllById(any())).thenReturn(Arrays.asList(stock1,stock2));
+        when(stockRepository.saveAll(any())).thenReturn(Arrays.asList(stock1));
+        when(stockMapper.convert(stock1)).thenReturn(new StockDto(id1,stock1.getName(),23.3,stock1.getLastUpdate()));
+        //when
+        List<StockPriceUpdateResult> results = stockService.updatePrices(stockPriceUpdates);
+        //then
+        verify(stockRepository,times(1)).findAllById(any());
+        verify(stockRepository,never()).getOne(any());
+        verify(stockRepository,never()).save(any());
+        assertEquals(Arrays.asList(new StockPriceUpdateResult(id1,StockPriceUpdateResult.Status.UPDATED),
+                new StockPriceUpdateResult(id2,StockPriceUpdateResult.Status.UNCHANGED),
+                new StockPriceUpdateResult(id3,StockPriceUpdateResult.Status.NOT_FOUND)),results);
+        assertEquals(23.3,stock1.getCurrentPrice(),0);
+    }
+
+    @Test
+    public void updatePrices_OlderThanLastUpdate_ShouldReportStale(){
+        //given
+        long id = 100l;
+        Date lastUpdate = new Date();
+        Stock stock = new Stock("someCompany",21.3,lastUpdate);
+        stock.setId(id);
+        when(stockRepository.findAllById(any())).thenReturn(Arrays.asList(stock));
+        when(stockRepository.saveAll(any())).thenReturn(new ArrayList<>());
+        //when
+        List<StockPriceUpdateResult> results = stockService.updatePrices(Arrays.asList(new StockPriceUpdate(id,23.3,new Date(lastUpdate.getTime() - 1000))));
+        //then
+        assertEquals(Arrays.asList(new StockPriceUpdateResult(id,StockPriceUpdateResult.Status.STALE)),results);
+        assertEquals(21.3,stock.getCurrentPrice(),0);
+    }
+
+    @Test
+    public void updatePrices_OneBeyondClockSkew_ShouldRejectWholeBatch(){
+        //given
+        ((StockServiceImpl)stockService).setMaxClockSkewMillis(1000);
+        List<StockPriceUpdate> stockPriceUpdates = Arrays.asList(new StockPriceUpdate(100l,23.3),
+                new StockPriceUpdate(101l,24.3,new Date(System.currentTimeMillis() + 60000)));
+        //when
+        try {
+            stockService.updatePrices(stockPriceUpdates);
+            fail();
+        } catch (StockDataBusinessException e){
+            //then
+            assertEquals(ErrorMessages.FUTURE_PRICE_UPDATE,e.getMessage());
+            verifyZeroInteractions(stockRepository);
+        }
+    }
+
+    @Test
+    public void updatePrices_ConcurrentUpdateOnce_ShouldRetry(){
+        //given
+        long id = 100l;
+        when(stockRepository.findAllById(any())).thenAnswer(invocation -> {
+            Stock stock = new Stock("someCompany",21.3,new Date(0));
+            stock.setId(id);
+            return Arrays.asList(stock);
+        });
+        when(stockRepository.saveAll(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Stock.class,id))
+                .thenReturn(new ArrayList<>());
+        //when
+        List<StockPriceUpdateResult> results = stockService.updatePrices(Arrays.asList(new StockPriceUpdate(id,23.3)));
+        //then
+        verify(stockRepository,times(2)).findAllById(any());
+        assertEquals(Arrays.asList(new StockPriceUpdateResult(id,StockPriceUpdateResult.Status.UPDATED)),results);
+    }
+
+    @Test
+    public void updatePrices_ConcurrentUpdateEveryAttempt_ShouldRaiseConcurrentUpdate(){
+        //given
+        long id = 100l;
+        when(stockRepository.findAllById(any())).thenAnswer(invocation -> {
+            Stock stock = new Stock("someCompany",21.3,new Date(0));
+            stock.setId(id);
+            return Arrays.asList(stock);
+        });
+        when(stockRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(Stock.class,id));
+        //when
+        try {
+            stockService.updatePrices(Arrays.asList(new StockPriceUpdate(id,23.3)));
+            fail();
+        } catch (StockDataBusinessException e){
+            //then
+            assertEquals(ErrorMessages.CONCURRENT_UPDATE,e.getMessage());
+            verify(stockRepository,times(3)).findAllById(any());
+        }
+    }
+
     @Test
     public void retrieveAll_ShouldReturnEmptyList(){
         //given
@@ -258,6 +535,80 @@ public class StockServiceTest {
         assertEquals(2,stockDtoListActual.size());
     }
 
+    @Test
+    public void retrievePage_ValidLimit_ShouldSeekAfterId(){
+        //given
+        Long after = 1000l;
+        int limit = 10;
+        Stock stock = new Stock("someCompany1",23.1,new Date());
+        stock.setId(1001l);
+        StockDto stockDto = new StockDto(1001l,stock.getName(),stock.getCurrentPrice(),stock.getLastUpdate());
+        when(stockRepository.findByIdGreaterThanOrderByIdAsc(after,PageRequest.of(0,limit))).thenReturn(Arrays.asList(stock));
+        when(stockMapper.convert(stock)).thenReturn(stockDto);
+        //when
+        List<StockDto> stockDtoList = stockService.retrievePage(after,limit);
+        //then
+        verify(stockRepository,never()).findAll();
+        assertEquals(Arrays.asList(stockDto),stockDtoList);
+    }
+
+    @Test(expected = StockDataBusinessException.class)
+    public void retrievePage_LimitAboveMax_ShouldRaiseStockDataBusinessException(){
+        //when
+        stockService.retrievePage(null,100000);
+    }
+
+    @Test
+    public void retrieveSortedPage_ByCurrentPriceDescending_ShouldSortByPropertyThenId(){
+        //given
+        Stock stock = new Stock("someCompany1",23.1,new Date());
+        stock.setId(1001l);
+        StockDto stockDto = new StockDto(1001l,stock.getName(),stock.getCurrentPrice(),stock.getLastUpdate());
+        PageRequest pageRequest = PageRequest.of(2,10,Sort.by(Sort.Direction.DESC,"currentPrice").and(Sort.by(Sort.Direction.DESC,"id")));
+        when(stockRepository.findAll(pageRequest)).thenReturn(new PageImpl<>(Arrays.asList(stock),pageRequest,21));
+        when(stockMapper.convert(stock)).thenReturn(stockDto);
+        //when
+        Page<StockDto> stockDtoPage = stockService.retrieveSortedPage(2,10,"current_price",false);
+        //then
+        assertEquals(Arrays.asList(stockDto),stockDtoPage.getContent());
+        assertEquals(3,stockDtoPage.getTotalPages());
+    }
+
+    @Test
+    public void retrieveSortedPage_UnknownSort_ShouldRaiseStockDataBusinessException(){
+        //when then
+        try {
+            stockService.retrieveSortedPage(0,10,"version",true);
+            fail();
+        } catch (StockDataBusinessException e){
+            assertEquals(ErrorMessages.INVALID_SORT,e.getMessage());
+        }
+        verifyZeroInteractions(stockRepository);
+    }
+
+    @Test
+    public void streamAll_ShouldConvertEveryStock(){
+        //given
+        Stock stock1 = new Stock("someCompany1",23.1,new Date());
+        Stock stock2 = new Stock("someCompany2",23.2,new Date());
+        StockDto stockDto1 = new StockDto(1001l,stock1.getName(),stock1.getCurrentPrice(),stock1.getLastUpdate());
+        StockDto stockDto2 = new StockDto(1002l,stock2.getName(),stock2.getCurrentPrice(),stock2.getLastUpdate());
+        doAnswer(invocation -> {
+            Consumer<Stock> consumer = invocation.getArgument(0);
+            consumer.accept(stock1);
+            consumer.accept(stock2);
+            return null;
+        }).when(stockRepository).forEachStock(any());
+        when(stockMapper.convert(stock1)).thenReturn(stockDto1);
+        when(stockMapper.convert(stock2)).thenReturn(stockDto2);
+        List<StockDto> streamed = new ArrayList<>();
+        //when
+        stockService.streamAll(streamed::add);
+        //then
+        verify(stockRepository,never()).findAll();
+        assertEquals(Arrays.asList(stockDto1,stockDto2),streamed);
+    }
+
     @Test
     public void getById_ExistingId_ShouldReturnStock(){
         //given
@@ -307,4 +658,246 @@ public class StockServiceTest {
         //when
         stockService.deleteById(id);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getById_CacheEnabledCalledTwice_ShouldLoadOnce(){
+        //given
+        ((StockServiceImpl)stockService).setStockCache(new ConcurrentStockCache(10));
+        Long id = 1000l;
+        String companyName = "some Company";
+        Double currentPrice = 23.1;
+        Date lastUpdateDate = new Date();
+        Stock existingStock = new Stock(companyName,currentPrice,lastUpdateDate);
+        existingStock.setId(id);
+        StockDto expectedStockDto = new StockDto(id,companyName,currentPrice,lastUpdateDate);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(existingStock));
+        when(stockMapper.convert(existingStock)).thenReturn(expectedStockDto);
+        //when
+        stockService.getById(id);
+        StockDto actualStockDto = stockService.getById(id);
+        //then
+        verify(stockRepository,times(1)).findById(id);
+        assertEquals(expectedStockDto,actualStockDto);
+    }
+
+    @Test
+    public void updatePrice_CacheEnabled_ShouldServeUpdatedStockFromCache(){
+        //given
+        ((StockServiceImpl)stockService).setStockCache(new ConcurrentStockCache(10));
+        long id = 100l;
+        String name = "someCompany";
+        Stock stockExisting = new Stock(name,21.3,new Date());
+        stockExisting.setId(id);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(stockExisting));
+        when(stockMapper.convert(stockExisting)).thenReturn(new StockDto(id,name,21.3,stockExisting.getLastUpdate()));
+        when(stockRepository.updatePriceIfChanged(eq(id),eq(23.3),any())).thenReturn(1);
+        stockService.getById(id);
+        //when
+        StockDto stockDtoUpdated = stockService.updatePrice(id,new UpdateStockPriceRequest(23.3));
+        StockDto actualStockDto = stockService.getById(id);
+        //then
+        verify(stockRepository,times(1)).findById(id);
+        assertEquals(name,stockDtoUpdated.getName());
+        assertEquals(23.3,stockDtoUpdated.getCurrentPrice(),0);
+        assertEquals(stockDtoUpdated,actualStockDto);
+    }
+
+    @Test
+    public void retrieveAll_CacheEnabledThenDelete_ShouldReloadList(){
+        //given
+        ((StockServiceImpl)stockService).setStockCache(new ConcurrentStockCache(10));
+        Long id1= 1001l;
+        Long id2= 1002l;
+        Stock stock1 = new Stock("someCompany1",23.1,new Date());
+        stock1.setId(id1);
+        Stock stock2 = new Stock("someCompany2",23.2,new Date());
+        stock2.setId(id2);
+        when(stockRepository.findAll()).thenReturn(Arrays.asList(stock1,stock2)).thenReturn(Arrays.asList(stock2));
+        when(stockMapper.convert(stock1)).thenReturn(new StockDto(id1,stock1.getName(),stock1.getCurrentPrice(),stock1.getLastUpdate()));
+        when(stockMapper.convert(stock2)).thenReturn(new StockDto(id2,stock2.getName(),stock2.getCurrentPrice(),stock2.getLastUpdate()));
+        //when
+        stockService.retrieveAll();
+        List<StockDto> cachedList = stockService.retrieveAll();
+        stockService.deleteById(id1);
+        List<StockDto> reloadedList = stockService.retrieveAll();
+        //then
+        verify(stockRepository,times(2)).findAll();
+        assertEquals(2,cachedList.size());
+        assertEquals(1,reloadedList.size());
+    }
+
+    @Test
+    public void updatePrice_ValidRequest_ShouldChangeListAndStockETag(){
+        //given
+        long id = 100l;
+        String listETag = stockService.listETag();
+        String stockETag = stockService.stockETag(id);
+        when(stockRepository.updatePriceIfChanged(eq(id),eq(23.3),any())).thenReturn(1);
+        Stock stockUpdated = new Stock("someCompany",23.3,new Date());
+        stockUpdated.setId(id);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(stockUpdated));
+        when(stockMapper.convert(stockUpdated)).thenReturn(new StockDto(id,"someCompany",23.3,stockUpdated.getLastUpdate()));
+        //when
+        stockService.updatePrice(id,new UpdateStockPriceRequest(23.3));
+        //then
+        assertNotEquals(listETag,stockService.listETag());
+        assertNotEquals(stockETag,stockService.stockETag(id));
+    }
+
+    @Test
+    public void updatePrice_PriceNotChanged_ShouldKeepETags(){
+        //given
+        long id = 100l;
+        String listETag = stockService.listETag();
+        String stockETag = stockService.stockETag(id);
+        Stock stockExisting = new Stock("someCompany",23.3,new Date());
+        stockExisting.setId(id);
+        when(stockRepository.updatePriceIfChanged(eq(id),eq(23.3),any())).thenReturn(0);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(stockExisting));
+        //when
+        try {
+            stockService.updatePrice(id,new UpdateStockPriceRequest(23.3));
+            fail();
+        } catch (StockDataBusinessException e){
+            //then
+            assertEquals(listETag,stockService.listETag());
+            assertEquals(stockETag,stockService.stockETag(id));
+        }
+    }
+
+    @Test
+    public void deleteById_ExistingId_ShouldChangeListETag(){
+        //given
+        Long id = 1001l;
+        String listETag = stockService.listETag();
+        //when
+        stockService.deleteById(id);
+        //then
+        assertNotEquals(listETag,stockService.listETag());
+    }
+
+    @Test
+    public void getByName_CacheEnabledCalledTwice_ShouldLoadOnceByName(){
+        //given
+        ((StockServiceImpl)stockService).setStockCache(new ConcurrentStockCache(10));
+        Long id = 1000l;
+        String companyName = "some Company";
+        Stock existingStock = new Stock(companyName,23.1,new Date());
+        existingStock.setId(id);
+        StockDto expectedStockDto = new StockDto(id,companyName,23.1,existingStock.getLastUpdate());
+        when(stockRepository.findByName(companyName)).thenReturn(Optional.of(existingStock));
+        when(stockMapper.convert(existingStock)).thenReturn(expectedStockDto);
+        //when
+        stockService.getByName(companyName);
+        StockDto actualStockDto = stockService.getByName(companyName);
+        //then
+        verify(stockRepository,times(1)).findByName(companyName);
+        verify(stockRepository,never()).findById(id);
+        assertEquals(expectedStockDto,actualStockDto);
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void getByName_NonExistingName_ShouldRaiseEntityNotFoundException(){
+        //given
+        String companyName = "some Company";
+        when(stockRepository.findByName(companyName)).thenReturn(Optional.empty());
+        //when
+        stockService.getByName(companyName);
+    }
+
+    @Test
+    public void getByName_AfterCreate_ShouldResolveNameWithoutLoadingByName(){
+        //given
+        Long id = 1000l;
+        String companyName = "some Company";
+        CreateStockRequest createStockRequest = new CreateStockRequest(companyName,23.1);
+        Stock stock = new Stock(companyName,23.1,new Date());
+        stock.setId(id);
+        StockDto stockDto = new StockDto(id,companyName,23.1,stock.getLastUpdate());
+        when(stockMapper.convert(createStockRequest)).thenReturn(stock);
+        when(stockRepository.save(stock)).thenReturn(stock);
+        when(stockMapper.convert(stock)).thenReturn(stockDto);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(stock));
+        stockService.create(createStockRequest);
+        //when
+        StockDto actualStockDto = stockService.getByName(companyName);
+        //then
+        verify(stockRepository,never()).findByName(companyName);
+        assertEquals(stockDto,actualStockDto);
+    }
+
+    @Test
+    public void getByName_AfterDelete_ShouldLoadByNameAgain(){
+        //given
+        Long id = 1000l;
+        String companyName = "some Company";
+        Stock existingStock = new Stock(companyName,23.1,new Date());
+        existingStock.setId(id);
+        when(stockRepository.findByName(companyName)).thenReturn(Optional.of(existingStock)).thenReturn(Optional.empty());
+        when(stockMapper.convert(existingStock)).thenReturn(new StockDto(id,companyName,23.1,existingStock.getLastUpdate()));
+        stockService.getByName(companyName);
+        stockService.deleteById(id);
+        //when
+        try {
+            stockService.getByName(companyName);
+            fail();
+        } catch (EntityNotFoundException e){
+            //then
+            verify(stockRepository,times(2)).findByName(companyName);
+        }
+    }
+
+    @Test
+    public void getByNames_CachedAndUnknownNames_ShouldLoadUnknownWithOneQueryInOrder(){
+        //given
+        ((StockServiceImpl)stockService).setStockCache(new ConcurrentStockCache(10));
+        Stock stock1 = new Stock("some Company1",23.1,new Date());
+        stock1.setId(1l);
+        Stock stock2 = new Stock("some Company2",23.2,new Date());
+        stock2.setId(2l);
+        StockDto stockDto1 = new StockDto(1l,"some Company1",23.1,stock1.getLastUpdate());
+        StockDto stockDto2 = new StockDto(2l,"some Company2",23.2,stock2.getLastUpdate());
+        when(stockRepository.findByName("some Company1")).thenReturn(Optional.of(stock1));
+        when(stockMapper.convert(stock1)).thenReturn(stockDto1);
+        when(stockMapper.convert(stock2)).thenReturn(stockDto2);
+        when(stockRepository.findByNameIn(new LinkedHashSet<>(Arrays.asList("some Company2","unknown Company"))))
+                .thenReturn(Collections.singletonList(stock2));
+        stockService.getByName("some Company1");
+        //when
+        List<StockDto> actualOutput = stockService.getByNames(Arrays.asList("some Company2","unknown Company","some Company1"));
+        //then
+        assertEquals(Arrays.asList(stockDto2,stockDto1),actualOutput);
+        verify(stockRepository,times(1)).findByNameIn(any());
+    }
+
+    @Test
+    public void getByNames_MoreThanMaxPageLimit_ShouldRaiseStockDataBusinessException(){
+        //given
+        List<String> names = new ArrayList<>();
+        for(int i = 0; i <= MAX_PAGE_LIMIT; i++){
+            names.add("some Company" + i);
+        }
+        //when
+        try {
+            stockService.getByNames(names);
+            fail();
+        } catch (StockDataBusinessException e){
+            //then
+            assertEquals(ErrorMessages.TOO_MANY_NAMES,e.getMessage());
+            verify(stockRepository,never()).findByNameIn(any());
+        }
+    }
+
+    @Test
+    public void deleteById_ExistingId_ShouldRemoveNameFromSearch(){
+        //given
+        Long id = 1l;
+        Stock existingStock = new Stock("some Company",23.1,new Date());
+        existingStock.setId(id);
+        when(stockRepository.findById(id)).thenReturn(Optional.of(existingStock));
+        //when
+        stockService.deleteById(id);
+        //then
+        verify(stockSearchService).stockDeleted(id,"some Company");
+    }
+}
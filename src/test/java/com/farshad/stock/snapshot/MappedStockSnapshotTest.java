@@ -0,0 +1,149 @@
+package com.farshad.stock.snapshot;
+
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.model.Stock;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH;
+import static com.farshad.stock.constants.URlConstants.STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"stock.snapshot.enabled=true", "stock.snapshot.file=target/mapped-stock-snapshot-test.snapshot"})
+@AutoConfigureMockMvc
+public class MappedStockSnapshotTest {
+    private static final Path   SNAPSHOT_PATH       = Paths.get("target/mapped-stock-snapshot-test.snapshot");
+    private static final long   SNAPSHOT_ONLY_ID    = 1000l;
+    private static final long   UPDATED_ID          = 1001l;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private StockSnapshot stockSnapshot;
+    @Autowired
+    private StockRepository stockRepository;
+    private Gson gson;
+
+    @BeforeClass
+    public static void writeSnapshot() throws IOException {
+        Files.deleteIfExists(SNAPSHOT_PATH);
+        try(SnapshotFile snapshotFile = SnapshotFile.open(SNAPSHOT_PATH, 4)){
+            snapshotFile.put(new StockDto(SNAPSHOT_ONLY_ID,"Snapshot Motors",42.5,1000l));
+            snapshotFile.put(new StockDto(UPDATED_ID,"Snapshot Airlines",12.5,1000l));
+            /**
+             * import.sql would create Kia with the current time, it is skipped for a snapshot that holds stocks
+             */
+            snapshotFile.put(new StockDto(2l,"Kia",99.9,1000l));
+        }
+    }
+
+    @AfterClass
+    public static void deleteSnapshot() throws IOException {
+        Files.deleteIfExists(SNAPSHOT_PATH);
+    }
+
+    @Before
+    public void init(){
+        gson = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create();
+    }
+
+    @Test
+    public void getById_StockOnlyInSnapshot_ShouldReturnItAndRestoreIt() throws Exception {
+        //when
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + SNAPSHOT_ONLY_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name",is("Snapshot Motors")))
+                .andExpect(jsonPath("$.current_price",is(42.5)));
+        stockSnapshot.awaitRestored();
+        //then
+        Stock stock = stockRepository.findById(SNAPSHOT_ONLY_ID).orElse(null);
+        assertNotNull(stock);
+        assertEquals(42.5,stock.getCurrentPrice(),0);
+        assertEquals(1000l,stock.getLastUpdate().getTime());
+    }
+
+    @Test
+    public void getById_StockSeededByImport_ShouldReturnSnapshotPriceAfterRestore() throws Exception {
+        //given
+        stockSnapshot.awaitRestored();
+        //then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + 2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.current_price",is(99.9)));
+        assertEquals(99.9,readSnapshot(2l).getCurrentPrice(),0);
+        assertEquals(99.9,stockRepository.findById(2l).get().getCurrentPrice(),0);
+    }
+
+    @Test
+    public void getById_StockSeededByImportButNotInSnapshot_ShouldNotBeFound() throws Exception {
+        //given
+        stockSnapshot.awaitRestored();
+        //then
+        mockMvc.perform(get(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + 1))
+                .andExpect(status().isBadRequest());
+        assertFalse(stockRepository.findById(1l).isPresent());
+    }
+
+    @Test
+    public void updatePrice_RestoredStock_ShouldWriteSnapshot() throws Exception {
+        //when
+        mockMvc.perform(put(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + UPDATED_ID).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new UpdateStockPriceRequest(13.5))))
+                .andExpect(status().isOk());
+        //then
+        assertEquals(13.5,readSnapshot(UPDATED_ID).getCurrentPrice(),0);
+    }
+
+    @Test
+    public void create_AfterRestore_ShouldGetIdAfterSnapshotIds() throws Exception {
+        //when
+        MvcResult mvcResult = mockMvc.perform(post(STOCK_CONTROLLER_FULL_METHOD_PATH).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE)
+                .content(gson.toJson(new CreateStockRequest("some Company",23.1))))
+                .andExpect(status().isCreated())
+                .andReturn();
+        //then
+        StockDto stockDtoCreated = gson.fromJson(mvcResult.getResponse().getContentAsString(),StockDto.class);
+        assertTrue(stockDtoCreated.getId() > UPDATED_ID);
+        assertEquals(stockDtoCreated.getName(),readSnapshot(stockDtoCreated.getId()).getName());
+        mockMvc.perform(delete(STOCK_CONTROLLER_FULL_METHOD_PATH_FOLLOWING_SLASH + stockDtoCreated.getId()))
+                .andExpect(status().isNoContent());
+        assertNull(readSnapshot(stockDtoCreated.getId()));
+    }
+
+    /**
+     * reads the file through a second mapping, it sees the pages the application writes
+     */
+    private static StockDto readSnapshot(Long id) throws IOException {
+        try(SnapshotFile snapshotFile = SnapshotFile.open(SNAPSHOT_PATH, 4)){
+            return snapshotFile.readAll().stream().filter(s -> s.getId().equals(id)).findFirst().orElse(null);
+        }
+    }
+}
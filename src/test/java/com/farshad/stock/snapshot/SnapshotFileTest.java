@@ -0,0 +1,108 @@
+package com.farshad.stock.snapshot;
+
+import com.farshad.stock.dto.StockDto;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SnapshotFileTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void open_MissingFile_ShouldBeEmpty() throws IOException {
+        //given
+        Path path = temporaryFolder.getRoot().toPath().resolve("stock.snapshot");
+        //when
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 4)){
+            //then
+            assertTrue(snapshotFile.readAll().isEmpty());
+            assertTrue(Files.exists(path));
+        }
+    }
+
+    @Test
+    public void open_InvalidFile_ShouldBeEmpty() throws IOException {
+        //given
+        Path path = temporaryFolder.newFile().toPath();
+        Files.write(path, new byte[100]);
+        //when
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 4)){
+            //then
+            assertTrue(snapshotFile.readAll().isEmpty());
+        }
+    }
+
+    @Test
+    public void put_ThenReopen_ShouldReadStocks() throws IOException {
+        //given
+        Path path = temporaryFolder.getRoot().toPath().resolve("stock.snapshot");
+        StockDto stockDto1 = new StockDto(1l,"some Company1",23.1,1000l);
+        StockDto stockDto2 = new StockDto(2l,"some Cömpany2",23.2,2000l);
+        //when
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 4)){
+            snapshotFile.put(stockDto1);
+            snapshotFile.put(stockDto2);
+        }
+        //then
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 4)){
+            assertEquals(Arrays.asList(stockDto1,stockDto2),snapshotFile.readAll());
+        }
+    }
+
+    @Test
+    public void put_SameIdTwice_ShouldUpdateInPlace() throws IOException {
+        //given
+        Path path = temporaryFolder.getRoot().toPath().resolve("stock.snapshot");
+        StockDto stockDtoUpdated = new StockDto(1l,"some Company",25.1,2000l);
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 4)){
+            snapshotFile.put(new StockDto(1l,"some Company",23.1,1000l));
+            long size = Files.size(path);
+            //when
+            snapshotFile.put(stockDtoUpdated);
+            //then
+            assertEquals(Collections.singletonList(stockDtoUpdated),snapshotFile.readAll());
+            assertEquals(size,Files.size(path));
+        }
+    }
+
+    @Test
+    public void put_MoreThanCapacity_ShouldGrowAndKeepStocks() throws IOException {
+        //given
+        Path path = temporaryFolder.getRoot().toPath().resolve("stock.snapshot");
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 2)){
+            //when
+            for(long id = 1; id <= 100; id++){
+                snapshotFile.put(new StockDto(id,"some Company with a long name " + id,23.1 + id,id));
+            }
+            //then
+            assertEquals(100,snapshotFile.size());
+            assertEquals(new StockDto(100l,"some Company with a long name 100",123.1,100l),snapshotFile.readAll().get(99));
+        }
+    }
+
+    @Test
+    public void remove_ThenReopen_ShouldNotReadStock() throws IOException {
+        //given
+        Path path = temporaryFolder.getRoot().toPath().resolve("stock.snapshot");
+        StockDto stockDto2 = new StockDto(2l,"some Company2",23.2,2000l);
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 4)){
+            snapshotFile.put(new StockDto(1l,"some Company1",23.1,1000l));
+            snapshotFile.put(stockDto2);
+            //when
+            snapshotFile.remove(1l);
+        }
+        //then
+        try(SnapshotFile snapshotFile = SnapshotFile.open(path, 4)){
+            assertEquals(Collections.singletonList(stockDto2),snapshotFile.readAll());
+        }
+    }
+}
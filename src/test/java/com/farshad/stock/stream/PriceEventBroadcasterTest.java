@@ -0,0 +1,150 @@
+package com.farshad.stock.stream;
+
+import com.farshad.stock.dto.PriceEventDto;
+import com.farshad.stock.dto.StockDto;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PriceEventBroadcasterTest {
+    private PriceEventBroadcaster priceEventBroadcaster;
+
+    @Before
+    public void init(){
+        priceEventBroadcaster = new PriceEventBroadcaster(2, 4, 60000);
+    }
+
+    @After
+    public void destroy(){
+        priceEventBroadcaster.shutdown();
+    }
+
+    @Test
+    public void publish_TwoSubscribers_ShouldReachBoth() throws Exception {
+        //given
+        RecordingEmitter emitter1 = new RecordingEmitter();
+        RecordingEmitter emitter2 = new RecordingEmitter();
+        priceEventBroadcaster.subscribe(emitter1, null);
+        priceEventBroadcaster.subscribe(emitter2, null);
+        //when
+        priceEventBroadcaster.publish(new StockDto(1l,"some Company",23.1,new Date(1000)));
+        //then
+        assertEquals(new PriceEventDto(1l,23.1,1000),emitter1.awaitEvent());
+        assertEquals(new PriceEventDto(1l,23.1,1000),emitter2.awaitEvent());
+    }
+
+    @Test
+    public void publish_SubscriberFilteredByIds_ShouldOnlyReceiveItsStocks() throws Exception {
+        //given
+        RecordingEmitter emitter = new RecordingEmitter();
+        priceEventBroadcaster.subscribe(emitter, new HashSet<>(Collections.singletonList(2l)));
+        //when
+        priceEventBroadcaster.publish(new StockDto(1l,"some Company",23.1,new Date(1000)));
+        priceEventBroadcaster.publish(new StockDto(2l,"some Company2",23.2,new Date(1000)));
+        //then
+        assertEquals(Long.valueOf(2),emitter.awaitEvent().getId());
+        assertEquals(1,emitter.events.size());
+    }
+
+    @Test
+    public void publish_SlowSubscriber_ShouldConflateAndDropWithoutBlocking() throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slowEmitter = new RecordingEmitter(release);
+        priceEventBroadcaster.subscribe(slowEmitter, null);
+        priceEventBroadcaster.publish(new StockDto(0l,"blocking Company",1.0,new Date(1000)));
+        slowEmitter.sendStarted.await(5, TimeUnit.SECONDS);
+        //when
+        long start = System.nanoTime();
+        for(long id = 1; id <= 100; id++){
+            for(int tick = 0; tick < 10; tick++){
+                priceEventBroadcaster.publish(new StockDto(id,"some Company",(double) tick,new Date(1000 + tick)));
+            }
+        }
+        long publishMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        waitForDrops();
+        release.countDown();
+        //then
+        assertTrue("publishing took " + publishMillis + "ms", publishMillis < 1000);
+        assertTrue(priceEventBroadcaster.getDroppedCount() > 0);
+    }
+
+    @Test
+    public void publish_ClientGone_ShouldRemoveSubscriber() throws Exception {
+        //given
+        RecordingEmitter brokenEmitter = new RecordingEmitter();
+        brokenEmitter.broken = true;
+        priceEventBroadcaster.subscribe(brokenEmitter, null);
+        //when
+        priceEventBroadcaster.publish(new StockDto(1l,"some Company",23.1,new Date(1000)));
+        //then
+        long deadline = System.currentTimeMillis() + 5000;
+        while(priceEventBroadcaster.getSubscriberCount() > 0 && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+        assertEquals(0,priceEventBroadcaster.getSubscriberCount());
+    }
+
+    private void waitForDrops() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while(priceEventBroadcaster.getDroppedCount() == 0 && System.currentTimeMillis() < deadline){
+            Thread.sleep(10);
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<PriceEventDto>   events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch        sendStarted = new CountDownLatch(1);
+        private final CountDownLatch        release;
+        private volatile boolean            broken;
+
+        private RecordingEmitter() {
+            this(new CountDownLatch(0));
+        }
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if(broken){
+                throw new IOException("client gone");
+            }
+            sendStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for(ResponseBodyEmitter.DataWithMediaType data : builder.build()){
+                if(data.getData() instanceof PriceEventDto){
+                    events.add((PriceEventDto) data.getData());
+                }
+            }
+        }
+
+        private PriceEventDto awaitEvent() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while(events.isEmpty() && System.currentTimeMillis() < deadline){
+                Thread.sleep(10);
+            }
+            assertFalse(events.isEmpty());
+            return events.get(0);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.farshad.stock.writebehind;
+
+import com.farshad.stock.cache.StockCache;
+import com.farshad.stock.constants.ErrorMessages;
+import com.farshad.stock.da.StockPriceHistoryRepository;
+import com.farshad.stock.da.StockRepository;
+import com.farshad.stock.dto.CreateStockRequest;
+import com.farshad.stock.dto.StockDto;
+import com.farshad.stock.dto.StockPriceUpdate;
+import com.farshad.stock.dto.StockPriceUpdateResult;
+import com.farshad.stock.dto.UpdateStockPriceRequest;
+import com.farshad.stock.exception.StockDataBusinessException;
+import com.farshad.stock.service.PriceHistoryService;
+import com.farshad.stock.service.StockSearchService;
+import com.farshad.stock.service.StockService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Flushes are only done by the tests, the scheduled one is an hour away
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"stock.write-behind.enabled=true", "stock.write-behind.flush-ms=3600000"})
+public class CoalescingPriceWriteBehindTest {
+    @Autowired
+    private StockService stockService;
+    @Autowired
+    private PriceWriteBehind priceWriteBehind;
+    @Autowired
+    private StockRepository stockRepository;
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+    @Autowired
+    private StockPriceHistoryRepository stockPriceHistoryRepository;
+    @Autowired
+    private StockSearchService stockSearchService;
+    @Autowired
+    private StockCache stockCache;
+
+    @Test
+    public void updatePrice_SeveralTicks_ShouldServeLatestAndWriteItOnFlush() {
+        //given
+        StockDto stockDto = stockService.create(new CreateStockRequest("write-behind Company1",10.0));
+
+        try {
+            //when
+            stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(10.5));
+            stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(11.0));
+            StockDto stockDtoUpdated = stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(11.5));
+
+            //then
+            assertEquals(11.5, stockDtoUpdated.getCurrentPrice(), 0);
+            assertEquals(stockDtoUpdated, stockService.getById(stockDto.getId()));
+            assertEquals(stockDtoUpdated, priceWriteBehind.getPending(stockDto.getId()));
+            assertEquals(10.0, stockRepository.findById(stockDto.getId()).get().getCurrentPrice(), 0);
+            assertEquals(4, priceHistoryService.getHistory(stockDto.getId(), null, null).size());
+            assertEquals(1, historyRows(stockDto.getId()));
+
+            //when
+            priceWriteBehind.flush();
+
+            //then
+            assertNull(priceWriteBehind.getPending(stockDto.getId()));
+            assertEquals(4, historyRows(stockDto.getId()));
+            assertEquals(11.5, stockRepository.findById(stockDto.getId()).get().getCurrentPrice(), 0);
+            assertEquals(stockDtoUpdated.getLastUpdateTime(), stockRepository.findById(stockDto.getId()).get().getLastUpdate().getTime());
+        } finally {
+            stockService.deleteById(stockDto.getId());
+        }
+    }
+
+    @Test
+    public void updatePrice_SameOrOlderThanPendingPrice_ShouldBeRejected() {
+        //given
+        StockDto stockDto = stockService.create(new CreateStockRequest("write-behind Company2",10.0));
+        Date lastUpdate = new Date(stockDto.getLastUpdateTime() + 1000);
+
+        try {
+            stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(12.0, lastUpdate));
+
+            //when then
+            try {
+                stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(12.0));
+                fail();
+            } catch (StockDataBusinessException e){
+                assertEquals(ErrorMessages.PRICE_NOT_CHANGED, e.getMessage());
+            }
+            try {
+                stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(13.0, new Date(lastUpdate.getTime() - 1)));
+                fail();
+            } catch (StockDataBusinessException e){
+                assertEquals(ErrorMessages.STALE_PRICE_UPDATE, e.getMessage());
+            }
+            assertEquals(12.0, stockService.getById(stockDto.getId()).getCurrentPrice(), 0);
+        } finally {
+            stockService.deleteById(stockDto.getId());
+        }
+    }
+
+    @Test
+    public void updatePrices_ExistingAndMissingStocks_ShouldApplyInMemoryAndWriteOnFlush() {
+        //given
+        StockDto stockDto1 = stockService.create(new CreateStockRequest("write-behind Company3",10.0));
+        StockDto stockDto2 = stockService.create(new CreateStockRequest("write-behind Company4",20.0));
+
+        try {
+            //when
+            List<StockPriceUpdateResult> results = stockService.updatePrices(Arrays.asList(
+                    new StockPriceUpdate(stockDto1.getId(), 10.5),
+                    new StockPriceUpdate(stockDto2.getId(), 20.0),
+                    new StockPriceUpdate(146000l, 1.0)));
+            priceWriteBehind.flush();
+
+            //then
+            assertEquals(StockPriceUpdateResult.Status.UPDATED, results.get(0).getStatus());
+            assertEquals(StockPriceUpdateResult.Status.UNCHANGED, results.get(1).getStatus());
+            assertEquals(StockPriceUpdateResult.Status.NOT_FOUND, results.get(2).getStatus());
+            assertEquals(10.5, stockRepository.findById(stockDto1.getId()).get().getCurrentPrice(), 0);
+            assertEquals(20.0, stockRepository.findById(stockDto2.getId()).get().getCurrentPrice(), 0);
+        } finally {
+            stockService.deleteById(stockDto1.getId());
+            stockService.deleteById(stockDto2.getId());
+        }
+    }
+
+    @Test
+    public void search_PendingPriceNotCached_ShouldReturnPendingPrice() {
+        //given
+        StockDto stockDto = stockService.create(new CreateStockRequest("write-behind Company7",10.0));
+
+        try {
+            stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(10.5));
+            stockCache.evict(stockDto.getId());
+
+            //when
+            List<StockDto> stockDtoList = stockSearchService.search("write-behind Company7", 10);
+
+            //then
+            assertEquals(1, stockDtoList.size());
+            assertEquals(10.5, stockDtoList.get(0).getCurrentPrice(), 0);
+        } finally {
+            stockService.deleteById(stockDto.getId());
+        }
+    }
+
+    @Test
+    public void flush_StockDeletedBehindThePendingPrice_ShouldDropIt() {
+        //given
+        StockDto stockDto = stockService.create(new CreateStockRequest("write-behind Company5",10.0));
+        stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(10.5));
+        stockRepository.deleteById(stockDto.getId());
+
+        //when
+        priceWriteBehind.flush();
+
+        //then
+        assertNull(priceWriteBehind.getPending(stockDto.getId()));
+        assertFalse(stockRepository.existsById(stockDto.getId()));
+    }
+
+    @Test
+    public void deleteById_PendingPrice_ShouldDropIt() {
+        //given
+        StockDto stockDto = stockService.create(new CreateStockRequest("write-behind Company6",10.0));
+        stockService.updatePrice(stockDto.getId(), new UpdateStockPriceRequest(10.5));
+
+        //when
+        stockService.deleteById(stockDto.getId());
+
+        //then
+        assertNull(priceWriteBehind.getPending(stockDto.getId()));
+    }
+
+    private int historyRows(Long id) {
+        return stockPriceHistoryRepository.findByStockIdAndTickTimeBetweenOrderByTickTimeAsc(id, new Date(0),
+                new Date(System.currentTimeMillis() + 60000)).size();
+    }
+}